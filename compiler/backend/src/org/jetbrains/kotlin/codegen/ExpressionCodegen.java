@@ -2541,8 +2541,11 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
                 }
                 Type currentScriptType = typeMapper.mapType(scriptContext.getScriptDescriptor());
                 Type classType = typeMapper.mapType(receiver);
-                String fieldName = scriptContext.getScriptFieldName(receiver);
-                return StackValue.field(classType, currentScriptType, fieldName, false, result, receiver);
+                StackValue earlierScripts = StackValue.field(
+                        ScriptContext.EARLIER_SCRIPTS_TYPE, currentScriptType, ScriptContext.EARLIER_SCRIPTS_FIELD_NAME, false, result
+                );
+                StackValue index = StackValue.constant(scriptContext.getEarlierScriptIndex(receiver), Type.INT_TYPE);
+                return StackValue.coercion(StackValue.arrayElement(OBJECT_TYPE, earlierScripts, index), classType);
             }
 
             result = cur.getOuterExpression(result, false);
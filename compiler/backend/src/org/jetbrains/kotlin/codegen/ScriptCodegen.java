@@ -147,12 +147,12 @@ public class ScriptCodegen extends MemberCodegen<KtScript> {
             FrameMap frameMap = new FrameMap();
             frameMap.enterTemp(OBJECT_TYPE);
 
-            for (ScriptDescriptor importedScript : context.getEarlierScripts()) {
-                frameMap.enter(importedScript, OBJECT_TYPE);
+            if (context.hasEarlierScripts()) {
+                frameMap.enterTemp(ScriptContext.EARLIER_SCRIPTS_TYPE);
             }
 
             Type[] argTypes = jvmSignature.getAsmMethod().getArgumentTypes();
-            int add = 0;
+            int add = context.hasEarlierScripts() ? 1 : 0;
 
             List<ValueParameterDescriptor> valueParameters = scriptDescriptor.getUnsubstitutedPrimaryConstructor().getValueParameters();
             for (int i = 0; i < valueParameters.size(); i++) {
@@ -162,12 +162,12 @@ public class ScriptCodegen extends MemberCodegen<KtScript> {
 
             int offset = 1;
 
-            for (ScriptDescriptor earlierScript : context.getEarlierScripts()) {
-                Type earlierClassType = typeMapper.mapClass(earlierScript);
+            if (context.hasEarlierScripts()) {
+                Type earlierScriptsType = ScriptContext.EARLIER_SCRIPTS_TYPE;
                 iv.load(0, classType);
-                iv.load(offset, earlierClassType);
-                offset += earlierClassType.getSize();
-                iv.putfield(classType.getInternalName(), context.getScriptFieldName(earlierScript), earlierClassType.getDescriptor());
+                iv.load(offset, earlierScriptsType);
+                offset += earlierScriptsType.getSize();
+                iv.putfield(classType.getInternalName(), ScriptContext.EARLIER_SCRIPTS_FIELD_NAME, earlierScriptsType.getDescriptor());
             }
 
             for (ValueParameterDescriptor parameter : valueParameters) {
@@ -195,10 +195,10 @@ public class ScriptCodegen extends MemberCodegen<KtScript> {
     }
 
     private void genFieldsForParameters(@NotNull ScriptDescriptor script, @NotNull ClassBuilder classBuilder) {
-        for (ScriptDescriptor earlierScript : context.getEarlierScripts()) {
-            Type earlierClassName = typeMapper.mapType(earlierScript);
+        if (context.hasEarlierScripts()) {
             int access = ACC_PUBLIC | ACC_FINAL;
-            classBuilder.newField(NO_ORIGIN, access, context.getScriptFieldName(earlierScript), earlierClassName.getDescriptor(), null, null);
+            classBuilder.newField(NO_ORIGIN, access, ScriptContext.EARLIER_SCRIPTS_FIELD_NAME,
+                                  ScriptContext.EARLIER_SCRIPTS_TYPE.getDescriptor(), null, null);
         }
 
         for (ValueParameterDescriptor parameter : script.getUnsubstitutedPrimaryConstructor().getValueParameters()) {
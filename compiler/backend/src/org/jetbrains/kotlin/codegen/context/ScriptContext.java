@@ -32,11 +32,23 @@ import org.jetbrains.kotlin.psi.KtScript;
 import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils;
 import org.jetbrains.kotlin.resolve.jvm.AsmTypes;
 
+import org.jetbrains.org.objectweb.asm.Type;
+
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ScriptContext extends ClassContext {
+    /**
+     * Instances of earlier REPL lines are passed to the script constructor as a single array and kept in this field,
+     * so that the size of the constructor signature and of the script class does not grow with the number of lines
+     */
+    public static final String EARLIER_SCRIPTS_FIELD_NAME = "$$earlierScripts";
+    public static final Type EARLIER_SCRIPTS_TYPE = AsmTypes.getType(Object[].class);
+
     private final ScriptDescriptor scriptDescriptor;
     private final List<ScriptDescriptor> earlierScripts;
+    private Map<ScriptDescriptor, Integer> earlierScriptIndices;
     private final KtExpression lastStatement;
 
     public ScriptContext(
@@ -79,13 +91,23 @@ public class ScriptContext extends ClassContext {
         return earlierScripts;
     }
 
-    @NotNull
-    public String getScriptFieldName(@NotNull ScriptDescriptor scriptDescriptor) {
-        int index = earlierScripts.indexOf(scriptDescriptor);
-        if (index < 0) {
+    public boolean hasEarlierScripts() {
+        return !earlierScripts.isEmpty();
+    }
+
+    public int getEarlierScriptIndex(@NotNull ScriptDescriptor scriptDescriptor) {
+        if (earlierScriptIndices == null) {
+            earlierScriptIndices = new HashMap<ScriptDescriptor, Integer>();
+            for (int i = 0; i < earlierScripts.size(); i++) {
+                earlierScriptIndices.put(earlierScripts.get(i), i);
+            }
+        }
+
+        Integer index = earlierScriptIndices.get(scriptDescriptor);
+        if (index == null) {
             throw new IllegalStateException("Unregistered script: " + scriptDescriptor);
         }
-        return "script$" + (index + 1);
+        return index;
     }
 
     @Nullable
@@ -61,6 +61,13 @@ public class K2JSCompilerArguments extends CommonCompilerArguments {
     @ValueDescription("<path>")
     public String outputPostfix;
 
+    @Argument(value = "Xdce", description = "Remove declarations of the compiled module and its libraries, which are not reachable from main, top-level code, -Xdce-keep declarations and, with -meta-info or -kjsm, public API; pruned copies of libraries are written to the <output name>.dce directory")
+    public boolean deadCodeElimination;
+
+    @Argument(value = "Xdce-keep", description = "Qualified names of declarations to keep during dead code elimination separated by commas")
+    @ValueDescription("<fq-name[,]>")
+    public String[] dceKeep;
+
     @Override
     @NotNull
     public String executableScriptFileName() {
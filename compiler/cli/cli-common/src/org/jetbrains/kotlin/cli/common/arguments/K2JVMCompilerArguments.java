@@ -67,6 +67,9 @@ public class K2JVMCompilerArguments extends CommonCompilerArguments {
     @Argument(value = "Xmultifile-facades-open", description = "Compile multifile facade classes as open")
     public boolean multifileFacadesOpen;
 
+    @Argument(value = "Xparallel-parsing", description = "Parse source files on several threads before analysis")
+    public boolean parallelParsing;
+
     // Paths to output directories for friend modules.
     public String[] friendPaths;
 
@@ -42,6 +42,7 @@ import org.jetbrains.kotlin.cli.jvm.compiler.CompilerJarLocator;
 import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles;
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
 import org.jetbrains.kotlin.cli.jvm.config.JVMConfigurationKeys;
+import org.jetbrains.kotlin.config.CommonConfigurationKeys;
 import org.jetbrains.kotlin.config.CompilerConfiguration;
 import org.jetbrains.kotlin.config.ContentRootsKt;
 import org.jetbrains.kotlin.config.Services;
@@ -53,11 +54,14 @@ import org.jetbrains.kotlin.js.config.LibrarySourcesConfig;
 import org.jetbrains.kotlin.js.facade.K2JSTranslator;
 import org.jetbrains.kotlin.js.facade.MainCallParameters;
 import org.jetbrains.kotlin.js.facade.TranslationResult;
+import org.jetbrains.kotlin.lexer.KotlinTokensCache;
 import org.jetbrains.kotlin.progress.ProgressIndicatorAndCompilationCanceledStatus;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.kotlin.utils.PathUtil;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.jetbrains.kotlin.cli.common.ExitCode.COMPILATION_ERROR;
@@ -103,6 +107,11 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
             configuration.put(JVMConfigurationKeys.COMPILER_JAR_LOCATOR, locator);
         }
 
+        KotlinTokensCache tokensCache = services.get(KotlinTokensCache.class);
+        if (tokensCache != null) {
+            configuration.put(CommonConfigurationKeys.TOKENS_CACHE, tokensCache);
+        }
+
         ContentRootsKt.addKotlinSourceRoots(configuration, arguments.freeArgs);
         KotlinCoreEnvironment environmentForJS =
                 KotlinCoreEnvironment.createForProduction(rootDisposable, configuration, EnvironmentConfigFiles.JS_CONFIG_FILES);
@@ -265,6 +274,8 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
                 .inlineEnabled(inlineEnabled)
                 .metaInfo(arguments.metaInfo)
                 .kjsm(arguments.kjsm)
+                .deadCodeElimination(arguments.deadCodeElimination)
+                .entryPoints(arguments.dceKeep != null ? Arrays.asList(arguments.dceKeep) : Collections.<String>emptyList())
                 .build();
     }
 
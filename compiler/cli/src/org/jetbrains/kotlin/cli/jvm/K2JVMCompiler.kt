@@ -34,6 +34,7 @@ import org.jetbrains.kotlin.compiler.plugin.CliOptionProcessingException
 import org.jetbrains.kotlin.compiler.plugin.PluginCliOptionProcessingException
 import org.jetbrains.kotlin.compiler.plugin.cliPluginUsageString
 import org.jetbrains.kotlin.config.*
+import org.jetbrains.kotlin.lexer.KotlinTokensCache
 import org.jetbrains.kotlin.load.java.JvmAbi
 import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
 import org.jetbrains.kotlin.script.StandardScriptDefinition
@@ -68,6 +69,11 @@ open class K2JVMCompiler : CLICompiler<K2JVMCompilerArguments>() {
         val locator = services.get(CompilerJarLocator::class.java)
         configuration.put(JVMConfigurationKeys.COMPILER_JAR_LOCATOR, locator)
 
+        val tokensCache: KotlinTokensCache? = services.get(KotlinTokensCache::class.java)
+        if (tokensCache != null) {
+            configuration.put(CommonConfigurationKeys.TOKENS_CACHE, tokensCache)
+        }
+
         try {
             if (!arguments.noJdk) {
                 configuration.addJvmClasspathRoots(PathUtil.getJdkClassesRoots())
@@ -275,6 +281,7 @@ open class K2JVMCompiler : CLICompiler<K2JVMCompilerArguments>() {
             configuration.put(JVMConfigurationKeys.DISABLE_INLINE, arguments.noInline)
             configuration.put(JVMConfigurationKeys.DISABLE_OPTIMIZATION, arguments.noOptimize)
             configuration.put(JVMConfigurationKeys.MULTIFILE_FACADES_OPEN, arguments.multifileFacadesOpen);
+            configuration.put(JVMConfigurationKeys.PARALLEL_PARSING, arguments.parallelParsing)
         }
 
         private fun getClasspath(paths: KotlinPaths, arguments: K2JVMCompilerArguments): List<File> {
@@ -16,12 +16,16 @@
 
 package org.jetbrains.kotlin.cli.jvm.compiler
 
+import com.intellij.openapi.vfs.StandardFileSystems
 import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.containers.ContainerUtil
+import com.intellij.util.io.URLUtil
 import org.jetbrains.kotlin.cli.jvm.config.JvmClasspathRoot
 import org.jetbrains.kotlin.config.CommonConfigurationKeys
 import org.jetbrains.kotlin.descriptors.PackagePartProvider
 import org.jetbrains.kotlin.load.kotlin.ModuleMapping
 import java.io.EOFException
+import java.io.File
 
 class JvmPackagePartProvider(val env: KotlinCoreEnvironment) : PackagePartProvider {
 
@@ -33,28 +37,69 @@ class JvmPackagePartProvider(val env: KotlinCoreEnvironment) : PackagePartProvid
                 }.filter { it.findChild("META-INF") != null }
     }
 
+    // package fq name -> names of package parts from all roots, in the order of roots
+    private val packageParts: Map<String, List<String>> by lazy {
+        val result = linkedMapOf<String, MutableSet<String>>()
+        for (root in roots) {
+            for ((packageFqName, parts) in readRootMapping(root)) {
+                // parts are looked up only in roots which contain the package itself
+                if (!root.containsPackage(packageFqName)) continue
+                result.getOrPut(packageFqName) { linkedSetOf() }.addAll(parts)
+            }
+        }
+        result.mapValues { it.value.toList() }
+    }
+
     override fun findPackageParts(packageFqName: String): List<String> {
-        val pathParts = packageFqName.split('.')
-        val mappings = roots.filter {
-            //filter all roots by package path existing
-            pathParts.fold(it) {
-                parent, part ->
-                if (part.isEmpty()) parent
-                else  parent.findChild(part) ?: return@filter false
+        return packageParts[packageFqName] ?: emptyList()
+    }
+
+    private fun readRootMapping(root: VirtualFile): Map<String, List<String>> {
+        val mappingFiles = root.findChild("META-INF")?.children?.filter { it.name.endsWith(ModuleMapping.MAPPING_FILE_EXT) }
+        if (mappingFiles == null || mappingFiles.isEmpty()) return emptyMap()
+
+        // a jar rewritten at the same path gets another key, so its stale mapping is never returned
+        val key = root.path + "@" + rootStamp(root, mappingFiles)
+        rootMappingCache[key]?.let { return it }
+
+        val packageParts = linkedMapOf<String, List<String>>()
+        for (file in mappingFiles) {
+            val mapping = try {
+                ModuleMapping.create(file.contentsToByteArray())
+            }
+            catch (e: EOFException) {
+                throw RuntimeException("Error on reading package parts in '$file', roots: $roots", e)
             }
-            true
-        }.mapNotNull {
-            it.findChild("META-INF")
-        }.flatMap {
-            it.children.filter<VirtualFile> { it.name.endsWith(ModuleMapping.MAPPING_FILE_EXT) }
-        }.map {
-            try {
-                ModuleMapping.create(it.contentsToByteArray())
-            } catch (e: EOFException) {
-                throw RuntimeException("Error on reading package parts for '$packageFqName' package in '$it', roots: $roots", e)
+            for ((packageFqName, parts) in mapping.packageFqName2Parts) {
+                packageParts[packageFqName] = (packageParts[packageFqName] ?: emptyList()) + parts.parts
             }
         }
 
-        return mappings.mapNotNull { it.findPackageParts(packageFqName) }.flatMap { it.parts }.distinct()
+        rootMappingCache[key] = packageParts
+        return packageParts
+    }
+
+    private fun VirtualFile.containsPackage(packageFqName: String): Boolean {
+        var directory = this
+        for (part in packageFqName.split('.')) {
+            if (part.isEmpty()) continue
+            directory = directory.findChild(part) ?: return false
+        }
+        return true
+    }
+
+    companion object {
+        // Decoded module mappings by classpath root and its stamp, shared between compilations in the same process (e.g. in the daemon).
+        // Values are softly reachable, so the cache doesn't keep mappings of roots which are not used anymore.
+        private val rootMappingCache = ContainerUtil.createConcurrentSoftValueMap<String, Map<String, List<String>>>()
+
+        private fun rootStamp(root: VirtualFile, mappingFiles: List<VirtualFile>): String {
+            if (root.fileSystem.protocol == StandardFileSystems.JAR_PROTOCOL) {
+                val jar = File(root.path.substringBefore(URLUtil.JAR_SEPARATOR))
+                return "${jar.lastModified()}:${jar.length()}"
+            }
+            // module mappings in output directories are rewritten between compilations
+            return mappingFiles.joinToString { "${it.name}:${it.timeStamp}:${it.length}" }
+        }
     }
-}
\ No newline at end of file
+}
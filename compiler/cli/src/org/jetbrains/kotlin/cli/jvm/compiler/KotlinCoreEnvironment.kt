@@ -76,6 +76,7 @@ import org.jetbrains.kotlin.config.kotlinSourceRoots
 import org.jetbrains.kotlin.extensions.ExternalDeclarationsProvider
 import org.jetbrains.kotlin.extensions.StorageComponentContainerContributor
 import org.jetbrains.kotlin.idea.KotlinFileType
+import org.jetbrains.kotlin.lexer.KotlinTokensCache
 import org.jetbrains.kotlin.load.kotlin.JvmVirtualFileFinderFactory
 import org.jetbrains.kotlin.load.kotlin.KotlinBinaryClassCache
 import org.jetbrains.kotlin.load.kotlin.ModuleVisibilityManager
@@ -121,6 +122,9 @@ class KotlinCoreEnvironment private constructor(
         val project = projectEnvironment.project
         project.registerService(DeclarationProviderFactoryService::class.java, CliDeclarationProviderFactoryService(sourceFiles))
         project.registerService(ModuleVisibilityManager::class.java, CliModuleVisibilityManagerImpl())
+        configuration.get(CommonConfigurationKeys.TOKENS_CACHE)?.let {
+            project.registerService(KotlinTokensCache::class.java, it)
+        }
 
         registerProjectServicesForCLI(projectEnvironment)
         registerProjectServices(projectEnvironment)
@@ -140,6 +144,10 @@ class KotlinCoreEnvironment private constructor(
             }
         })
 
+        if (configuration.get(JVMConfigurationKeys.PARALLEL_PARSING, false)) {
+            parseInParallel(sourceFiles)
+        }
+
         KotlinScriptDefinitionProvider.getInstance(project).setScriptDefinitions(configuration.getList(CommonConfigurationKeys.SCRIPT_DEFINITIONS_KEY))
 
         project.registerService(JvmVirtualFileFinderFactory::class.java, JvmCliVirtualFileFinderFactory(index))
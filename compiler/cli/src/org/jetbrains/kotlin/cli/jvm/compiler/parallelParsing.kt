@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import org.jetbrains.kotlin.psi.KtFile
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+
+/**
+ * Reads and parses [files] on a pool of worker threads, so that analysis finds their trees already built.
+ *
+ * Each file is lexed and parsed independently, the only shared state is the file contents loaded from the disk.
+ */
+fun parseInParallel(files: List<KtFile>, threads: Int = Runtime.getRuntime().availableProcessors()) {
+    val threadCount = Math.min(threads, files.size)
+    if (threadCount < 2) return
+
+    val executor = Executors.newFixedThreadPool(threadCount, object : ThreadFactory {
+        private var count = 0
+
+        override fun newThread(r: Runnable): Thread {
+            val thread = Thread(r, "Kotlin parser " + ++count)
+            thread.isDaemon = true
+            return thread
+        }
+    })
+
+    try {
+        // largest files first, so that a big file parsed last does not leave other threads idle
+        val tasks = files.sortedByDescending { it.virtualFile?.length ?: 0L }.map { file ->
+            Callable<Unit> {
+                // building the file element triggers loading of the text and parsing
+                file.node.firstChildNode
+            }
+        }
+
+        for (future in executor.invokeAll(tasks)) {
+            try {
+                future.get()
+            }
+            catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+    }
+    finally {
+        executor.shutdown()
+    }
+}
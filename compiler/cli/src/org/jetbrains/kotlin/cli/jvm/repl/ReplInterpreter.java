@@ -92,6 +92,10 @@ public class ReplInterpreter {
     @Nullable
     private LexicalScope lastLineScope;
     private final List<EarlierLine> earlierLines = Lists.newArrayList();
+    private final List<ScriptDescriptor> earlierScripts = Lists.newArrayList();
+    // Instances of earlier lines, shared by all of them: a line only reads the elements before its own,
+    // which are never changed, so the array is copied only when it has to grow
+    private Object[] earlierScriptInstances = new Object[16];
     private final List<String> previousIncompleteLines = Lists.newArrayList();
     private final ReplClassLoader classLoader;
 
@@ -324,12 +328,6 @@ public class ReplInterpreter {
             return LineResult.compileError(errorHolder.getRenderedDiagnostics());
         }
 
-        List<ScriptDescriptor> earlierScripts = Lists.newArrayList();
-
-        for (EarlierLine earlierLine : earlierLines) {
-            earlierScripts.add(earlierLine.getScriptDescriptor());
-        }
-
         GenerationState state = new GenerationState(psiFile.getProject(), ClassBuilderFactories.BINARIES,
                                                     module, trace.getBindingContext(), Collections.singletonList(psiFile));
 
@@ -345,15 +343,12 @@ public class ReplInterpreter {
         try {
             Class<?> scriptClass = classLoader.loadClass(scriptFqName.asString());
 
-            Class<?>[] constructorParams = new Class<?>[earlierLines.size()];
-            Object[] constructorArgs = new Object[earlierLines.size()];
+            // earlier lines are passed as a single array, see ScriptContext.EARLIER_SCRIPTS_FIELD_NAME
+            boolean hasEarlierLines = !earlierLines.isEmpty();
+            Constructor<?> scriptInstanceConstructor =
+                    hasEarlierLines ? scriptClass.getConstructor(Object[].class) : scriptClass.getConstructor();
+            Object[] constructorArgs = hasEarlierLines ? new Object[] {earlierScriptInstances} : new Object[0];
 
-            for (int i = 0; i < earlierLines.size(); ++i) {
-                constructorParams[i] = earlierLines.get(i).getScriptClass();
-                constructorArgs[i] = earlierLines.get(i).getScriptInstance();
-            }
-
-            Constructor<?> scriptInstanceConstructor = scriptClass.getConstructor(constructorParams);
             Object scriptInstance;
             try {
                 setReplScriptExecuting(true);
@@ -369,6 +364,11 @@ public class ReplInterpreter {
             rvField.setAccessible(true);
             Object rv = rvField.get(scriptInstance);
 
+            if (earlierLines.size() == earlierScriptInstances.length) {
+                earlierScriptInstances = Arrays.copyOf(earlierScriptInstances, earlierScriptInstances.length * 2);
+            }
+            earlierScriptInstances[earlierLines.size()] = scriptInstance;
+            earlierScripts.add(scriptDescriptor);
             earlierLines.add(new EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance));
 
             return LineResult.successful(rv, !state.getReplSpecific().getHasResult());
@@ -448,7 +448,7 @@ public class ReplInterpreter {
             @NotNull CompilationErrorHandler errorHandler
     ) {
         state.getReplSpecific().setScriptResultFieldName(SCRIPT_RESULT_FIELD_NAME);
-        state.getReplSpecific().setEarlierScriptsForReplInterpreter(new ArrayList<ScriptDescriptor>(earlierScripts));
+        state.getReplSpecific().setEarlierScriptsForReplInterpreter(Collections.unmodifiableList(earlierScripts));
 
         state.beforeCompile();
         KotlinCodegenFacade.generatePackage(
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.daemon.client
+
+import org.jetbrains.kotlin.cli.common.CLICompiler
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.daemon.common.*
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.rmi.RemoteException
+import java.util.*
+
+/**
+ * Compilation in the compile daemon for build tools which otherwise run the compiler in their own process (Gradle and Maven plugins).
+ *
+ * A connection is made on first use and shared by all modules compiled by the build process,
+ * the daemon is started if there is no suitable one, and stays alive for the subsequent builds.
+ */
+object BuildToolsDaemonClient {
+    private val connections = DaemonConnections { compilerId, messageCollector -> connectToDaemon(compilerId, messageCollector) }
+
+    private val SEVERITY_PREFIX = "(?:^|: )(exception|error|warning|info|logging|output): ".toRegex()
+
+    /**
+     * Returns null if the daemon is not available, the caller is expected to compile in-process in that case.
+     * Compiler messages are reported to [messageCollector] as rendered by the daemon, without locations.
+     */
+    @JvmStatic
+    fun compile(
+            targetPlatform: CompileService.TargetPlatform,
+            args: Array<String>,
+            messageCollector: MessageCollector
+    ): ExitCode? {
+        val compilerId = CompilerId.makeCompilerId(findCompilerClasspath())
+        return compile(connections, compilerId, targetPlatform, args, messageCollector)
+    }
+
+    fun compile(
+            connections: DaemonConnections,
+            compilerId: CompilerId,
+            targetPlatform: CompileService.TargetPlatform,
+            args: Array<String>,
+            messageCollector: MessageCollector
+    ): ExitCode? {
+        for (attempt in 1..2) {
+            val daemon = connections.get(compilerId, messageCollector) ?: return null
+
+            val out = ByteArrayOutputStream()
+            val code = try {
+                KotlinCompilerClient.compile(daemon, CompileService.NO_SESSION, targetPlatform, args, out)
+            }
+            catch (e: RemoteException) {
+                // the daemon might have been shut down since the previous build, connect again
+                messageCollector.report(CompilerMessageSeverity.LOGGING, "Lost connection to the daemon: $e", CompilerMessageLocation.NO_LOCATION)
+                connections.forget(compilerId)
+                continue
+            }
+
+            reportOutput(out.toString(), messageCollector)
+            return ExitCode.values().firstOrNull { it.code == code } ?: ExitCode.INTERNAL_ERROR
+        }
+
+        return null
+    }
+
+    /**
+     * Reports the text printed by the daemon compiler line by line, with the severity of the message each line belongs to.
+     */
+    fun reportOutput(output: String, messageCollector: MessageCollector) {
+        var severity = CompilerMessageSeverity.INFO
+        for (line in output.lineSequence()) {
+            if (line.isBlank()) continue
+
+            // lines without a severity belong to the previous multiline message, e.g. a source line under the error
+            SEVERITY_PREFIX.find(line)?.let {
+                severity = CompilerMessageSeverity.valueOf(it.groups[1]!!.value.toUpperCase())
+            }
+            messageCollector.report(severity, line, CompilerMessageLocation.NO_LOCATION)
+        }
+    }
+
+    private fun connectToDaemon(compilerId: CompilerId, messageCollector: MessageCollector): CompileService? {
+        val reportMessages = ArrayList<DaemonReportMessage>()
+        val daemon = KotlinCompilerClient.connectToCompileService(
+                compilerId,
+                configureDaemonJVMOptions(inheritMemoryLimits = true, inheritAdditionalProperties = true),
+                configureDaemonOptions(),
+                DaemonReportingTargets(messages = reportMessages),
+                autostart = true,
+                checkId = true)
+
+        for (msg in reportMessages) {
+            if (msg.category == DaemonReportCategory.EXCEPTION && daemon == null) {
+                messageCollector.report(CompilerMessageSeverity.WARNING,
+                                        "Falling back to compilation without daemon due to error: " + msg.message,
+                                        CompilerMessageLocation.NO_LOCATION)
+            }
+            else {
+                messageCollector.report(CompilerMessageSeverity.LOGGING, msg.message, CompilerMessageLocation.NO_LOCATION)
+            }
+        }
+
+        return daemon
+    }
+
+    // the daemon runs the same compiler the build tool has loaded
+    private fun findCompilerClasspath(): List<File> =
+            listOf(File(CLICompiler::class.java.protectionDomain.codeSource.location.toURI()))
+}
+
+val FAILED_DAEMON_CONNECTION_EXPIRATION_MS = 60000L
+
+/**
+ * Connections to compile daemons, one per compiler.
+ *
+ * A failed connection is not retried for the next [failureExpirationMillis], so that a build of many modules
+ * doesn't wait for the daemon startup timeout on every module, but a daemon started later is picked up by the next builds.
+ */
+class DaemonConnections(
+        private val failureExpirationMillis: Long = FAILED_DAEMON_CONNECTION_EXPIRATION_MS,
+        private val currentTimeMillis: () -> Long = { System.currentTimeMillis() },
+        private val connect: (CompilerId, MessageCollector) -> CompileService?
+) {
+    private val daemons = HashMap<CompilerId, CompileService>()
+    private val failures = HashMap<CompilerId, Long>()
+
+    @Synchronized
+    fun get(compilerId: CompilerId, messageCollector: MessageCollector): CompileService? {
+        daemons[compilerId]?.let { return it }
+
+        val failedAt = failures[compilerId]
+        if (failedAt != null && currentTimeMillis() - failedAt < failureExpirationMillis) return null
+
+        val daemon = connect(compilerId, messageCollector)
+        if (daemon != null) {
+            daemons[compilerId] = daemon
+            failures.remove(compilerId)
+        }
+        else {
+            failures[compilerId] = currentTimeMillis()
+        }
+        return daemon
+    }
+
+    @Synchronized
+    fun forget(compilerId: CompilerId) {
+        daemons.remove(compilerId)
+    }
+}
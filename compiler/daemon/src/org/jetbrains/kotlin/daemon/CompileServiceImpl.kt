@@ -23,6 +23,7 @@ import org.jetbrains.kotlin.cli.common.KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PRO
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
 import org.jetbrains.kotlin.config.Services
 import org.jetbrains.kotlin.daemon.common.*
+import org.jetbrains.kotlin.lexer.KotlinTokensCache
 import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
 import org.jetbrains.kotlin.progress.CompilationCanceledStatus
 import org.jetbrains.kotlin.utils.addToStdlib.check
@@ -45,6 +46,9 @@ import kotlin.concurrent.write
 
 fun nowSeconds() = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime())
 
+// tokens take about 8 bytes each, so 16 MB of a 1 GB heap keep about two million tokens (~200K lines of sources)
+private val TOKENS_CACHE_MEMORY_FRACTION = 64
+
 interface CompilerSelector {
     operator fun get(targetPlatform: CompileService.TargetPlatform): CLICompiler<*>
 }
@@ -93,6 +97,9 @@ class CompileServiceImpl(
 
     private val classpathWatcher = LazyClasspathWatcher(compilerId.compilerClasspath)
 
+    // tokens of unchanged sources are reused by the following compilations
+    private val tokensCache = KotlinTokensCache(Runtime.getRuntime().maxMemory() / TOKENS_CACHE_MEMORY_FRACTION)
+
     enum class Aliveness {
         // !!! ordering of values is used in state comparison
         Dying, LastSession, Alive
@@ -225,7 +232,7 @@ class CompileServiceImpl(
     ): CompileService.CallResult<Int> =
             doCompile(sessionId, args, compilerOutputStream, serviceOutputStream, operationsTracer) { printStream, eventManager, profiler ->
                 when (outputFormat) {
-                    CompileService.OutputFormat.PLAIN -> compiler[targetPlatform].exec(printStream, *args)
+                    CompileService.OutputFormat.PLAIN -> compiler[targetPlatform].exec(printStream, createPlainCompileServices(), *args)
                     CompileService.OutputFormat.XML -> compiler[targetPlatform].execAndOutputXml(printStream, createCompileServices(servicesFacade, eventManager, profiler), *args)
                 }
             }
@@ -429,8 +436,12 @@ class CompileServiceImpl(
                 }
             }
 
+    private fun createPlainCompileServices(): Services =
+            Services.Builder().register(KotlinTokensCache::class.java, tokensCache).build()
+
     private fun createCompileServices(facade: CompilerCallbackServicesFacade, eventManger: EventManger, rpcProfiler: Profiler): Services {
         val builder = Services.Builder()
+        builder.register(KotlinTokensCache::class.java, tokensCache)
         if (facade.hasIncrementalCaches() || facade.hasLookupTracker()) {
             builder.register(IncrementalCompilationComponents::class.java, RemoteIncrementalCompilationComponentsClient(facade, eventManger, rpcProfiler))
         }
@@ -466,6 +477,11 @@ class CompileServiceImpl(
                     log.info(it)
                 }
 
+                "PERF: tokens cache: ${tokensCache.hits} hits, ${tokensCache.misses} misses in total".let {
+                    serviceOut.println(it)
+                    log.info(it)
+                }
+
                 // this will only be reported if if appropriate (e.g. ByClass) profiler is used
                 for ((obj, counters) in rpcProfiler.getCounters()) {
                     "PERF: rpc by $obj: ${counters.count} calls, ${counters.time.ms()} ms, thread ${counters.threadTime.ms()} ms".let {
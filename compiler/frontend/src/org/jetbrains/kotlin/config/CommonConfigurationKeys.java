@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.config;
 
+import org.jetbrains.kotlin.lexer.KotlinTokensCache;
 import org.jetbrains.kotlin.script.KotlinScriptDefinition;
 
 import java.util.List;
@@ -28,4 +29,6 @@ public class CommonConfigurationKeys {
     public static final CompilerConfigurationKey<List<ContentRoot>> CONTENT_ROOTS = CompilerConfigurationKey.create("content roots");
 
     public static final CompilerConfigurationKey<List<KotlinScriptDefinition>> SCRIPT_DEFINITIONS_KEY = CompilerConfigurationKey.create("script definitions");
+
+    public static final CompilerConfigurationKey<KotlinTokensCache> TOKENS_CACHE = CompilerConfigurationKey.create("tokens cache");
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.lexer
+
+import com.intellij.lexer.LexerBase
+import com.intellij.psi.tree.IElementType
+import java.util.*
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Tokens of source files lexed by previous compilations in the same process (e.g. in the compile daemon),
+ * least recently used files are evicted when the estimated size of the cache exceeds [memoryBudget] bytes.
+ *
+ * Files are keyed by their path, time stamp and length, so a changed file doesn't get tokens of its previous version
+ * and the cache doesn't keep the file texts. Only whole source files on disk are cached, see KtFileElementType.
+ * Token types are singletons of the compiler, so cached tokens stay valid as long as the compiler classes are loaded.
+ */
+class KotlinTokensCache(private val memoryBudget: Long) {
+    data class FileKey(val path: String, val timeStamp: Long, val length: Long)
+
+    private val entries = LinkedHashMap<FileKey, LexedText>(16, 0.75f, true)
+    private var size = 0L
+
+    private val hitCount = AtomicInteger()
+    private val missCount = AtomicInteger()
+
+    val hits: Int
+        get() = hitCount.get()
+
+    val misses: Int
+        get() = missCount.get()
+
+    @Synchronized
+    fun get(key: FileKey): LexedText? {
+        val result = entries[key]
+        if (result != null) hitCount.incrementAndGet() else missCount.incrementAndGet()
+        return result
+    }
+
+    @Synchronized
+    fun put(key: FileKey, lexed: LexedText) {
+        val estimatedSize = lexed.estimatedSize(key)
+        if (estimatedSize > memoryBudget) return
+
+        entries.put(key, lexed)?.let { size -= it.estimatedSize(key) }
+        size += estimatedSize
+
+        val iterator = entries.entries.iterator()
+        while (size > memoryBudget && iterator.hasNext()) {
+            val eldest = iterator.next()
+            size -= eldest.value.estimatedSize(eldest.key)
+            iterator.remove()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        size = 0L
+    }
+
+    class LexedText(val tokenTypes: Array<IElementType>, val tokenStarts: IntArray) {
+        val textLength: Int
+            get() = tokenStarts.last()
+
+        // token type references and starts, the path characters and the objects' headers
+        fun estimatedSize(key: FileKey): Long = 8L * tokenTypes.size + 2L * key.path.length + 96L
+    }
+}
+
+/**
+ * Replays tokens from [cache] for the source file identified by [key] if it was lexed before, and lexes and caches it otherwise.
+ * Other texts and partial ranges are lexed as usual.
+ */
+class CachingKotlinLexer(private val cache: KotlinTokensCache, private val key: KotlinTokensCache.FileKey) : LexerBase() {
+    private val delegate = KotlinLexer()
+
+    private var buffer: CharSequence = ""
+    private var bufferEnd = 0
+    private var lexed: KotlinTokensCache.LexedText? = null
+    private var index = 0
+
+    override fun start(buffer: CharSequence, startOffset: Int, endOffset: Int, initialState: Int) {
+        this.buffer = buffer
+        this.bufferEnd = endOffset
+        index = 0
+
+        if (startOffset != 0 || endOffset != buffer.length || initialState != 0 || key.length != buffer.length.toLong()) {
+            lexed = null
+            delegate.start(buffer, startOffset, endOffset, initialState)
+            return
+        }
+
+        val cached = cache.get(key)
+        lexed = if (cached != null && cached.textLength == buffer.length) cached else lex(buffer).apply { cache.put(key, this) }
+    }
+
+    private fun lex(text: CharSequence): KotlinTokensCache.LexedText {
+        val types = ArrayList<IElementType>()
+        val starts = ArrayList<Int>()
+
+        delegate.start(text)
+        while (true) {
+            val type = delegate.tokenType ?: break
+            types.add(type)
+            starts.add(delegate.tokenStart)
+            delegate.advance()
+        }
+        starts.add(text.length)
+
+        return KotlinTokensCache.LexedText(types.toTypedArray(), starts.toIntArray())
+    }
+    override fun getState(): Int = if (lexed != null) 0 else delegate.state
+
+    override fun getTokenType(): IElementType? {
+        val lexed = lexed ?: return delegate.tokenType
+        return if (index < lexed.tokenTypes.size) lexed.tokenTypes[index] else null
+    }
+
+    override fun getTokenStart(): Int {
+        val lexed = lexed ?: return delegate.tokenStart
+        return lexed.tokenStarts[index]
+    }
+
+    override fun getTokenEnd(): Int {
+        val lexed = lexed ?: return delegate.tokenEnd
+        return if (index < lexed.tokenTypes.size) lexed.tokenStarts[index + 1] else bufferEnd
+    }
+
+    override fun advance() {
+        if (lexed == null) {
+            delegate.advance()
+        }
+        else {
+            index++
+        }
+    }
+
+    override fun getBufferSequence(): CharSequence = buffer
+
+    override fun getBufferEnd(): Int = bufferEnd
+}
@@ -17,12 +17,10 @@
 package org.jetbrains.kotlin.psi.stubs.elements;
 
 import com.intellij.lang.ASTNode;
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.psi.KtDotQualifiedExpression;
-import org.jetbrains.kotlin.psi.KtImportDirective;
-import org.jetbrains.kotlin.psi.KtPackageDirective;
 
 public class KtDotQualifiedExpressionElementType extends KtPlaceHolderStubElementType<KtDotQualifiedExpression> {
     public KtDotQualifiedExpressionElementType(@NotNull @NonNls String debugName) {
@@ -31,6 +29,12 @@ public class KtDotQualifiedExpressionElementType extends KtPlaceHolderStubElemen
 
     @Override
     public boolean shouldCreateStub(ASTNode node) {
-        return PsiTreeUtil.getParentOfType(node.getPsi(), KtImportDirective.class, KtPackageDirective.class) != null;
+        for (ASTNode parent = node.getTreeParent(); parent != null; parent = parent.getTreeParent()) {
+            IElementType type = parent.getElementType();
+            if (type == KtStubElementTypes.IMPORT_DIRECTIVE || type == KtStubElementTypes.PACKAGE_DIRECTIVE) {
+                return true;
+            }
+        }
+        return false;
     }
 }
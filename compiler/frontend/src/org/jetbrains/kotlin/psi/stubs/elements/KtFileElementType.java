@@ -17,7 +17,11 @@
 package org.jetbrains.kotlin.psi.stubs.elements;
 
 import com.intellij.lang.*;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.StandardFileSystems;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.StubBuilder;
 import com.intellij.psi.stubs.IndexSink;
@@ -27,14 +31,17 @@ import com.intellij.psi.stubs.StubOutputStream;
 import com.intellij.psi.tree.IStubFileElementType;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
+import org.jetbrains.kotlin.lexer.CachingKotlinLexer;
+import org.jetbrains.kotlin.lexer.KotlinTokensCache;
 import org.jetbrains.kotlin.parsing.KotlinParser;
 import org.jetbrains.kotlin.psi.stubs.KotlinFileStub;
 
 import java.io.IOException;
 
 public class KtFileElementType extends IStubFileElementType<KotlinFileStub> {
-    public static final int STUB_VERSION = 65;
+    public static final int STUB_VERSION = 66;
 
     private static final String NAME = "kotlin.FILE";
 
@@ -78,11 +85,25 @@ public class KtFileElementType extends IStubFileElementType<KotlinFileStub> {
     protected ASTNode doParseContents(@NotNull ASTNode chameleon, @NotNull PsiElement psi) {
         Project project = psi.getProject();
         Language languageForParser = getLanguageForParser(psi);
-        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(project, chameleon, null, languageForParser, chameleon.getChars());
+        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(
+                project, chameleon, createCachingLexer(project, psi), languageForParser, chameleon.getChars());
         KotlinParser parser = (KotlinParser) LanguageParserDefinitions.INSTANCE.forLanguage(languageForParser).createParser(project);
         return parser.parse(this, builder, psi.getContainingFile()).getFirstChildNode();
     }
 
+    // Tokens are kept between compilations (in the compile daemon) for source files on disk only,
+    // files created from text (e.g. by KtPsiFactory) and files in the IDE are lexed as usual
+    @Nullable
+    private static Lexer createCachingLexer(@NotNull Project project, @NotNull PsiElement psi) {
+        KotlinTokensCache tokensCache = ServiceManager.getService(project, KotlinTokensCache.class);
+        if (tokensCache == null) return null;
+
+        VirtualFile file = psi.getContainingFile().getVirtualFile();
+        if (file == null || !StandardFileSystems.FILE_PROTOCOL.equals(file.getFileSystem().getProtocol())) return null;
+
+        return new CachingKotlinLexer(tokensCache, new KotlinTokensCache.FileKey(file.getPath(), file.getTimeStamp(), file.getLength()));
+    }
+
     @Override
     public void indexStub(@NotNull KotlinFileStub stub, @NotNull IndexSink sink) {
         StubIndexService.getInstance().indexFile(stub, sink);
@@ -16,13 +16,26 @@
 
 package org.jetbrains.kotlin.psi.stubs.elements;
 
+import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.tree.TokenSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.psi.KtFile;
 
 public class KtFileStubBuilder extends DefaultStubBuilder {
+    // Element types which get stubs under a node which is not a stub itself (e.g. a body, an initializer or a default value),
+    // see KtStubElementType.shouldCreateStub(): functions and properties there are local, and other stub elements are only created
+    // under stubs, except for qualified expressions in import and package directives, which may appear in erroneous code.
+    // Object literals and anonymous objects are OBJECT_DECLARATION nodes, so their members are found as well
+    private static final TokenSet NESTED_STUB_ROOTS = TokenSet.create(
+            KtStubElementTypes.CLASS, KtStubElementTypes.OBJECT_DECLARATION, KtStubElementTypes.ENUM_ENTRY,
+            KtStubElementTypes.PRIMARY_CONSTRUCTOR, KtStubElementTypes.SECONDARY_CONSTRUCTOR,
+            KtStubElementTypes.IMPORT_DIRECTIVE, KtStubElementTypes.PACKAGE_DIRECTIVE
+    );
+
     @NotNull
     @Override
     protected StubElement createStubForFile(@NotNull PsiFile file) {
@@ -32,4 +45,35 @@ public class KtFileStubBuilder extends DefaultStubBuilder {
 
         return StubIndexService.getInstance().createFileStub((KtFile) file);
     }
+
+    @Override
+    public boolean skipChildProcessingWhenBuildingStubs(@NotNull ASTNode parent, @NotNull ASTNode node) {
+        if (!(parent.getElementType() instanceof IStubElementType) ||
+            node.getElementType() instanceof IStubElementType ||
+            node.getFirstChildNode() == null) {
+            return false;
+        }
+
+        return !containsNestedStubRoots(node);
+    }
+
+    // A plain walk over the AST, much cheaper than the one which builds stubs: it neither asks stub element types
+    // whether to create a stub for each reference in a function body, nor keeps the stack of parent stubs
+    private static boolean containsNestedStubRoots(@NotNull ASTNode root) {
+        ASTNode node = root.getFirstChildNode();
+        while (node != null) {
+            if (NESTED_STUB_ROOTS.contains(node.getElementType())) return true;
+
+            ASTNode next = node.getFirstChildNode();
+            if (next == null) {
+                while (node != root && node.getTreeNext() == null) {
+                    node = node.getTreeParent();
+                }
+                if (node == root) return false;
+                next = node.getTreeNext();
+            }
+            node = next;
+        }
+        return false;
+    }
 }
@@ -17,7 +17,7 @@
 package org.jetbrains.kotlin.psi.stubs.elements;
 
 import com.intellij.lang.ASTNode;
-import com.intellij.psi.PsiElement;
+import com.intellij.lang.FileASTNode;
 import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
@@ -28,10 +28,8 @@ import com.intellij.util.ReflectionUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
-import org.jetbrains.kotlin.psi.KtClassOrObject;
 import org.jetbrains.kotlin.psi.KtElementImplStub;
-import org.jetbrains.kotlin.psi.KtFunction;
-import org.jetbrains.kotlin.psi.KtProperty;
+import org.jetbrains.kotlin.psi.KtFile;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -88,21 +86,32 @@ public abstract class KtStubElementType<StubT extends StubElement, PsiT extends
         return "kotlin." + toString();
     }
 
+    // Decided by element types only: this is called for every node of a stub element type, including the ones in bodies,
+    // and creating their PSI would take most of the stub building time
     @Override
     public boolean shouldCreateStub(ASTNode node) {
-        PsiElement psi = node.getPsi();
-        if (psi instanceof KtClassOrObject) {
+        IElementType type = node.getElementType();
+        if (type == KtStubElementTypes.CLASS || type == KtStubElementTypes.OBJECT_DECLARATION || type == KtStubElementTypes.ENUM_ENTRY) {
             return true;
         }
-        if (psi instanceof KtFunction) {
-            return !((KtFunction) psi).isLocal();
+        if (type == KtStubElementTypes.PRIMARY_CONSTRUCTOR || type == KtStubElementTypes.SECONDARY_CONSTRUCTOR) {
+            return true;
         }
-        if (psi instanceof KtProperty) {
-            return !((KtProperty) psi).isLocal();
+        if (type == KtStubElementTypes.FUNCTION || type == KtStubElementTypes.PROPERTY) {
+            return !isLocal(node);
         }
         return createStubDependingOnParent(node);
     }
 
+    // See KtNamedFunction.isLocal() and KtProperty.isLocal()
+    private static boolean isLocal(ASTNode node) {
+        ASTNode parent = node.getTreeParent();
+        if (parent.getElementType() == KtStubElementTypes.CLASS_BODY) {
+            return false;
+        }
+        return !(parent instanceof FileASTNode && parent.getPsi() instanceof KtFile);
+    }
+
     private static boolean createStubDependingOnParent(ASTNode node) {
         ASTNode parent = node.getTreeParent();
         IElementType parentType = parent.getElementType();
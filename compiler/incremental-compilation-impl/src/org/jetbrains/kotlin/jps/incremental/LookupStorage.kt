@@ -18,20 +18,16 @@ package org.jetbrains.kotlin.jps.incremental
 
 import com.intellij.util.containers.MultiMap
 import org.jetbrains.annotations.TestOnly
-import org.jetbrains.jps.builders.storage.StorageProvider
 import org.jetbrains.kotlin.incremental.components.LookupTracker
 import org.jetbrains.kotlin.incremental.components.Position
 import org.jetbrains.kotlin.incremental.components.ScopeKind
 import org.jetbrains.kotlin.jps.incremental.storage.*
 import org.jetbrains.kotlin.utils.Printer
+import org.jetbrains.kotlin.utils.keysToMapExceptNulls
 import java.io.File
 import java.util.*
 
-object LookupStorageProvider : StorageProvider<LookupStorage>() {
-    override fun createStorage(targetDataDir: File): LookupStorage = LookupStorage(targetDataDir)
-}
-
-class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
+open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
     companion object {
         private val DELETED_TO_SIZE_TRESHOLD = 0.5
         private val MINIMUM_GARBAGE_COLLECTIBLE_SIZE = 10000
@@ -65,6 +61,26 @@ class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
         }
     }
 
+    /**
+     * Same as [get] for many symbols at once, symbols without lookups are omitted from the result.
+     * Files are usually shared by many symbols, so each file id is resolved to a path only once.
+     */
+    fun getAll(lookupSymbols: Iterable<LookupSymbol>): Map<LookupSymbol, Collection<String>> {
+        val paths = HashMap<Int, String?>()
+
+        return lookupSymbols.keysToMapExceptNulls { lookupSymbol ->
+            val fileIds = lookupMap[LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)]
+
+            fileIds?.mapNotNull {
+                if (it !in paths) {
+                    // null means it's outdated
+                    paths[it] = idToFile[it]?.path
+                }
+                paths[it]
+            }
+        }
+    }
+
     fun add(lookupSymbol: LookupSymbol, containingPaths: Collection<String>) {
         val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
         val fileIds = containingPaths.map { addFileIfNeeded(File(it)) }.toHashSet()
@@ -48,7 +48,73 @@ fun difference(oldData: ProtoMapValue, newData: ProtoMapValue): Difference {
     return differenceObject.difference()
 }
 
-internal val MessageLite.isPrivate: Boolean
+/**
+ * Fingerprints of what [difference] compares: the class signature first, then every non-private member.
+ * Strings and class ids are hashed by value rather than by index, so fingerprints of different compilations are comparable.
+ * Equal fingerprints mean no changes, otherwise [difference] tells what has changed.
+ */
+fun fingerprints(isPackageFacade: Boolean, bytes: ByteArray, strings: Array<String>): LongArray {
+    val result = arrayListOf<Long>()
+
+    if (isPackageFacade) {
+        val packageData = JvmProtoBufUtil.readPackageDataFrom(bytes, strings)
+        val packageProto = packageData.packageProto
+        val hasher = FingerprintHasher(packageData.nameResolver)
+
+        val members: List<MessageLite> = packageProto.functionList + packageProto.propertyList
+
+        result.add(0L)
+        members.filterNot { it.isPrivate }.mapTo(result) { hasher.hash(it) }
+    }
+    else {
+        val classData = JvmProtoBufUtil.readClassDataFrom(bytes, strings)
+        val classProto = classData.classProto
+        val hasher = FingerprintHasher(classData.nameResolver)
+
+        // type table is not compared by difference() either
+        val signature = classProto.toBuilder().clearConstructor().clearFunction().clearProperty().clearTypeTable().build()
+        val members: List<MessageLite> = classProto.constructorList + classProto.functionList + classProto.propertyList
+
+        result.add(hasher.hash(signature))
+        members.filterNot { it.isPrivate }.mapTo(result) { hasher.hash(it) }
+    }
+
+    // members are compared regardless of their order
+    val array = result.toLongArray()
+    Arrays.sort(array, 1, array.size)
+    return array
+}
+
+/**
+ * 64-bit hashes made of two generated 32-bit hashes, computed with different hash functions of strings and class ids.
+ */
+private class FingerprintHasher(private val nameResolver: NameResolver) {
+    private val stringHash = { index: Int -> nameResolver.getString(index).hashCode() }
+    private val classIdHash = { index: Int -> nameResolver.getClassId(index).asString().hashCode() }
+    private val stringHash2 = { index: Int -> fnv1a(nameResolver.getString(index)) }
+    private val classIdHash2 = { index: Int -> fnv1a(nameResolver.getClassId(index).asString()) }
+
+    fun hash(message: MessageLite): Long {
+        val (high, low) = when (message) {
+            is ProtoBuf.Class -> message.hashCode(stringHash, classIdHash) to message.hashCode(stringHash2, classIdHash2)
+            is ProtoBuf.Constructor -> message.hashCode(stringHash, classIdHash) to message.hashCode(stringHash2, classIdHash2)
+            is ProtoBuf.Function -> message.hashCode(stringHash, classIdHash) to message.hashCode(stringHash2, classIdHash2)
+            is ProtoBuf.Property -> message.hashCode(stringHash, classIdHash) to message.hashCode(stringHash2, classIdHash2)
+            else -> error("Unknown message: $message")
+        }
+        return (high.toLong() shl 32) or (low.toLong() and 0xffffffffL)
+    }
+
+    private fun fnv1a(string: String): Int {
+        var hash = 0x811c9dc5.toInt()
+        for (char in string) {
+            hash = (hash xor char.toInt()) * 0x01000193
+        }
+        return hash
+    }
+}
+
+val MessageLite.isPrivate: Boolean
     get() = Visibilities.isPrivate(Deserialization.visibility(
             when (this) {
                 is ProtoBuf.Constructor -> Flags.VISIBILITY.get(flags)
@@ -66,7 +132,7 @@ private fun MessageLite.name(nameResolver: NameResolver): String {
     }
 }
 
-internal fun List<MessageLite>.names(nameResolver: NameResolver): List<String> = map { it.name(nameResolver) }
+fun List<MessageLite>.names(nameResolver: NameResolver): List<String> = map { it.name(nameResolver) }
 
 private abstract class DifferenceCalculator() {
     protected abstract val oldNameResolver: NameResolver
@@ -22,7 +22,6 @@ import com.intellij.util.io.EnumeratorStringDescriptor
 import com.intellij.util.io.IOUtil
 import com.intellij.util.io.KeyDescriptor
 import gnu.trove.THashSet
-import org.jetbrains.jps.incremental.storage.PathStringDescriptor
 import java.io.DataInput
 import java.io.DataInputStream
 import java.io.DataOutput
@@ -76,6 +75,12 @@ object ProtoMapValueExternalizer : DataExternalizer<ProtoMapValue> {
         for (string in value.strings) {
             output.writeUTF(string)
         }
+
+        output.writeInt(value.fingerprints.size)
+
+        for (fingerprint in value.fingerprints) {
+            output.writeLong(fingerprint)
+        }
     }
 
     override fun read(input: DataInput): ProtoMapValue {
@@ -85,7 +90,9 @@ object ProtoMapValueExternalizer : DataExternalizer<ProtoMapValue> {
         input.readFully(bytes, 0, bytesLength)
         val stringsLength = input.readInt()
         val strings = Array<String>(stringsLength) { input.readUTF() }
-        return ProtoMapValue(isPackageFacade, bytes, strings)
+        val fingerprintsLength = input.readInt()
+        val fingerprints = LongArray(fingerprintsLength) { input.readLong() }
+        return ProtoMapValue(isPackageFacade, bytes, strings, fingerprints)
     }
 }
 
@@ -226,8 +233,14 @@ open class CollectionExternalizer<T>(
     }
 }
 
+object PathStringDescriptor : EnumeratorStringDescriptor() {
+    override fun getHashCode(value: String): Int = FileUtil.pathHashCode(value)
+
+    override fun isEqual(val1: String, val2: String): Boolean = FileUtil.pathsEqual(val1, val2)
+}
+
 object StringCollectionExternalizer : CollectionExternalizer<String>(EnumeratorStringDescriptor(), { HashSet() })
 
-object PathCollectionExternalizer : CollectionExternalizer<String>(PathStringDescriptor(), { THashSet(FileUtil.PATH_HASHING_STRATEGY) })
+object PathCollectionExternalizer : CollectionExternalizer<String>(PathStringDescriptor, { THashSet(FileUtil.PATH_HASHING_STRATEGY) })
 
 object IntCollectionExternalizer : CollectionExternalizer<Int>(IntExternalizer, { HashSet() })
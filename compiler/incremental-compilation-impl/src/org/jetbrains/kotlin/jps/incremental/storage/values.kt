@@ -53,4 +53,12 @@ class PathFunctionPair(
     override fun hashCode(): Int = 31 * FileUtil.pathHashCode(path) + function.hashCode()
 }
 
-data class ProtoMapValue(val isPackageFacade: Boolean, val bytes: ByteArray, val strings: Array<String>)
+/**
+ * [fingerprints] are empty when unknown, e.g. for the module mapping stored in the proto map.
+ */
+data class ProtoMapValue(
+        val isPackageFacade: Boolean,
+        val bytes: ByteArray,
+        val strings: Array<String>,
+        val fingerprints: LongArray = LongArray(0)
+)
@@ -0,0 +1,9 @@
+fun used() {}
+
+fun unused() {}
+
+fun kept() {}
+
+fun main(args: Array<String>) {
+    used()
+}
@@ -0,0 +1,9 @@
+package library
+
+fun publicApi() = privateUsed()
+
+private fun privateUsed() = 42
+
+private fun privateUnused() = 0
+
+internal fun internalUnused() = 0
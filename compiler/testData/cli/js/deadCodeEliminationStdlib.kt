@@ -0,0 +1,3 @@
+fun main(args: Array<String>) {
+    println(listOf("O", "K").joinToString(""))
+}
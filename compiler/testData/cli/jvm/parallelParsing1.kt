@@ -0,0 +1,6 @@
+package parallel
+
+fun first(): String {
+    val unused = second()
+    return Third().value
+}
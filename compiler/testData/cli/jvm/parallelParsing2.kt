@@ -0,0 +1,6 @@
+package parallel
+
+fun second(): Int {
+    val x = 1
+    return x + Third().value.length
+}
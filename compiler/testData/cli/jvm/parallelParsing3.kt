@@ -0,0 +1,9 @@
+package parallel
+
+class Third {
+    val value = "OK"
+
+    fun foo() {
+        val y = 2
+    }
+}
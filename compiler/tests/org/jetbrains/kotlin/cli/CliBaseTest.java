@@ -43,8 +43,8 @@ import java.io.PrintStream;
 import java.util.List;
 
 public class CliBaseTest {
-    static final String JS_TEST_DATA = "compiler/testData/cli/js";
-    static final String JVM_TEST_DATA = "compiler/testData/cli/jvm";
+    protected static final String JS_TEST_DATA = "compiler/testData/cli/js";
+    protected static final String JVM_TEST_DATA = "compiler/testData/cli/jvm";
 
     @Rule
     public final Tmpdir tmpdir = new Tmpdir();
@@ -169,6 +169,12 @@ public class KotlincExecutableTestGenerated extends AbstractKotlincExecutableTes
             doJvmTest(fileName);
         }
 
+        @TestMetadata("parallelParsing.args")
+        public void testParallelParsing() throws Exception {
+            String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/cli/jvm/parallelParsing.args");
+            doJvmTest(fileName);
+        }
+
         @TestMetadata("pluginSimple.args")
         public void testPluginSimple() throws Exception {
             String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/cli/jvm/pluginSimple.args");
@@ -280,6 +286,24 @@ public class KotlincExecutableTestGenerated extends AbstractKotlincExecutableTes
             doJsTest(fileName);
         }
 
+        @TestMetadata("deadCodeElimination.args")
+        public void testDeadCodeElimination() throws Exception {
+            String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/cli/js/deadCodeElimination.args");
+            doJsTest(fileName);
+        }
+
+        @TestMetadata("deadCodeEliminationLibrary.args")
+        public void testDeadCodeEliminationLibrary() throws Exception {
+            String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/cli/js/deadCodeEliminationLibrary.args");
+            doJsTest(fileName);
+        }
+
+        @TestMetadata("deadCodeEliminationStdlib.args")
+        public void testDeadCodeEliminationStdlib() throws Exception {
+            String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/cli/js/deadCodeEliminationStdlib.args");
+            doJsTest(fileName);
+        }
+
         @TestMetadata("diagnosticForClassLiteral.args")
         public void testDiagnosticForClassLiteral() throws Exception {
             String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/cli/js/diagnosticForClassLiteral.args");
@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.cli.js;
 
+import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.kotlin.cli.CliBaseTest;
 import org.junit.Assert;
 import org.junit.Test;
@@ -30,6 +31,54 @@ public class K2JsCliTest extends CliBaseTest {
         Assert.assertTrue(new File(tmpdir.getTmpDir(), "out.js").isFile());
     }
 
+    @Test
+    public void deadCodeElimination() throws Exception {
+        executeCompilerCompareOutputJS();
+
+        Assert.assertTrue(new File(tmpdir.getTmpDir(), "out.js").isFile());
+
+        String report = FileUtil.loadFile(new File(tmpdir.getTmpDir(), "out.dce.txt"));
+        Assert.assertTrue(report, report.contains("kept used: referenced from main"));
+        Assert.assertTrue(report, report.contains("kept kept: entry point"));
+        Assert.assertTrue(report, report.contains("removed unused"));
+
+        String code = FileUtil.loadFile(new File(tmpdir.getTmpDir(), "out.js"));
+        Assert.assertTrue(code, code.contains("used: function"));
+        Assert.assertTrue(code, code.contains("kept: function"));
+        Assert.assertFalse(code, code.contains("unused"));
+    }
+
+    @Test
+    public void deadCodeEliminationLibrary() throws Exception {
+        executeCompilerCompareOutputJS();
+
+        String code = FileUtil.loadFile(new File(tmpdir.getTmpDir(), "out.js"));
+        Assert.assertTrue(code, code.contains("publicApi"));
+        Assert.assertTrue(code, code.contains("privateUsed"));
+        Assert.assertFalse(code, code.contains("privateUnused"));
+        Assert.assertFalse(code, code.contains("internalUnused"));
+
+        String report = FileUtil.loadFile(new File(tmpdir.getTmpDir(), "out.dce.txt"));
+        Assert.assertTrue(report, report.contains("kept library.publicApi: exported"));
+    }
+
+    @Test
+    public void deadCodeEliminationStdlib() throws Exception {
+        executeCompilerCompareOutputJS();
+
+        String report = FileUtil.loadFile(new File(tmpdir.getTmpDir(), "out.dce.txt"));
+        Assert.assertTrue(report, report.contains("kept kotlin.js:kotlin.collections.listOf_"));
+        Assert.assertTrue(report, report.contains("kept kotlin.js:kotlin.dom.toXmlString_"));
+        Assert.assertTrue(report, report.contains("removed kotlin.js:kotlin.dom.createDocument\n"));
+
+        String stdlib = FileUtil.loadFile(new File(tmpdir.getTmpDir(), "out.dce/kotlin.js"));
+        Assert.assertTrue(stdlib.contains("listOf_"));
+        Assert.assertTrue(stdlib.contains("joinToString_"));
+        Assert.assertFalse(stdlib.contains("createDocument:"));
+        // the runtime is not pruned
+        Assert.assertTrue(stdlib.contains("defineRootPackage"));
+    }
+
     @Test
     public void outputIsDirectory() throws Exception {
         executeCompilerCompareOutputJS();
@@ -16,11 +16,19 @@
 
 package org.jetbrains.kotlin.cli.jvm;
 
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import kotlin.io.FilesKt;
 import org.jetbrains.kotlin.cli.CliBaseTest;
+import org.jetbrains.kotlin.cli.common.ExitCode;
+import org.jetbrains.kotlin.test.KotlinTestUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
 
 public class K2JvmCliTest extends CliBaseTest {
     @Test
@@ -69,4 +77,29 @@ public class K2JvmCliTest extends CliBaseTest {
     public void warningsInDummy() throws Exception {
         executeCompilerCompareOutputJVM();
     }
+
+    @Test
+    public void parallelParsing() throws Exception {
+        executeCompilerCompareOutputJVM();
+
+        // parsing on the calling thread must give the same diagnostics and class files
+        File parallelDir = new File(tmpdir.getTmpDir(), "parallel");
+        File sequentialDir = new File(tmpdir.getTmpDir(), "sequential");
+        Pair<String, ExitCode> sequential = executeCompilerGrabOutput(new K2JVMCompiler(), Arrays.asList(
+                JVM_TEST_DATA + "/parallelParsing1.kt", JVM_TEST_DATA + "/parallelParsing2.kt", JVM_TEST_DATA + "/parallelParsing3.kt",
+                "-d", sequentialDir.getPath()
+        ));
+        KotlinTestUtils.assertEqualsToFile(new File(JVM_TEST_DATA + "/parallelParsing.out"),
+                                           getNormalizedCompilerOutput(sequential.first, sequential.second, JVM_TEST_DATA));
+
+        Pattern classFile = Pattern.compile(".*\\.class");
+        List<File> sequentialClasses = FileUtil.findFilesByMask(classFile, sequentialDir);
+        Assert.assertFalse(sequentialClasses.isEmpty());
+        Assert.assertEquals(sequentialClasses.size(), FileUtil.findFilesByMask(classFile, parallelDir).size());
+        for (File sequentialClass : sequentialClasses) {
+            File parallelClass = new File(parallelDir, FileUtil.getRelativePath(sequentialDir, sequentialClass));
+            Assert.assertTrue(parallelClass + " is not generated", parallelClass.isFile());
+            Assert.assertArrayEquals(parallelClass.getPath(), FilesKt.readBytes(sequentialClass), FilesKt.readBytes(parallelClass));
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import com.intellij.openapi.util.Disposer
+import org.jetbrains.kotlin.cli.jvm.config.addJvmClasspathRoot
+import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.test.MockLibraryUtil
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import java.io.File
+
+class JvmPackagePartProviderTest : TestCaseWithTmpdir() {
+    private val libraryJar: File
+        get() = File(tmpdir, "library.jar")
+
+    fun testPartsOfJar() {
+        buildLibrary("a.kt" to "package p\n\nfun a() {}", "b.kt" to "package p.q\n\nfun b() {}")
+
+        withPackagePartProvider {
+            assertEquals(listOf("AKt"), it.findPackageParts("p"))
+            assertEquals(listOf("BKt"), it.findPackageParts("p.q"))
+            assertEmpty(it.findPackageParts("r"))
+        }
+    }
+
+    fun testChangedJarIsReread() {
+        buildLibrary("a.kt" to "package p\n\nfun a() {}")
+        withPackagePartProvider {
+            assertEquals(listOf("AKt"), it.findPackageParts("p"))
+        }
+
+        // the jar is rewritten at the same path, as it happens between builds in the daemon
+        val lastModified = libraryJar.lastModified()
+        buildLibrary("a.kt" to "package p\n\nfun a() {}", "other.kt" to "package p\n\nfun other() {}")
+        libraryJar.setLastModified(lastModified + 2000)
+
+        withPackagePartProvider {
+            assertEquals(listOf("AKt", "OtherKt"), it.findPackageParts("p").sorted())
+        }
+    }
+
+    private fun buildLibrary(vararg sources: Pair<String, String>) {
+        val sourcesDir = File(tmpdir, "src")
+        sourcesDir.deleteRecursively()
+        sourcesDir.mkdirs()
+        for ((name, text) in sources) {
+            File(sourcesDir, name).writeText(text)
+        }
+
+        MockLibraryUtil.compileLibraryToJar(sourcesDir.path, "library", false).copyTo(libraryJar, overwrite = true)
+    }
+
+    private fun withPackagePartProvider(action: (JvmPackagePartProvider) -> Unit) {
+        val disposable = Disposer.newDisposable()
+        try {
+            val configuration = CompilerConfiguration()
+            configuration.addJvmClasspathRoot(libraryJar)
+            val environment = KotlinCoreEnvironment.createForTests(disposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+            action(JvmPackagePartProvider(environment))
+        }
+        finally {
+            Disposer.dispose(disposable)
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.fileClasses.JvmFileClassUtil
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+import java.net.URLClassLoader
+
+// Runs the reflection call tests with a copy of kotlin-reflect which calls members via method handles
+class MethodHandleCallerTest : CodegenTestCase() {
+    private lateinit var reflectClassLoader: ClassLoader
+
+    override fun setUp() {
+        super.setUp()
+        myEnvironment = KotlinCoreEnvironment.createForTests(
+                testRootDisposable,
+                KotlinTestUtils.compilerConfigurationForTests(ConfigurationKind.ALL, TestJdkKind.FULL_JDK),
+                EnvironmentConfigFiles.JVM_CONFIG_FILES
+        )
+
+        // kotlin-reflect checks the property once, so method handles are used only by a copy of it loaded for this test
+        val oldValue = System.setProperty(METHOD_HANDLES_PROPERTY, "true")
+        try {
+            reflectClassLoader = URLClassLoader(
+                    arrayOf(ForTestCompileRuntime.runtimeJarForTests().toURI().toURL(), ForTestCompileRuntime.reflectJarForTests().toURI().toURL()),
+                    null
+            )
+            Class.forName("kotlin.reflect.jvm.internal.MethodHandleCallerKt", true, reflectClassLoader)
+        }
+        finally {
+            if (oldValue != null) System.setProperty(METHOD_HANDLES_PROPERTY, oldValue) else System.clearProperty(METHOD_HANDLES_PROPERTY)
+        }
+    }
+
+    // Member, extension and top-level functions, constructors, static and JvmStatic members, property accessors, exceptions
+    fun testCall() {
+        runBoxTests("call")
+    }
+
+    // Default arguments
+    fun testCallBy() {
+        runBoxTests("callBy")
+    }
+
+    fun testMethodHandleIsUsed() {
+        loadText("""
+            import java.lang.reflect.InvocationTargetException
+
+            class A(val x: Int) {
+                fun fail(y: Int): Int = throw IllegalStateException("${'$'}x ${'$'}y")
+            }
+
+            fun box(): String {
+                try {
+                    A::fail.call(A(1), 2)
+                }
+                catch (e: InvocationTargetException) {
+                    val cause = e.targetException
+                    if (cause !is IllegalStateException || cause.message != "1 2") return "Fail: ${'$'}cause"
+
+                    // the member is called by the method handle, not by java.lang.reflect.Method
+                    val frames = cause.stackTrace.map { it.className }
+                    if ("kotlin.reflect.jvm.internal.MethodHandleInvoker" !in frames) return "Fail: ${'$'}frames"
+                    if ("java.lang.reflect.Method" in frames) return "Fail: ${'$'}frames"
+                    return "OK"
+                }
+                return "Fail: no exception was thrown"
+            }
+        """.trimIndent())
+        assertEquals("OK", box())
+    }
+
+    private fun runBoxTests(directory: String) {
+        val files = File(KotlinTestUtils.getTestDataPathBase(), "codegen/boxWithStdlib/reflection/$directory").listFiles { file -> file.extension == "kt" }
+        assertTrue(directory, files.isNotEmpty())
+
+        for (file in files.sortedBy { it.name }) {
+            loadFileByFullPath(file.path)
+            assertEquals(file.name, "OK", box())
+        }
+    }
+
+    private fun box(): String {
+        classFileFactory = null
+        val classLoader = GeneratedClassLoader(generateClassesInFile(), reflectClassLoader)
+        try {
+            val facadeClassName = JvmFileClassUtil.getFileClassInfoNoResolve(myFiles.psiFile).facadeClassFqName.asString()
+            return classLoader.loadClass(facadeClassName).getMethod("box").invoke(null) as String
+        }
+        finally {
+            classLoader.dispose()
+        }
+    }
+
+    companion object {
+        private val METHOD_HANDLES_PROPERTY = "kotlin.reflect.jvm.useMethodHandles"
+    }
+}
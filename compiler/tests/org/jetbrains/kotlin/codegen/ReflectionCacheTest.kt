@@ -0,0 +1,180 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.test.ConfigurationKind
+import java.lang.management.ManagementFactory
+import java.lang.ref.WeakReference
+import java.net.URLClassLoader
+import java.util.concurrent.atomic.AtomicLong
+import javax.management.ObjectName
+
+class ReflectionCacheTest : CodegenTestCase() {
+    private lateinit var reflectClassLoader: ClassLoader
+
+    override fun setUp() {
+        super.setUp()
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.ALL)
+        loadText("package test\n\nclass A { fun a() = 1 }\n\nclass B { fun b() = 2 }\n\nclass C { fun c() = 3 }")
+        reflectClassLoader = newReflectClassLoader()
+    }
+
+    override fun tearDown() {
+        // the statistics of the next test are published by its own copy of kotlin-reflect
+        val server = ManagementFactory.getPlatformMBeanServer()
+        if (server.isRegistered(MBEAN_NAME)) server.unregisterMBean(MBEAN_NAME)
+        super.tearDown()
+    }
+
+    // kotlin-reflect checks the properties once, so they are applied only to a copy of it loaded for this test
+    private fun newReflectClassLoader(vararg properties: Pair<String, String>): ClassLoader {
+        val server = ManagementFactory.getPlatformMBeanServer()
+        if (server.isRegistered(MBEAN_NAME)) server.unregisterMBean(MBEAN_NAME)
+
+        val allProperties = listOf(STATISTICS_PROPERTY to "true") + properties
+        val oldValues = allProperties.map { System.setProperty(it.first, it.second) }
+        try {
+            val classLoader = URLClassLoader(
+                    arrayOf(ForTestCompileRuntime.runtimeJarForTests().toURI().toURL(), ForTestCompileRuntime.reflectJarForTests().toURI().toURL()),
+                    null
+            )
+            for (className in listOf("ReflectionCacheStatisticsKt", "ReflectionCacheStatistics", "KClassCacheKt", "ModuleByClassLoaderKt")) {
+                Class.forName("kotlin.reflect.jvm.internal.$className", true, classLoader)
+            }
+            return classLoader
+        }
+        finally {
+            for ((property, oldValue) in allProperties.map { it.first }.zip(oldValues)) {
+                if (oldValue != null) System.setProperty(property, oldValue) else System.clearProperty(property)
+            }
+        }
+    }
+
+    fun testHitsAndMisses() {
+        val classLoader = newClassLoader()
+
+        val kClass = kClassOf(classLoader, "test.A")
+        assertSame(kClass, kClassOf(classLoader, "test.A"))
+        assertEquals(1L, counter("classes", "misses"))
+        assertEquals(1L, counter("classes", "hits"))
+
+        loadMembers(kClass)
+        val moduleMisses = counter("modules", "misses")
+        assertTrue(moduleMisses > 0)
+
+        // the second class of the same class loader reuses its module
+        val moduleHits = counter("modules", "hits")
+        loadMembers(kClassOf(classLoader, "test.B"))
+        assertEquals(moduleMisses, counter("modules", "misses"))
+        assertTrue(counter("modules", "hits") > moduleHits)
+    }
+
+    fun testCollectedClassLoaderIsEvicted() {
+        val classLoaderRef = useNewClassLoader()
+
+        // no module is retained by default, so nothing but the test's weak reference should keep the class loader
+        for (attempt in 1..100) {
+            if (classLoaderRef.get() == null) break
+            System.gc()
+            Thread.sleep(10)
+        }
+        assertNull("Class loader is retained by kotlin-reflect caches", classLoaderRef.get())
+
+        // dead entries are purged when the caches miss
+        for (attempt in 1..100) {
+            if (counter("modules", "evictions") > 0 && counter("classes", "evictions") > 0) return
+            useNewClassLoader()
+            Thread.sleep(10)
+        }
+        fail("Entries of the collected class loader are not evicted: modules evictions = ${counter("modules", "evictions")}, " +
+             "classes evictions = ${counter("classes", "evictions")}")
+    }
+
+    fun testLeastRecentlyUsedClassIsEvicted() {
+        reflectClassLoader = newReflectClassLoader("kotlin.reflect.jvm.classCacheLimit" to "2")
+        val classLoader = newClassLoader()
+
+        val a = kClassOf(classLoader, "test.A")
+        val b = kClassOf(classLoader, "test.B")
+        assertSame(a, kClassOf(classLoader, "test.A"))
+
+        // B is the least recently used class when C exceeds the limit
+        kClassOf(classLoader, "test.C")
+        assertEquals(1L, counter("classes", "evictions"))
+        assertSame(a, kClassOf(classLoader, "test.A"))
+        assertNotSame(b, kClassOf(classLoader, "test.B"))
+        assertEquals(4L, counter("classes", "misses"))
+    }
+
+    fun testModuleCacheIsLimited() {
+        reflectClassLoader = newReflectClassLoader("kotlin.reflect.jvm.moduleCacheLimit" to "1")
+        val first = newClassLoader()
+        val second = newClassLoader()
+
+        loadMembers(kClassOf(first, "test.A"))
+        loadMembers(kClassOf(second, "test.A"))
+        assertTrue(counter("modules", "evictions") > 0)
+
+        // the module of the first class loader was evicted, so it's created once more for another class
+        val misses = counter("modules", "misses")
+        loadMembers(kClassOf(first, "test.B"))
+        assertTrue(counter("modules", "misses") > misses)
+    }
+
+    fun testStatisticsAreAvailableOverJmx() {
+        val server = ManagementFactory.getPlatformMBeanServer()
+        val classLoader = newClassLoader()
+        kClassOf(classLoader, "test.A")
+        kClassOf(classLoader, "test.A")
+
+        assertEquals(1L, server.getAttribute(MBEAN_NAME, "ClassMisses"))
+        assertEquals(1L, server.getAttribute(MBEAN_NAME, "ClassHits"))
+        assertEquals(counter("modules", "misses"), server.getAttribute(MBEAN_NAME, "ModuleMisses"))
+
+        server.invoke(MBEAN_NAME, "reset", arrayOf<Any>(), arrayOf<String>())
+        assertEquals(0L, server.getAttribute(MBEAN_NAME, "ClassHits"))
+    }
+
+    // A separate function so that no local variable keeps the class loader reachable
+    private fun useNewClassLoader(): WeakReference<ClassLoader> {
+        val classLoader = newClassLoader()
+        loadMembers(kClassOf(classLoader, "test.A"))
+        return WeakReference(classLoader)
+    }
+
+    private fun newClassLoader(): ClassLoader = GeneratedClassLoader(generateClassesInFile(), reflectClassLoader)
+
+    private fun kClassOf(classLoader: ClassLoader, className: String): Any {
+        val reflection = reflectClassLoader.loadClass("kotlin.jvm.internal.Reflection")
+        return reflection.getMethod("getOrCreateKotlinClass", Class::class.java).invoke(null, classLoader.loadClass(className))
+    }
+
+    private fun loadMembers(kClass: Any) {
+        kClass.javaClass.getMethod("getMembers").invoke(kClass)
+    }
+
+    private fun counter(cache: String, name: String): Long {
+        val statistics = reflectClassLoader.loadClass("kotlin.reflect.jvm.internal.ReflectionCacheStatistics").getField(cache).get(null)
+        return (statistics.javaClass.getField(name).get(statistics) as AtomicLong).get()
+    }
+
+    companion object {
+        private val STATISTICS_PROPERTY = "kotlin.reflect.jvm.cacheStatistics"
+        private val MBEAN_NAME = ObjectName("kotlin.reflect:type=ReflectionCacheStatistics")
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.daemon.client.BuildToolsDaemonClient
+import org.jetbrains.kotlin.daemon.client.DaemonConnections
+import org.jetbrains.kotlin.daemon.common.CompileService
+import org.jetbrains.kotlin.daemon.common.CompilerId
+import java.util.*
+
+class BuildToolsDaemonClientTest : TestCase() {
+    private class CollectingMessageCollector : MessageCollector {
+        val messages = ArrayList<Pair<CompilerMessageSeverity, String>>()
+
+        override fun report(severity: CompilerMessageSeverity, message: String, location: CompilerMessageLocation) {
+            messages.add(severity to message)
+        }
+    }
+
+    private val compilerId = CompilerId(listOf("kotlin-compiler.jar"), "test")
+
+    fun testReportOutput() {
+        val output = """
+            |info: Kotlin Compiler version 1.0
+            |/src/a.kt:2:5: error: unresolved reference: foo
+            |    foo()
+            |    ^
+            |
+            |/src/b.kt:1:12: warning: parameter 'x' is never used
+            |error: no main class
+            |logging: done
+        """.trimMargin()
+
+        val collector = CollectingMessageCollector()
+        BuildToolsDaemonClient.reportOutput(output, collector)
+
+        assertEquals(
+                listOf(CompilerMessageSeverity.INFO to "info: Kotlin Compiler version 1.0",
+                       CompilerMessageSeverity.ERROR to "/src/a.kt:2:5: error: unresolved reference: foo",
+                       CompilerMessageSeverity.ERROR to "    foo()",
+                       CompilerMessageSeverity.ERROR to "    ^",
+                       CompilerMessageSeverity.WARNING to "/src/b.kt:1:12: warning: parameter 'x' is never used",
+                       CompilerMessageSeverity.ERROR to "error: no main class",
+                       CompilerMessageSeverity.LOGGING to "logging: done"),
+                collector.messages)
+    }
+
+    fun testSeverityInsideMessageIsIgnored() {
+        val collector = CollectingMessageCollector()
+        BuildToolsDaemonClient.reportOutput("warning: variable 'error' is never used", collector)
+
+        assertEquals(listOf(CompilerMessageSeverity.WARNING to "warning: variable 'error' is never used"), collector.messages)
+    }
+
+    fun testFallbackWithoutDaemon() {
+        var connectionAttempts = 0
+        var now = 0L
+        val connections = DaemonConnections(failureExpirationMillis = 1000, currentTimeMillis = { now }) { id, messageCollector ->
+            connectionAttempts++
+            null
+        }
+
+        fun compile() = BuildToolsDaemonClient.compile(
+                connections, compilerId, CompileService.TargetPlatform.JVM, arrayOf("a.kt"), CollectingMessageCollector())
+
+        assertNull(compile())
+        assertEquals(1, connectionAttempts)
+
+        // the failure is remembered for a while, so other modules compile in-process right away
+        now = 999
+        assertNull(compile())
+        assertEquals(1, connectionAttempts)
+
+        now = 1000
+        assertNull(compile())
+        assertEquals(2, connectionAttempts)
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.parsing
+
+import com.intellij.lexer.Lexer
+import com.intellij.openapi.util.Disposer
+import com.intellij.psi.tree.IElementType
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.CommonConfigurationKeys
+import org.jetbrains.kotlin.config.addKotlinSourceRoot
+import org.jetbrains.kotlin.lexer.CachingKotlinLexer
+import org.jetbrains.kotlin.lexer.KotlinLexer
+import org.jetbrains.kotlin.lexer.KotlinTokensCache
+import org.jetbrains.kotlin.lexer.KtTokens
+import org.jetbrains.kotlin.psi.KtPsiFactory
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+
+class CachingKotlinLexerTest : TestCaseWithTmpdir() {
+    private val text = """
+        /** Doc */
+        fun foo(x: Int) = "x = ${'$'}x, ${'$'}{x + 1}"
+
+        class A<T> : B() { val y = 1.0f // comment
+        }
+    """.trimIndent()
+
+    private val key = KotlinTokensCache.FileKey("/src/a.kt", 1L, text.length.toLong())
+
+    fun testSameTokensAsKotlinLexer() {
+        val cache = KotlinTokensCache(Long.MAX_VALUE)
+        val expected = tokens(KotlinLexer(), text)
+
+        assertEquals(expected, tokens(CachingKotlinLexer(cache, key), text))
+        assertEquals(0, cache.hits)
+
+        assertEquals(expected, tokens(CachingKotlinLexer(cache, key), text))
+        assertEquals(1, cache.hits)
+    }
+
+    fun testChangedFile() {
+        val cache = KotlinTokensCache(Long.MAX_VALUE)
+        tokens(CachingKotlinLexer(cache, key), text)
+
+        val changed = text.replace("foo", "bar")
+        assertEquals(tokens(KotlinLexer(), changed), tokens(CachingKotlinLexer(cache, key.copy(timeStamp = 2L)), changed))
+        assertEquals(0, cache.hits)
+
+        // the length of the text doesn't match the file, e.g. the file is changed after its time stamp was taken
+        val longer = text + " "
+        assertEquals(tokens(KotlinLexer(), longer), tokens(CachingKotlinLexer(cache, key), longer))
+        assertEquals(0, cache.hits)
+    }
+
+    fun testPartialRange() {
+        val cache = KotlinTokensCache(Long.MAX_VALUE)
+        val lexer = CachingKotlinLexer(cache, key)
+        lexer.start(text, 3, 20, 0)
+        val expected = KotlinLexer()
+        expected.start(text, 3, 20, 0)
+
+        assertEquals(tokens(expected), tokens(lexer))
+        assertEquals(0, cache.misses)
+    }
+
+    fun testEviction() {
+        val other = "val z = 2"
+        val otherKey = KotlinTokensCache.FileKey("/src/b.kt", 1L, other.length.toLong())
+        val budget = estimatedSize(text, key) + estimatedSize(other, otherKey)
+
+        assertEquals(1, hitsOfRepeatedFile(KotlinTokensCache(budget), other, otherKey))
+        assertEquals(0, hitsOfRepeatedFile(KotlinTokensCache(budget - 1), other, otherKey))
+    }
+
+    fun testSourceFilesAreCached() {
+        val source = File(tmpdir, "a.kt")
+        source.writeText(text)
+        val cache = KotlinTokensCache(Long.MAX_VALUE)
+
+        assertEquals(listOf("foo", "A"), declarationsOfSourceFile(source, cache))
+        assertEquals(1, cache.misses)
+
+        // the next compilation creates a new environment
+        assertEquals(listOf("foo", "A"), declarationsOfSourceFile(source, cache))
+        assertEquals(1, cache.hits)
+
+        source.writeText(text.replace("foo", "bar"))
+        source.setLastModified(source.lastModified() + 2000)
+        assertEquals(listOf("bar", "A"), declarationsOfSourceFile(source, cache))
+        assertEquals(1, cache.hits)
+        assertEquals(2, cache.misses)
+    }
+
+    fun testFilesCreatedFromTextAreNotCached() {
+        val cache = KotlinTokensCache(Long.MAX_VALUE)
+        withEnvironment(cache, null) { environment ->
+            val file = KtPsiFactory(environment.project).createFile(text)
+            assertEquals(listOf("foo", "A"), file.declarations.map { it.name })
+        }
+        assertEquals(0, cache.hits + cache.misses)
+    }
+
+    private fun declarationsOfSourceFile(source: File, cache: KotlinTokensCache): List<String?> =
+            withEnvironment(cache, source) { environment -> environment.getSourceFiles().single().declarations.map { it.name } }
+
+    private fun <T> withEnvironment(cache: KotlinTokensCache, source: File?, action: (KotlinCoreEnvironment) -> T): T {
+        val configuration = KotlinTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK)
+        configuration.put(CommonConfigurationKeys.TOKENS_CACHE, cache)
+        if (source != null) {
+            configuration.addKotlinSourceRoot(source.path)
+        }
+
+        val disposable = Disposer.newDisposable()
+        try {
+            return action(KotlinCoreEnvironment.createForTests(disposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES))
+        }
+        finally {
+            Disposer.dispose(disposable)
+        }
+    }
+
+    private fun hitsOfRepeatedFile(cache: KotlinTokensCache, other: String, otherKey: KotlinTokensCache.FileKey): Int {
+        tokens(CachingKotlinLexer(cache, key), text)
+        tokens(CachingKotlinLexer(cache, otherKey), other)
+        tokens(CachingKotlinLexer(cache, key), text)
+        return cache.hits
+    }
+
+    private fun estimatedSize(text: String, key: KotlinTokensCache.FileKey): Long {
+        val tokenCount = tokens(KotlinLexer(), text).size
+        return KotlinTokensCache.LexedText(Array<IElementType>(tokenCount) { KtTokens.IDENTIFIER }, IntArray(tokenCount + 1)).estimatedSize(key)
+    }
+    private fun tokens(lexer: Lexer, text: String): List<String> {
+        lexer.start(text)
+        return tokens(lexer)
+    }
+
+    private fun tokens(lexer: Lexer): List<String> {
+        val result = arrayListOf<String>()
+        while (lexer.tokenType != null) {
+            result.add("${lexer.tokenType} ${lexer.tokenStart}-${lexer.tokenEnd}")
+            lexer.advance()
+        }
+        return result
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.psi.stubs
+
+import com.intellij.openapi.util.Disposer
+import com.intellij.openapi.util.text.StringUtil
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.idea.KotlinFileType
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.psi.KtPsiFactory
+import org.jetbrains.kotlin.psi.stubs.elements.KtFileStubBuilder
+import java.io.File
+import java.lang.management.ManagementFactory
+
+/**
+ * Parses and builds stubs of all Kotlin files under a directory (compiler/testData by default), as indexing does,
+ * and reports the throughput and the allocated memory of parsing and of stub building separately.
+ *
+ * Should be run from the project root. Arguments: the directory and the number of iterations.
+ */
+fun main(args: Array<String>) {
+    val root = File(args.getOrNull(0) ?: "compiler/testData")
+    val iterations = args.getOrNull(1)?.toInt() ?: 5
+
+    val disposable = Disposer.newDisposable()
+    try {
+        val environment = KotlinCoreEnvironment.createForProduction(
+                disposable, CompilerConfiguration(), EnvironmentConfigFiles.JVM_CONFIG_FILES)
+        val psiFactory = KtPsiFactory(environment.project)
+
+        val sources = root.walkTopDown()
+                .filter { it.isFile && it.extension == KotlinFileType.EXTENSION }
+                .map { it.name to StringUtil.convertLineSeparators(it.readText()) }
+                .toList()
+        val length = sources.sumBy { it.second.length }.toLong()
+        println("${sources.size} files, ${length / 1024} KB")
+
+        for (iteration in 1..iterations) {
+            val files = sources.map { psiFactory.createFile(it.first, it.second) }
+
+            val parsing = measure(files, length) { it.node.firstChildNode }
+            val stubBuilding = measure(files, length) { KtFileStubBuilder().buildStubTree(it) }
+
+            println("#$iteration parsing: $parsing; stub building: $stubBuilding")
+        }
+    }
+    finally {
+        Disposer.dispose(disposable)
+    }
+}
+
+private fun measure(files: List<KtFile>, length: Long, action: (KtFile) -> Unit): String {
+    val threadBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    val threadId = Thread.currentThread().id
+
+    val allocatedBefore = threadBean.getThreadAllocatedBytes(threadId)
+    val start = System.nanoTime()
+    files.forEach(action)
+    val seconds = (System.nanoTime() - start) / 1e9
+    val allocatedMb = (threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / (1024.0 * 1024.0)
+
+    return "%.0f ms, %.0f files/s, %.2f MB/s, %.0f MB allocated".format(
+            seconds * 1000, files.size / seconds, length / seconds / (1024 * 1024), allocatedMb)
+}
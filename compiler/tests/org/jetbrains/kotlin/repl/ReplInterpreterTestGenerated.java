@@ -89,6 +89,12 @@ public class ReplInterpreterTestGenerated extends AbstractReplInterpreterTest {
         doTest(fileName);
     }
 
+    @TestMetadata("manyLines.repl")
+    public void testManyLines() throws Exception {
+        String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/repl/manyLines.repl");
+        doTest(fileName);
+    }
+
     @TestMetadata("simple.repl")
     public void testSimple() throws Exception {
         String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/repl/simple.repl");
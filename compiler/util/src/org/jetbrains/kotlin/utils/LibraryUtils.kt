@@ -118,7 +118,7 @@ object LibraryUtils {
 
     private fun File.runIfFileExists(action: (content: String, path: String)->Unit) {
         if (isFile) {
-            action(FileUtil.loadFile(this), "")
+            action(FileUtil.loadFile(this), name)
         }
     }
 
@@ -35,7 +35,7 @@ internal abstract class FunctionCaller<out M : Member>(
 
     abstract fun call(args: Array<*>): Any?
 
-    protected open fun checkArguments(args: Array<*>) {
+    internal open fun checkArguments(args: Array<*>) {
         if (parameterTypes.size != args.size) {
             throw IllegalArgumentException("Callable expects ${parameterTypes.size} arguments, but ${args.size} were provided.")
         }
@@ -67,7 +67,7 @@ internal open class KFunctionImpl protected constructor(
                 else -> FunctionCaller.StaticMethod(member)
             }
             else -> throw KotlinReflectionInternalError("Call is not yet supported for this function: $descriptor (member = $member)")
-        }
+        }.withMethodHandlesIfEnabled()
     }
 
     override val defaultCaller: FunctionCaller<*>? by ReflectProperties.lazySoft {
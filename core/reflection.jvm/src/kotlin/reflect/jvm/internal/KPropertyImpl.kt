@@ -60,7 +60,7 @@ internal interface KPropertyImpl<out R> : KProperty<R>, KCallableImpl<R> {
         }
 
         override val caller: FunctionCaller<*> by ReflectProperties.lazySoft {
-            computeCallerForAccessor(isGetter = true)
+            computeCallerForAccessor(isGetter = true).withMethodHandlesIfEnabled()
         }
 
         override val defaultCaller: FunctionCaller<*>? get() = null
@@ -82,7 +82,7 @@ internal interface KMutablePropertyImpl<R> : KMutableProperty<R>, KPropertyImpl<
         }
 
         override val caller: FunctionCaller<*> by ReflectProperties.lazySoft {
-            computeCallerForAccessor(isGetter = false)
+            computeCallerForAccessor(isGetter = false).withMethodHandlesIfEnabled()
         }
 
         override val defaultCaller: FunctionCaller<*>? get() = null
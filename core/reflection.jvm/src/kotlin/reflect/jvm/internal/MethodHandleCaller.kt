@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlin.reflect.jvm.internal
+
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.reflect.AccessibleObject
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Member
+import java.lang.reflect.Modifier
+import java.lang.reflect.Field as ReflectField
+import java.lang.reflect.Method as ReflectMethod
+
+/**
+ * If `-Dkotlin.reflect.jvm.useMethodHandles=true` is specified, calls of methods and property accessors are performed
+ * via [MethodHandle]s instead of [java.lang.reflect.Method.invoke] and [java.lang.reflect.Field.get]/[java.lang.reflect.Field.set].
+ * Method handles require Java 7, [MethodHandleCaller] is not loaded unless the option is enabled.
+ */
+private val useMethodHandles: Boolean = System.getProperty("kotlin.reflect.jvm.useMethodHandles") == "true"
+
+internal fun <M : Member> FunctionCaller<M>.withMethodHandlesIfEnabled(): FunctionCaller<M> =
+        if (useMethodHandles && this !is FunctionCaller.Constructor) MethodHandleCaller(this) else this
+
+/**
+ * Calls the member of the given [caller] with a method handle, which is bound on the first call.
+ *
+ * The observable behavior is the same as of [caller]: arguments are checked by [caller], exceptions thrown by a called method
+ * are wrapped into [InvocationTargetException], and calls which can't be performed with a method handle
+ * (an inaccessible member, a `null` receiver, arguments of unexpected types) are delegated to [caller].
+ */
+internal class MethodHandleCaller<out M : Member>(
+        private val caller: FunctionCaller<M>
+) : FunctionCaller<M>(
+        caller.member,
+        caller.returnType,
+        caller.instanceClass,
+        caller.parameterTypes.drop(if (caller.instanceClass != null) 1 else 0).toTypedArray()
+) {
+    private val isSetter = caller is FieldSetter || caller is ClassCompanionFieldSetter
+
+    private val isVoid = isSetter || returnType == Void.TYPE
+
+    @Volatile private var binding: Binding? = null
+
+    // the value of AccessibleObject.isAccessible at the moment when a method handle could not be created
+    @Volatile private var inaccessible: Boolean? = null
+
+    private class Binding(
+            // (Object[])Object
+            val handle: MethodHandle,
+            // boxed types of parameters, including the instance parameter
+            val parameterClasses: Array<Class<*>>,
+            val nullableParameters: BooleanArray
+    )
+
+    override fun checkArguments(args: Array<*>) {
+        caller.checkArguments(args)
+    }
+
+    override fun call(args: Array<*>): Any? {
+        checkArguments(args)
+
+        val binding = binding ?: bind() ?: return caller.call(args)
+        if (!binding.accepts(args)) return caller.call(args)
+
+        val result = try {
+            MethodHandleInvoker.invoke(binding.handle, args)
+        }
+        catch (e: Throwable) {
+            if (member is ReflectMethod) throw InvocationTargetException(e)
+            throw e
+        }
+        return if (isVoid) Unit else result
+    }
+
+    private fun Binding.accepts(args: Array<*>): Boolean {
+        for (i in args.indices) {
+            val arg = args[i]
+            if (if (arg == null) !nullableParameters[i] else !parameterClasses[i].isInstance(arg)) return false
+        }
+        return true
+    }
+
+    private fun bind(): Binding? {
+        val accessible = (member as AccessibleObject).isAccessible
+        if (inaccessible == accessible) return null
+
+        val lookup = MethodHandles.lookup()
+        var handle = try {
+            when (member) {
+                is ReflectMethod -> lookup.unreflect(member)
+                is ReflectField -> if (isSetter) lookup.unreflectSetter(member) else lookup.unreflectGetter(member)
+                else -> throw KotlinReflectionInternalError("Unsupported member: $member")
+            }
+        }
+        catch (e: IllegalAccessException) {
+            inaccessible = accessible
+            return null
+        }
+
+        val arity = parameterTypes.size
+        if (handle.type().parameterCount() < arity) {
+            // static members of objects and companions are called with an instance, which is checked by caller and not used
+            handle = MethodHandles.dropArguments(handle, 0, Any::class.java)
+        }
+
+        val isStatic = Modifier.isStatic(member.modifiers)
+        val type = handle.type()
+        val parameterClasses = type.wrap().parameterArray()
+        val nullableParameters = BooleanArray(arity)
+        for (index in 0..arity - 1) {
+            // a null receiver of an instance member is reported by caller
+            nullableParameters[index] = !type.parameterType(index).isPrimitive && (isStatic || index != 0)
+        }
+
+        handle = handle.asType(MethodType.genericMethodType(arity)).asSpreader(Array<Any?>::class.java, arity)
+
+        return Binding(handle, parameterClasses, nullableParameters).apply { binding = this }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlin.reflect.jvm.internal;
+
+import java.lang.invoke.MethodHandle;
+
+/* package */ class MethodHandleInvoker {
+    private MethodHandleInvoker() {
+    }
+
+    /**
+     * Calls a spreading handle of type (Object[])Object with the given array as its only argument.
+     * The array is passed as is, while a spread vararg argument of a Kotlin call would be copied.
+     */
+    public static Object invoke(MethodHandle handle, Object[] args) throws Throwable {
+        return handle.invokeExact(args);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlin.reflect.jvm.internal
+
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicLong
+import javax.management.JMException
+import javax.management.ObjectName
+import javax.management.StandardMBean
+
+private val collectStatistics: Boolean = System.getProperty("kotlin.reflect.jvm.cacheStatistics") == "true"
+
+/**
+ * Counters of a kotlin-reflect cache. They are collected only if `-Dkotlin.reflect.jvm.cacheStatistics=true` is specified,
+ * otherwise they stay zero and the caches do not touch them.
+ */
+internal class CacheStatistics(val name: String) {
+    @JvmField val hits = AtomicLong()
+
+    @JvmField val misses = AtomicLong()
+
+    /** Number of entries removed because their keys or values were garbage collected, or because the cache exceeded its limit */
+    @JvmField val evictions = AtomicLong()
+
+    fun hit() {
+        if (collectStatistics) hits.incrementAndGet()
+    }
+
+    fun miss() {
+        if (collectStatistics) misses.incrementAndGet()
+    }
+
+    fun eviction() {
+        if (collectStatistics) evictions.incrementAndGet()
+    }
+
+    fun reset() {
+        hits.set(0)
+        misses.set(0)
+        evictions.set(0)
+    }
+
+    override fun toString(): String = "$name: $hits hits, $misses misses, $evictions evictions"
+}
+
+/**
+ * Statistics of kotlin-reflect caches, see [ReflectionCacheStatistics].
+ * If they are collected, they are available over JMX as the `kotlin.reflect:type=ReflectionCacheStatistics` MBean.
+ */
+public interface ReflectionCacheStatisticsMBean {
+    val moduleHits: Long
+    val moduleMisses: Long
+    val moduleEvictions: Long
+
+    val classHits: Long
+    val classMisses: Long
+    val classEvictions: Long
+
+    fun reset()
+}
+
+/**
+ * Statistics of caches which kotlin-reflect keeps per class loader and per class, useful to diagnose
+ * applications which create many class loaders, e.g. application servers redeploying applications.
+ * They are published over JMX, see [ReflectionCacheStatisticsMBean].
+ */
+internal object ReflectionCacheStatistics : ReflectionCacheStatisticsMBean {
+    const val MBEAN_NAME = "kotlin.reflect:type=ReflectionCacheStatistics"
+
+    /** Cache of module data (deserialized descriptors) by class loader */
+    @JvmField val modules = CacheStatistics("modules")
+
+    /** Cache of [kotlin.reflect.KClass] instances by Java class */
+    @JvmField val classes = CacheStatistics("classes")
+
+    init {
+        if (collectStatistics) registerMBean()
+    }
+
+    override val moduleHits: Long get() = modules.hits.get()
+    override val moduleMisses: Long get() = modules.misses.get()
+    override val moduleEvictions: Long get() = modules.evictions.get()
+
+    override val classHits: Long get() = classes.hits.get()
+    override val classMisses: Long get() = classes.misses.get()
+    override val classEvictions: Long get() = classes.evictions.get()
+
+    override fun reset() {
+        modules.reset()
+        classes.reset()
+    }
+
+    private fun registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    StandardMBean(this, ReflectionCacheStatisticsMBean::class.java), ObjectName(MBEAN_NAME)
+            )
+        }
+        catch (e: JMException) {
+            // another copy of kotlin-reflect has already registered its statistics
+        }
+        catch (e: LinkageError) {
+            // java.lang.management is not available, e.g. on Android
+        }
+    }
+
+    override fun toString(): String = "$modules; $classes"
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlin.reflect.jvm.internal
+
+import java.util.concurrent.ConcurrentMap
+
+/**
+ * Limits the number of entries of [map] to [limit], evicting the least recently used ones. Does nothing if [limit] is not positive.
+ *
+ * Caches stamp their values with [lastUsed] on each hit and on creation, and call this function after they add an entry.
+ * Entries are evicted in batches of 1/8 of the limit, so that the entries are not sorted on each addition to a full cache.
+ */
+internal fun <K, V> ConcurrentMap<K, V>.evictLeastRecentlyUsed(limit: Int, statistics: CacheStatistics, lastUsed: (V) -> Long) {
+    if (limit <= 0 || size <= limit) return
+
+    synchronized(this) {
+        // stamps are read once, they may change while the entries are sorted
+        val entries = entries.map { it to lastUsed(it.value) }
+        val evictedCount = entries.size - (limit - limit / 8)
+        if (evictedCount <= 0) return
+
+        for (entry in entries.sortedBy { it.second }.subList(0, evictedCount).map { it.first }) {
+            if (remove(entry.key, entry.value)) statistics.eviction()
+        }
+    }
+}
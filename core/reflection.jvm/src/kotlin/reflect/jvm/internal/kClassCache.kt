@@ -16,52 +16,130 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
-import kotlin.reflect.jvm.internal.pcollections.HashPMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
 
-// TODO: collect nulls periodically
-// Key of the map is Class.getName(), each value is either a WeakReference<KClassImpl<*>> or an Array<WeakReference<KClassImpl<*>>>.
+// Key of the map is Class.getName(), each value is either a KClassReference or an Array<KClassReference>.
 // Arrays are needed because the same class can be loaded by different class loaders, which results in different Class instances.
-// This variable is not volatile intentionally: we don't care if there's a data race on it and some KClass instances will be lost.
-// We do care however about general performance on read access to it, thus no synchronization is done here whatsoever
-private var K_CLASS_CACHE = HashPMap.empty<String, Any>()
+// Reading from ConcurrentHashMap doesn't block, and updates replace a single entry instead of copying a persistent map.
+// Entries of collected classes are removed with the help of the reference queue, see purgeKClasses()
+private val K_CLASS_CACHE: ConcurrentMap<String, Any> = ConcurrentHashMap()
+
+private val kClassQueue = ReferenceQueue<KClassImpl<*>>()
+
+// -Dkotlin.reflect.jvm.classCacheLimit=N limits the number of class names in K_CLASS_CACHE to N, least recently used ones are evicted.
+// There is no limit by default. An evicted KClass instance stays valid, but another instance is created for its class on the next access.
+private val classCacheLimit: Int = Integer.getInteger("kotlin.reflect.jvm.classCacheLimit", 0)
+
+// Advanced on each miss, the value at the moment of the last use of a class is saved in its reference
+@Volatile private var kClassClock = 0L
+
+private class KClassReference(kClass: KClassImpl<*>, val name: String, queue: ReferenceQueue<KClassImpl<*>>)
+    : WeakReference<KClassImpl<*>>(kClass, queue) {
+    var lastUsed = 0L
+}
 
 // This function is invoked on each reflection access to Java classes, properties, etc. Performance is critical here.
 internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
-    val name = jClass.name
-    val cached = K_CLASS_CACHE[name]
-    if (cached is WeakReference<*>) {
+    val cached = K_CLASS_CACHE[jClass.name]
+    if (cached != null) {
+        val kClass = findKotlinClass(cached, jClass)
+        if (kClass != null) {
+            ReflectionCacheStatistics.classes.hit()
+            return kClass
+        }
+    }
+
+    return createKotlinClass(jClass)
+}
+
+private fun <T : Any> findKotlinClass(cached: Any, jClass: Class<T>): KClassImpl<T>? {
+    if (cached is KClassReference) {
         @Suppress("UNCHECKED_CAST")
         val kClass = cached.get() as KClassImpl<T>?
+        if (kClass?.jClass != jClass) return null
+        if (classCacheLimit > 0) cached.lastUsed = kClassClock
+        return kClass
+    }
+
+    // If the cached value is not a reference, it's an array of references
+    @Suppress("UNCHECKED_CAST")
+    for (ref in cached as Array<KClassReference>) {
+        val kClass = ref.get() as KClassImpl<T>?
         if (kClass?.jClass == jClass) {
-            return kClass!!
+            if (classCacheLimit > 0) ref.lastUsed = kClassClock
+            return kClass
         }
     }
-    else if (cached != null) {
-        // If the cached value is not a weak reference, it's an array of weak references
-        @Suppress("UNCHECKED_CAST")
-        (cached as Array<WeakReference<KClassImpl<T>>>)
-        for (ref in cached) {
-            val kClass = ref.get()
-            if (kClass?.jClass == jClass) {
-                return kClass
-            }
+    return null
+}
+
+private fun lastUsed(cached: Any): Long {
+    if (cached is KClassReference) return cached.lastUsed
+
+    @Suppress("UNCHECKED_CAST")
+    return (cached as Array<KClassReference>).map { it.lastUsed }.max()!!
+}
+
+private fun <T : Any> createKotlinClass(jClass: Class<T>): KClassImpl<T> {
+    ReflectionCacheStatistics.classes.miss()
+    purgeKClasses()
+
+    val name = jClass.name
+    val newKClass = KClassImpl(jClass)
+    val newRef = KClassReference(newKClass, name, kClassQueue)
+    if (classCacheLimit > 0) newRef.lastUsed = kClassClock++
+
+    while (true) {
+        val cached = K_CLASS_CACHE[name]
+        if (cached == null) {
+            if (K_CLASS_CACHE.putIfAbsent(name, newRef) == null) return added(newKClass)
+            continue
         }
 
-        // This is the most unlikely case: we found a cached array of references of length at least 2 (can't be 1 because
-        // the single element would be cached instead), and none of those classes is the one we're looking for
-        val size = cached.size
-        // Don't use Array constructor because it creates a lambda
-        val newArray = arrayOfNulls<WeakReference<KClassImpl<*>>>(size + 1)
+        // Another thread could have created the same class in the meantime
+        findKotlinClass(cached, jClass)?.let { return it }
+
+        // This is the most unlikely case: the same class name is loaded by another class loader
+        val refs = if (cached is KClassReference) arrayOf(cached) else {
+            @Suppress("UNCHECKED_CAST")
+            (cached as Array<KClassReference>)
+        }
+        val newValue = arrayOfNulls<KClassReference>(refs.size + 1)
         // Don't use Arrays.copyOf because it works reflectively
-        System.arraycopy(cached, 0, newArray, 0, size)
-        val newKClass = KClassImpl(jClass)
-        newArray[size] = WeakReference(newKClass)
-        K_CLASS_CACHE = K_CLASS_CACHE.plus(name, newArray)
-        return newKClass
+        System.arraycopy(refs, 0, newValue, 0, refs.size)
+        newValue[refs.size] = newRef
+        if (K_CLASS_CACHE.replace(name, cached, newValue)) return added(newKClass)
     }
+}
 
-    val newKClass = KClassImpl(jClass)
-    K_CLASS_CACHE = K_CLASS_CACHE.plus(name, WeakReference(newKClass))
-    return newKClass
+private fun <T : Any> added(kClass: KClassImpl<T>): KClassImpl<T> {
+    K_CLASS_CACHE.evictLeastRecentlyUsed(classCacheLimit, ReflectionCacheStatistics.classes) { lastUsed(it) }
+    return kClass
+}
+
+private fun purgeKClasses() {
+    while (true) {
+        val ref = kClassQueue.poll() as KClassReference? ?: return
+        while (true) {
+            val cached = K_CLASS_CACHE[ref.name] ?: break
+            if (cached === ref) {
+                if (K_CLASS_CACHE.remove(ref.name, ref)) ReflectionCacheStatistics.classes.eviction()
+                break
+            }
+            if (cached !is Array<*> || ref !in cached) break
+
+            @Suppress("UNCHECKED_CAST")
+            val refs = cached as Array<KClassReference>
+            val newValue: Any =
+                    if (refs.size == 2) (if (refs[0] === ref) refs[1] else refs[0])
+                    else refs.filter { it !== ref }.toTypedArray()
+            if (K_CLASS_CACHE.replace(ref.name, cached, newValue)) {
+                ReflectionCacheStatistics.classes.eviction()
+                break
+            }
+        }
+    }
 }
@@ -18,48 +18,109 @@ package kotlin.reflect.jvm.internal
 
 import org.jetbrains.kotlin.load.java.structure.reflect.safeClassLoader
 import org.jetbrains.kotlin.load.kotlin.reflect.RuntimeModuleData
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.SoftReference
 import java.lang.ref.WeakReference
+import java.util.*
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentMap
 
-// TODO: collect nulls periodically
-private val moduleByClassLoader: ConcurrentMap<WeakClassLoaderBox, WeakReference<RuntimeModuleData>> = ConcurrentHashMap()
+// Entries are removed once either the class loader or the module data is garbage collected, see purgeModules()
+private val moduleByClassLoader: ConcurrentMap<WeakClassLoaderBox, ModuleReference> = ConcurrentHashMap()
 
-private class WeakClassLoaderBox(classLoader: ClassLoader) {
-    val ref: WeakReference<ClassLoader> = WeakReference(classLoader)
+private val moduleQueue = ReferenceQueue<Any>()
 
+// Module data is only weakly reachable from the cache, so it is collected and created anew as soon as
+// no KClass instance of its class loader is alive. -Dkotlin.reflect.jvm.moduleCacheSize=N additionally keeps N most recently
+// created modules softly reachable to avoid rebuilding them. It's off by default: a softly reachable module pins its class loader
+// until the heap is short of memory, which keeps undeployed applications of an application server in memory.
+private val recentModulesLimit: Int = Integer.getInteger("kotlin.reflect.jvm.moduleCacheSize", 0)
+
+private val recentModules = ArrayDeque<SoftReference<RuntimeModuleData>>()
+
+// -Dkotlin.reflect.jvm.moduleCacheLimit=N limits the number of class loaders in moduleByClassLoader to N, least recently used ones
+// are evicted. There is no limit by default. Classes reflected before the eviction keep using the evicted module,
+// while a new module is created for the classes of the same class loader reflected afterwards.
+private val moduleCacheLimit: Int = Integer.getInteger("kotlin.reflect.jvm.moduleCacheLimit", 0)
+
+// Advanced on each miss, the value at the moment of the last use of a module is saved in its reference
+@Volatile private var moduleClock = 0L
+
+private class WeakClassLoaderBox(classLoader: ClassLoader, queue: ReferenceQueue<Any>?) : WeakReference<ClassLoader>(classLoader, queue) {
     // Identity hash code is saved because otherwise once the weak reference is GC'd we cannot compute it anymore
     val identityHashCode: Int = System.identityHashCode(classLoader)
 
     // Temporary strong reference to the class loader to ensure it won't get GC'd while we're inserting this box into the map
     var temporaryStrongRef: ClassLoader? = classLoader
 
+    // A box with a collected class loader is only equal to itself, which is enough to remove it from the map
     override fun equals(other: Any?) =
-            other is WeakClassLoaderBox && ref.get() === other.ref.get()
+            this === other || other is WeakClassLoaderBox && get().let { it != null && it === other.get() }
 
     override fun hashCode() =
             identityHashCode
 
     override fun toString() =
-            ref.get()?.let { it.toString() } ?: "<null>"
+            get()?.let { it.toString() } ?: "<null>"
+}
+
+private class ModuleReference(
+        module: RuntimeModuleData,
+        val key: WeakClassLoaderBox,
+        queue: ReferenceQueue<Any>
+) : WeakReference<RuntimeModuleData>(module, queue) {
+    var lastUsed = 0L
+}
+
+private fun purgeModules() {
+    while (true) {
+        val ref = moduleQueue.poll() ?: return
+        val removed = when (ref) {
+            is WeakClassLoaderBox -> moduleByClassLoader.remove(ref) != null
+            is ModuleReference -> moduleByClassLoader.remove(ref.key, ref)
+            else -> false
+        }
+        if (removed) ReflectionCacheStatistics.modules.eviction()
+    }
+}
+
+private fun keepRecentModule(module: RuntimeModuleData) {
+    if (recentModulesLimit <= 0) return
+
+    synchronized(recentModules) {
+        recentModules.addLast(SoftReference(module))
+        while (recentModules.size > recentModulesLimit) {
+            recentModules.removeFirst()
+        }
+    }
 }
 
 internal fun Class<*>.getOrCreateModule(): RuntimeModuleData {
-    val classLoader = this.safeClassLoader
+    purgeModules()
 
-    val key = WeakClassLoaderBox(classLoader)
+    val classLoader = this.safeClassLoader
 
-    val cached = moduleByClassLoader[key]
+    val cachedRef = moduleByClassLoader[WeakClassLoaderBox(classLoader, null)]
+    val cached = cachedRef?.get()
     if (cached != null) {
-        cached.get()?.let { return it }
-        moduleByClassLoader.remove(key, cached)
+        if (moduleCacheLimit > 0) cachedRef!!.lastUsed = moduleClock
+        ReflectionCacheStatistics.modules.hit()
+        return cached
     }
 
+    ReflectionCacheStatistics.modules.miss()
     val module = RuntimeModuleData.create(classLoader)
+    val key = WeakClassLoaderBox(classLoader, moduleQueue)
     try {
+        val newRef = ModuleReference(module, key, moduleQueue)
+        if (moduleCacheLimit > 0) newRef.lastUsed = moduleClock++
         while (true) {
-            val ref = moduleByClassLoader.putIfAbsent(key, WeakReference(module))
-            if (ref == null) return module
+            val ref = moduleByClassLoader.putIfAbsent(key, newRef)
+            if (ref == null) {
+                keepRecentModule(module)
+                moduleByClassLoader.evictLeastRecentlyUsed(moduleCacheLimit, ReflectionCacheStatistics.modules) { it.lastUsed }
+                return module
+            }
 
             val result = ref.get()
             if (result != null) return result
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.eval4j
+
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.tree.*
+import java.util.*
+
+/**
+ * A method prepared for [interpreterLoop]: its instructions are put to an array, labels, line numbers and frames are dropped,
+ * and jump targets, switch tables and exception handlers refer to the indices of instructions in the array.
+ */
+class CompiledMethod(val method: MethodNode) {
+    val instructions: Array<AbstractInsnNode>
+
+    val returnType: Type = Type.getReturnType(method.desc)
+
+    // index of the instruction each label points to
+    private val labelIndices = HashMap<LabelNode, Int>()
+
+    private val jumpTargets: IntArray
+    private val switches: Array<SwitchTable?>
+    private val handlers: Array<Array<Handler>?>
+
+    class Handler(val exceptionType: Type?, val handlerIndex: Int)
+
+    init {
+        val nodes = method.instructions.toArray()
+        val compiled = ArrayList<AbstractInsnNode>(nodes.size)
+        // index in the array of compiled instructions of the first instruction at or after each node
+        val compiledIndices = IntArray(nodes.size + 1)
+
+        for ((i, node) in nodes.withIndex()) {
+            compiledIndices[i] = compiled.size
+            if (node is LabelNode) {
+                labelIndices[node] = compiled.size
+            }
+            if (node.opcode >= 0) {
+                compiled.add(node)
+            }
+        }
+        compiledIndices[nodes.size] = compiled.size
+
+        instructions = compiled.toTypedArray()
+        jumpTargets = IntArray(instructions.size) { -1 }
+        switches = arrayOfNulls<SwitchTable>(instructions.size)
+
+        for ((i, insn) in instructions.withIndex()) {
+            when (insn) {
+                is JumpInsnNode -> jumpTargets[i] = labelIndex(insn.label)
+                is TableSwitchInsnNode -> switches[i] = SwitchTable(
+                        null, insn.min, insn.labels.map { labelIndex(it) }.toIntArray(), labelIndex(insn.dflt)
+                )
+                is LookupSwitchInsnNode -> switches[i] = SwitchTable(
+                        insn.keys.toIntArray(), 0, insn.labels.map { labelIndex(it) }.toIntArray(), labelIndex(insn.dflt)
+                )
+            }
+        }
+
+        val insnHandlers = arrayOfNulls<MutableList<Handler>>(instructions.size)
+        for (tcb in method.tryCatchBlocks) {
+            val handler = Handler(tcb.type?.let { Type.getObjectType(it) }, labelIndex(tcb.handler))
+            val begin = compiledIndices[method.instructions.indexOf(tcb.start)]
+            val end = compiledIndices[method.instructions.indexOf(tcb.end)]
+            for (i in begin..end - 1) {
+                val list = insnHandlers[i] ?: ArrayList<Handler>()
+                insnHandlers[i] = list
+                list.add(handler)
+            }
+        }
+        handlers = Array(instructions.size) { insnHandlers[it]?.toTypedArray() }
+    }
+
+    fun labelIndex(label: LabelNode): Int =
+            labelIndices[label] ?: throw IllegalArgumentException("Label is not in the method: $label")
+
+    fun jumpTarget(index: Int): Int = jumpTargets[index]
+
+    fun switchTarget(index: Int, key: Int): Int = switches[index]!!.target(key)
+
+    fun handlers(index: Int): Array<Handler>? = handlers[index]
+
+    // keys are null for TABLESWITCH, where targets are indexed by key - min, and sorted for LOOKUPSWITCH
+    private class SwitchTable(private val keys: IntArray?, private val min: Int, private val targets: IntArray, private val defaultTarget: Int) {
+        fun target(key: Int): Int {
+            val i = if (keys == null) key - min else Arrays.binarySearch(keys, key)
+            return if (i >= 0 && i < targets.size) targets[i] else defaultTarget
+        }
+    }
+}
@@ -22,7 +22,6 @@ import org.jetbrains.org.objectweb.asm.Type
 import org.jetbrains.org.objectweb.asm.tree.*
 import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
 import org.jetbrains.org.objectweb.asm.util.Printer
-import java.util.*
 
 interface InterpreterResult {
     override fun toString(): String
@@ -77,34 +76,43 @@ fun interpreterLoop(
         eval: Eval,
         handler: InterpretationEventHandler = InterpretationEventHandler.NONE
 ): InterpreterResult {
-    val firstInsn = m.instructions.first
-    if (firstInsn == null) throw IllegalArgumentException("Empty method")
+    return interpreterLoop(CompiledMethod(m), initialState, eval, handler)
+}
 
-    var currentInsn = firstInsn
+fun interpreterLoop(
+        m: CompiledMethod,
+        initialState: Frame<Value>,
+        eval: Eval,
+        handler: InterpretationEventHandler = InterpretationEventHandler.NONE
+): InterpreterResult {
+    val instructions = m.instructions
+    if (instructions.isEmpty()) throw IllegalArgumentException("Empty method")
+
+    var currentIndex = 0
+    var currentInsn = instructions[0]
 
-    fun goto(nextInsn: AbstractInsnNode?) {
-        if (nextInsn == null) throw IllegalArgumentException("Instruction flow ended with no RETURN")
-        currentInsn = nextInsn
+    fun goto(nextIndex: Int) {
+        if (nextIndex >= instructions.size) throw IllegalArgumentException("Instruction flow ended with no RETURN")
+        currentIndex = nextIndex
+        currentInsn = instructions[nextIndex]
     }
 
     val interpreter = SingleInstructionInterpreter(eval)
     val frame = Frame(initialState)
-    val handlers = computeHandlers(m)
 
     class ResultException(val result: InterpreterResult): RuntimeException()
 
     fun exceptionCaught(exceptionValue: Value, instanceOf: (Type) -> Boolean): Boolean {
-        val catchBlocks = handlers[m.instructions.indexOf(currentInsn)] ?: listOf()
+        val catchBlocks = m.handlers(currentIndex) ?: return false
         for (catch in catchBlocks) {
-            val exceptionTypeInternalName = catch.type
-            if (exceptionTypeInternalName != null) {
-                val exceptionType = Type.getObjectType(exceptionTypeInternalName)
+            val exceptionType = catch.exceptionType
+            if (exceptionType != null) {
                 if (instanceOf(exceptionType)) {
                     val handled = handler.exceptionCaught(frame, currentInsn, exceptionValue)
                     if (handled != null) throw ResultException(handled)
                     frame.clearStack()
                     frame.push(exceptionValue)
-                    goto(catch.handler)
+                    goto(catch.handlerIndex)
                     return true
                 }
             }
@@ -138,112 +146,104 @@ fun interpreterLoop(
     try {
         loop@ while (true) {
             val insnOpcode = currentInsn.opcode
-            val insnType = currentInsn.type
 
-            when (insnType) {
-                AbstractInsnNode.LABEL,
-                AbstractInsnNode.FRAME,
-                AbstractInsnNode.LINE -> {
-                    // skip to the next instruction
+            when (insnOpcode) {
+                GOTO -> {
+                    goto(m.jumpTarget(currentIndex))
+                    continue@loop
                 }
 
-                else -> {
-                    when (insnOpcode) {
-                        GOTO -> {
-                            goto((currentInsn as JumpInsnNode).label)
-                            continue@loop
-                        }
-
-                        RET -> {
-                            val varNode = currentInsn as VarInsnNode
-                            val address = frame.getLocal(varNode.`var`)
-                            goto((address as LabelValue).value)
-                            continue@loop
-                        }
+                RET -> {
+                    val varNode = currentInsn as VarInsnNode
+                    val address = frame.getLocal(varNode.`var`)
+                    goto(m.labelIndex((address as LabelValue).value))
+                    continue@loop
+                }
 
-                        // TODO: switch
-                        LOOKUPSWITCH -> UnsupportedByteCodeException("LOOKUPSWITCH is not supported yet")
-                        TABLESWITCH -> UnsupportedByteCodeException("TABLESWITCH is not supported yet")
-
-                        IRETURN, LRETURN, FRETURN, DRETURN, ARETURN -> {
-                            val value = frame.getStackTop()
-                            val expectedType = Type.getReturnType(m.desc)
-                            if (expectedType.sort == Type.OBJECT || expectedType.sort == Type.ARRAY) {
-                                val coerced = if (value != NULL_VALUE && value.asmType != expectedType)
-                                                    ObjectValue(value.obj(), expectedType)
-                                              else value
-                                return ValueReturned(coerced)
-                            }
-                            if (value.asmType != expectedType) {
-                                assert(insnOpcode == IRETURN) { "Only ints should be coerced: ${Printer.OPCODES[insnOpcode]}" }
-
-                                val coerced = when (expectedType.sort) {
-                                    Type.BOOLEAN -> boolean(value.boolean)
-                                    Type.BYTE -> byte(value.int.toByte())
-                                    Type.SHORT -> short(value.int.toShort())
-                                    Type.CHAR -> char(value.int.toChar())
-                                    Type.INT -> int(value.int)
-                                    else -> throw UnsupportedByteCodeException("Should not be coerced: $expectedType")
-                                }
-                                return ValueReturned(coerced)
-                            }
-                            return ValueReturned(value)
-                        }
-                        RETURN -> return ValueReturned(VOID_VALUE)
-                        IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE, IFNULL, IFNONNULL -> {
-                            if (interpreter.checkUnaryCondition(frame.getStackTop(), insnOpcode)) {
-                                frame.execute(currentInsn, interpreter)
-                                goto((currentInsn as JumpInsnNode).label)
-                                continue@loop
-                            }
-                        }
-                        IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE, IF_ACMPEQ, IF_ACMPNE -> {
-                            if (interpreter.checkBinaryCondition(frame.getStackTop(1), frame.getStackTop(0), insnOpcode)) {
-                                frame.execute(currentInsn, interpreter)
-                                goto((currentInsn as JumpInsnNode).label)
-                                continue@loop
-                            }
-                        }
+                LOOKUPSWITCH, TABLESWITCH -> {
+                    val key = frame.getStackTop().int
+                    frame.pop()
+                    goto(m.switchTarget(currentIndex, key))
+                    continue@loop
+                }
 
-                        ATHROW -> {
-                            val exceptionValue = frame.getStackTop() as ObjectValue
-                            val handled = handler.exceptionThrown(frame, currentInsn, exceptionValue)
-                            if (handled != null) return handled
-                            if (exceptionCaught(exceptionValue)) continue@loop
-                            return ExceptionThrown(exceptionValue, ExceptionKind.FROM_EVALUATED_CODE)
+                IRETURN, LRETURN, FRETURN, DRETURN, ARETURN -> {
+                    val value = frame.getStackTop()
+                    val expectedType = m.returnType
+                    if (expectedType.sort == Type.OBJECT || expectedType.sort == Type.ARRAY) {
+                        val coerced = if (value != NULL_VALUE && value.asmType != expectedType)
+                                            ObjectValue(value.obj(), expectedType)
+                                      else value
+                        return ValueReturned(coerced)
+                    }
+                    if (value.asmType != expectedType) {
+                        assert(insnOpcode == IRETURN) { "Only ints should be coerced: ${Printer.OPCODES[insnOpcode]}" }
+
+                        val coerced = when (expectedType.sort) {
+                            Type.BOOLEAN -> boolean(value.boolean)
+                            Type.BYTE -> byte(value.int.toByte())
+                            Type.SHORT -> short(value.int.toShort())
+                            Type.CHAR -> char(value.int.toChar())
+                            Type.INT -> int(value.int)
+                            else -> throw UnsupportedByteCodeException("Should not be coerced: $expectedType")
                         }
-
-                        // Workaround for a bug in Kotlin: NoPatterMatched exception is thrown otherwise!
-                        else -> {}
+                        return ValueReturned(coerced)
                     }
-
-                    try {
+                    return ValueReturned(value)
+                }
+                RETURN -> return ValueReturned(VOID_VALUE)
+                IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE, IFNULL, IFNONNULL -> {
+                    if (interpreter.checkUnaryCondition(frame.getStackTop(), insnOpcode)) {
                         frame.execute(currentInsn, interpreter)
+                        goto(m.jumpTarget(currentIndex))
+                        continue@loop
                     }
-                    catch (e: ThrownFromEvalExceptionBase) {
-                        val exception = e.cause!!
-                        val exceptionValue = ObjectValue(exception, Type.getType(exception.javaClass))
-                        val handled = handler.exceptionThrown(frame, currentInsn,
-                                exceptionValue)
-                        if (handled != null) return handled
-                        if (exceptionFromEvalCaught(exception, exceptionValue)) continue@loop
-
-                        val exceptionType = if (e is BrokenCode) ExceptionKind.BROKEN_CODE else ExceptionKind.FROM_EVALUATOR
-                        return ExceptionThrown(exceptionValue, exceptionType)
-                    }
-                    catch (e: ThrownFromEvaluatedCodeException) {
-                        val handled = handler.exceptionThrown(frame, currentInsn, e.exception)
-                        if (handled != null) return handled
-                        if (exceptionCaught(e.exception)) continue@loop
-                        return ExceptionThrown(e.exception, ExceptionKind.FROM_EVALUATED_CODE)
+                }
+                IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE, IF_ACMPEQ, IF_ACMPNE -> {
+                    if (interpreter.checkBinaryCondition(frame.getStackTop(1), frame.getStackTop(0), insnOpcode)) {
+                        frame.execute(currentInsn, interpreter)
+                        goto(m.jumpTarget(currentIndex))
+                        continue@loop
                     }
                 }
+
+                ATHROW -> {
+                    val exceptionValue = frame.getStackTop() as ObjectValue
+                    val handled = handler.exceptionThrown(frame, currentInsn, exceptionValue)
+                    if (handled != null) return handled
+                    if (exceptionCaught(exceptionValue)) continue@loop
+                    return ExceptionThrown(exceptionValue, ExceptionKind.FROM_EVALUATED_CODE)
+                }
+
+                // Workaround for a bug in Kotlin: NoPatterMatched exception is thrown otherwise!
+                else -> {}
+            }
+
+            try {
+                frame.execute(currentInsn, interpreter)
+            }
+            catch (e: ThrownFromEvalExceptionBase) {
+                val exception = e.cause!!
+                val exceptionValue = ObjectValue(exception, Type.getType(exception.javaClass))
+                val handled = handler.exceptionThrown(frame, currentInsn,
+                        exceptionValue)
+                if (handled != null) return handled
+                if (exceptionFromEvalCaught(exception, exceptionValue)) continue@loop
+
+                val exceptionType = if (e is BrokenCode) ExceptionKind.BROKEN_CODE else ExceptionKind.FROM_EVALUATOR
+                return ExceptionThrown(exceptionValue, exceptionType)
+            }
+            catch (e: ThrownFromEvaluatedCodeException) {
+                val handled = handler.exceptionThrown(frame, currentInsn, e.exception)
+                if (handled != null) return handled
+                if (exceptionCaught(e.exception)) continue@loop
+                return ExceptionThrown(e.exception, ExceptionKind.FROM_EVALUATED_CODE)
             }
 
             val handled = handler.instructionProcessed(currentInsn)
             if (handled != null) return handled
 
-            goto(currentInsn.next)
+            goto(currentIndex + 1)
         }
     }
     catch(e: ResultException) {
@@ -252,21 +252,3 @@ fun interpreterLoop(
 }
 
 private fun <T: Value> Frame<T>.getStackTop(i: Int = 0) = this.getStack(this.stackSize - 1 - i) ?: throwBrokenCodeException(IllegalArgumentException("Couldn't get value with index = $i from top of stack"))
-
-// Copied from org.jetbrains.org.objectweb.asm.tree.analysis.Analyzer.analyze()
-fun computeHandlers(m: MethodNode): Array<out List<TryCatchBlockNode>?> {
-    val insns = m.instructions
-    val handlers = Array<MutableList<TryCatchBlockNode>?>(insns.size()) {null}
-    for (tcb in m.tryCatchBlocks) {
-        val begin = insns.indexOf(tcb.start)
-        val end = insns.indexOf(tcb.end)
-        for (i in begin..end - 1) {
-            val insnHandlers = handlers[i] ?: ArrayList<TryCatchBlockNode>()
-            handlers[i] = insnHandlers
-
-            insnHandlers.add(tcb)
-        }
-    }
-
-    return handlers
-}
\ No newline at end of file
@@ -21,6 +21,7 @@ import org.jetbrains.eval4j.*
 import org.jetbrains.eval4j.Value
 import org.jetbrains.org.objectweb.asm.Type
 import java.lang.reflect.AccessibleObject
+import java.util.HashMap
 import com.sun.jdi.Type as jdi_Type
 import com.sun.jdi.Value as jdi_Value
 
@@ -46,11 +47,23 @@ class JDIEval(
             Type.DOUBLE_TYPE.className to vm.mirrorOf(1.0).type()
     )
 
+    // Each lookup of a mirror is a round-trip to the debuggee, so the mirrors found once are remembered for the evaluation.
+    // The debuggee is suspended except for the calls made by the evaluation, so the classes it has seen are not unloaded,
+    // and the members of a loaded class never change. Failed lookups are not cached, since a class may be loaded later.
+    private val classes = HashMap<Pair<Type, ClassLoaderReference?>, Value>()
+    private val referenceTypes = HashMap<Pair<Type, ClassLoaderReference?>, ReferenceType>()
+    private val fields = HashMap<FieldDescription, Field>()
+    private val methods = HashMap<Pair<MethodDescription, ReferenceType>, Method>()
+
     override fun loadClass(classType: Type): Value {
         return loadClass(classType, defaultClassLoader)
     }
 
     fun loadClass(classType: Type, classLoader: ClassLoaderReference?): Value {
+        return classes.getOrPut(classType to classLoader) { doLoadClass(classType, classLoader) }
+    }
+
+    private fun doLoadClass(classType: Type, classLoader: ClassLoaderReference?): Value {
         val loadedClasses = vm.classesByName(classType.internalName)
         if (!loadedClasses.isEmpty()) {
             val loadedClass = loadedClasses[0]
@@ -109,7 +122,8 @@ class JDIEval(
                 listOf(value)).boolean
     }
 
-    fun Type.asReferenceType(classLoader: ClassLoaderReference? = this@JDIEval.defaultClassLoader): ReferenceType = loadClass(this, classLoader).jdiClass!!.reflectedType()
+    fun Type.asReferenceType(classLoader: ClassLoaderReference? = this@JDIEval.defaultClassLoader): ReferenceType =
+            referenceTypes.getOrPut(this to classLoader) { loadClass(this, classLoader).jdiClass!!.reflectedType() }
     fun Type.asArrayType(classLoader: ClassLoaderReference? = this@JDIEval.defaultClassLoader): ArrayType = asReferenceType(classLoader) as ArrayType
 
     override fun newArray(arrayType: Type, size: Int): Value {
@@ -164,7 +178,9 @@ class JDIEval(
         }
     }
 
-    private fun findField(fieldDesc: FieldDescription): Field {
+    private fun findField(fieldDesc: FieldDescription): Field = fields.getOrPut(fieldDesc) { doFindField(fieldDesc) }
+
+    private fun doFindField(fieldDesc: FieldDescription): Field {
         val _class = fieldDesc.ownerType.asReferenceType()
         val field = _class.fieldByName(fieldDesc.name)
         if (field == null) {
@@ -202,7 +218,10 @@ class JDIEval(
         mayThrow { _class.setValue(field, jdiValue) }
     }
 
-    private fun findMethod(methodDesc: MethodDescription, _class: ReferenceType = methodDesc.ownerType.asReferenceType()): Method {
+    private fun findMethod(methodDesc: MethodDescription, _class: ReferenceType = methodDesc.ownerType.asReferenceType()): Method =
+            methods.getOrPut(methodDesc to _class) { doFindMethod(methodDesc, _class) }
+
+    private fun doFindMethod(methodDesc: MethodDescription, _class: ReferenceType): Method {
         val method = when (_class) {
             is ClassType -> {
                 val m = _class.concreteMethodByName(methodDesc.name, methodDesc.desc)
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.eval4j.jdi.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Expressions typical for the debugger: loops accessing fields and calling methods of the debuggee's classes
+@SuppressWarnings("unused")
+class BenchmarkData {
+    private static int counter = 0;
+
+    private int value;
+
+    BenchmarkData(int value) {
+        this.value = value;
+    }
+
+    int getValue() {
+        return value;
+    }
+
+    static int staticFieldsInLoop() {
+        counter = 0;
+        for (int i = 0; i < 200; i++) {
+            counter += i;
+        }
+        return counter;
+    }
+
+    static int instanceMethodsInLoop() {
+        BenchmarkData data = new BenchmarkData(1);
+        int sum = 0;
+        for (int i = 0; i < 200; i++) {
+            sum += data.getValue() + data.value;
+        }
+        return sum;
+    }
+
+    static int collectionInLoop() {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        int sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+
+    static String stringBuilderInLoop() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(i).append(',');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.eval4j.jdi.test
+
+import org.jetbrains.eval4j.interpreterLoop
+import org.jetbrains.eval4j.jdi.JDIEval
+import org.jetbrains.eval4j.jdi.makeInitialFrame
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.tree.ClassNode
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+
+/**
+ * Evaluates the methods of [BenchmarkData] in a debuggee JVM and reports the average time of an evaluation.
+ * Each evaluation uses a new [JDIEval], as the debugger does.
+ *
+ * Should be run from the project root after the eval4j module is built, as the debuggee uses its output directories as the classpath.
+ */
+fun main(args: Array<String>) {
+    val iterations = args.firstOrNull()?.toInt() ?: 20
+    val debugee = launchDebugee()
+
+    try {
+        for (method in staticMethodsOf(BenchmarkData::class.java)) {
+            evaluate(debugee, method)
+
+            val start = System.nanoTime()
+            repeat(iterations) { evaluate(debugee, method) }
+            val averageMs = (System.nanoTime() - start) / iterations / 1000000.0
+
+            println("${method.name}: ${"%.2f".format(averageMs)} ms")
+        }
+    }
+    finally {
+        debugee.vm.exit(0)
+    }
+}
+
+private fun evaluate(debugee: SuspendedDebugee, method: MethodNode) {
+    val eval = JDIEval(debugee.vm, debugee.classLoader, debugee.thread, 0)
+    interpreterLoop(method, makeInitialFrame(method, listOf()), eval)
+}
+
+private fun staticMethodsOf(ownerClass: Class<*>): List<MethodNode> {
+    val classNode = ClassNode()
+    ownerClass.classLoader.getResourceAsStream(ownerClass.name.replace('.', '/') + ".class").use {
+        ClassReader(it).accept(classNode, 0)
+    }
+
+    return classNode.methods.filter {
+        it.access and Opcodes.ACC_STATIC != 0 && it.name != "<clinit>"
+    }
+}
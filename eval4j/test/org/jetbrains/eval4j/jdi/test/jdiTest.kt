@@ -36,7 +36,12 @@ import java.util.concurrent.atomic.AtomicInteger
 
 val DEBUGEE_CLASS = Debugee::class.java
 
-fun suite(): TestSuite {
+class SuspendedDebugee(val vm: VirtualMachine, val classLoader: ClassLoaderReference, val thread: ThreadReference)
+
+/**
+ * Launches [DEBUGEE_CLASS] in a new JVM and waits until it's suspended at a breakpoint in its main method.
+ */
+fun launchDebugee(): SuspendedDebugee {
     val connectors = Bootstrap.virtualMachineManager().launchingConnectors()
     val connector = connectors[0]
     println("Using connector $connector")
@@ -99,6 +104,13 @@ fun suite(): TestSuite {
 
     latch.await()
 
+    return SuspendedDebugee(vm, classLoader!!, thread!!)
+}
+
+fun suite(): TestSuite {
+    val debugee = launchDebugee()
+    val vm = debugee.vm
+
     var remainingTests = AtomicInteger(0)
 
     val suite = buildTestSuite {
@@ -107,7 +119,7 @@ fun suite(): TestSuite {
         object : TestCase(getTestName(methodNode.name)) {
 
             override fun runTest() {
-                val eval = JDIEval(vm, classLoader!!, thread!!, 0)
+                val eval = JDIEval(vm, debugee.classLoader, debugee.thread, 0)
 
                 val args = if ((methodNode.access and Opcodes.ACC_STATIC) == 0) {
                     // Instance method
@@ -219,6 +219,33 @@ class TestData extends BaseTestData {
         }
     }
 
+    static int tableSwitch() {
+        int result = 0;
+        for (int i = -1; i < 5; i++) {
+            switch (i) {
+                case 0: result += 1; break;
+                case 1: result += 10; break;
+                case 2:
+                case 3: result += 100; break;
+                default: result += 1000;
+            }
+        }
+        return result;
+    }
+
+    static int lookupSwitch() {
+        int result = 0;
+        for (int i = -1000; i <= 1000; i += 500) {
+            switch (i) {
+                case -1000: result += 1; break;
+                case 0: result += 10; break;
+                case 1000: result += 100; break;
+                default: result += 1000;
+            }
+        }
+        return result;
+    }
+
     static int simpleFinally() {
         int i = 5;
         try {
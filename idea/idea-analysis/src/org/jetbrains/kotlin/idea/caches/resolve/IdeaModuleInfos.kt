@@ -55,7 +55,7 @@ private fun orderEntryToModuleInfo(project: Project, orderEntry: OrderEntry, pro
         }
         is LibraryOrderEntry -> {
             val library = orderEntry.library ?: return listOf()
-            emptyOrSingletonList(LibraryInfo(project, library))
+            emptyOrSingletonList(libraryInfo(project, library))
         }
         is JdkOrderEntry -> {
             val sdk = orderEntry.jdk ?: return listOf()
@@ -182,6 +182,12 @@ data class LibraryInfo(val project: Project, val library: Library) : IdeaModuleI
     override fun toString() = "LibraryInfo(libraryName=${library.name})"
 }
 
+/**
+ * Returns the info of the library resolved instead of [library], see [LibraryDependenciesCache.getCanonicalLibrary].
+ */
+fun libraryInfo(project: Project, library: Library): LibraryInfo
+        = LibraryInfo(project, LibraryDependenciesCache(project).getCanonicalLibrary(library))
+
 internal data class LibrarySourceInfo(val project: Project, val library: Library) : IdeaModuleInfo {
     override val moduleOrigin: ModuleOrigin
         get() = ModuleOrigin.OTHER
@@ -194,7 +200,7 @@ internal data class LibrarySourceInfo(val project: Project, val library: Library
         get() = true
 
     override fun dependencies(): List<IdeaModuleInfo> {
-        return listOf(this) + LibraryInfo(project, library).dependencies()
+        return listOf(this) + libraryInfo(project, library).dependencies()
     }
 
     override fun toString() = "LibrarySourceInfo(libraryName=${library.name})"
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.idea.caches.resolve
 
 import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.DumbService
 import com.intellij.openapi.project.IndexNotReadyException
 import com.intellij.openapi.project.Project
@@ -38,9 +39,24 @@ import org.jetbrains.kotlin.resolve.*
 import org.jetbrains.kotlin.resolve.lazy.BodyResolveMode
 import org.jetbrains.kotlin.resolve.lazy.ResolveSession
 import java.util.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
-internal class PerFileAnalysisCache(val file: KtFile, val componentProvider: ComponentProvider) {
+/**
+ * Analysis results of the declarations of [file].
+ *
+ * Different declarations are analyzed in parallel. Threads requesting the same declaration share its analysis:
+ * one of them analyzes it and the others wait for the result, checking for cancellation while waiting.
+ */
+internal class PerFileAnalysisCache(
+        val file: KtFile,
+        val componentProvider: ComponentProvider,
+        private val analyzer: (KtElement) -> AnalysisResult = { KotlinResolveDataProvider.analyze(it.project, componentProvider, it) }
+) {
+    // guarded by this
     private val cache = HashMap<PsiElement, AnalysisResult>()
+    // guarded by this
+    private val inProgress = HashMap<PsiElement, PendingAnalysis>()
 
     private fun lookUp(analyzableElement: KtElement): AnalysisResult? {
         // Looking for parent elements that are already analyzed
@@ -70,16 +86,54 @@ internal class PerFileAnalysisCache(val file: KtFile, val componentProvider: Com
 
         val analyzableParent = KotlinResolveDataProvider.findAnalyzableParent(element)
 
-        return synchronized<AnalysisResult>(this) {
+        while (true) {
+            var started: PendingAnalysis? = null
+            var running: PendingAnalysis? = null
+
+            synchronized(this) {
+                val cached = lookUp(analyzableParent)
+                if (cached != null) return cached
 
-            val cached = lookUp(analyzableParent)
-            if (cached != null) return@synchronized cached
+                running = inProgress[analyzableParent]
+                if (running == null) {
+                    started = PendingAnalysis()
+                    inProgress[analyzableParent] = started!!
+                }
+            }
 
-            val result = analyze(analyzableParent)
+            // A thread which is analyzing another declaration doesn't wait for other threads, since they may be waiting for it
+            // (e.g. declarations inferring types from each other), and analyzes the declaration once more instead
+            if (running != null && analysisDepth.get() == 0) {
+                // null if the analysis has failed or was canceled in the other thread, it's started again in this case
+                running!!.await()?.let { return it }
+                continue
+            }
 
-            cache[analyzableParent] = result
+            return analyzeAndStore(analyzableParent, started)
+        }
+    }
 
-            return@synchronized result
+    private fun analyzeAndStore(analyzableElement: KtElement, pending: PendingAnalysis?): AnalysisResult {
+        val depth = analysisDepth.get()
+        var result: AnalysisResult? = null
+        try {
+            analysisDepth.set(depth + 1)
+            result = analyze(analyzableElement)
+            synchronized(this) {
+                if (lookUp(analyzableElement) == null) {
+                    cache[analyzableElement] = result!!
+                }
+            }
+            return result!!
+        }
+        finally {
+            analysisDepth.set(depth)
+            if (pending != null) {
+                synchronized(this) {
+                    inProgress.remove(analyzableElement)
+                }
+                pending.finish(result)
+            }
         }
     }
 
@@ -90,7 +144,7 @@ internal class PerFileAnalysisCache(val file: KtFile, val componentProvider: Com
         }
 
         try {
-            return KotlinResolveDataProvider.analyze(project, componentProvider, analyzableElement)
+            return analyzer(analyzableElement)
         }
         catch (e: ProcessCanceledException) {
             throw e
@@ -107,6 +161,32 @@ internal class PerFileAnalysisCache(val file: KtFile, val componentProvider: Com
     }
 }
 
+// number of declarations being analyzed by PerFileAnalysisCache on the current thread
+private val analysisDepth = object : ThreadLocal<Int>() {
+    override fun initialValue() = 0
+}
+
+private class PendingAnalysis {
+    private val done = CountDownLatch(1)
+    @Volatile private var result: AnalysisResult? = null
+
+    fun finish(result: AnalysisResult?) {
+        this.result = result
+        done.countDown()
+    }
+
+    fun await(): AnalysisResult? {
+        while (!done.await(CHECK_CANCELED_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            ProgressManager.checkCanceled()
+        }
+        return result
+    }
+
+    companion object {
+        private val CHECK_CANCELED_INTERVAL_MS = 10L
+    }
+}
+
 private object KotlinResolveDataProvider {
     private val topmostElementTypes = arrayOf<Class<out PsiElement?>?>(
             KtNamedFunction::class.java,
@@ -35,9 +35,20 @@ import org.jetbrains.kotlin.utils.addIfNotNull
 import com.intellij.openapi.projectRoots.Sdk
 import com.intellij.openapi.roots.JdkOrderEntry
 import com.intellij.openapi.roots.ModuleSourceOrderEntry
+import com.intellij.openapi.roots.OrderRootType
+import java.util.HashMap
 
 class LibraryDependenciesCache(private val project: Project) {
 
+    /**
+     * Returns the library which is resolved instead of [library]. Libraries with the same class roots (e.g. a jar added
+     * to several modules as a module library) are resolved as one library, so that their descriptors are deserialized once
+     * and shared by all modules depending on them. Project and global libraries are preferred to module ones.
+     *
+     * Libraries without class roots are never merged.
+     */
+    fun getCanonicalLibrary(library: Library): Library = getLibraryUsageIndex().canonicalLibraries[library] ?: library
+
     //NOTE: used LibraryRuntimeClasspathScope as reference
     fun getLibrariesAndSdksUsedWith(library: Library): Pair<List<Library>, List<Sdk>> {
         val processedModules = LinkedHashSet<Module>()
@@ -75,9 +86,14 @@ class LibraryDependenciesCache(private val project: Project) {
             }, Unit)
         }
 
-        getLibraryUsageIndex().modulesLibraryIsUsedIn[library].forEach { module -> collectLibrariesAndSdksAcrossDependencies(module) }
+        val index = getLibraryUsageIndex()
+        val canonicalLibrary = index.canonicalLibraries[library] ?: library
+        val librariesWithSameClasses = index.librariesWithSameClasses[canonicalLibrary]
+        for (sameLibrary in if (librariesWithSameClasses.isEmpty()) listOf(library) else librariesWithSameClasses) {
+            index.modulesLibraryIsUsedIn[sameLibrary].forEach { module -> collectLibrariesAndSdksAcrossDependencies(module) }
+        }
 
-        return Pair(libraries.toList(), sdks.toList())
+        return Pair(libraries.map { index.canonicalLibraries[it] ?: it }.distinct(), sdks.toList())
     }
 
     private fun getLibraryUsageIndex(): LibraryUsageIndex {
@@ -89,7 +105,11 @@ class LibraryDependenciesCache(private val project: Project) {
     private inner class LibraryUsageIndex {
         val modulesLibraryIsUsedIn: MultiMap<Library, Module> = MultiMap.createSet()
 
+        val canonicalLibraries = HashMap<Library, Library>()
+        val librariesWithSameClasses: MultiMap<Library, Library> = MultiMap.createLinked()
+
         init {
+            val usedLibraries = LinkedHashSet<Library>()
             ModuleManager.getInstance(project).modules.forEach {
                 module ->
                 ModuleRootManager.getInstance(module).orderEntries.forEach {
@@ -98,10 +118,25 @@ class LibraryDependenciesCache(private val project: Project) {
                         val library = entry.library
                         if (library != null) {
                             modulesLibraryIsUsedIn.putValue(library, module)
+                            usedLibraries.add(library)
                         }
                     }
                 }
             }
+
+            val librariesByClassRoots = usedLibraries
+                    .filter { it.getUrls(OrderRootType.CLASSES).isNotEmpty() }
+                    .groupBy { it.getUrls(OrderRootType.CLASSES).toList() }
+            for (sameLibraries in librariesByClassRoots.values) {
+                if (sameLibraries.size < 2) continue
+
+                // module libraries have no table
+                val canonicalLibrary = sameLibraries.firstOrNull { it.table != null } ?: sameLibraries.first()
+                for (library in sameLibraries) {
+                    canonicalLibraries[library] = canonicalLibrary
+                    librariesWithSameClasses.putValue(canonicalLibrary, library)
+                }
+            }
         }
     }
 }
@@ -89,7 +89,8 @@ private fun collectAllModuleInfosFromIdeaModel(project: Project): List<IdeaModul
         }
     }.filterNotNull().toSet()
 
-    val librariesInfos = ideaLibraries.map { LibraryInfo(project, it) }
+    // libraries with the same classes share one info, see LibraryDependenciesCache.getCanonicalLibrary()
+    val librariesInfos = ideaLibraries.map { libraryInfo(project, it) }.toSet()
 
     val ideaSdks = ideaModules.flatMap {
         ModuleRootManager.getInstance(it).orderEntries.filterIsInstance<JdkOrderEntry>().map {
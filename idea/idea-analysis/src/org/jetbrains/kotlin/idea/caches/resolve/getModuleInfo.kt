@@ -104,7 +104,7 @@ private fun getModuleInfoByVirtualFile(project: Project, virtualFile: VirtualFil
             is LibraryOrderEntry -> {
                 val library = orderEntry.library ?: continue@entries
                 if (ProjectRootsUtil.isLibraryClassFile(project, virtualFile) && !isDecompiledFile) {
-                    return LibraryInfo(project, library)
+                    return libraryInfo(project, library)
                 }
                 else if (ProjectRootsUtil.isLibraryFile(project, virtualFile) || isDecompiledFile) {
                     return LibrarySourceInfo(project, library)
@@ -16,14 +16,17 @@
 
 package org.jetbrains.kotlin.idea.decompiler.classFile
 
+import com.intellij.ide.highlighter.JavaClassFileType
 import com.intellij.openapi.components.ServiceManager
 import com.intellij.openapi.roots.FileIndexFacade
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.PsiManager
 import com.intellij.psi.compiled.ClassFileDecompilers
+import org.jetbrains.annotations.TestOnly
 import org.jetbrains.kotlin.idea.decompiler.KotlinDecompiledFileViewProvider
 import org.jetbrains.kotlin.idea.decompiler.KtDecompiledFile
 import org.jetbrains.kotlin.idea.decompiler.textBuilder.DecompiledText
+import org.jetbrains.kotlin.idea.decompiler.textBuilder.DecompiledTextCache
 import org.jetbrains.kotlin.idea.decompiler.textBuilder.ResolverForDecompiler
 import org.jetbrains.kotlin.idea.decompiler.textBuilder.buildDecompiledText
 import org.jetbrains.kotlin.idea.decompiler.textBuilder.defaultDecompilerRendererOptions
@@ -58,7 +61,45 @@ class KotlinClassFileDecompiler : ClassFileDecompilers.Full() {
     }
 }
 
-class KtClsFile(provider: KotlinDecompiledFileViewProvider) : KtDecompiledFile(provider, { file -> buildDecompiledTextForClassFile(file) })
+class KtClsFile(provider: KotlinDecompiledFileViewProvider) : KtDecompiledFile(provider, { file ->
+    getOrBuildDecompiledText(file, DecompiledTextCache.getInstance()) { buildDecompiledTextForClassFile(it) }
+})
+
+@TestOnly
+internal fun getOrBuildDecompiledTextForTest(classFile: VirtualFile, cache: DecompiledTextCache?, build: (VirtualFile) -> DecompiledText) =
+        getOrBuildDecompiledText(classFile, cache, build)
+
+@TestOnly
+internal fun filesDecompiledWithForTest(classFile: VirtualFile) = filesDecompiledWith(classFile)
+
+private fun getOrBuildDecompiledText(
+        classFile: VirtualFile,
+        cache: DecompiledTextCache?,
+        build: (VirtualFile) -> DecompiledText
+): DecompiledText {
+    if (cache == null) return build(classFile)
+    val key = DecompiledTextCache.contentKey(filesDecompiledWith(classFile))
+
+    cache.get(key)?.let { return it }
+    return build(classFile).apply { cache.put(key, this) }
+}
+
+// Text of a class includes its nested classes, text of a multifile class facade consists of its parts
+private fun filesDecompiledWith(classFile: VirtualFile): List<VirtualFile> {
+    val directory = classFile.parent ?: return listOf(classFile)
+    val header = KotlinBinaryClassCache.getKotlinBinaryClass(classFile)?.classHeader
+
+    val partNames = if (header != null && header.isCompatibleMultifileClassKind()) header.filePartClassNames else null
+    val related = if (partNames != null) {
+        partNames.mapNotNull { directory.findChild(it.substringAfterLast('/') + "." + JavaClassFileType.INSTANCE.defaultExtension) }
+    }
+    else {
+        val nestedClassPrefix = classFile.nameWithoutExtension + "$"
+        directory.children.filter { it.name.startsWith(nestedClassPrefix) }.sortedBy { it.name }
+    }
+
+    return listOf(classFile) + related
+}
 
 private val decompilerRendererForClassFiles = DescriptorRenderer.withOptions {
     defaultDecompilerRendererOptions()
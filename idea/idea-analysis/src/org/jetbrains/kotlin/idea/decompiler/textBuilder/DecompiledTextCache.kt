@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.decompiler.textBuilder
+
+import com.intellij.openapi.components.ServiceManager
+import com.intellij.openapi.vfs.VirtualFile
+import java.security.MessageDigest
+
+/**
+ * Decompiled texts of library files which are kept between IDE sessions and shared by all projects.
+ *
+ * Texts are keyed by the contents of the files they are built from, see [contentKey],
+ * so the same library class is decompiled once, whatever jar or project it comes from.
+ */
+interface DecompiledTextCache {
+    fun get(key: String): DecompiledText? = null
+
+    fun put(key: String, text: DecompiledText) {}
+
+    companion object {
+        fun getInstance(): DecompiledTextCache? = ServiceManager.getService(DecompiledTextCache::class.java)
+
+        /**
+         * Returns the key of the text decompiled from [files], which have to be listed in the same order each time.
+         */
+        fun contentKey(files: List<VirtualFile>): String {
+            val digest = MessageDigest.getInstance("SHA-1")
+            for (file in files) {
+                digest.update(file.name.toByteArray(Charsets.UTF_8))
+                digest.update(0.toByte())
+                digest.update(file.contentsToByteArray())
+            }
+            return digest.digest().joinToString("") { "%02x".format(it) }
+        }
+    }
+}
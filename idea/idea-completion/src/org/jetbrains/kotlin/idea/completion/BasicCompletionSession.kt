@@ -173,64 +173,74 @@ class BasicCompletionSession(
                 }
             }
 
-            val contextVariableTypesForSmartCompletion = withCollectRequiredContextVariableTypes(::completeWithSmartCompletion)
+            val contextVariableTypesForSmartCompletion = measure("smart completion") {
+                withCollectRequiredContextVariableTypes(::completeWithSmartCompletion)
+            }
 
-            val contextVariableTypesForReferenceVariants = withCollectRequiredContextVariableTypes { lookupElementFactory ->
-                val (imported, notImported) = referenceVariantsWithNonInitializedVarExcluded!!
-                collector.addDescriptorElements(imported, lookupElementFactory)
-                collector.addDescriptorElements(notImported, lookupElementFactory, notImported = true)
+            val contextVariableTypesForReferenceVariants = measure("reference variants") {
+                withCollectRequiredContextVariableTypes { lookupElementFactory ->
+                    val (imported, notImported) = referenceVariantsWithNonInitializedVarExcluded!!
+                    collector.addDescriptorElements(imported, lookupElementFactory)
+                    collector.addDescriptorElements(notImported, lookupElementFactory, notImported = true)
+                }
             }
 
             KEYWORDS_ONLY.doComplete()
 
             // getting root packages from scope is very slow so we do this in alternative way
             if (callTypeAndReceiver.receiver == null && callTypeAndReceiver.callType.descriptorKindFilter.kindMask.and(DescriptorKindFilter.PACKAGES_MASK) != 0) {
-                //TODO: move this code somewhere else?
-                val packageNames = PackageIndexUtil.getSubPackageFqNames(FqName.ROOT, originalSearchScope, project, prefixMatcher.asNameFilter())
-                        .toMutableSet()
-
-                if (!ProjectStructureUtil.isJsKotlinModule(parameters.originalFile as KtFile)) {
-                    JavaPsiFacade.getInstance(project).findPackage("")?.getSubPackages(originalSearchScope)?.forEach { psiPackage ->
-                        val name = psiPackage.name
-                        if (Name.isValidIdentifier(name!!)) {
-                            packageNames.add(FqName(name))
+                measureIndexContributor("root packages") {
+                    //TODO: move this code somewhere else?
+                    val packageNames = PackageIndexUtil.getSubPackageFqNames(FqName.ROOT, originalSearchScope, project, prefixMatcher.asNameFilter())
+                            .toMutableSet()
+
+                    if (!ProjectStructureUtil.isJsKotlinModule(parameters.originalFile as KtFile)) {
+                        JavaPsiFacade.getInstance(project).findPackage("")?.getSubPackages(originalSearchScope)?.forEach { psiPackage ->
+                            val name = psiPackage.name
+                            if (Name.isValidIdentifier(name!!)) {
+                                packageNames.add(FqName(name))
+                            }
                         }
                     }
-                }
 
-                packageNames.forEach { collector.addElement(basicLookupElementFactory.createLookupElementForPackage(it)) }
+                    packageNames.forEach { collector.addElement(basicLookupElementFactory.createLookupElementForPackage(it)) }
+                }
             }
-            
+
             flushToResultSet()
 
-            NamedArgumentCompletion.complete(collector, expectedInfos)
+            NAMED_ARGUMENTS_ONLY.doComplete()
             flushToResultSet()
 
             val contextVariablesProvider = RealContextVariablesProvider(referenceVariantsHelper, position)
             withContextVariablesProvider(contextVariablesProvider) { lookupElementFactory ->
                 if (receiverTypes != null) {
-                    ExtensionFunctionTypeValueCompletion(receiverTypes, callTypeAndReceiver.callType, lookupElementFactory)
-                            .processVariables(contextVariablesProvider)
-                            .forEach {
-                                val lookupElements = it.factory.createStandardLookupElementsForDescriptor(it.invokeDescriptor, useReceiverTypes = true)
-                                collector.addElements(lookupElements)
-                            }
+                    measure("extension function type values") {
+                        ExtensionFunctionTypeValueCompletion(receiverTypes, callTypeAndReceiver.callType, lookupElementFactory)
+                                .processVariables(contextVariablesProvider)
+                                .forEach {
+                                    val lookupElements = it.factory.createStandardLookupElementsForDescriptor(it.invokeDescriptor, useReceiverTypes = true)
+                                    collector.addElements(lookupElements)
+                                }
+                    }
                 }
 
                 if (contextVariableTypesForSmartCompletion.any { contextVariablesProvider.functionTypeVariables(it).isNotEmpty() }) {
-                    completeWithSmartCompletion(lookupElementFactory)
+                    measure("smart completion") { completeWithSmartCompletion(lookupElementFactory) }
                 }
 
                 if (contextVariableTypesForReferenceVariants.any { contextVariablesProvider.functionTypeVariables(it).isNotEmpty() }) {
-                    val (imported, notImported) = referenceVariantsWithSingleFunctionTypeParameter()!!
-                    collector.addDescriptorElements(imported, lookupElementFactory)
-                    collector.addDescriptorElements(notImported, lookupElementFactory, notImported = true)
+                    measure("reference variants") {
+                        val (imported, notImported) = referenceVariantsWithSingleFunctionTypeParameter()!!
+                        collector.addDescriptorElements(imported, lookupElementFactory)
+                        collector.addDescriptorElements(notImported, lookupElementFactory, notImported = true)
+                    }
                 }
 
                 val staticMembersCompletion = StaticMembersCompletion(
                         prefixMatcher, resolutionFacade, lookupElementFactory, referenceVariants!!.imported, isJvmModule)
                 if (callTypeAndReceiver is CallTypeAndReceiver.DEFAULT) {
-                    staticMembersCompletion.completeFromImports(file, collector)
+                    measure("static members from imports") { staticMembersCompletion.completeFromImports(file, collector) }
                 }
 
                 completeNonImported(lookupElementFactory)
@@ -248,16 +258,20 @@ class BasicCompletionSession(
                 }
 
                 if (configuration.completeStaticMembers && callTypeAndReceiver is CallTypeAndReceiver.DEFAULT && prefix.isNotEmpty()) {
-                    staticMembersCompletion.completeFromIndices(indicesHelper(false), collector)
+                    measureIndexContributor("static members from indices") {
+                        staticMembersCompletion.completeFromIndices(indicesHelper(false), collector)
+                    }
                 }
             }
         }
 
         private fun completeNonImported(lookupElementFactory: LookupElementFactory) {
             if (shouldCompleteTopLevelCallablesFromIndex()) {
-                processTopLevelCallables {
-                    collector.addDescriptorElements(it, lookupElementFactory, notImported = true)
-                    flushToResultSet()
+                measureIndexContributor("top-level callables from indices") {
+                    processTopLevelCallables {
+                        collector.addDescriptorElements(it, lookupElementFactory, notImported = true)
+                        collector.flushToResultSetPeriodically()
+                    }
                 }
             }
 
@@ -269,7 +283,7 @@ class BasicCompletionSession(
             }
             if (classKindFilter != null) {
                 if (configuration.completeNonImportedClasses) {
-                    addClassesFromIndex(classKindFilter)
+                    measureIndexContributor("all classes") { addClassesFromIndex(classKindFilter) }
                 }
                 else {
                     collector.advertiseSecondCompletion()
@@ -283,6 +297,10 @@ class BasicCompletionSession(
             get() = null
 
         override fun doComplete() {
+            measure("keywords") { completeKeywords() }
+        }
+
+        private fun completeKeywords() {
             val keywordsToSkip = HashSet<String>()
 
             val keywordValueConsumer = object : KeywordValues.Consumer {
@@ -410,7 +428,7 @@ class BasicCompletionSession(
             get() = null
 
         override fun doComplete() {
-            NamedArgumentCompletion.complete(collector, expectedInfos)
+            measure("named arguments") { NamedArgumentCompletion.complete(collector, expectedInfos) }
         }
     }
 
@@ -436,13 +454,19 @@ class BasicCompletionSession(
                     lookupElement
                 }
 
-                parameterNameAndTypeCompletion.addFromParametersInFile(position, resolutionFacade, isVisibleFilterCheckAlways)
+                measure("parameters in file") {
+                    parameterNameAndTypeCompletion.addFromParametersInFile(position, resolutionFacade, isVisibleFilterCheckAlways)
+                }
                 flushToResultSet()
 
-                parameterNameAndTypeCompletion.addFromImportedClasses(position, bindingContext, isVisibleFilterCheckAlways)
+                measure("imported classes") {
+                    parameterNameAndTypeCompletion.addFromImportedClasses(position, bindingContext, isVisibleFilterCheckAlways)
+                }
                 flushToResultSet()
 
-                parameterNameAndTypeCompletion.addFromAllClasses(parameters, indicesHelper(false))
+                measureIndexContributor("all classes") {
+                    parameterNameAndTypeCompletion.addFromAllClasses(parameters, indicesHelper(false))
+                }
             }
         }
 
@@ -222,19 +222,45 @@ abstract class CompletionSession(
         collector.flushToResultSet()
     }
 
+    private val sessionStatistics = CompletionSessionStatistics(javaClass.simpleName)
+
+    /**
+     * Runs a source of items and records the time it takes and the number of items it adds, see [CompletionStatistics].
+     */
+    protected fun <T> measure(contributor: String, action: () -> T): T
+            = sessionStatistics.measure(contributor, collector, action)
+
+    /**
+     * Same as [measure] for the sources which iterate indices: the items collected so far are passed to the lookup before
+     * the source is run, so that the time of the first items does not depend on the size of the project.
+     * Such sources should stream their items with [LookupElementsCollector.flushToResultSetPeriodically].
+     */
+    protected fun <T> measureIndexContributor(contributor: String, action: () -> T): T {
+        flushToResultSet()
+        return measure(contributor, action)
+    }
+
     fun complete(): Boolean {
-        val statisticsContext = calcContextForStatisticsInfo()
-        if (statisticsContext != null) {
-            collector.addLookupElementPostProcessor { lookupElement ->
-                // we should put data into the original element because of DecoratorCompletionStatistician
-                lookupElement.putUserDataDeep(STATISTICS_INFO_CONTEXT_KEY, statisticsContext)
-                lookupElement
+        val startNanos = System.nanoTime()
+        try {
+            val statisticsContext = calcContextForStatisticsInfo()
+            if (statisticsContext != null) {
+                collector.addLookupElementPostProcessor { lookupElement ->
+                    // we should put data into the original element because of DecoratorCompletionStatistician
+                    lookupElement.putUserDataDeep(STATISTICS_INFO_CONTEXT_KEY, statisticsContext)
+                    lookupElement
+                }
             }
-        }
 
-        doComplete()
-        flushToResultSet()
-        return !collector.isResultEmpty
+            doComplete()
+            flushToResultSet()
+            return !collector.isResultEmpty
+        }
+        finally {
+            // canceled sessions are counted too, they are usually the slow ones
+            sessionStatistics.sessionFinished(startNanos, collector)
+            CompletionStatistics.add(sessionStatistics)
+        }
     }
 
     fun addLookupElementPostProcessor(processor: (LookupElement) -> LookupElement) {
@@ -417,8 +443,14 @@ abstract class CompletionSession(
     protected fun addClassesFromIndex(kindFilter: (ClassKind) -> Boolean) {
         AllClassesCompletion(parameters, indicesHelper(true), prefixMatcher, resolutionFacade, kindFilter)
                 .collect(
-                        { descriptor -> collector.addElement(basicLookupElementFactory.createLookupElement(descriptor), notImported = true) },
-                        { javaClass -> collector.addElement(basicLookupElementFactory.createLookupElementForJavaClass(javaClass), notImported = true) }
+                        { descriptor ->
+                            collector.addElement(basicLookupElementFactory.createLookupElement(descriptor), notImported = true)
+                            collector.flushToResultSetPeriodically()
+                        },
+                        { javaClass ->
+                            collector.addElement(basicLookupElementFactory.createLookupElementForJavaClass(javaClass), notImported = true)
+                            collector.flushToResultSetPeriodically()
+                        }
                 )
     }
 
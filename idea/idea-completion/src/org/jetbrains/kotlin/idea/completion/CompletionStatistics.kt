@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.completion
+
+import com.intellij.openapi.diagnostic.Logger
+import java.util.*
+
+class ContributorStatistics {
+    var calls = 0
+        private set
+    var nanos = 0L
+        private set
+    var items = 0
+        private set
+
+    fun add(calls: Int, nanos: Long, items: Int) {
+        this.calls += calls
+        this.nanos += nanos
+        this.items += items
+    }
+
+    override fun toString() = "${nanos / 1000000} ms, $items items" + if (calls > 1) " ($calls calls)" else ""
+}
+
+/**
+ * Time spent and items added by each source of items (keywords, all classes etc.) during one completion session.
+ * Sources should not be measured inside each other, otherwise their items are counted twice.
+ */
+class CompletionSessionStatistics(val sessionKind: String) {
+    val contributors = LinkedHashMap<String, ContributorStatistics>()
+
+    var totalNanos = 0L
+        private set
+
+    /**
+     * Time from the start of the session to the moment the first items were passed to the lookup, or -1 if nothing was found.
+     */
+    var firstItemsNanos = -1L
+        private set
+
+    /**
+     * Time from the start of the session to the first run of each source, in the order the sources were run.
+     */
+    var contributorStartNanos: Map<String, Long> = emptyMap()
+        private set
+
+    private val contributorStarts = LinkedHashMap<String, Long>()
+
+    fun <T> measure(contributor: String, collector: LookupElementsCollector, action: () -> T): T {
+        val itemsBefore = collector.addedElementCount
+        val start = System.nanoTime()
+        contributorStarts.getOrPut(contributor) { start }
+        try {
+            return action()
+        }
+        finally {
+            contributors.getOrPut(contributor) { ContributorStatistics() }
+                    .add(1, System.nanoTime() - start, collector.addedElementCount - itemsBefore)
+        }
+    }
+
+    fun sessionFinished(startNanos: Long, collector: LookupElementsCollector) {
+        totalNanos = System.nanoTime() - startNanos
+        firstItemsNanos = if (collector.firstFlushNanos != 0L) collector.firstFlushNanos - startNanos else -1L
+        contributorStartNanos = contributorStarts.mapValues { it.value - startNanos }
+    }
+
+    override fun toString(): String {
+        val firstItems = if (firstItemsNanos >= 0) "${firstItemsNanos / 1000000} ms" else "none"
+        return "$sessionKind: ${totalNanos / 1000000} ms, first items: $firstItems; " +
+               contributors.entries.joinToString { "${it.key}: ${it.value}" }
+    }
+}
+
+/**
+ * Sums up [CompletionSessionStatistics] of all sessions in the IDE.
+ *
+ * Enable debug logging for this class to see the statistics of each session and the totals every [REPORT_INTERVAL] sessions,
+ * the totals are also available with [report] and the statistics of the last session with [lastSession].
+ */
+object CompletionStatistics {
+    private val LOG = Logger.getInstance(CompletionStatistics::class.java)
+
+    private val REPORT_INTERVAL = 100
+
+    private val contributors = HashMap<String, ContributorStatistics>()
+    private var sessionCount = 0
+    private var sessionsWithItems = 0
+    private var totalNanos = 0L
+    private var totalFirstItemsNanos = 0L
+
+    @Volatile var lastSession: CompletionSessionStatistics? = null
+        private set
+
+    @Synchronized
+    fun add(session: CompletionSessionStatistics) {
+        lastSession = session
+        sessionCount++
+        totalNanos += session.totalNanos
+        if (session.firstItemsNanos >= 0) {
+            sessionsWithItems++
+            totalFirstItemsNanos += session.firstItemsNanos
+        }
+        for ((name, statistics) in session.contributors) {
+            contributors.getOrPut("${session.sessionKind}.$name") { ContributorStatistics() }
+                    .add(statistics.calls, statistics.nanos, statistics.items)
+        }
+
+        if (LOG.isDebugEnabled) {
+            LOG.debug(session.toString())
+            if (sessionCount % REPORT_INTERVAL == 0) {
+                LOG.debug(report())
+            }
+        }
+    }
+
+    /**
+     * Returns the totals with the most expensive sources first.
+     */
+    @Synchronized
+    fun report(): String {
+        val builder = StringBuilder()
+        builder.append("$sessionCount completion sessions, ${totalNanos / 1000000 / Math.max(sessionCount, 1)} ms average")
+        builder.append(", first items in ${totalFirstItemsNanos / 1000000 / Math.max(sessionsWithItems, 1)} ms average\n")
+        for ((name, statistics) in contributors.entries.sortedByDescending { it.value.nanos }) {
+            val averageMs = statistics.nanos / 1000000.0 / statistics.calls
+            builder.append("  $name: $statistics, %.1f ms average\n".format(averageMs))
+        }
+        return builder.toString()
+    }
+}
@@ -47,12 +47,39 @@ class LookupElementsCollector(
             resultSet.addAllElements(elements)
             elements.clear()
             isResultEmpty = false
+
+            lastFlushNanos = System.nanoTime()
+            if (firstFlushNanos == 0L) {
+                firstFlushNanos = lastFlushNanos
+            }
+        }
+    }
+
+    /**
+     * Used by sources iterating indices: the first items are passed to the lookup at once and the next ones in batches,
+     * so that the lookup is neither re-sorted for each item nor left waiting until the whole index is processed.
+     */
+    fun flushToResultSetPeriodically() {
+        if (elements.isEmpty()) return
+        if (isResultEmpty || System.nanoTime() - lastFlushNanos >= STREAMING_FLUSH_INTERVAL_NANOS) {
+            flushToResultSet()
         }
     }
 
     var isResultEmpty: Boolean = true
         private set
 
+    var addedElementCount: Int = 0
+        private set
+
+    /**
+     * [System.nanoTime] of the first flush which passed items to the result set, 0 if there was none.
+     */
+    var firstFlushNanos: Long = 0L
+        private set
+
+    private var lastFlushNanos: Long = 0L
+
     fun addLookupElementPostProcessor(processor: (LookupElement) -> LookupElement) {
         postProcessors.add(processor)
     }
@@ -129,6 +156,7 @@ class LookupElementsCollector(
         }
 
         elements.add(result)
+        addedElementCount++
     }
 
     // used to avoid insertion of spaces before/after ',', '=' on just typing
@@ -149,4 +177,8 @@ class LookupElementsCollector(
     fun restartCompletionOnPrefixChange(prefixCondition: ElementPattern<String>) {
         resultSet.restartCompletionOnPrefixChange(prefixCondition)
     }
+
+    companion object {
+        private val STREAMING_FLUSH_INTERVAL_NANOS = 50 * 1000000L
+    }
 }
@@ -91,8 +91,14 @@ class ParameterNameAndTypeCompletion(
             AllClassesCompletion(
                     parameters, indicesHelper, classNameMatcher, resolutionFacade, { !it.isSingleton }
             ).collect(
-                    { addSuggestionsForClassifier(it, userPrefix, notImported = true) },
-                    { addSuggestionsForJavaClass(it, userPrefix, notImported = true) }
+                    {
+                        addSuggestionsForClassifier(it, userPrefix, notImported = true)
+                        collector.flushToResultSetPeriodically()
+                    },
+                    {
+                        addSuggestionsForJavaClass(it, userPrefix, notImported = true)
+                        collector.flushToResultSetPeriodically()
+                    }
             )
 
             collector.flushToResultSet()
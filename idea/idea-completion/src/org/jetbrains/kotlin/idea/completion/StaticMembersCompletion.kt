@@ -133,7 +133,7 @@ class StaticMembersCompletion(
         val factory = decoratedLookupElementFactory(ItemPriority.STATIC_MEMBER)
         processMembersFromIndices(indicesHelper) {
             factory.createStandardLookupElementsForDescriptor(it, useReceiverTypes = true).forEach { collector.addElement(it) }
-            collector.flushToResultSet()
+            collector.flushToResultSetPeriodically()
         }
     }
 }
@@ -71,27 +71,31 @@ class SmartCompletionSession(
 
     override fun doComplete() {
         if (nameExpression != null && NamedArgumentCompletion.isOnlyNamedArgumentExpected(nameExpression)) {
-            NamedArgumentCompletion.complete(collector, expectedInfos)
+            measure("named arguments") { NamedArgumentCompletion.complete(collector, expectedInfos) }
             return
         }
 
         if (expression == null) return
 
-        addFunctionLiteralArgumentCompletions()
+        measure("lambda arguments") { addFunctionLiteralArgumentCompletions() }
 
         var inheritanceSearcher: InheritanceItemsSearcher? = null
-        val contextVariableTypesForAdditionalItems = withCollectRequiredContextVariableTypes { lookupElementFactory ->
-            val pair = smartCompletion!!.additionalItems(lookupElementFactory)
-            collector.addElements(pair.first)
-            inheritanceSearcher = pair.second
+        val contextVariableTypesForAdditionalItems = measure("additional items") {
+            withCollectRequiredContextVariableTypes { lookupElementFactory ->
+                val pair = smartCompletion!!.additionalItems(lookupElementFactory)
+                collector.addElements(pair.first)
+                inheritanceSearcher = pair.second
+            }
         }
 
         val filter = smartCompletion!!.descriptorFilter
         var contextVariableTypesForReferenceVariants = filter?.let {
-            withCollectRequiredContextVariableTypes { lookupElementFactory ->
-                val (imported, notImported) = referenceVariantsWithNonInitializedVarExcluded ?: return@withCollectRequiredContextVariableTypes
-                imported.forEach { collector.addElements(filter(it, lookupElementFactory)) }
-                notImported.forEach { collector.addElements(filter(it, lookupElementFactory), notImported = true) }
+            measure("reference variants") {
+                withCollectRequiredContextVariableTypes { lookupElementFactory ->
+                    val (imported, notImported) = referenceVariantsWithNonInitializedVarExcluded ?: return@withCollectRequiredContextVariableTypes
+                    imported.forEach { collector.addElements(filter(it, lookupElementFactory)) }
+                    notImported.forEach { collector.addElements(filter(it, lookupElementFactory), notImported = true) }
+                }
             }
         }
 
@@ -100,22 +104,28 @@ class SmartCompletionSession(
         val contextVariablesProvider = RealContextVariablesProvider(referenceVariantsHelper, position)
         withContextVariablesProvider(contextVariablesProvider) { lookupElementFactory ->
             if (filter != null && receiverTypes != null) {
-                val results = ExtensionFunctionTypeValueCompletion(receiverTypes, callTypeAndReceiver.callType, lookupElementFactory)
-                        .processVariables(contextVariablesProvider)
-                for ((invokeDescriptor, factory) in results) {
-                    collector.addElements(filter(invokeDescriptor, factory))
+                measure("extension function type values") {
+                    val results = ExtensionFunctionTypeValueCompletion(receiverTypes, callTypeAndReceiver.callType, lookupElementFactory)
+                            .processVariables(contextVariablesProvider)
+                    for ((invokeDescriptor, factory) in results) {
+                        collector.addElements(filter(invokeDescriptor, factory))
+                    }
                 }
             }
 
             if (contextVariableTypesForAdditionalItems.any { contextVariablesProvider.functionTypeVariables(it).isNotEmpty() }) {
-                val additionalItems = smartCompletion!!.additionalItems(lookupElementFactory).first
-                collector.addElements(additionalItems)
+                measure("additional items") {
+                    val additionalItems = smartCompletion!!.additionalItems(lookupElementFactory).first
+                    collector.addElements(additionalItems)
+                }
             }
 
             if (filter != null && contextVariableTypesForReferenceVariants!!.any { contextVariablesProvider.functionTypeVariables(it).isNotEmpty() }) {
-                val (imported, notImported) = referenceVariantsWithSingleFunctionTypeParameter()!!
-                imported.forEach { collector.addElements(filter(it, lookupElementFactory)) }
-                notImported.forEach { collector.addElements(filter(it, lookupElementFactory), notImported = true) }
+                measure("reference variants") {
+                    val (imported, notImported) = referenceVariantsWithSingleFunctionTypeParameter()!!
+                    imported.forEach { collector.addElements(filter(it, lookupElementFactory)) }
+                    notImported.forEach { collector.addElements(filter(it, lookupElementFactory), notImported = true) }
+                }
             }
 
             flushToResultSet()
@@ -125,18 +135,22 @@ class SmartCompletionSession(
                 if (callTypeAndReceiver is CallTypeAndReceiver.DEFAULT) {
                     staticMembersCompletion = StaticMembersCompletion(prefixMatcher, resolutionFacade, lookupElementFactory, referenceVariants!!.imported, isJvmModule)
                     val decoratedFactory = staticMembersCompletion.decoratedLookupElementFactory(ItemPriority.STATIC_MEMBER_FROM_IMPORTS)
-                    staticMembersCompletion.membersFromImports(file)
-                            .flatMap { filter(it, decoratedFactory) }
-                            .forEach { collector.addElement(it) }
+                    measure("static members from imports") {
+                        staticMembersCompletion.membersFromImports(file)
+                                .flatMap { filter(it, decoratedFactory) }
+                                .forEach { collector.addElement(it) }
+                    }
                 }
                 else {
                     staticMembersCompletion = null
                 }
 
                 if (shouldCompleteTopLevelCallablesFromIndex()) {
-                    processTopLevelCallables {
-                        collector.addElements(filter(it, lookupElementFactory), notImported = true)
-                        flushToResultSet()
+                    measureIndexContributor("top-level callables from indices") {
+                        processTopLevelCallables {
+                            collector.addElements(filter(it, lookupElementFactory), notImported = true)
+                            collector.flushToResultSetPeriodically()
+                        }
                     }
                 }
 
@@ -153,10 +167,10 @@ class SmartCompletionSession(
 
                 if (staticMembersCompletion != null && configuration.completeStaticMembers) {
                     val decoratedFactory = staticMembersCompletion.decoratedLookupElementFactory(ItemPriority.STATIC_MEMBER)
-                    staticMembersCompletion.processMembersFromIndices(indicesHelper(false)) {
-                        filter(it, decoratedFactory).forEach {
-                            collector.addElement(it)
-                            flushToResultSet()
+                    measureIndexContributor("static members from indices") {
+                        staticMembersCompletion.processMembersFromIndices(indicesHelper(false)) {
+                            filter(it, decoratedFactory).forEach { collector.addElement(it) }
+                            collector.flushToResultSetPeriodically()
                         }
                     }
                 }
@@ -165,9 +179,14 @@ class SmartCompletionSession(
 
 
         // it makes no sense to search inheritors if there is no reference because it means that we have prefix like "this@"
-        inheritanceSearcher?.search({ prefixMatcher.prefixMatches(it) }) {
-            collector.addElement(it)
-            flushToResultSet()
+        val searcher = inheritanceSearcher
+        if (searcher != null) {
+            measureIndexContributor("inheritors") {
+                searcher.search({ prefixMatcher.prefixMatches(it) }) {
+                    collector.addElement(it)
+                    collector.flushToResultSetPeriodically()
+                }
+            }
         }
     }
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.completion.test
+
+import com.intellij.codeInsight.completion.CompletionType
+import com.intellij.testFramework.LightProjectDescriptor
+import org.jetbrains.kotlin.idea.completion.CompletionStatistics
+import org.jetbrains.kotlin.idea.test.KotlinLightCodeInsightFixtureTestCase
+import org.jetbrains.kotlin.idea.test.KotlinLightProjectDescriptor
+
+class CompletionStatisticsTest : KotlinLightCodeInsightFixtureTestCase() {
+    override fun getProjectDescriptor(): LightProjectDescriptor = KotlinLightProjectDescriptor.INSTANCE
+
+    fun testCheapSourcesAreShownBeforeIndices() {
+        myFixture.addFileToProject("other/Other.kt", "package other\n\nclass OtherClassFromIndex")
+        myFixture.configureByText("Main.kt", "package main\n\nfun foo() {\n    val OtherLocal = 1\n    Oth<caret>\n}")
+
+        val lookupStrings = myFixture.complete(CompletionType.BASIC, 2)!!.map { it.lookupString }
+
+        // the sources are reordered rather than cut off, so the items from the indices are still there
+        assertTrue(lookupStrings.toString(), "OtherLocal" in lookupStrings)
+        assertTrue(lookupStrings.toString(), "OtherClassFromIndex" in lookupStrings)
+
+        val session = CompletionStatistics.lastSession!!
+        val contributors = session.contributorStartNanos.keys.toList()
+        assertOrdered(contributors, "reference variants", "keywords", "root packages", "all classes")
+
+        // the local variable is passed to the lookup before the indices are iterated
+        assertTrue(session.firstItemsNanos >= 0)
+        assertTrue(session.toString(), session.firstItemsNanos <= session.contributorStartNanos["root packages"]!!)
+    }
+
+    fun testNothingFoundIsRecorded() {
+        myFixture.configureByText("Main.kt", "package main\n\nfun foo() {\n    xyzNothing<caret>\n}")
+
+        assertEmpty(myFixture.complete(CompletionType.BASIC, 1)!!)
+
+        val session = CompletionStatistics.lastSession!!
+        assertEquals(-1L, session.firstItemsNanos)
+        assertTrue(session.contributors.values.all { it.items == 0 })
+    }
+
+    private fun assertOrdered(contributors: List<String>, vararg expected: String) {
+        val indices = expected.map { contributors.indexOf(it) }
+        assertTrue(contributors.toString(), indices.all { it >= 0 })
+        assertEquals(contributors.toString(), indices.sorted(), indices)
+    }
+}
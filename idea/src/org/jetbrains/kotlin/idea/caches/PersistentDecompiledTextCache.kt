@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.caches
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.PathManager
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.util.TextRange
+import com.intellij.openapi.util.io.FileUtil
+import com.intellij.util.io.DataExternalizer
+import com.intellij.util.io.EnumeratorStringDescriptor
+import com.intellij.util.io.IOUtil
+import com.intellij.util.io.PersistentHashMap
+import org.jetbrains.kotlin.idea.KotlinPluginUtil
+import org.jetbrains.kotlin.idea.decompiler.textBuilder.DecompiledText
+import org.jetbrains.kotlin.idea.decompiler.textBuilder.DecompiledTextCache
+import java.io.DataInput
+import java.io.DataOutput
+import java.io.File
+import java.io.IOException
+import java.util.*
+
+/**
+ * Stores decompiled texts in the IDE system directory.
+ *
+ * Texts depend on the decompiler, so a separate storage is used for each plugin version, and storages of other versions are deleted.
+ * Snapshot builds change the decompiler without changing the version, nothing is stored for them.
+ *
+ * Texts of libraries which are not used anymore are never removed one by one, instead the whole storage is dropped on opening
+ * when it is older than [maxAgeMillis] or larger than [maxSize]. Within a session, texts stop being stored once [maxSize] is reached.
+ */
+class PersistentDecompiledTextCache(
+        private val storageRoot: File,
+        private val maxSize: Long,
+        private val maxAgeMillis: Long,
+        private val pluginVersion: () -> String
+) : DecompiledTextCache, Disposable {
+    // used by the application service container
+    constructor() : this(
+            File(PathManager.getSystemPath(), "kotlin-decompiled-text"), MAX_STORAGE_SIZE, MAX_STORAGE_AGE_MS,
+            { KotlinPluginUtil.getPluginVersion() })
+
+    private var storage: PersistentHashMap<String, DecompiledText>? = null
+    private var isInitialized = false
+    private var storedSize = 0L
+
+    @Synchronized
+    override fun get(key: String): DecompiledText? = withStorage { it.get(key) }
+
+    @Synchronized
+    override fun put(key: String, text: DecompiledText) {
+        withStorage {
+            // the size of a text on the disk is roughly its length, the ranges are much shorter
+            val size = key.length + text.text.length.toLong()
+            if (storedSize + size <= maxSize) {
+                it.put(key, text)
+                storedSize += size
+            }
+        }
+    }
+
+    @Synchronized
+    override fun dispose() {
+        try {
+            storage?.close()
+        }
+        catch (e: IOException) {
+            LOG.warn(e)
+        }
+        storage = null
+    }
+
+    private fun <T> withStorage(action: (PersistentHashMap<String, DecompiledText>) -> T): T? {
+        if (!isInitialized) {
+            isInitialized = true
+            storage = openStorage()
+        }
+
+        val storage = storage ?: return null
+        try {
+            return action(storage)
+        }
+        catch (e: IOException) {
+            // the storage is probably corrupted, it's recreated in the next session
+            LOG.warn("Decompiled text cache is disabled", e)
+            dispose()
+            FileUtil.delete(storageRoot)
+            return null
+        }
+    }
+
+    private fun openStorage(): PersistentHashMap<String, DecompiledText>? {
+        val version = pluginVersion()
+        if (version.contains("snapshot")) return null
+
+        val versionDir = File(storageRoot, FileUtil.sanitizeFileName(version))
+        storageRoot.listFiles()?.filter { it != versionDir }?.forEach { FileUtil.delete(it) }
+
+        val createdMarker = File(versionDir, "created")
+        storedSize = if (versionDir.exists()) versionDir.walkTopDown().filter { it.isFile }.map { it.length() }.sum() else 0L
+        if (!createdMarker.exists() || System.currentTimeMillis() - createdMarker.lastModified() > maxAgeMillis || storedSize > maxSize) {
+            FileUtil.delete(versionDir)
+            storedSize = 0L
+            if (!FileUtil.createIfDoesntExist(createdMarker)) {
+                LOG.info("Can't create decompiled text cache in $versionDir")
+                return null
+            }
+        }
+
+        val storageFile = File(versionDir, "texts")
+        for (attempt in 1..2) {
+            try {
+                return PersistentHashMap(storageFile, EnumeratorStringDescriptor(), DecompiledTextExternalizer)
+            }
+            catch (e: IOException) {
+                LOG.info("Can't open decompiled text cache: $e")
+                PersistentHashMap.deleteFilesStartingWith(storageFile)
+            }
+        }
+        return null
+    }
+
+    companion object {
+        private val LOG = Logger.getInstance(PersistentDecompiledTextCache::class.java)
+
+        val MAX_STORAGE_SIZE = 200L * 1024 * 1024
+        val MAX_STORAGE_AGE_MS = 30L * 24 * 60 * 60 * 1000
+    }
+}
+
+internal object DecompiledTextExternalizer : DataExternalizer<DecompiledText> {
+    override fun save(out: DataOutput, value: DecompiledText) {
+        // IOUtil.writeUTF() is limited to 64K, large classes have longer texts
+        val bytes = value.text.toByteArray(Charsets.UTF_8)
+        out.writeInt(bytes.size)
+        out.write(bytes)
+
+        out.writeInt(value.renderedDescriptorsToRange.size)
+        for ((key, range) in value.renderedDescriptorsToRange) {
+            IOUtil.writeUTF(out, key)
+            out.writeInt(range.startOffset)
+            out.writeInt(range.endOffset)
+        }
+    }
+
+    override fun read(input: DataInput): DecompiledText {
+        val bytes = ByteArray(input.readInt())
+        input.readFully(bytes)
+
+        val ranges = HashMap<String, TextRange>()
+        repeat(input.readInt()) {
+            val key = IOUtil.readUTF(input)
+            ranges[key] = TextRange(input.readInt(), input.readInt())
+        }
+
+        return DecompiledText(String(bytes, Charsets.UTF_8), ranges)
+    }
+}
@@ -0,0 +1,9 @@
+package test
+
+class Outer {
+    class Nested
+
+    inner class Inner
+}
+
+class OuterSibling
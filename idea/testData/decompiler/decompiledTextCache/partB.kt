@@ -0,0 +1,5 @@
+@file:JvmName("Facade")
+@file:JvmMultifileClass
+package test
+
+fun partB() {}
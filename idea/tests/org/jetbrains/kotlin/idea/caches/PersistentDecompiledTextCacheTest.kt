@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.caches
+
+import com.intellij.openapi.util.TextRange
+import org.jetbrains.kotlin.idea.decompiler.textBuilder.DecompiledText
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+
+class PersistentDecompiledTextCacheTest : TestCaseWithTmpdir() {
+    private val storageRoot: File
+        get() = File(tmpdir, "texts")
+
+    fun testExternalizerRoundTrip() {
+        // longer than the 64K limit of DataOutput.writeUTF(), with characters which take several bytes in UTF-8
+        val text = (1..20000).joinToString("\n") { "fun f$it(): String = \"é中\"" }
+        assertTrue(text.length > 65535)
+
+        val decompiled = DecompiledText(text, mapOf("f1" to TextRange(0, 10), "f20000" to TextRange(text.length - 10, text.length)))
+        assertEquals(decompiled, roundTrip(decompiled))
+
+        val empty = DecompiledText("", mapOf())
+        assertEquals(empty, roundTrip(empty))
+    }
+
+    fun testTextsAreKeptBetweenSessions() {
+        val text = DecompiledText("class A", mapOf("A" to TextRange(0, 7)))
+        withCache(createCache()) { it.put("a", text) }
+
+        withCache(createCache()) {
+            assertEquals(text, it.get("a"))
+            assertNull(it.get("b"))
+        }
+    }
+
+    fun testNothingIsStoredForSnapshots() {
+        withCache(createCache(version = "1.0.0-snapshot")) {
+            it.put("a", DecompiledText("class A", mapOf()))
+            assertNull(it.get("a"))
+        }
+    }
+
+    fun testStorageOfOtherVersionIsDeleted() {
+        withCache(createCache(version = "1.0.0")) { it.put("a", DecompiledText("class A", mapOf())) }
+        withCache(createCache(version = "1.0.1")) { assertNull(it.get("a")) }
+
+        assertEquals(listOf("1.0.1"), storageRoot.list().toList())
+    }
+
+    fun testTextsAreNotStoredOverSizeLimit() {
+        val text = DecompiledText("x".repeat(1000), mapOf())
+        withCache(createCache(maxSize = 2500)) {
+            it.put("a", text)
+            it.put("b", text)
+            it.put("c", text)
+
+            assertEquals(text, it.get("a"))
+            assertEquals(text, it.get("b"))
+            assertNull(it.get("c"))
+        }
+
+        // the storage has grown over the limit on the disk, it's dropped
+        withCache(createCache(maxSize = 2500)) { assertNull(it.get("a")) }
+    }
+
+    fun testOldStorageIsDropped() {
+        withCache(createCache()) { it.put("a", DecompiledText("class A", mapOf())) }
+
+        val createdMarker = File(File(storageRoot, VERSION), "created")
+        assertTrue(createdMarker.setLastModified(System.currentTimeMillis() - PersistentDecompiledTextCache.MAX_STORAGE_AGE_MS - 1000))
+
+        withCache(createCache()) { assertNull(it.get("a")) }
+    }
+
+    private fun createCache(version: String = VERSION, maxSize: Long = PersistentDecompiledTextCache.MAX_STORAGE_SIZE) =
+            PersistentDecompiledTextCache(storageRoot, maxSize, PersistentDecompiledTextCache.MAX_STORAGE_AGE_MS, { version })
+
+    private fun withCache(cache: PersistentDecompiledTextCache, action: (PersistentDecompiledTextCache) -> Unit) {
+        try {
+            action(cache)
+        }
+        finally {
+            cache.dispose()
+        }
+    }
+
+    private fun roundTrip(text: DecompiledText): DecompiledText {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { DecompiledTextExternalizer.save(it, text) }
+        return DataInputStream(ByteArrayInputStream(bytes.toByteArray())).use { DecompiledTextExternalizer.read(it) }
+    }
+
+    companion object {
+        private val VERSION = "1.0.0"
+    }
+}
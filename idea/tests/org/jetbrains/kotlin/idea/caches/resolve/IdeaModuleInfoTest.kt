@@ -25,6 +25,7 @@ import org.junit.Assert
 import com.intellij.openapi.roots.impl.libraries.ProjectLibraryTable
 import com.intellij.openapi.roots.libraries.Library
 import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.openapi.vfs.VfsUtilCore
 import com.intellij.testFramework.UsefulTestCase
 
 class IdeaModuleInfoTest : ModuleTestCase() {
@@ -267,6 +268,26 @@ class IdeaModuleInfoTest : ModuleTestCase() {
         lib3.classes.assertAdditionalLibraryDependencies(lib1.classes, lib2.classes)
     }
 
+    fun testLibrariesWithSameClasses() {
+        val (a, b, c) = modules()
+        val classesUrl = VfsUtilCore.pathToUrl(createTempDirectory()!!.path)
+        ModuleRootModificationUtil.addModuleLibrary(a, classesUrl)
+        ModuleRootModificationUtil.addModuleLibrary(b, classesUrl)
+        ModuleRootModificationUtil.addModuleLibrary(c, VfsUtilCore.pathToUrl(createTempDirectory()!!.path))
+
+        val lib = projectLibrary("lib")
+        b.addDependency(lib)
+
+        val sharedInfo = a.production.libraryInfo
+        Assert.assertEquals(sharedInfo, b.production.libraryInfo)
+        Assert.assertFalse(sharedInfo == c.production.libraryInfo)
+
+        sharedInfo.assertAdditionalLibraryDependencies(lib.classes)
+    }
+
+    private val ModuleSourceInfo.libraryInfo: LibraryInfo
+        get() = dependencies().filterIsInstance<LibraryInfo>().first()
+
     private fun Module.addDependency(
             other: Module,
             dependencyScope: DependencyScope = DependencyScope.COMPILE,
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.caches.resolve
+
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.util.Computable
+import com.intellij.testFramework.LightProjectDescriptor
+import org.jetbrains.kotlin.analyzer.AnalysisResult
+import org.jetbrains.kotlin.container.ComponentProvider
+import org.jetbrains.kotlin.container.ValueDescriptor
+import org.jetbrains.kotlin.idea.test.KotlinLightCodeInsightFixtureTestCase
+import org.jetbrains.kotlin.idea.test.KotlinLightProjectDescriptor
+import org.jetbrains.kotlin.psi.KtElement
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.psi.KtNamedFunction
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.types.ErrorUtils
+import java.lang.reflect.Type
+import java.util.*
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+
+class PerFileAnalysisCacheTest : KotlinLightCodeInsightFixtureTestCase() {
+    override fun getProjectDescriptor(): LightProjectDescriptor = KotlinLightProjectDescriptor.INSTANCE
+
+    fun testSameDeclarationIsAnalyzedOnce() {
+        val file = configure()
+        val f = function(file, "f")
+
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val analysisCount = AtomicInteger()
+        val cache = PerFileAnalysisCache(file, NoComponents) {
+            analysisCount.incrementAndGet()
+            started.countDown()
+            assertTrue(release.await(TIMEOUT_S, TimeUnit.SECONDS))
+            newResult()
+        }
+
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            val first = executor.submit(analysis(cache, f))
+            assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS))
+
+            // the second thread finds the analysis of the first one in progress and waits for it
+            val second = executor.submit(analysis(cache, f))
+            Thread.sleep(100)
+            release.countDown()
+
+            assertSame(first.get(TIMEOUT_S, TimeUnit.SECONDS), second.get(TIMEOUT_S, TimeUnit.SECONDS))
+            assertEquals(1, analysisCount.get())
+        }
+        finally {
+            executor.shutdownNow()
+        }
+    }
+
+    fun testDifferentDeclarationsAreAnalyzedInParallel() {
+        val file = configure()
+
+        // each analysis waits until the other one has started, so it would time out if they were done one after another
+        val bothStarted = CyclicBarrier(2)
+        val cache = PerFileAnalysisCache(file, NoComponents) {
+            bothStarted.await(TIMEOUT_S, TimeUnit.SECONDS)
+            newResult()
+        }
+
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            val f = executor.submit(analysis(cache, function(file, "f")))
+            val g = executor.submit(analysis(cache, function(file, "g")))
+
+            assertNotSame(f.get(TIMEOUT_S, TimeUnit.SECONDS), g.get(TIMEOUT_S, TimeUnit.SECONDS))
+        }
+        finally {
+            executor.shutdownNow()
+        }
+    }
+
+    fun testNestedAnalysisDoesNotDeadlock() {
+        val file = configure()
+        val f = function(file, "f")
+        val g = function(file, "g")
+
+        // f and g depend on each other: analysis of each of them requests the other one while both are in progress
+        val bothStarted = CyclicBarrier(2)
+        val threadsInAnalysis: MutableSet<Thread> = Collections.newSetFromMap(ConcurrentHashMap<Thread, Boolean>())
+        var cache: PerFileAnalysisCache? = null
+        cache = PerFileAnalysisCache(file, NoComponents) { element ->
+            if (threadsInAnalysis.add(Thread.currentThread())) {
+                bothStarted.await(TIMEOUT_S, TimeUnit.SECONDS)
+                cache!!.getAnalysisResults(if (element == f) g else f)
+            }
+            newResult()
+        }
+
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            val first = executor.submit(analysis(cache!!, f))
+            val second = executor.submit(analysis(cache!!, g))
+
+            first.get(TIMEOUT_S, TimeUnit.SECONDS)
+            second.get(TIMEOUT_S, TimeUnit.SECONDS)
+        }
+        finally {
+            executor.shutdownNow()
+        }
+    }
+
+    fun testCanceledAnalysisIsNotCountedAsInProgress() {
+        val file = configure()
+        val f = function(file, "f")
+        val g = function(file, "g")
+
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val analysisCount = AtomicInteger()
+        val cache = PerFileAnalysisCache(file, NoComponents) { element ->
+            if (element == g) throw ProcessCanceledException()
+
+            analysisCount.incrementAndGet()
+            started.countDown()
+            assertTrue(release.await(TIMEOUT_S, TimeUnit.SECONDS))
+            newResult()
+        }
+
+        val canceledThread = Executors.newSingleThreadExecutor()
+        val otherThread = Executors.newSingleThreadExecutor()
+        try {
+            try {
+                canceledThread.submit(analysis(cache, g)).get(TIMEOUT_S, TimeUnit.SECONDS)
+                fail("Analysis should be canceled")
+            }
+            catch (e: ExecutionException) {
+                assertTrue(e.cause is ProcessCanceledException)
+            }
+
+            val first = otherThread.submit(analysis(cache, f))
+            assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS))
+
+            // the canceled analysis has restored the depth of its thread, so the thread waits for f instead of analyzing it again
+            val second = canceledThread.submit(analysis(cache, f))
+            Thread.sleep(100)
+            release.countDown()
+
+            assertSame(first.get(TIMEOUT_S, TimeUnit.SECONDS), second.get(TIMEOUT_S, TimeUnit.SECONDS))
+            assertEquals(1, analysisCount.get())
+        }
+        finally {
+            canceledThread.shutdownNow()
+            otherThread.shutdownNow()
+        }
+    }
+
+    private fun configure() = myFixture.configureByText("a.kt", "fun f() = g()\n\nfun g(): Int = 1") as KtFile
+
+    private fun function(file: KtFile, name: String) = file.declarations.single { it is KtNamedFunction && it.name == name } as KtElement
+
+    private fun analysis(cache: PerFileAnalysisCache, element: KtElement) = Callable {
+        ApplicationManager.getApplication().runReadAction(Computable { cache.getAnalysisResults(element) })
+    }
+
+    private fun newResult() = AnalysisResult.success(BindingContext.EMPTY, ErrorUtils.getErrorModule())
+
+    private object NoComponents : ComponentProvider {
+        override fun resolve(request: Type): ValueDescriptor? = null
+        override fun <T> create(request: Class<T>): T = throw UnsupportedOperationException()
+    }
+
+    companion object {
+        private val TIMEOUT_S = 10L
+    }
+}
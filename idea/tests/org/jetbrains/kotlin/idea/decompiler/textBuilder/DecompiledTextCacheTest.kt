@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.decompiler.textBuilder
+
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.testFramework.LightProjectDescriptor
+import org.jetbrains.kotlin.idea.decompiler.classFile.buildDecompiledTextForClassFile
+import org.jetbrains.kotlin.idea.decompiler.classFile.filesDecompiledWithForTest
+import org.jetbrains.kotlin.idea.decompiler.classFile.getOrBuildDecompiledTextForTest
+import org.jetbrains.kotlin.idea.decompiler.navigation.NavigateToDecompiledLibraryTest
+import org.jetbrains.kotlin.idea.test.JdkAndMockLibraryProjectDescriptor
+import org.jetbrains.kotlin.idea.test.KotlinLightCodeInsightFixtureTestCase
+import org.jetbrains.kotlin.idea.test.PluginTestCaseBase
+import java.util.*
+
+class DecompiledTextCacheTest : KotlinLightCodeInsightFixtureTestCase() {
+    override fun getProjectDescriptor(): LightProjectDescriptor {
+        return JdkAndMockLibraryProjectDescriptor(PluginTestCaseBase.getTestDataPathBase() + "/decompiler/decompiledTextCache", false)
+    }
+
+    fun testNestedClassesAreDecompiledWithClass() {
+        assertEquals(listOf("Outer.class", "Outer\$Inner.class", "Outer\$Nested.class"), filesDecompiledWithForTest(classFile("Outer")).map { it.name })
+        assertEquals(listOf("OuterSibling.class"), filesDecompiledWithForTest(classFile("OuterSibling")).map { it.name })
+    }
+
+    fun testPartsAreDecompiledWithFacade() {
+        val names = filesDecompiledWithForTest(classFile("Facade")).map { it.name }
+        assertEquals("Facade.class", names.first())
+        assertEquals(listOf("Facade__PartAKt.class", "Facade__PartBKt.class"), names.drop(1).sorted())
+    }
+
+    fun testTextIsBuiltOnce() {
+        val cache = MapDecompiledTextCache()
+        var buildCount = 0
+        val build = { file: VirtualFile -> buildCount++; buildDecompiledTextForClassFile(file) }
+
+        val text = getOrBuildDecompiledTextForTest(classFile("Outer"), cache, build)
+        assertEquals(text, getOrBuildDecompiledTextForTest(classFile("Outer"), cache, build))
+        assertEquals(1, buildCount)
+        assertEquals(1, cache.texts.size)
+
+        getOrBuildDecompiledTextForTest(classFile("OuterSibling"), cache, build)
+        assertEquals(2, buildCount)
+        assertEquals(2, cache.texts.size)
+    }
+
+    fun testCachedTextIsUsed() {
+        val cache = MapDecompiledTextCache()
+        val file = classFile("Outer")
+        cache.put(DecompiledTextCache.contentKey(filesDecompiledWithForTest(file)), DecompiledText("cached", mapOf()))
+
+        assertEquals("cached", getOrBuildDecompiledTextForTest(file, cache) { throw AssertionError("Text should not be built") }.text)
+    }
+
+    fun testTextIsBuiltWithoutCache() {
+        var buildCount = 0
+        val build = { file: VirtualFile -> buildCount++; buildDecompiledTextForClassFile(file) }
+
+        getOrBuildDecompiledTextForTest(classFile("Outer"), null, build)
+        getOrBuildDecompiledTextForTest(classFile("Outer"), null, build)
+        assertEquals(2, buildCount)
+    }
+
+    private fun classFile(name: String): VirtualFile = NavigateToDecompiledLibraryTest.getClassFile("test", name, myModule!!)
+
+    private class MapDecompiledTextCache : DecompiledTextCache {
+        val texts = HashMap<String, DecompiledText>()
+
+        override fun get(key: String): DecompiledText? = texts[key]
+
+        override fun put(key: String, text: DecompiledText) {
+            texts[key] = text
+        }
+    }
+}
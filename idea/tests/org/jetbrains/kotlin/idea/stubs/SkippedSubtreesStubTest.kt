@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.idea.stubs
+
+import com.intellij.lang.ASTNode
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.psi.stubs.elements.KtFileStubBuilder
+import java.io.File
+
+// KtFileStubBuilder skips subtrees which can't contain stubs, the stub tree must be the same as if they were walked
+class SkippedSubtreesStubTest : LightCodeInsightFixtureTestCase() {
+    fun testObjectLiteralsInPropertyInitializers() {
+        doTest("""
+            val a = object : Runnable {
+                override fun run() {}
+                val p = 1
+            }
+
+            val b = foo(1, object : Comparable<Int> {
+                override fun compareTo(other: Int) = 0
+            })
+
+            fun c(x: Any = object { val y = 2 }) = x
+        """)
+    }
+
+    fun testLambdasInPropertyInitializers() {
+        doTest("""
+            val a = { object { fun f() = 1 } }
+
+            val b: () -> Unit = {
+                class Local {
+                    fun g() {}
+                    companion object { val h = 3 }
+                }
+            }
+
+            val c = run { fun local() {}; listOf(1).map { object : Comparable<Int> { override fun compareTo(other: Int) = 0 } } }
+
+            val d = { x: Int -> x + 1 }
+        """)
+    }
+
+    fun testDeclarationsInBodies() {
+        doTest("""
+            class A {
+                val a = lazy { enum class E { X { override fun toString() = "x" } } }
+
+                fun b() {
+                    interface I { fun i() }
+                    val local = object : I { override fun i() {} }
+                }
+
+                init {
+                    data class D(val x: Int)
+                }
+            }
+        """)
+    }
+
+    fun testErroneousDirectivesInBodies() {
+        doTest("""
+            fun a() {
+                import foo.bar
+            }
+
+            val b = {
+                package baz
+            }
+        """)
+    }
+
+    fun testSubtreesWithoutStubsAreSkipped() {
+        val file = myFixture.configureByText("test.kt", "val a = 1 + 2\n\nfun b() = \"class object\"") as KtFile
+        val skipped = arrayListOf<String>()
+        val stubBuilder = object : KtFileStubBuilder() {
+            override fun skipChildProcessingWhenBuildingStubs(parent: ASTNode, node: ASTNode): Boolean {
+                return super.skipChildProcessingWhenBuildingStubs(parent, node).apply { if (this) skipped.add(node.text) }
+            }
+        }
+        stubBuilder.buildStubTree(file)
+
+        // a keyword in a string literal doesn't prevent skipping
+        assertEquals(listOf("1 + 2", "\"class object\""), skipped)
+    }
+
+    fun testStubTestData() {
+        val files = File("idea/testData/stubs").listFiles { file -> file.extension == "kt" }
+        assertTrue(files.isNotEmpty())
+        for (file in files.sortedBy { it.name }) {
+            doTest(file.readText(), file.name)
+        }
+    }
+
+    private fun doTest(text: String, message: String = "") {
+        val file = myFixture.configureByText("test.kt", text.trimIndent()) as KtFile
+        val expected = AbstractStubBuilderTest.serializeStubToString(WalkingStubBuilder().buildStubTree(file))
+        val actual = AbstractStubBuilderTest.serializeStubToString(KtFileStubBuilder().buildStubTree(file))
+        assertEquals(message, expected, actual)
+    }
+
+    private class WalkingStubBuilder : KtFileStubBuilder() {
+        override fun skipChildProcessingWhenBuildingStubs(parent: ASTNode, node: ASTNode) = false
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.j2k
 
+import com.intellij.concurrency.JobLauncher
 import com.intellij.lang.java.JavaLanguage
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.editor.RangeMarker
@@ -33,6 +34,7 @@ import org.jetbrains.kotlin.psi.KtPsiFactory
 import org.jetbrains.kotlin.psi.psiUtil.isAncestor
 import org.jetbrains.kotlin.psi.psiUtil.parentsWithSelf
 import java.util.*
+import java.util.concurrent.atomic.AtomicInteger
 
 interface PostProcessor {
     fun insertImport(file: KtFile, fqName: FqName)
@@ -97,18 +99,19 @@ class JavaToKotlinConverter(
     private  fun elementsToKotlin(inputElements: List<PsiElement>, processor: WithProgressProcessor): Result {
         try {
             val usageProcessings = LinkedHashMap<PsiElement, MutableCollection<UsageProcessing>>()
-            val usageProcessingCollector: (UsageProcessing) -> Unit = {
-                usageProcessings.getOrPut(it.targetElement, { ArrayList() }).add(it)
-            }
 
             fun inConversionScope(element: PsiElement)
                     = inputElements.any { it.isAncestor(element, strict = false) }
 
+            // elements are converted concurrently, so usage processings of each element are merged afterwards in the order of elements
+            val collectors = inputElements.map { UsageProcessingCollector(usageProcessings) }
 
-            val intermediateResults = processor.processItems(0.25, inputElements) { inputElement ->
-                Converter.create(inputElement, settings, services, ::inConversionScope, usageProcessingCollector).convert()
+            val intermediateResults = processor.processItemsConcurrently(0.25, inputElements.indices.toList()) { i ->
+                Converter.create(inputElements[i], settings, services, ::inConversionScope, { collectors[i].add(it) }).convert()
             }.toArrayList()
 
+            collectors.forEach { it.merge() }
+
             val results = processor.processItems(0.25, intermediateResults.withIndex()) { pair ->
                 val (i, result) = pair
                 intermediateResults[i] = null // to not hold unused objects in the heap
@@ -134,6 +137,28 @@ class JavaToKotlinConverter(
         }
     }
 
+    // Collects usage processings of one element, they are added to [usageProcessings] by [merge]
+    // and directly after that (the code generation of the element may still add some)
+    private class UsageProcessingCollector(private val usageProcessings: MutableMap<PsiElement, MutableCollection<UsageProcessing>>) {
+        private var collected: MutableList<UsageProcessing>? = ArrayList()
+
+        fun add(processing: UsageProcessing) {
+            val collected = collected
+            if (collected != null) {
+                collected.add(processing)
+            }
+            else {
+                usageProcessings.getOrPut(processing.targetElement, { ArrayList() }).add(processing)
+            }
+        }
+
+        fun merge() {
+            val processings = collected!!
+            collected = null
+            processings.forEach { add(it) }
+        }
+    }
+
     private data class ReferenceInfo(
             val reference: PsiReference,
             val target: PsiElement,
@@ -158,29 +183,25 @@ class JavaToKotlinConverter(
 
         return object: ExternalCodeProcessing {
             override fun prepareWriteOperation(progress: ProgressIndicator): () -> Unit {
-                val refs = ArrayList<ReferenceInfo>()
-
                 progress.text = "Searching usages to update..."
 
-                for ((i, entry) in map.entries.withIndex()) {
-                    val psiElement = entry.key
-                    val processings = entry.value
-
-                    progress.text2 = (psiElement as? PsiNamedElement)?.name ?: ""
-                    progress.checkCanceled()
+                // usages of all the elements are searched in a single concurrent pass, and collected in the order of elements
+                val entries = map.entries.toList()
+                val refsByEntry = arrayOfNulls<List<ReferenceInfo>>(entries.size)
+                val searched = AtomicInteger()
 
-                    ProgressManager.getInstance().runProcess(
-                            {
-                                val searchJava = processings.any { it.javaCodeProcessor != null }
-                                val searchKotlin = processings.any { it.kotlinCodeProcessor != null }
-                                services.referenceSearcher.findUsagesForExternalCodeProcessing(psiElement, searchJava, searchKotlin)
-                                        .filterNot { inConversionScope(it.element) }
-                                        .mapTo(refs) { ReferenceInfo(it, psiElement, it.element.containingFile, processings) }
-                            },
-                            ProgressPortionReporter(progress, i / map.size.toDouble(), 1.0 / map.size))
+                WithProgressProcessor.runConcurrently(entries.indices.toList(), progress) { i ->
+                    val (psiElement, processings) = entries[i]
+                    val searchJava = processings.any { it.javaCodeProcessor != null }
+                    val searchKotlin = processings.any { it.kotlinCodeProcessor != null }
+                    refsByEntry[i] = services.referenceSearcher.findUsagesForExternalCodeProcessing(psiElement, searchJava, searchKotlin)
+                            .filterNot { inConversionScope(it.element) }
+                            .map { ReferenceInfo(it, psiElement, it.element.containingFile, processings) }
 
+                    progress.fraction = searched.incrementAndGet() / entries.size.toDouble()
                 }
 
+                val refs = refsByEntry.flatMap { it!! }
                 return { processUsages(refs) }
             }
         }
@@ -230,6 +251,18 @@ class JavaToKotlinConverter(
     private class WithProgressProcessor(private val progress: ProgressIndicator?, private val files: List<PsiJavaFile>?) {
         companion object {
             val DEFAULT = WithProgressProcessor(null, null)
+
+            /**
+             * Processes [items] on several threads, should be called in a read action, which is then held by all these threads.
+             */
+            fun <T> runConcurrently(items: List<T>, progress: ProgressIndicator, process: (T) -> Unit) {
+                // threads get an indicator which only reports cancellation, so that inheritors search and the like don't change our progress
+                val completed = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(items, CancellationOnlyProgressIndicator(progress), false) {
+                    process(it)
+                    true
+                }
+                if (!completed) throw ProcessCanceledException()
+            }
         }
 
         private val progressText = "Converting Java to Kotlin"
@@ -264,39 +297,45 @@ class JavaToKotlinConverter(
                     EmptyProgressIndicator())
             return outputItems
         }
-    }
 
-    private class ProgressPortionReporter(
-            indicator: ProgressIndicator,
-            private val start: Double,
-            private val portion: Double
-    ) : DelegatingProgressIndicator(indicator) {
+        /**
+         * Processes the items like [processItems], but concurrently if there is more than one, results are in the order of items.
+         */
+        fun <TInputItem, TOutputItem> processItemsConcurrently(
+                fractionPortion: Double,
+                inputItems: List<TInputItem>,
+                processItem: (TInputItem) -> TOutputItem
+        ): List<TOutputItem> {
+            if (progress == null || inputItems.size < 2) return processItems(fractionPortion, inputItems, processItem)
 
-        init {
-            fraction = 0.0
-        }
+            val outputItems = arrayOfNulls<Any>(inputItems.size)
+            val processed = AtomicInteger()
 
-        override fun start() {
-            fraction = 0.0
-        }
+            progress.text = "$progressText ($fileCountText) - pass $pass of 3"
+            progress.text2 = ""
 
-        override fun stop() {
-            fraction = portion
-        }
+            runConcurrently(inputItems.indices.toList(), progress) { i ->
+                outputItems[i] = processItem(inputItems[i])
+                progress.fraction = fraction + fractionPortion * processed.incrementAndGet() / fileCount
+            }
 
-        override fun setFraction(fraction: Double) {
-            super.setFraction(start + (fraction * portion))
-        }
+            pass++
+            fraction += fractionPortion
 
-        override fun getFraction(): Double {
-            return (super.getFraction() - start) / portion
+            @Suppress("UNCHECKED_CAST")
+            return outputItems.map { it as TOutputItem }
         }
+    }
 
+    private class CancellationOnlyProgressIndicator(indicator: ProgressIndicator) : DelegatingProgressIndicator(indicator) {
         override fun setText(text: String?) {
         }
 
         override fun setText2(text: String?) {
         }
+
+        override fun setFraction(fraction: Double) {
+        }
     }
 
     // Copied from com.intellij.ide.util.DelegatingProgressIndicator
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.j2k
+
+import com.intellij.openapi.progress.EmptyProgressIndicator
+import com.intellij.psi.PsiJavaFile
+import com.intellij.psi.PsiManager
+import org.jetbrains.kotlin.idea.j2k.IdeaJavaToKotlinServices
+import org.jetbrains.kotlin.idea.j2k.J2kPostProcessor
+import org.jetbrains.kotlin.idea.test.KotlinWithJdkAndRuntimeLightProjectDescriptor
+import org.jetbrains.kotlin.idea.util.application.executeWriteCommand
+import org.jetbrains.kotlin.psi.KtFile
+
+// Files are converted and their external usages are searched concurrently, results must not depend on the scheduling of threads
+class JavaToKotlinConverterDeterminismTest : AbstractJavaToKotlinConverterTest() {
+    fun testResultsDoNotDependOnThreads() {
+        val files = addJavaFiles()
+        val expected = convert(files)
+
+        repeat(5) {
+            assertEquals(expected, convert(files))
+        }
+
+        // the usages of each class are in the file of the previous one, they are processed together with the class itself
+        for (text in expected) {
+            assertTrue(text, text.contains("other.x = other.x + 1"))
+            assertFalse(text, text.contains("getX()"))
+        }
+    }
+
+    fun testResultsDoNotDependOnOrderOfFiles() {
+        val files = addJavaFiles()
+
+        assertEquals(convert(files), convert(files.reversed()).reversed())
+    }
+
+    fun testExternalUsagesAreProcessed() {
+        val files = addJavaFiles()
+        val externalFile = PsiManager.getInstance(project).findFile(addFile(
+                (0..FILE_COUNT - 1).joinToString("\n\n") { "fun use$it(c: C$it) {\n    c.setX(c.getX() + 1)\n}" },
+                "external.kt", "test")) as KtFile
+
+        val converter = JavaToKotlinConverter(project, ConverterSettings.defaultSettings, IdeaJavaToKotlinServices)
+        val externalCodeProcessing = converter.filesToKotlin(files, J2kPostProcessor(formatCode = true), EmptyProgressIndicator()).externalCodeProcessing!!
+
+        val process = externalCodeProcessing.prepareWriteOperation(EmptyProgressIndicator())
+        project.executeWriteCommand("") { process() }
+
+        assertEquals(
+                (0..FILE_COUNT - 1).joinToString("\n\n") { "fun use$it(c: C$it) {\n    c.x = c.x + 1\n}" },
+                externalFile.text)
+    }
+
+    private fun addJavaFiles(): List<PsiJavaFile> {
+        val psiManager = PsiManager.getInstance(project)
+        return (0..FILE_COUNT - 1).map { i ->
+            val next = (i + 1) % FILE_COUNT
+            val text = "public class C$i {\n" +
+                       "    private int x = $i;\n\n" +
+                       "    public int getX() {\n        return x;\n    }\n\n" +
+                       "    public void setX(int x) {\n        this.x = x;\n    }\n\n" +
+                       "    void use(C$next other) {\n        other.setX(other.getX() + 1);\n    }\n" +
+                       "}"
+            psiManager.findFile(addFile(text, "C$i.java", "test")) as PsiJavaFile
+        }
+    }
+
+    private fun convert(files: List<PsiJavaFile>): List<String> {
+        val converter = JavaToKotlinConverter(project, ConverterSettings.defaultSettings, IdeaJavaToKotlinServices)
+        return converter.filesToKotlin(files, J2kPostProcessor(formatCode = true), EmptyProgressIndicator()).results
+    }
+
+    override fun getProjectDescriptor()
+            = KotlinWithJdkAndRuntimeLightProjectDescriptor.INSTANCE
+
+    companion object {
+        private val FILE_COUNT = 8
+    }
+}
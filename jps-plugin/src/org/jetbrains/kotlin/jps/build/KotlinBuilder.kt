@@ -746,19 +746,20 @@ private fun CompilationResult.doProcessChangesUsingLookups(
     val lookupStorage = dataManager.getStorage(KotlinDataContainerTarget, LookupStorageProvider)
     val allCaches = caches.toHashSet()
     allCaches.addAll(caches.flatMap { it.dependentCaches })
+    val subtypes = SubtypesClosure(allCaches)
 
     KotlinBuilder.LOG.debug("Start processing changes")
 
     for (change in changes) {
         if (change is ChangeInfo.SignatureChanged) {
-            for (classFqName in withSubtypes(change.fqName, allCaches)) {
+            for (classFqName in subtypes.withSubtypes(change.fqName)) {
                 val scope = classFqName.parent().asString()
                 val name = classFqName.shortName().identifier
                 dirtyLookupSymbols.add(LookupSymbol(name, scope))
             }
         }
         else if (change is ChangeInfo.MembersChanged) {
-            val scopes = withSubtypes(change.fqName, allCaches).map { it.asString() }
+            val scopes = subtypes.withSubtypes(change.fqName).map { it.asString() }
 
             change.names.forAllPairs(scopes) { name, scope ->
                 dirtyLookupSymbols.add(LookupSymbol(name, scope))
@@ -768,8 +769,8 @@ private fun CompilationResult.doProcessChangesUsingLookups(
 
     val dirtyFiles = HashSet<File>()
 
-    for (lookup in dirtyLookupSymbols) {
-        val affectedFiles = lookupStorage.get(lookup).map(::File)
+    for ((lookup, paths) in lookupStorage.getAll(dirtyLookupSymbols)) {
+        val affectedFiles = paths.map(::File)
 
         KotlinBuilder.LOG.debug { "${lookup.scope}#${lookup.name} caused recompilation of: $affectedFiles" }
 
@@ -781,33 +782,49 @@ private fun CompilationResult.doProcessChangesUsingLookups(
 }
 
 /**
- * Returns type with its subtypes transitively
+ * Types with their subtypes transitively, as recorded in [caches]
  *
  * For example:
  *    open class A
  *    open class B : A()
  *    class C : B()
  * withSubtypes(A) will return [A, B, C]
+ *
+ * Changes of one compilation round usually come from the same hierarchies,
+ * so direct subtypes and closures are remembered and reused by the following queries.
  */
-private fun withSubtypes(
-        typeFqName: FqName,
-        caches: Collection<IncrementalCacheImpl>
-): Set<FqName> {
-    val types = linkedListOf(typeFqName)
-    val subtypes = hashSetOf<FqName>()
+private class SubtypesClosure(private val caches: Collection<IncrementalCacheImpl>) {
+    private val directSubtypes = HashMap<FqName, List<FqName>>()
+    private val closures = HashMap<FqName, Set<FqName>>()
+
+    fun withSubtypes(typeFqName: FqName): Set<FqName> {
+        closures[typeFqName]?.let { return it }
 
-    while (types.isNotEmpty()) {
-        val unprocessedType = types.pollFirst()
+        val result = hashSetOf(typeFqName)
+        val types = ArrayDeque<FqName>()
+        types.add(typeFqName)
 
-        caches.asSequence()
-                .flatMap { it.getSubtypesOf(unprocessedType) }
-                .filter { it !in subtypes }
-                .forEach { types.addLast(it) }
+        while (types.isNotEmpty()) {
+            for (subtype in getDirectSubtypes(types.pollFirst())) {
+                if (subtype in result) continue
 
-        subtypes.add(unprocessedType)
+                val closure = closures[subtype]
+                if (closure != null) {
+                    result.addAll(closure)
+                }
+                else {
+                    result.add(subtype)
+                    types.addLast(subtype)
+                }
+            }
+        }
+
+        closures[typeFqName] = result
+        return result
     }
 
-    return subtypes
+    private fun getDirectSubtypes(typeFqName: FqName): List<FqName> =
+            directSubtypes.getOrPut(typeFqName) { caches.flatMap { it.getSubtypesOf(typeFqName).asIterable() } }
 }
 
 private fun getLookupTracker(project: JpsProject): LookupTracker {
@@ -28,7 +28,7 @@ import org.jetbrains.jps.builders.storage.BuildDataPaths
 import org.jetbrains.jps.builders.storage.StorageProvider
 import org.jetbrains.jps.incremental.ModuleBuildTarget
 import org.jetbrains.jps.incremental.storage.BuildDataManager
-import org.jetbrains.jps.incremental.storage.PathStringDescriptor
+import org.jetbrains.jps.incremental.storage.StorageOwner
 import org.jetbrains.kotlin.config.IncrementalCompilation
 import org.jetbrains.kotlin.inline.inlineFunctionsJvmNames
 import org.jetbrains.kotlin.jps.build.GeneratedJvmClass
@@ -59,7 +59,7 @@ val KOTLIN_CACHE_DIRECTORY_NAME = "kotlin"
 class IncrementalCacheImpl(
         private val target: ModuleBuildTarget,
         paths: BuildDataPaths
-) : BasicMapsOwner(), IncrementalCache {
+) : BasicMapsOwner(), IncrementalCache, StorageOwner {
     companion object {
         val PROTO_MAP = "proto"
         val CONSTANTS_MAP = "constants"
@@ -360,18 +360,26 @@ class IncrementalCacheImpl(
         ): CompilationResult {
             val key = className.internalName
             val oldData = storage[key]
-            val data = ProtoMapValue(isPackage, bytes, strings)
+            val newFingerprints = if (checkChangesIsOpenPart) fingerprints(isPackage, bytes, strings) else LongArray(0)
+            val data = ProtoMapValue(isPackage, bytes, strings, newFingerprints)
 
             if (oldData == null ||
                 !Arrays.equals(bytes, oldData.bytes) ||
                 !Arrays.equals(strings, oldData.strings) ||
-                isPackage != oldData.isPackageFacade
+                isPackage != oldData.isPackageFacade ||
+                !Arrays.equals(newFingerprints, oldData.fingerprints)
             ) {
                 storage[key] = data
             }
 
             if (oldData == null || !checkChangesIsOpenPart) return CompilationResult(protoChanged = true)
 
+            // the common case of changes in bodies only, no need to deserialize and compare the old data
+            if (isPackage == oldData.isPackageFacade && oldData.fingerprints.isNotEmpty() &&
+                Arrays.equals(newFingerprints, oldData.fingerprints)) {
+                return CompilationResult.NO_CHANGES
+            }
+
             val difference = difference(oldData, data)
             val fqName = if (isPackage) className.packageFqName else className.fqNameForClassNameWithoutDollars
             val changeList = SmartList<ChangeInfo>()
@@ -577,7 +585,7 @@ class IncrementalCacheImpl(
         override fun dumpValue(value: String): String = value
     }
 
-    private inner class SourceToClassesMap(storageFile: File) : BasicStringMap<Collection<String>>(storageFile, PathStringDescriptor.INSTANCE, StringCollectionExternalizer) {
+    private inner class SourceToClassesMap(storageFile: File) : BasicStringMap<Collection<String>>(storageFile, PathStringDescriptor, StringCollectionExternalizer) {
         fun clearOutputsForSource(sourceFile: File) {
             remove(sourceFile.absolutePath)
         }
@@ -781,6 +789,3 @@ private fun <K : Comparable<K>, V> Map<K, V>.dumpMap(dumpValue: (V)->String): St
             }
             append("}")
         }
-
-@TestOnly fun <T : Comparable<T>> Collection<T>.dumpCollection(): String =
-        "[${sorted().joinToString(", ", transform = Any::toString)}]"
@@ -1105,6 +1105,12 @@ public class ExperimentalIncrementalJpsTestGenerated extends AbstractExperimenta
             doTest(fileName);
         }
 
+        @TestMetadata("membersChangedInHierarchy")
+        public void testMembersChangedInHierarchy() throws Exception {
+            String fileName = KotlinTestUtils.navigationMetadata("jps-plugin/testData/incremental/classHierarchyAffected/membersChangedInHierarchy/");
+            doTest(fileName);
+        }
+
         @TestMetadata("methodAdded")
         public void testMethodAdded() throws Exception {
             String fileName = KotlinTestUtils.navigationMetadata("jps-plugin/testData/incremental/classHierarchyAffected/methodAdded/");
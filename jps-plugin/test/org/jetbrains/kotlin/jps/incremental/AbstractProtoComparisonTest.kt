@@ -28,6 +28,7 @@ import org.jetbrains.kotlin.test.KotlinTestUtils
 import org.jetbrains.kotlin.test.MockLibraryUtil
 import org.jetbrains.kotlin.utils.Printer
 import java.io.File
+import java.util.*
 
 abstract class AbstractProtoComparisonTest : UsefulTestCase() {
 
@@ -127,6 +128,12 @@ abstract class AbstractProtoComparisonTest : UsefulTestCase() {
             changes.add("NONE")
         }
 
+        val oldFingerprints = fingerprints(oldProto.isPackageFacade, oldProto.bytes, oldProto.strings)
+        val newFingerprints = fingerprints(newProto.isPackageFacade, newProto.bytes, newProto.strings)
+        if (Arrays.equals(oldFingerprints, newFingerprints)) {
+            assertEquals("Fingerprints of ${oldLocalFileKotlinClass.classId} are equal, but there are changes", listOf("NONE"), changes)
+        }
+
         println("changes in ${oldLocalFileKotlinClass.classId}: ${changes.joinToString()}")
     }
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.jps.incremental
+
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import java.io.File
+
+class LookupStorageTest : TestCaseWithTmpdir() {
+    private val a: String
+        get() = path("a.kt")
+    private val b: String
+        get() = path("b.kt")
+    private val c: String
+        get() = path("c.kt")
+
+    private val fooF = LookupSymbol("f", "foo.A")
+    private val fooG = LookupSymbol("g", "foo.A")
+    private val barF = LookupSymbol("f", "bar")
+
+    fun testGetAllIsSameAsGet() {
+        withStorage {
+            it.add(fooF, listOf(a, b))
+            it.add(fooG, listOf(b))
+            it.add(barF, listOf(c))
+
+            val all = it.getAll(listOf(fooF, fooG, barF))
+            for (symbol in listOf(fooF, fooG, barF)) {
+                assertEquals(it.get(symbol).toSet(), all[symbol]!!.toSet())
+            }
+        }
+    }
+
+    fun testSymbolsWithoutLookupsAreOmitted() {
+        withStorage {
+            it.add(fooF, listOf(a))
+
+            assertEquals(setOf(fooF), it.getAll(listOf(fooF, fooG, barF)).keys)
+        }
+    }
+
+    fun testRemovedFilesAreSkipped() {
+        withStorage {
+            it.add(fooF, listOf(a, b))
+            it.add(fooG, listOf(b))
+            it.removeLookupsFrom(File(b))
+
+            val all = it.getAll(listOf(fooF, fooG))
+            assertEquals(listOf(a), all[fooF]!!.toList())
+            assertEmpty(all[fooG]!!)
+        }
+    }
+
+    fun testLookupsAreKeptBetweenBuilds() {
+        withStorage {
+            it.add(fooF, listOf(a))
+            it.add(barF, listOf(b, c))
+        }
+
+        withStorage {
+            val all = it.getAll(listOf(fooF, barF))
+            assertEquals(setOf(a), all[fooF]!!.toSet())
+            assertEquals(setOf(b, c), all[barF]!!.toSet())
+        }
+    }
+
+    private fun path(name: String) = File(tmpdir, name).path
+
+    private fun withStorage(action: (LookupStorage) -> Unit) {
+        val storage = LookupStorage(File(tmpdir, "lookups"))
+        try {
+            action(storage)
+            storage.flush(false)
+        }
+        finally {
+            storage.close()
+        }
+    }
+}
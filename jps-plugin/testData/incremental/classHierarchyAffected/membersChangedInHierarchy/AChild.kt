@@ -0,0 +1,3 @@
+package foo
+
+open class AChild : A()
\ No newline at end of file
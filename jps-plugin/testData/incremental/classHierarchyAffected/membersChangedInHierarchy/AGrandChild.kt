@@ -0,0 +1,3 @@
+package foo
+
+class AGrandChild : AChild()
\ No newline at end of file
@@ -0,0 +1,3 @@
+package foo
+
+fun passAGrandChild(a: AGrandChild) = a
\ No newline at end of file
@@ -0,0 +1,5 @@
+package foo
+
+fun useF(a: AGrandChild) {
+    a.f()
+}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package foo
+
+fun useG(a: AGrandChild) {
+    a.g()
+}
\ No newline at end of file
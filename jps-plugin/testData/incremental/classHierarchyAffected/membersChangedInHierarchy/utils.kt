@@ -0,0 +1,5 @@
+package foo
+
+fun AGrandChild.f() {}
+
+fun AGrandChild.g() {}
\ No newline at end of file
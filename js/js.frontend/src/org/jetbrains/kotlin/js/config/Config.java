@@ -58,6 +58,9 @@ public abstract class Config {
     private final boolean sourcemap;
     private final boolean metaInfo;
     private final boolean kjsm;
+    private final boolean deadCodeElimination;
+    @NotNull
+    private final List<String> entryPoints;
 
     @NotNull
     protected final List<KotlinJavascriptMetadata> metadata = new SmartList<KotlinJavascriptMetadata>();
@@ -74,7 +77,9 @@ public abstract class Config {
             boolean sourcemap,
             boolean inlineEnabled,
             boolean metaInfo,
-            boolean kjsm
+            boolean kjsm,
+            boolean deadCodeElimination,
+            @NotNull List<String> entryPoints
     ) {
         this.project = project;
         this.target = ecmaVersion;
@@ -83,6 +88,8 @@ public abstract class Config {
         this.inlineEnabled = inlineEnabled;
         this.metaInfo = metaInfo;
         this.kjsm = kjsm;
+        this.deadCodeElimination = deadCodeElimination;
+        this.entryPoints = entryPoints;
     }
 
     public boolean isSourcemap() {
@@ -101,6 +108,18 @@ public abstract class Config {
         return inlineEnabled;
     }
 
+    public boolean isDeadCodeElimination() {
+        return deadCodeElimination;
+    }
+
+    /**
+     * Qualified names of declarations, which are kept by dead code elimination even if not used inside module.
+     */
+    @NotNull
+    public List<String> getEntryPoints() {
+        return entryPoints;
+    }
+
     @NotNull
     public Project getProject() {
         return project;
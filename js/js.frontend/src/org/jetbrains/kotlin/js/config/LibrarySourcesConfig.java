@@ -71,9 +71,11 @@ public class LibrarySourcesConfig extends Config {
             boolean inlineEnabled,
             boolean isUnitTestConfig,
             boolean metaInfo,
-            boolean kjsm
+            boolean kjsm,
+            boolean deadCodeElimination,
+            @NotNull List<String> entryPoints
     ) {
-        super(project, moduleId, ecmaVersion, sourceMap, inlineEnabled, metaInfo, kjsm);
+        super(project, moduleId, ecmaVersion, sourceMap, inlineEnabled, metaInfo, kjsm, deadCodeElimination, entryPoints);
         this.files = files;
         this.isUnitTestConfig = isUnitTestConfig;
     }
@@ -199,6 +201,9 @@ public class LibrarySourcesConfig extends Config {
         boolean isUnitTestConfig = false;
         boolean metaInfo = false;
         boolean kjsm = false;
+        boolean deadCodeElimination = false;
+        @NotNull
+        List<String> entryPoints = Collections.emptyList();
 
         public Builder(@NotNull Project project, @NotNull String moduleId, @NotNull List<String> files) {
             this.project = project;
@@ -236,8 +241,19 @@ public class LibrarySourcesConfig extends Config {
             return this;
         }
 
+        public Builder deadCodeElimination(boolean deadCodeElimination) {
+            this.deadCodeElimination = deadCodeElimination;
+            return this;
+        }
+
+        public Builder entryPoints(@NotNull List<String> entryPoints) {
+            this.entryPoints = entryPoints;
+            return this;
+        }
+
         public Config build() {
-            return new LibrarySourcesConfig(project, moduleId, files, ecmaVersion, sourceMap, inlineEnabled, isUnitTestConfig, metaInfo, kjsm);
+            return new LibrarySourcesConfig(project, moduleId, files, ecmaVersion, sourceMap, inlineEnabled, isUnitTestConfig, metaInfo, kjsm,
+                                            deadCodeElimination, entryPoints);
         }
     }
 
@@ -19,8 +19,6 @@ package org.jetbrains.kotlin.js.inline
 import com.google.dart.compiler.backend.js.ast.*
 import com.google.dart.compiler.backend.js.ast.metadata.inlineStrategy
 import com.google.gwt.dev.js.ThrowExceptionOnErrorReporter
-import com.intellij.openapi.util.io.FileUtil
-import com.intellij.util.containers.SLRUCache
 import org.jetbrains.kotlin.builtins.KotlinBuiltIns
 import org.jetbrains.kotlin.descriptors.CallableDescriptor
 import org.jetbrains.kotlin.js.config.LibrarySourcesConfig
@@ -45,6 +43,12 @@ import java.io.File
  */
 private val DEFINE_MODULE_PATTERN = "(\\w+)\\.defineModule\\(\\s*(['\"])(\\w+)\\2\\s*,\\s*(\\w+)\\s*\\)".toRegex()
 
+/**
+ * Matches string like Kotlin.defineInlineFunction("stdlib.kotlin.foo_za3rmp$", _
+ * The match ends right before the function expression.
+ */
+private val DEFINE_INLINE_FUNCTION_PATTERN = "\\.defineInlineFunction\\(\\s*(['\"])([^'\"]+)\\1\\s*,\\s*".toRegex()
+
 class FunctionReader(private val context: TranslationContext) {
     /**
      * Maps module name to .js file content, that contains this module definition.
@@ -52,6 +56,12 @@ class FunctionReader(private val context: TranslationContext) {
      */
     private val moduleJsDefinition = hashMapOf<String, String>()
 
+    /**
+     * Maps module name to index of inline functions, defined in module's .js file.
+     * Modules defined in the same file share the same index.
+     */
+    private val moduleFunctionIndex = hashMapOf<String, InlineFunctionIndex>()
+
     /**
      * Maps module name to variable, that is used to call functions inside module.
      * The default variable is _, but it can be renamed by minifier.
@@ -69,6 +79,7 @@ class FunctionReader(private val context: TranslationContext) {
         val libs = config.libraries.map { File(it) }
 
         LibraryUtils.traverseJsLibraries(libs) { fileContent, path ->
+            val index = InlineFunctionIndex(fileContent)
             val matcher = DEFINE_MODULE_PATTERN.toPattern().matcher(fileContent)
 
             while (matcher.find()) {
@@ -77,16 +88,18 @@ class FunctionReader(private val context: TranslationContext) {
                 val kotlinVariable = matcher.group(1)
                 assert(moduleName !in moduleJsDefinition) { "Module is defined in more, than one file" }
                 moduleJsDefinition[moduleName] = fileContent
+                moduleFunctionIndex[moduleName] = index
                 moduleRootVariable[moduleName] = moduleVariable
                 moduleKotlinVariable[moduleName] = kotlinVariable
             }
         }
     }
 
-    private val functionCache = object : SLRUCache<CallableDescriptor, JsFunction>(50, 50) {
-        override fun createValue(descriptor: CallableDescriptor): JsFunction =
-                readFunction(descriptor).sure { "Could not read function: $descriptor" }
-    }
+    /**
+     * Every distinct inline function is read at most once per translation,
+     * so the cache is not bounded: its size is the number of inlined library functions.
+     */
+    private val functionCache = hashMapOf<CallableDescriptor, JsFunction>()
 
     operator fun contains(descriptor: CallableDescriptor): Boolean {
         val moduleName = getExternalModuleName(descriptor)
@@ -94,28 +107,23 @@ class FunctionReader(private val context: TranslationContext) {
         return currentModuleName != moduleName && moduleName != null && moduleName in moduleJsDefinition
     }
 
-    operator fun get(descriptor: CallableDescriptor): JsFunction = functionCache.get(descriptor)
-    
+    operator fun get(descriptor: CallableDescriptor): JsFunction =
+            functionCache.getOrPut(descriptor) { readFunction(descriptor).sure { "Could not read function: $descriptor" } }
+
     private fun readFunction(descriptor: CallableDescriptor): JsFunction? {
         if (descriptor !in this) return null
 
         val moduleName = getExternalModuleName(descriptor)
         val file = moduleJsDefinition[moduleName].sure { "Module $moduleName file have not been read" }
-        val function = readFunctionFromSource(descriptor, file)
+        val index = moduleFunctionIndex[moduleName]!!
+        val function = readFunctionFromSource(descriptor, file, index)
         function?.markInlineArguments(descriptor)
         return function
     }
 
-    private fun readFunctionFromSource(descriptor: CallableDescriptor, source: String): JsFunction? {
+    private fun readFunctionFromSource(descriptor: CallableDescriptor, source: String, index: InlineFunctionIndex): JsFunction? {
         val tag = Namer.getFunctionTag(descriptor)
-        val index = source.indexOf(tag)
-        if (index < 0) return null
-
-        // + 1 for closing quote
-        var offset = index + tag.length + 1
-        while (offset < source.length && source[offset].isWhitespaceOrComma) {
-            offset++
-        }
+        val offset = index.findFunctionOffset(tag) ?: return null
 
         val function = parseFunction(source, offset, ThrowExceptionOnErrorReporter, JsRootScope(JsProgram("<inline>")))
         val moduleName = getExternalModuleName(descriptor)!!
@@ -129,6 +137,43 @@ class FunctionReader(private val context: TranslationContext) {
     }
 }
 
+/**
+ * Maps inline function tags to offsets of function expressions inside .js file.
+ * The file is scanned once for all Kotlin.defineInlineFunction calls,
+ * so lookup does not depend on library size.
+ */
+private class InlineFunctionIndex(private val source: String) {
+    private val offsetByTag: Map<String, Int> by lazy {
+        val result = hashMapOf<String, Int>()
+        val matcher = DEFINE_INLINE_FUNCTION_PATTERN.toPattern().matcher(source)
+
+        while (matcher.find()) {
+            val tag = matcher.group(2)
+            if (tag !in result) {
+                result[tag] = matcher.end()
+            }
+        }
+
+        result
+    }
+
+    fun findFunctionOffset(tag: String): Int? {
+        offsetByTag[tag]?.let { return it }
+
+        // defineInlineFunction could be renamed by minifier, so fallback to search of tag itself
+        val index = source.indexOf(tag)
+        if (index < 0) return null
+
+        // + 1 for closing quote
+        var offset = index + tag.length + 1
+        while (offset < source.length && source[offset].isWhitespaceOrComma) {
+            offset++
+        }
+
+        return offset
+    }
+}
+
 private val Char.isWhitespaceOrComma: Boolean
     get() = this == ',' || this.isWhitespace()
 
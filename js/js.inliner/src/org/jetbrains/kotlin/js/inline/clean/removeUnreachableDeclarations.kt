@@ -0,0 +1,321 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.js.inline.clean
+
+import com.google.dart.compiler.backend.js.JsToStringGenerationVisitor
+import com.google.dart.compiler.backend.js.ast.*
+import com.google.dart.compiler.util.TextOutputImpl
+import com.google.gwt.dev.js.ThrowExceptionOnErrorReporter
+import org.jetbrains.kotlin.js.inline.util.IdentitySet
+import org.jetbrains.kotlin.js.parser.parse
+import org.jetbrains.kotlin.js.translate.context.Namer
+import org.jetbrains.kotlin.utils.KotlinJavascriptMetadataUtils
+import org.jetbrains.kotlin.utils.LibraryUtils
+import java.io.File
+import java.util.*
+
+private val DEFINE_PACKAGE = "definePackage"
+private val DEFINE_ROOT_PACKAGE = "defineRootPackage"
+
+/**
+ * Removes package members (functions, classes, objects, properties), that are not reachable:
+ *  - from code outside of package members (package initializers, main call, tests);
+ *  - from entry points, given by qualified name (mangling suffix can be omitted);
+ *  - from exported declarations, i.e. public API of a module, which is compiled to be used as a library.
+ *
+ * References from `js(...)` code are not always resolved to names of declarations,
+ * so they keep every declaration with the same identifier.
+ *
+ * Only declarations of translated module are known to program,
+ * declarations of library modules (including kotlin.js) are removed by [removeUnreachableLibraryDeclarations].
+ */
+fun removeUnreachableDeclarations(
+        program: JsProgram,
+        entryPoints: Collection<String>,
+        exportedNames: Collection<JsName>
+): DeadCodeEliminationReport {
+    val declarations = DeclarationCollector().apply { accept(program) }.declarations
+    val graph = DeclarationGraph(declarations)
+
+    val rootReferences = RootReferenceCollector(IdentitySet<JsPropertyInitializer>().apply { addAll(declarations.map { it.initializer }) })
+    rootReferences.accept(program)
+
+    for (declaration in declarations) {
+        if (entryPoints.any { declaration.matches(it) }) {
+            graph.markReachable(declaration, "entry point")
+        }
+    }
+
+    for (name in exportedNames) {
+        graph.findByName(name)?.let { graph.markReachable(it, "exported") }
+    }
+
+    graph.markReferenced(rootReferences, "referenced from top-level code")
+
+    graph.propagate()
+
+    val removed = declarations.filter { it !in graph.reasons }
+    removeDeclarations(removed)
+
+    return graph.createReport(removed)
+}
+
+class LibraryJsFile(val path: String, val content: String)
+
+class LibraryDeadCodeElimination(val files: List<LibraryJsFile>, val report: DeadCodeEliminationReport)
+
+/**
+ * Reads .js files of libraries (jars, directories or .js files with metadata), except for metadata files.
+ * Paths are relative to library roots, like paths of copied library files.
+ */
+fun readLibraryJsFiles(libraries: List<String>): List<LibraryJsFile> {
+    val files = arrayListOf<LibraryJsFile>()
+    LibraryUtils.traverseJsLibraries(libraries.map { File(it) }) { content, path ->
+        if (!path.endsWith(KotlinJavascriptMetadataUtils.META_JS_SUFFIX)) {
+            files.add(LibraryJsFile(path, content))
+        }
+    }
+    return files
+}
+
+/**
+ * Removes package members of library modules (including kotlin.js), that are not reachable:
+ *  - from code of translated module, i.e. what is left of it after [removeUnreachableDeclarations];
+ *  - from code of libraries outside of package members, like the runtime of kotlin.js, which is kept as is;
+ *  - from entry points, given by qualified name (like `kotlin.collections.listOf`), so they form a keep list for libraries.
+ *
+ * Library files are parsed, so their names are not shared with translated module and with each other:
+ * references between modules keep every declaration of libraries with the same identifier.
+ * Files without removed declarations are returned as is.
+ */
+fun removeUnreachableLibraryDeclarations(
+        program: JsProgram,
+        libraries: List<LibraryJsFile>,
+        entryPoints: Collection<String>
+): LibraryDeadCodeElimination {
+    val parsedFiles = libraries.map { file ->
+        val block = JsGlobalBlock()
+        block.statements.addAll(parse(file.content, ThrowExceptionOnErrorReporter, JsRootScope(JsProgram("<dce>"))))
+        ParsedLibraryFile(file, block, DeclarationCollector(file.path).apply { accept(block) }.declarations)
+    }
+
+    val declarations = parsedFiles.flatMap { it.declarations }
+    val graph = DeclarationGraph(declarations)
+
+    for (declaration in declarations) {
+        if (entryPoints.any { declaration.matches(it) }) {
+            graph.markReachable(declaration, "entry point")
+        }
+    }
+
+    val moduleReferences = RootReferenceCollector(IdentitySet())
+    moduleReferences.accept(program)
+    graph.markReferenced(moduleReferences, "referenced from translated module")
+
+    val initializers = IdentitySet<JsPropertyInitializer>().apply { addAll(declarations.map { it.initializer }) }
+    for (file in parsedFiles) {
+        val rootReferences = RootReferenceCollector(initializers)
+        rootReferences.accept(file.block)
+        graph.markReferenced(rootReferences, "referenced from top-level code of ${file.source.path}")
+    }
+
+    graph.propagate()
+
+    val removed = declarations.filter { it !in graph.reasons }
+    removeDeclarations(removed)
+
+    val files = parsedFiles.map { file ->
+        if (file.declarations.all { it in graph.reasons }) {
+            file.source
+        }
+        else {
+            val output = TextOutputImpl()
+            file.block.accept(JsToStringGenerationVisitor(output))
+            LibraryJsFile(file.source.path, output.toString())
+        }
+    }
+
+    return LibraryDeadCodeElimination(files, graph.createReport(removed))
+}
+
+private class ParsedLibraryFile(val source: LibraryJsFile, val block: JsGlobalBlock, val declarations: List<Declaration>)
+
+private fun removeDeclarations(removed: List<Declaration>) {
+    for ((container, removedInContainer) in removed.groupBy { it.container }) {
+        val removedInitializers = IdentitySet<JsPropertyInitializer>().apply { addAll(removedInContainer.map { it.initializer }) }
+        container.propertyInitializers.removeAll { it in removedInitializers }
+    }
+}
+
+class DeadCodeEliminationReport(val kept: Map<String, String>, val removed: List<String>) {
+    operator fun plus(other: DeadCodeEliminationReport): DeadCodeEliminationReport =
+            DeadCodeEliminationReport(kept + other.kept, removed + other.removed)
+
+    fun render(): String {
+        val sb = StringBuilder()
+        for ((name, reason) in kept) {
+            sb.append("kept ").append(name).append(": ").append(reason).append('\n')
+        }
+        for (name in removed) {
+            sb.append("removed ").append(name).append('\n')
+        }
+        return sb.toString()
+    }
+}
+
+private class Declaration(
+        val qualifiedName: String,
+        val name: JsName?,
+        val ident: String,
+        val initializer: JsPropertyInitializer,
+        val container: JsObjectLiteral,
+        libraryPath: String?
+) {
+    // declarations of libraries are reported with path of their file, like kotlin.js:kotlin.collections.listOf_9mqe4v$
+    val displayName = if (libraryPath != null) "$libraryPath:$qualifiedName" else qualifiedName
+
+    fun matches(entryPoint: String): Boolean {
+        if (qualifiedName == entryPoint) return true
+
+        // mangled names look like foo_za3lpa$
+        return qualifiedName.startsWith(entryPoint + "_") && qualifiedName.endsWith("$") &&
+               qualifiedName.indexOf('.', entryPoint.length) < 0
+    }
+}
+
+private class DeclarationGraph(declarations: List<Declaration>) {
+    private val byName = IdentityHashMap<JsName, Declaration>()
+    private val byIdent = hashMapOf<String, MutableList<Declaration>>()
+    private val queue: Queue<Declaration> = ArrayDeque()
+
+    val reasons = LinkedHashMap<Declaration, String>()
+
+    init {
+        for (declaration in declarations) {
+            declaration.name?.let { byName[it] = declaration }
+            byIdent.getOrPut(declaration.ident) { arrayListOf() }.add(declaration)
+        }
+    }
+
+    fun findByName(name: JsName): Declaration? = byName[name]
+
+    fun findByIdent(ident: String): List<Declaration> = byIdent[ident] ?: emptyList()
+
+    fun markReferenced(references: RootReferenceCollector, reason: String) {
+        for (name in references.names) {
+            val declaration = findByName(name)
+            if (declaration != null) {
+                markReachable(declaration, reason)
+            }
+            else {
+                // names of js(...) code are created in their own scope
+                findByIdent(name.ident).forEach { markReachable(it, reason) }
+            }
+        }
+        for (ident in references.unresolvedIdents) {
+            findByIdent(ident).forEach { markReachable(it, "$reason by unresolved name '$ident'") }
+        }
+    }
+
+    fun markReachable(declaration: Declaration, reason: String) {
+        if (declaration in reasons) return
+
+        reasons[declaration] = reason
+        queue.add(declaration)
+    }
+
+    fun propagate() {
+        while (queue.isNotEmpty()) {
+            val declaration = queue.poll()
+            val reason = "referenced from ${declaration.displayName}"
+
+            val collector = RootReferenceCollector(IdentitySet())
+            collector.accept(declaration.initializer.valueExpr)
+            markReferenced(collector, reason)
+        }
+    }
+
+    fun createReport(removed: List<Declaration>) =
+            DeadCodeEliminationReport(reasons.mapKeys { it.key.displayName }, removed.map { it.displayName })
+}
+
+/**
+ * Collects members of package definitions like:
+ *  Kotlin.defineRootPackage(initializer, { foo: Kotlin.definePackage(initializer, { bar: function() {} }) })
+ */
+private class DeclarationCollector(private val libraryPath: String? = null) : JsVisitorWithContextImpl() {
+    val declarations = arrayListOf<Declaration>()
+
+    override fun visit(x: JsInvocation, ctx: JsContext<*>): Boolean {
+        if (x.isPackageDefinition(DEFINE_ROOT_PACKAGE)) {
+            collectPackageMembers(x, "")
+            return false
+        }
+
+        return super.visit(x, ctx)
+    }
+
+    private fun collectPackageMembers(definition: JsInvocation, prefix: String) {
+        val members = definition.arguments.lastOrNull() as? JsObjectLiteral ?: return
+
+        for (member in members.propertyInitializers) {
+            val label = member.labelExpr as? JsNameRef ?: continue
+            val qualifiedName = prefix + label.ident
+            val value = member.valueExpr
+
+            if (value is JsInvocation && value.isPackageDefinition(DEFINE_PACKAGE)) {
+                collectPackageMembers(value, qualifiedName + ".")
+            }
+            else {
+                declarations.add(Declaration(qualifiedName, label.name, label.ident, member, members, libraryPath))
+            }
+        }
+    }
+
+    private fun JsInvocation.isPackageDefinition(methodName: String): Boolean {
+        val qualifier = qualifier as? JsNameRef ?: return false
+        val receiver = qualifier.qualifier as? JsNameRef ?: return false
+        return qualifier.ident == methodName && receiver.ident == Namer.KOTLIN_NAME
+    }
+}
+
+/**
+ * Collects references, skipping given property initializers.
+ * References without resolved name are collected by identifier, so they keep every declaration with such identifier.
+ */
+private class RootReferenceCollector(private val skipped: Set<JsPropertyInitializer>) : JsVisitorWithContextImpl() {
+    val names = IdentitySet<JsName>()
+    val unresolvedIdents = hashSetOf<String>()
+
+    override fun visit(x: JsPropertyInitializer, ctx: JsContext<*>): Boolean {
+        if (x in skipped) return false
+
+        // label is not a reference
+        accept(x.valueExpr)
+        return false
+    }
+
+    override fun endVisit(x: JsNameRef, ctx: JsContext<*>) {
+        val name = x.name
+        if (name != null) {
+            names.add(name)
+        }
+        else {
+            unresolvedIdents.add(x.ident)
+        }
+    }
+}
@@ -225,6 +225,10 @@ public abstract class BasicTest extends KotlinTestWithEnvironment {
         return false;
     }
 
+    protected boolean shouldEliminateDeadCode() {
+        return false;
+    }
+
     protected void processJsProgram(@NotNull JsProgram program, @NotNull List<KtFile> jetFiles) throws Exception {
         for (KtFile file : jetFiles) {
             String text = file.getText();
@@ -315,6 +319,8 @@ public abstract class BasicTest extends KotlinTestWithEnvironment {
                 .inlineEnabled(IS_INLINE_ENABLED)
                 .isUnitTestConfig(shouldBeTranslateAsUnitTestClass())
                 .metaInfo(shouldGenerateMetaInfo())
+                .deadCodeElimination(shouldEliminateDeadCode())
+                .entryPoints(Collections.singletonList(TEST_PACKAGE + "." + TEST_FUNCTION))
                 .build();
     }
 
@@ -24,6 +24,7 @@ import org.jetbrains.kotlin.js.translate.expression.InlineMetadata;
 import java.util.*;
 
 import static org.jetbrains.kotlin.js.inline.util.CollectUtilsKt.collectInstances;
+import static org.jetbrains.kotlin.js.inline.util.CollectUtilsKt.collectJsProperties;
 import static org.jetbrains.kotlin.test.InTextDirectivesUtils.findLinesWithPrefixesRemoved;
 import static org.junit.Assert.*;
 
@@ -160,6 +161,13 @@ public class DirectiveTestUtils {
         }
     };
 
+    private static final DirectiveHandler NOT_DECLARED = new DirectiveHandler("CHECK_NOT_DECLARED") {
+        @Override
+        void processEntry(@NotNull JsNode ast, @NotNull ArgumentsHelper arguments) throws Exception {
+            checkNotDeclared(ast, arguments.getFirst());
+        }
+    };
+
     private static final List<DirectiveHandler> DIRECTIVE_HANDLERS = Arrays.asList(
             FUNCTION_CONTAINS_NO_CALLS,
             FUNCTION_NOT_CALLED,
@@ -170,7 +178,8 @@ public class DirectiveTestUtils {
             COUNT_VARS,
             COUNT_BREAKS,
             HAS_INLINE_METADATA,
-            HAS_NO_INLINE_METADATA
+            HAS_NO_INLINE_METADATA,
+            NOT_DECLARED
     );
 
     public static void processDirectives(@NotNull JsNode ast, @NotNull String sourceCode) throws Exception {
@@ -196,6 +205,12 @@ public class DirectiveTestUtils {
         assertEquals(errorMessage, 0, functionCalledCount);
     }
 
+    public static void checkNotDeclared(@NotNull JsNode node, @NotNull String name) throws Exception {
+        for (JsName declaredName : collectJsProperties(node).keySet()) {
+            assertFalse("`" + name + "` is declared", declaredName.getIdent().equals(name));
+        }
+    }
+
     public static void checkCalledInScope(
             @NotNull JsNode node,
             @NotNull String functionName,
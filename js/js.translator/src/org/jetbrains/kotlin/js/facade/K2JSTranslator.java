@@ -16,22 +16,34 @@
 
 package org.jetbrains.kotlin.js.facade;
 
+import com.google.dart.compiler.backend.js.ast.JsName;
 import com.google.dart.compiler.backend.js.ast.JsProgram;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.progress.ProgressIndicatorAndCompilationCanceledStatus;
+import org.jetbrains.kotlin.descriptors.DeclarationDescriptor;
+import org.jetbrains.kotlin.descriptors.DeclarationDescriptorWithVisibility;
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
 import org.jetbrains.kotlin.js.analyze.TopDownAnalyzerFacadeForJS;
 import org.jetbrains.kotlin.js.analyzer.JsAnalysisResult;
 import org.jetbrains.kotlin.js.config.Config;
+import org.jetbrains.kotlin.js.config.LibrarySourcesConfig;
 import org.jetbrains.kotlin.js.facade.exceptions.TranslationException;
 import org.jetbrains.kotlin.js.inline.JsInliner;
+import org.jetbrains.kotlin.js.inline.clean.DeadCodeEliminationReport;
+import org.jetbrains.kotlin.js.inline.clean.LibraryDeadCodeElimination;
+import org.jetbrains.kotlin.js.inline.clean.LibraryJsFile;
+import org.jetbrains.kotlin.js.inline.clean.RemoveUnreachableDeclarationsKt;
 import org.jetbrains.kotlin.js.translate.context.TranslationContext;
 import org.jetbrains.kotlin.js.translate.general.Translation;
+import org.jetbrains.kotlin.js.translate.utils.BindingUtils;
+import org.jetbrains.kotlin.psi.KtDeclaration;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.kotlin.resolve.BindingTrace;
 import org.jetbrains.kotlin.resolve.diagnostics.Diagnostics;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.jetbrains.kotlin.diagnostics.DiagnosticUtils.hasError;
@@ -86,6 +98,43 @@ public final class K2JSTranslator {
 
         expandIsCalls(program, context);
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled();
-        return new TranslationResult.Success(config, files, program, diagnostics, moduleDescriptor);
+
+        DeadCodeEliminationReport deadCodeEliminationReport = null;
+        List<LibraryJsFile> libraryFiles = Collections.emptyList();
+        if (config.isDeadCodeElimination()) {
+            // a module with metadata is a library, so other modules can use all its public declarations
+            List<JsName> exportedNames = config.isMetaInfo() || config.isKjsm()
+                                         ? collectPublicDeclarationNames(files, context)
+                                         : Collections.<JsName>emptyList();
+            deadCodeEliminationReport =
+                    RemoveUnreachableDeclarationsKt.removeUnreachableDeclarations(program, config.getEntryPoints(), exportedNames);
+            ProgressIndicatorAndCompilationCanceledStatus.checkCanceled();
+
+            // what is left of the module is the root for its libraries
+            List<LibraryJsFile> libraries = RemoveUnreachableDeclarationsKt.readLibraryJsFiles(((LibrarySourcesConfig) config).getLibraries());
+            LibraryDeadCodeElimination libraryElimination =
+                    RemoveUnreachableDeclarationsKt.removeUnreachableLibraryDeclarations(program, libraries, config.getEntryPoints());
+            deadCodeEliminationReport = deadCodeEliminationReport.plus(libraryElimination.getReport());
+            libraryFiles = libraryElimination.getFiles();
+            ProgressIndicatorAndCompilationCanceledStatus.checkCanceled();
+        }
+
+        return new TranslationResult.Success(config, files, program, diagnostics, moduleDescriptor, deadCodeEliminationReport,
+                                             libraryFiles);
+    }
+
+    @NotNull
+    private static List<JsName> collectPublicDeclarationNames(@NotNull List<KtFile> files, @NotNull TranslationContext context) {
+        List<JsName> result = new ArrayList<JsName>();
+        for (KtFile file : files) {
+            for (KtDeclaration declaration : file.getDeclarations()) {
+                DeclarationDescriptor descriptor = BindingUtils.getDescriptorForElement(context.bindingContext(), declaration);
+                if (descriptor instanceof DeclarationDescriptorWithVisibility &&
+                    ((DeclarationDescriptorWithVisibility) descriptor).getVisibility().isPublicAPI()) {
+                    result.add(context.getNameForDescriptor(descriptor));
+                }
+            }
+        }
+        return result;
     }
 }
@@ -24,6 +24,8 @@ import com.intellij.openapi.vfs.VfsUtilCore
 import org.jetbrains.kotlin.backend.common.output.*
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor
 import org.jetbrains.kotlin.js.config.Config
+import org.jetbrains.kotlin.js.inline.clean.DeadCodeEliminationReport
+import org.jetbrains.kotlin.js.inline.clean.LibraryJsFile
 import org.jetbrains.kotlin.js.sourceMap.JsSourceGenerationVisitor
 import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
 import org.jetbrains.kotlin.js.sourceMap.SourceMapBuilder
@@ -35,6 +37,9 @@ import org.jetbrains.kotlin.utils.fileUtils.readTextOrEmpty
 import java.io.File
 import java.util.ArrayList
 
+private val DEAD_CODE_ELIMINATION_REPORT_SUFFIX = ".dce.txt"
+private val DEAD_CODE_ELIMINATION_LIBRARIES_SUFFIX = ".dce"
+
 abstract class TranslationResult protected constructor(val diagnostics: Diagnostics) {
 
     class Fail(diagnostics: Diagnostics) : TranslationResult(diagnostics)
@@ -44,7 +49,9 @@ abstract class TranslationResult protected constructor(val diagnostics: Diagnost
             private val files: List<KtFile>,
             val program: JsProgram,
             diagnostics: Diagnostics,
-            private val moduleDescriptor: ModuleDescriptor
+            private val moduleDescriptor: ModuleDescriptor,
+            val deadCodeEliminationReport: DeadCodeEliminationReport?,
+            private val libraryFiles: List<LibraryJsFile>
     ) : TranslationResult(diagnostics) {
         fun getCode(): String = getCode(TextOutputImpl(), sourceMapBuilder = null)
 
@@ -85,6 +92,17 @@ abstract class TranslationResult protected constructor(val diagnostics: Diagnost
                 }
             }
 
+            if (deadCodeEliminationReport != null) {
+                val reportFileName = outputFile.nameWithoutExtension + DEAD_CODE_ELIMINATION_REPORT_SUFFIX
+                outputFiles.add(SimpleOutputFile(sourceFiles, reportFileName, deadCodeEliminationReport.render()))
+            }
+
+            // pruned copies of library files, e.g. out.dce/kotlin.js, are deployed instead of original ones
+            val librariesDirName = outputFile.nameWithoutExtension + DEAD_CODE_ELIMINATION_LIBRARIES_SUFFIX
+            for (libraryFile in libraryFiles) {
+                outputFiles.add(SimpleOutputFile(sourceFiles, librariesDirName + VfsUtilCore.VFS_SEPARATOR_CHAR + libraryFile.path, libraryFile.content))
+            }
+
             if (sourceMapBuilder != null) {
                 sourceMapBuilder.skipLinesAtBeginning(StringUtil.getLineBreakCount(prefix))
                 val sourceMapFile = SimpleOutputFile(sourceFiles, sourceMapBuilder.outFile.name, sourceMapBuilder.build())
@@ -0,0 +1,25 @@
+package foo
+
+// CHECK_NOT_DECLARED: UnusedBase
+// CHECK_NOT_DECLARED: UnusedDerived
+
+open class Base {
+    open fun f() = "O"
+}
+
+class Derived : Base() {
+    override fun f() = super.f() + "K"
+}
+
+enum class Result {
+    OK
+}
+
+open class UnusedBase
+
+class UnusedDerived : UnusedBase()
+
+fun box(): String {
+    val result = Derived().f()
+    return if (result == Result.OK.name) result else "fail: $result"
+}
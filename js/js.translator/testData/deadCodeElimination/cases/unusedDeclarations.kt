@@ -0,0 +1,23 @@
+package foo
+
+// CHECK_NOT_DECLARED: unusedFunction
+// CHECK_NOT_DECLARED: usedOnlyByUnused
+// CHECK_NOT_DECLARED: UnusedClass
+// CHECK_NOT_DECLARED: inlinedEverywhere
+
+fun unusedFunction() = usedOnlyByUnused()
+
+fun usedOnlyByUnused() = 1
+
+class UnusedClass
+
+inline fun inlinedEverywhere(x: Int) = x * 2
+
+class UsedClass(val value: String)
+
+fun usedFunction(): String = UsedClass("O").value + listOf("K").first()
+
+fun box(): String {
+    if (inlinedEverywhere(21) != 42) return "fail"
+    return usedFunction()
+}
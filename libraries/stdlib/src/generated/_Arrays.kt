@@ -10856,6 +10856,24 @@ public fun ShortArray.joinToString(separator: String = ", ", prefix: String = ""
     return joinTo(StringBuilder(), separator, prefix, postfix, limit, truncated, transform).toString()
 }
 
+/**
+ * Creates an [DoubleSequence] instance that wraps the original array returning its elements without boxing when being iterated.
+ */
+internal fun DoubleArray.asDoubleSequence(): DoubleSequence {
+    return object : DoubleSequence {
+        override fun iterator(): DoubleIterator = this@asDoubleSequence.iterator()
+    }
+}
+
+/**
+ * Creates an [IntSequence] instance that wraps the original array returning its elements without boxing when being iterated.
+ */
+internal fun IntArray.asIntSequence(): IntSequence {
+    return object : IntSequence {
+        override fun iterator(): IntIterator = this@asIntSequence.iterator()
+    }
+}
+
 /**
  * Creates an [Iterable] instance that wraps the original array returning its elements when being iterated.
  */
@@ -10946,6 +10964,15 @@ public fun ShortArray.asIterable(): Iterable<Short> {
     }
 }
 
+/**
+ * Creates an [LongSequence] instance that wraps the original array returning its elements without boxing when being iterated.
+ */
+internal fun LongArray.asLongSequence(): LongSequence {
+    return object : LongSequence {
+        override fun iterator(): LongIterator = this@asLongSequence.iterator()
+    }
+}
+
 /**
  * Creates a [Sequence] instance that wraps the original array returning its elements when being iterated.
  */
@@ -0,0 +1,180 @@
+@file:kotlin.jvm.JvmMultifileClass
+@file:kotlin.jvm.JvmName("SequencesKt")
+
+package kotlin.sequences
+
+//
+// NOTE THIS FILE IS AUTO-GENERATED by the GenerateStandardLib.kt
+// See: https://github.com/JetBrains/kotlin/tree/master/libraries/stdlib
+//
+
+import java.util.*
+
+/**
+ * A sequence that returns the values from the underlying [sequence] that either match or do not match
+ * the specified [predicate].
+ *
+ * @param sendWhen If `true`, values for which the predicate returns `true` are returned. Otherwise,
+ * values for which the predicate returns `false` are returned
+ */
+internal class FilteringDoubleSequence(private val sequence: DoubleSequence, private val sendWhen: Boolean, private val predicate: DoublePredicate) : DoubleSequence {
+    override fun iterator(): DoubleIterator = object : DoubleIterator() {
+        val iterator = sequence.iterator()
+        var nextState: Int = -1 // -1 for unknown, 0 for done, 1 for continue
+        var nextItem: Double = 0.0
+
+        private fun calcNext() {
+            while (iterator.hasNext()) {
+                val item = iterator.nextDouble()
+                if (predicate.test(item) == sendWhen) {
+                    nextItem = item
+                    nextState = 1
+                    return
+                }
+            }
+            nextState = 0
+        }
+
+        override fun nextDouble(): Double {
+            if (nextState == -1)
+                calcNext()
+            if (nextState == 0)
+                throw NoSuchElementException()
+            nextState = -1
+            return nextItem
+        }
+
+        override fun hasNext(): Boolean {
+            if (nextState == -1)
+                calcNext()
+            return nextState == 1
+        }
+    }
+}
+
+/**
+ * A sequence which returns the results of applying the given [transformer] to the values
+ * in the underlying [sequence].
+ */
+internal class TransformingDoubleSequence(private val sequence: DoubleSequence, private val transformer: DoubleTransform) : DoubleSequence {
+    override fun iterator(): DoubleIterator = object : DoubleIterator() {
+        val iterator = sequence.iterator()
+
+        override fun nextDouble(): Double = transformer.apply(iterator.nextDouble())
+
+        override fun hasNext(): Boolean = iterator.hasNext()
+    }
+}
+
+/**
+ * A sequence that returns the values from the underlying [sequence] that either match or do not match
+ * the specified [predicate].
+ *
+ * @param sendWhen If `true`, values for which the predicate returns `true` are returned. Otherwise,
+ * values for which the predicate returns `false` are returned
+ */
+internal class FilteringIntSequence(private val sequence: IntSequence, private val sendWhen: Boolean, private val predicate: IntPredicate) : IntSequence {
+    override fun iterator(): IntIterator = object : IntIterator() {
+        val iterator = sequence.iterator()
+        var nextState: Int = -1 // -1 for unknown, 0 for done, 1 for continue
+        var nextItem: Int = 0
+
+        private fun calcNext() {
+            while (iterator.hasNext()) {
+                val item = iterator.nextInt()
+                if (predicate.test(item) == sendWhen) {
+                    nextItem = item
+                    nextState = 1
+                    return
+                }
+            }
+            nextState = 0
+        }
+
+        override fun nextInt(): Int {
+            if (nextState == -1)
+                calcNext()
+            if (nextState == 0)
+                throw NoSuchElementException()
+            nextState = -1
+            return nextItem
+        }
+
+        override fun hasNext(): Boolean {
+            if (nextState == -1)
+                calcNext()
+            return nextState == 1
+        }
+    }
+}
+
+/**
+ * A sequence which returns the results of applying the given [transformer] to the values
+ * in the underlying [sequence].
+ */
+internal class TransformingIntSequence(private val sequence: IntSequence, private val transformer: IntTransform) : IntSequence {
+    override fun iterator(): IntIterator = object : IntIterator() {
+        val iterator = sequence.iterator()
+
+        override fun nextInt(): Int = transformer.apply(iterator.nextInt())
+
+        override fun hasNext(): Boolean = iterator.hasNext()
+    }
+}
+
+/**
+ * A sequence that returns the values from the underlying [sequence] that either match or do not match
+ * the specified [predicate].
+ *
+ * @param sendWhen If `true`, values for which the predicate returns `true` are returned. Otherwise,
+ * values for which the predicate returns `false` are returned
+ */
+internal class FilteringLongSequence(private val sequence: LongSequence, private val sendWhen: Boolean, private val predicate: LongPredicate) : LongSequence {
+    override fun iterator(): LongIterator = object : LongIterator() {
+        val iterator = sequence.iterator()
+        var nextState: Int = -1 // -1 for unknown, 0 for done, 1 for continue
+        var nextItem: Long = 0L
+
+        private fun calcNext() {
+            while (iterator.hasNext()) {
+                val item = iterator.nextLong()
+                if (predicate.test(item) == sendWhen) {
+                    nextItem = item
+                    nextState = 1
+                    return
+                }
+            }
+            nextState = 0
+        }
+
+        override fun nextLong(): Long {
+            if (nextState == -1)
+                calcNext()
+            if (nextState == 0)
+                throw NoSuchElementException()
+            nextState = -1
+            return nextItem
+        }
+
+        override fun hasNext(): Boolean {
+            if (nextState == -1)
+                calcNext()
+            return nextState == 1
+        }
+    }
+}
+
+/**
+ * A sequence which returns the results of applying the given [transformer] to the values
+ * in the underlying [sequence].
+ */
+internal class TransformingLongSequence(private val sequence: LongSequence, private val transformer: LongTransform) : LongSequence {
+    override fun iterator(): LongIterator = object : LongIterator() {
+        val iterator = sequence.iterator()
+
+        override fun nextLong(): Long = transformer.apply(iterator.nextLong())
+
+        override fun hasNext(): Boolean = iterator.hasNext()
+    }
+}
+
@@ -12,6 +12,24 @@ import java.util.*
 
 import java.util.Collections // TODO: it's temporary while we have java.util.Collections in js
 
+/**
+ * Creates an [IntSequence] instance that wraps the original collection returning its elements without boxing when being iterated.
+ */
+internal fun IntProgression.asIntSequence(): IntSequence {
+    return object : IntSequence {
+        override fun iterator(): IntIterator = this@asIntSequence.iterator()
+    }
+}
+
+/**
+ * Creates an [LongSequence] instance that wraps the original collection returning its elements without boxing when being iterated.
+ */
+internal fun LongProgression.asLongSequence(): LongSequence {
+    return object : LongSequence {
+        override fun iterator(): LongIterator = this@asLongSequence.iterator()
+    }
+}
+
 @Deprecated("Provided for binary compatibility", level = DeprecationLevel.HIDDEN)
 @[kotlin.jvm.JvmName("downTo") kotlin.jvm.JvmVersion]
 public fun Byte.`-downTo`(to: Byte): ByteProgression {
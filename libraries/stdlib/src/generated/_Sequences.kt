@@ -365,6 +365,54 @@ public fun <T> Sequence<T>.filter(predicate: (T) -> Boolean): Sequence<T> {
     return FilteringSequence(this, true, predicate)
 }
 
+/**
+ * Returns a sequence containing only elements matching the given [predicate].
+ */
+internal inline fun DoubleSequence.filter(crossinline predicate: (Double) -> Boolean): DoubleSequence {
+    return filter(object : DoublePredicate {
+        override fun test(value: Double): Boolean = predicate(value)
+    })
+}
+
+/**
+ * Returns a sequence containing only elements matching the given [predicate].
+ */
+internal inline fun IntSequence.filter(crossinline predicate: (Int) -> Boolean): IntSequence {
+    return filter(object : IntPredicate {
+        override fun test(value: Int): Boolean = predicate(value)
+    })
+}
+
+/**
+ * Returns a sequence containing only elements matching the given [predicate].
+ */
+internal inline fun LongSequence.filter(crossinline predicate: (Long) -> Boolean): LongSequence {
+    return filter(object : LongPredicate {
+        override fun test(value: Long): Boolean = predicate(value)
+    })
+}
+
+/**
+ * Returns a sequence containing only elements matching the given [predicate].
+ */
+internal fun DoubleSequence.filter(predicate: DoublePredicate): DoubleSequence {
+    return FilteringDoubleSequence(this, true, predicate)
+}
+
+/**
+ * Returns a sequence containing only elements matching the given [predicate].
+ */
+internal fun IntSequence.filter(predicate: IntPredicate): IntSequence {
+    return FilteringIntSequence(this, true, predicate)
+}
+
+/**
+ * Returns a sequence containing only elements matching the given [predicate].
+ */
+internal fun LongSequence.filter(predicate: LongPredicate): LongSequence {
+    return FilteringLongSequence(this, true, predicate)
+}
+
 /**
  * Returns a sequence containing only elements matching the given [predicate].
  */
@@ -390,6 +438,54 @@ public fun <T> Sequence<T>.filterNot(predicate: (T) -> Boolean): Sequence<T> {
     return FilteringSequence(this, false, predicate)
 }
 
+/**
+ * Returns a sequence containing all elements not matching the given [predicate].
+ */
+internal inline fun DoubleSequence.filterNot(crossinline predicate: (Double) -> Boolean): DoubleSequence {
+    return filterNot(object : DoublePredicate {
+        override fun test(value: Double): Boolean = predicate(value)
+    })
+}
+
+/**
+ * Returns a sequence containing all elements not matching the given [predicate].
+ */
+internal inline fun IntSequence.filterNot(crossinline predicate: (Int) -> Boolean): IntSequence {
+    return filterNot(object : IntPredicate {
+        override fun test(value: Int): Boolean = predicate(value)
+    })
+}
+
+/**
+ * Returns a sequence containing all elements not matching the given [predicate].
+ */
+internal inline fun LongSequence.filterNot(crossinline predicate: (Long) -> Boolean): LongSequence {
+    return filterNot(object : LongPredicate {
+        override fun test(value: Long): Boolean = predicate(value)
+    })
+}
+
+/**
+ * Returns a sequence containing all elements not matching the given [predicate].
+ */
+internal fun DoubleSequence.filterNot(predicate: DoublePredicate): DoubleSequence {
+    return FilteringDoubleSequence(this, false, predicate)
+}
+
+/**
+ * Returns a sequence containing all elements not matching the given [predicate].
+ */
+internal fun IntSequence.filterNot(predicate: IntPredicate): IntSequence {
+    return FilteringIntSequence(this, false, predicate)
+}
+
+/**
+ * Returns a sequence containing all elements not matching the given [predicate].
+ */
+internal fun LongSequence.filterNot(predicate: LongPredicate): LongSequence {
+    return FilteringLongSequence(this, false, predicate)
+}
+
 /**
  * Returns a sequence containing all elements that are not `null`.
  */
@@ -483,6 +579,48 @@ public fun <T> Sequence<T>.sortedWith(comparator: Comparator<in T>): Sequence<T>
     }
 }
 
+/**
+ * Returns an array of Double containing all of the elements of this sequence.
+ */
+internal fun DoubleSequence.toDoubleArray(): DoubleArray {
+    var result = DoubleArray(10)
+    var size = 0
+    for (element in this) {
+        if (size == result.size)
+            result = result.copyOf(size * 2)
+        result[size++] = element
+    }
+    return if (size == result.size) result else result.copyOf(size)
+}
+
+/**
+ * Returns an array of Int containing all of the elements of this sequence.
+ */
+internal fun IntSequence.toIntArray(): IntArray {
+    var result = IntArray(10)
+    var size = 0
+    for (element in this) {
+        if (size == result.size)
+            result = result.copyOf(size * 2)
+        result[size++] = element
+    }
+    return if (size == result.size) result else result.copyOf(size)
+}
+
+/**
+ * Returns an array of Long containing all of the elements of this sequence.
+ */
+internal fun LongSequence.toLongArray(): LongArray {
+    var result = LongArray(10)
+    var size = 0
+    for (element in this) {
+        if (size == result.size)
+            result = result.copyOf(size * 2)
+        result[size++] = element
+    }
+    return if (size == result.size) result else result.copyOf(size)
+}
+
 /**
  * Returns an [ArrayList] of all elements.
  */
@@ -634,6 +772,36 @@ public inline fun <T, K> Sequence<T>.groupByTo(map: MutableMap<K, MutableList<T>
     return map
 }
 
+/**
+ * Returns a sequence containing the results of applying the given [transform] function
+ * to each element in the original sequence.
+ */
+internal inline fun DoubleSequence.map(crossinline transform: (Double) -> Double): DoubleSequence {
+    return map(object : DoubleTransform {
+        override fun apply(value: Double): Double = transform(value)
+    })
+}
+
+/**
+ * Returns a sequence containing the results of applying the given [transform] function
+ * to each element in the original sequence.
+ */
+internal inline fun IntSequence.map(crossinline transform: (Int) -> Int): IntSequence {
+    return map(object : IntTransform {
+        override fun apply(value: Int): Int = transform(value)
+    })
+}
+
+/**
+ * Returns a sequence containing the results of applying the given [transform] function
+ * to each element in the original sequence.
+ */
+internal inline fun LongSequence.map(crossinline transform: (Long) -> Long): LongSequence {
+    return map(object : LongTransform {
+        override fun apply(value: Long): Long = transform(value)
+    })
+}
+
 /**
  * Returns a sequence containing the results of applying the given [transform] function
  * to each element in the original sequence.
@@ -642,6 +810,30 @@ public fun <T, R> Sequence<T>.map(transform: (T) -> R): Sequence<R> {
     return TransformingSequence(this, transform)
 }
 
+/**
+ * Returns a sequence containing the results of applying the given [transform]
+ * to each element in the original sequence.
+ */
+internal fun DoubleSequence.map(transform: DoubleTransform): DoubleSequence {
+    return TransformingDoubleSequence(this, transform)
+}
+
+/**
+ * Returns a sequence containing the results of applying the given [transform]
+ * to each element in the original sequence.
+ */
+internal fun IntSequence.map(transform: IntTransform): IntSequence {
+    return TransformingIntSequence(this, transform)
+}
+
+/**
+ * Returns a sequence containing the results of applying the given [transform]
+ * to each element in the original sequence.
+ */
+internal fun LongSequence.map(transform: LongTransform): LongSequence {
+    return TransformingLongSequence(this, transform)
+}
+
 /**
  * Returns a sequence containing the results of applying the given [transform] function
  * to each element and its index in the original sequence.
@@ -771,6 +963,33 @@ public fun <T> Sequence<T>.count(): Int {
     return count
 }
 
+/**
+ * Returns the number of elements in this sequence.
+ */
+internal fun DoubleSequence.count(): Int {
+    var count = 0
+    for (element in this) count++
+    return count
+}
+
+/**
+ * Returns the number of elements in this sequence.
+ */
+internal fun IntSequence.count(): Int {
+    var count = 0
+    for (element in this) count++
+    return count
+}
+
+/**
+ * Returns the number of elements in this sequence.
+ */
+internal fun LongSequence.count(): Int {
+    var count = 0
+    for (element in this) count++
+    return count
+}
+
 /**
  * Returns the number of elements matching the given [predicate].
  */
@@ -780,6 +999,33 @@ public inline fun <T> Sequence<T>.count(predicate: (T) -> Boolean): Int {
     return count
 }
 
+/**
+ * Returns the number of elements matching the given [predicate].
+ */
+internal inline fun DoubleSequence.count(predicate: (Double) -> Boolean): Int {
+    var count = 0
+    for (element in this) if (predicate(element)) count++
+    return count
+}
+
+/**
+ * Returns the number of elements matching the given [predicate].
+ */
+internal inline fun IntSequence.count(predicate: (Int) -> Boolean): Int {
+    var count = 0
+    for (element in this) if (predicate(element)) count++
+    return count
+}
+
+/**
+ * Returns the number of elements matching the given [predicate].
+ */
+internal inline fun LongSequence.count(predicate: (Long) -> Boolean): Int {
+    var count = 0
+    for (element in this) if (predicate(element)) count++
+    return count
+}
+
 /**
  * Accumulates value starting with [initial] value and applying [operation] from left to right to current accumulator value and each element.
  */
@@ -789,6 +1035,33 @@ public inline fun <T, R> Sequence<T>.fold(initial: R, operation: (R, T) -> R): R
     return accumulator
 }
 
+/**
+ * Accumulates value starting with [initial] value and applying [operation] from left to right to current accumulator value and each element.
+ */
+internal inline fun <R> DoubleSequence.fold(initial: R, operation: (R, Double) -> R): R {
+    var accumulator = initial
+    for (element in this) accumulator = operation(accumulator, element)
+    return accumulator
+}
+
+/**
+ * Accumulates value starting with [initial] value and applying [operation] from left to right to current accumulator value and each element.
+ */
+internal inline fun <R> IntSequence.fold(initial: R, operation: (R, Int) -> R): R {
+    var accumulator = initial
+    for (element in this) accumulator = operation(accumulator, element)
+    return accumulator
+}
+
+/**
+ * Accumulates value starting with [initial] value and applying [operation] from left to right to current accumulator value and each element.
+ */
+internal inline fun <R> LongSequence.fold(initial: R, operation: (R, Long) -> R): R {
+    var accumulator = initial
+    for (element in this) accumulator = operation(accumulator, element)
+    return accumulator
+}
+
 /**
  * Performs the given [action] on each element.
  */
@@ -796,6 +1069,27 @@ public inline fun <T> Sequence<T>.forEach(action: (T) -> Unit): Unit {
     for (element in this) action(element)
 }
 
+/**
+ * Performs the given [action] on each element.
+ */
+internal inline fun DoubleSequence.forEach(action: (Double) -> Unit): Unit {
+    for (element in this) action(element)
+}
+
+/**
+ * Performs the given [action] on each element.
+ */
+internal inline fun IntSequence.forEach(action: (Int) -> Unit): Unit {
+    for (element in this) action(element)
+}
+
+/**
+ * Performs the given [action] on each element.
+ */
+internal inline fun LongSequence.forEach(action: (Long) -> Unit): Unit {
+    for (element in this) action(element)
+}
+
 /**
  * Performs the given [action] on each element, providing sequential index with the element.
  */
@@ -1125,6 +1419,36 @@ public fun <T> Sequence<T>.joinToString(separator: String = ", ", prefix: String
     return joinTo(StringBuilder(), separator, prefix, postfix, limit, truncated, transform).toString()
 }
 
+/**
+ * Creates an [DoubleSequence] instance that wraps the original sequence, its elements are not boxed once more if its iterator is an [DoubleIterator].
+ */
+internal fun Sequence<Double>.asDoubleSequence(): DoubleSequence {
+    return object : DoubleSequence {
+        override fun iterator(): DoubleIterator {
+            val iterator = this@asDoubleSequence.iterator()
+            return iterator as? DoubleIterator ?: object : DoubleIterator() {
+                override fun nextDouble(): Double = iterator.next()
+                override fun hasNext(): Boolean = iterator.hasNext()
+            }
+        }
+    }
+}
+
+/**
+ * Creates an [IntSequence] instance that wraps the original sequence, its elements are not boxed once more if its iterator is an [IntIterator].
+ */
+internal fun Sequence<Int>.asIntSequence(): IntSequence {
+    return object : IntSequence {
+        override fun iterator(): IntIterator {
+            val iterator = this@asIntSequence.iterator()
+            return iterator as? IntIterator ?: object : IntIterator() {
+                override fun nextInt(): Int = iterator.next()
+                override fun hasNext(): Boolean = iterator.hasNext()
+            }
+        }
+    }
+}
+
 /**
  * Creates an [Iterable] instance that wraps the original sequence returning its elements when being iterated.
  */
@@ -1134,6 +1458,21 @@ public fun <T> Sequence<T>.asIterable(): Iterable<T> {
     }
 }
 
+/**
+ * Creates an [LongSequence] instance that wraps the original sequence, its elements are not boxed once more if its iterator is an [LongIterator].
+ */
+internal fun Sequence<Long>.asLongSequence(): LongSequence {
+    return object : LongSequence {
+        override fun iterator(): LongIterator {
+            val iterator = this@asLongSequence.iterator()
+            return iterator as? LongIterator ?: object : LongIterator() {
+                override fun nextLong(): Long = iterator.next()
+                override fun hasNext(): Boolean = iterator.hasNext()
+            }
+        }
+    }
+}
+
 /**
  * Returns this sequence as a [Sequence].
  */
@@ -1195,6 +1534,14 @@ public fun Sequence<Byte>.average(): Double {
  */
 @kotlin.jvm.JvmName("averageOfDouble")
 public fun Sequence<Double>.average(): Double {
+    return asDoubleSequence().average()
+}
+
+/**
+ * Returns an average value of elements in the sequence.
+ */
+@kotlin.jvm.JvmName("averageOfFloat")
+public fun Sequence<Float>.average(): Double {
     val iterator = iterator()
     var sum: Double = 0.0
     var count: Int = 0
@@ -1208,8 +1555,24 @@ public fun Sequence<Double>.average(): Double {
 /**
  * Returns an average value of elements in the sequence.
  */
-@kotlin.jvm.JvmName("averageOfFloat")
-public fun Sequence<Float>.average(): Double {
+@kotlin.jvm.JvmName("averageOfInt")
+public fun Sequence<Int>.average(): Double {
+    return asIntSequence().average()
+}
+
+/**
+ * Returns an average value of elements in the sequence.
+ */
+@kotlin.jvm.JvmName("averageOfLong")
+public fun Sequence<Long>.average(): Double {
+    return asLongSequence().average()
+}
+
+/**
+ * Returns an average value of elements in the sequence.
+ */
+@kotlin.jvm.JvmName("averageOfShort")
+public fun Sequence<Short>.average(): Double {
     val iterator = iterator()
     var sum: Double = 0.0
     var count: Int = 0
@@ -1223,13 +1586,12 @@ public fun Sequence<Float>.average(): Double {
 /**
  * Returns an average value of elements in the sequence.
  */
-@kotlin.jvm.JvmName("averageOfInt")
-public fun Sequence<Int>.average(): Double {
+internal fun DoubleSequence.average(): Double {
     val iterator = iterator()
     var sum: Double = 0.0
     var count: Int = 0
     while (iterator.hasNext()) {
-        sum += iterator.next()
+        sum += iterator.nextDouble()
         count += 1
     }
     return if (count == 0) 0.0 else sum / count
@@ -1238,13 +1600,12 @@ public fun Sequence<Int>.average(): Double {
 /**
  * Returns an average value of elements in the sequence.
  */
-@kotlin.jvm.JvmName("averageOfLong")
-public fun Sequence<Long>.average(): Double {
+internal fun IntSequence.average(): Double {
     val iterator = iterator()
     var sum: Double = 0.0
     var count: Int = 0
     while (iterator.hasNext()) {
-        sum += iterator.next()
+        sum += iterator.nextInt()
         count += 1
     }
     return if (count == 0) 0.0 else sum / count
@@ -1253,13 +1614,12 @@ public fun Sequence<Long>.average(): Double {
 /**
  * Returns an average value of elements in the sequence.
  */
-@kotlin.jvm.JvmName("averageOfShort")
-public fun Sequence<Short>.average(): Double {
+internal fun LongSequence.average(): Double {
     val iterator = iterator()
     var sum: Double = 0.0
     var count: Int = 0
     while (iterator.hasNext()) {
-        sum += iterator.next()
+        sum += iterator.nextLong()
         count += 1
     }
     return if (count == 0) 0.0 else sum / count
@@ -1283,12 +1643,7 @@ public fun Sequence<Byte>.sum(): Int {
  */
 @kotlin.jvm.JvmName("sumOfDouble")
 public fun Sequence<Double>.sum(): Double {
-    val iterator = iterator()
-    var sum: Double = 0.0
-    while (iterator.hasNext()) {
-        sum += iterator.next()
-    }
-    return sum
+    return asDoubleSequence().sum()
 }
 
 /**
@@ -1309,6 +1664,22 @@ public fun Sequence<Float>.sum(): Float {
  */
 @kotlin.jvm.JvmName("sumOfInt")
 public fun Sequence<Int>.sum(): Int {
+    return asIntSequence().sum()
+}
+
+/**
+ * Returns the sum of all elements in the sequence.
+ */
+@kotlin.jvm.JvmName("sumOfLong")
+public fun Sequence<Long>.sum(): Long {
+    return asLongSequence().sum()
+}
+
+/**
+ * Returns the sum of all elements in the sequence.
+ */
+@kotlin.jvm.JvmName("sumOfShort")
+public fun Sequence<Short>.sum(): Int {
     val iterator = iterator()
     var sum: Int = 0
     while (iterator.hasNext()) {
@@ -1320,12 +1691,11 @@ public fun Sequence<Int>.sum(): Int {
 /**
  * Returns the sum of all elements in the sequence.
  */
-@kotlin.jvm.JvmName("sumOfLong")
-public fun Sequence<Long>.sum(): Long {
+internal fun DoubleSequence.sum(): Double {
     val iterator = iterator()
-    var sum: Long = 0L
+    var sum: Double = 0.0
     while (iterator.hasNext()) {
-        sum += iterator.next()
+        sum += iterator.nextDouble()
     }
     return sum
 }
@@ -1333,12 +1703,23 @@ public fun Sequence<Long>.sum(): Long {
 /**
  * Returns the sum of all elements in the sequence.
  */
-@kotlin.jvm.JvmName("sumOfShort")
-public fun Sequence<Short>.sum(): Int {
+internal fun IntSequence.sum(): Int {
     val iterator = iterator()
     var sum: Int = 0
     while (iterator.hasNext()) {
-        sum += iterator.next()
+        sum += iterator.nextInt()
+    }
+    return sum
+}
+
+/**
+ * Returns the sum of all elements in the sequence.
+ */
+internal fun LongSequence.sum(): Long {
+    val iterator = iterator()
+    var sum: Long = 0L
+    while (iterator.hasNext()) {
+        sum += iterator.nextLong()
     }
     return sum
 }
@@ -12,3 +12,43 @@ public interface Sequence<out T> {
      */
     public operator fun iterator(): Iterator<T>
 }
+
+// Sequences of primitive values and functions over them which are iterated and called without boxing.
+// They are not a part of the public API: operations on Sequence<Int>, Sequence<Long> and Sequence<Double> use them
+// when the iterator of a sequence is a primitive one.
+
+internal interface IntSequence {
+    operator fun iterator(): IntIterator
+}
+
+internal interface LongSequence {
+    operator fun iterator(): LongIterator
+}
+
+internal interface DoubleSequence {
+    operator fun iterator(): DoubleIterator
+}
+
+internal interface IntPredicate {
+    fun test(value: Int): Boolean
+}
+
+internal interface IntTransform {
+    fun apply(value: Int): Int
+}
+
+internal interface LongPredicate {
+    fun test(value: Long): Boolean
+}
+
+internal interface LongTransform {
+    fun apply(value: Long): Long
+}
+
+internal interface DoublePredicate {
+    fun test(value: Double): Boolean
+}
+
+internal interface DoubleTransform {
+    fun apply(value: Double): Double
+}
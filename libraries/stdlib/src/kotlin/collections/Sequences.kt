@@ -87,42 +87,97 @@ public fun <T, R> Sequence<Pair<T, R>>.unzip(): Pair<List<T>, List<R>> {
 internal class FilteringSequence<T>(private val sequence: Sequence<T>,
                                   private val sendWhen: Boolean = true,
                                   private val predicate: (T) -> Boolean
-                                 ) : Sequence<T> {
+                                 ) : FusibleSequence<T>() {
 
-    override fun iterator(): Iterator<T> = object : Iterator<T> {
-        val iterator = sequence.iterator();
-        var nextState: Int = -1 // -1 for unknown, 0 for done, 1 for continue
-        var nextItem: T? = null
-
-        private fun calcNext() {
-            while (iterator.hasNext()) {
-                val item = iterator.next()
-                if (predicate(item) == sendWhen) {
-                    nextItem = item
-                    nextState = 1
-                    return
+    override fun connect(downstream: FusedSink<T>): FusedSource<*> =
+            connect(sequence, object : FusedSink<T> {
+                override fun accept(value: T) {
+                    if (predicate(value) == sendWhen) downstream.accept(value)
                 }
-            }
-            nextState = 0
-        }
+            })
+}
 
-        override fun next(): T {
-            if (nextState == -1)
-                calcNext()
-            if (nextState == 0)
-                throw NoSuchElementException()
-            val result = nextItem
-            nextItem = null
-            nextState = -1
-            return result as T
+/**
+ * Receives the values passed through the stages of a [FusibleSequence].
+ */
+internal interface FusedSink<in T> {
+    fun accept(value: T)
+}
+
+/**
+ * The source of a [FusedIterator]: passes the values of the source sequence to the first stage.
+ */
+internal class FusedSource<S>(private val iterator: Iterator<S>, private val sink: FusedSink<S>) {
+    /**
+     * Passes the next value of the source sequence downstream, returns `false` if the source sequence has no more values.
+     */
+    fun pushNext(): Boolean {
+        if (!iterator.hasNext()) return false
+        sink.accept(iterator.next())
+        return true
+    }
+}
+
+/**
+ * A sequence that is a stage of a chain of filters.
+ *
+ * When the underlying sequence is a [FusibleSequence] itself, the stages are connected to each other directly,
+ * so the chain like `filter().filterNot().filter()` is iterated with a single iterator which pushes the values
+ * of the source sequence through all the predicates, instead of an iterator per operation.
+ *
+ * Only filters are fused: they test the values in `hasNext()` anyway, while `map` has to call its transformer
+ * in `next()`, and `take` and `drop` must not request values from their source in `hasNext()`.
+ */
+internal abstract class FusibleSequence<T> : Sequence<T> {
+    /**
+     * Creates the stages of this sequence for one iteration, which pass values to [downstream].
+     */
+    internal abstract fun connect(downstream: FusedSink<T>): FusedSource<*>
+
+    override fun iterator(): Iterator<T> = FusedIterator(this)
+
+    protected fun <S> connect(sequence: Sequence<S>, sink: FusedSink<S>): FusedSource<*> {
+        if (sequence is FusibleSequence<S>) return sequence.connect(sink)
+
+        return FusedSource(sequence.iterator(), sink)
+    }
+}
+
+internal class FusedIterator<T>(sequence: FusibleSequence<T>) : Iterator<T> {
+    private var nextState: Int = -1 // -1 for unknown, 0 for done, 1 for continue
+    private var nextItem: T? = null
+
+    private val source = sequence.connect(object : FusedSink<T> {
+        override fun accept(value: T) {
+            nextItem = value
+            nextState = 1
         }
+    })
 
-        override fun hasNext(): Boolean {
-            if (nextState == -1)
-                calcNext()
-            return nextState == 1
+    private fun calcNext() {
+        nextState = 0
+        while (nextState == 0 && source.pushNext()) {
+            // the values are passed to the sink which changes nextState
         }
     }
+
+    override fun next(): T {
+        if (nextState == -1)
+            calcNext()
+        if (nextState == 0)
+            throw NoSuchElementException()
+        val result = nextItem as T
+        // Clean next to avoid keeping reference on yielded instance
+        nextItem = null
+        nextState = -1
+        return result
+    }
+
+    override fun hasNext(): Boolean {
+        if (nextState == -1)
+            calcNext()
+        return nextState == 1
+    }
 }
 
 /**
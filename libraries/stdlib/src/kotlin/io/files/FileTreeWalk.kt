@@ -5,6 +5,7 @@ package kotlin.io
 
 import java.io.File
 import java.io.IOException
+import java.util.ArrayList
 import java.util.Stack
 import kotlin.support.AbstractIterator
 
@@ -36,6 +37,8 @@ public enum class FileWalkDirection {
  * @param filter is called just before visiting a file, and if `false` is returned, file is not visited.
  * @param maxDepth is maximum walking depth, it must be positive. With a value of 1,
  * walker visits [start] and all its children, with a value of 2 also grandchildren, etc.
+ * @param useNio selects listing directories with `java.nio.file` instead of [File.listFiles].
+ * @param parallelism is the number of threads listing directories ahead of the walk, or zero to list them on demand.
  */
 public class FileTreeWalk private constructor(
         private val start: File,
@@ -45,6 +48,8 @@ public class FileTreeWalk private constructor(
         private val onFail: ((f: File, e: IOException) -> Unit)?,
         private val filter: (File) -> Boolean = { true },
         private val maxDepth: Int = Int.MAX_VALUE,
+        private val useNio: Boolean = false,
+        private val parallelism: Int = 0,
         dummy: Boolean = false
 ) : Sequence<File> {
 
@@ -79,6 +84,9 @@ public class FileTreeWalk private constructor(
     private abstract class WalkState(val root: File) {
         /** Call of this function proceeds to a next file for visiting and returns it */
         abstract public fun step(): File?
+
+        /** Checks whether the [file] just returned by [step] is a directory */
+        open fun isDirectory(file: File): Boolean = file.isDirectory
     }
 
     /** Abstract class that encapsulates directory visiting in some order, beginning from a given [rootDir] */
@@ -88,6 +96,25 @@ public class FileTreeWalk private constructor(
             if (ASSERTIONS_ENABLED)
                 assert(rootDir.isDirectory) { "rootDir must be verified to be directory beforehand." }
         }
+
+        protected var fileList: Array<File>? = null
+
+        protected var fileIndex = 0
+
+        private var directories: BooleanArray? = null
+
+        protected fun setListing(listing: DirectoryListing) {
+            fileList = if (listing.error == null) listing.files else null
+            directories = listing.directories
+        }
+
+        override fun isDirectory(file: File): Boolean {
+            // the listing may already know it, so the file is not queried once more
+            val directories = directories
+            if (directories != null && fileIndex > 0 && fileList!![fileIndex - 1] === file)
+                return directories[fileIndex - 1]
+            return file.isDirectory
+        }
     }
 
     private inner class FileTreeWalkIterator : AbstractIterator<File>() {
@@ -95,6 +122,11 @@ public class FileTreeWalk private constructor(
         // Stack of directory states, beginning from the start directory
         private val state = Stack<WalkState>()
 
+        private val lister: DirectoryLister = run {
+            val lister = if (useNio) NioDirectoryLister else FileDirectoryLister
+            if (parallelism > 0) ParallelDirectoryLister(lister, parallelism) else lister
+        }
+
         init {
             if (start.isDirectory && filter(start)) {
                 state.push(directoryState(start))
@@ -110,8 +142,33 @@ public class FileTreeWalk private constructor(
             val nextFile = gotoNext()
             if (nextFile != null)
                 setNext(nextFile)
-            else
+            else {
+                lister.close()
                 done()
+            }
+        }
+
+        /**
+         * Lists the given [directory], calls [onFail] if it's impossible,
+         * and hints the lister about subdirectories which are going to be entered next.
+         */
+        private fun list(directory: File): DirectoryListing {
+            val listing = lister.list(directory)
+            if (listing.error != null) {
+                onFail?.invoke(directory, listing.error)
+            }
+            else if (state.size < maxDepth) {
+                val directories = listing.directories
+                if (directories != null) {
+                    val subdirectories = ArrayList<File>()
+                    for (index in directories.indices) {
+                        if (directories[index]) subdirectories.add(listing.files[index])
+                    }
+                    if (subdirectories.isNotEmpty())
+                        lister.prefetch(subdirectories)
+                }
+            }
+            return listing
         }
 
 
@@ -137,9 +194,11 @@ public class FileTreeWalk private constructor(
                 return gotoNext()
             } else {
                 // Check that file/directory matches the filter
-                if (!filter(file))
+                if (!filter(file)) {
+                    lister.skip(file)
                     return gotoNext()
-                if (file == topState.root || !file.isDirectory || state.size >= maxDepth) {
+                }
+                if (file == topState.root || !topState.isDirectory(file) || state.size >= maxDepth) {
                     // Proceed to a root directory or a simple file
                     return file
                 } else {
@@ -155,22 +214,18 @@ public class FileTreeWalk private constructor(
 
             private var rootVisited = false
 
-            private var fileList: Array<File>? = null
-
-            private var fileIndex = 0
-
             private var failed = false
 
             /** First all children, then root directory */
             override public fun step(): File? {
                 if (!failed && fileList == null) {
                     if (onEnter?.invoke(root) == false) {
+                        lister.skip(root)
                         return null
                     }
 
-                    fileList = root.listFiles()
+                    setListing(list(root))
                     if (fileList == null) {
-                        onFail?.invoke(root, AccessDeniedException(file = root, reason = "Cannot list files in a directory"))
                         failed = true
                     }
                 }
@@ -194,27 +249,24 @@ public class FileTreeWalk private constructor(
 
             private var rootVisited = false
 
-            private var fileList: Array<File>? = null
-
-            private var fileIndex = 0
+            private var listed = false
 
             /** First root directory, then all children */
             override public fun step(): File? {
                 if (!rootVisited) {
                     // First visit root
                     if (onEnter?.invoke(root) == false) {
+                        lister.skip(root)
                         return null
                     }
 
                     rootVisited = true
                     return root
-                } else if (fileList == null || fileIndex < fileList!!.size) {
-                    if (fileList == null) {
+                } else if (!listed || fileIndex < fileList!!.size) {
+                    if (!listed) {
                         // Then read an array of files, if any
-                        fileList = root.listFiles()
-                        if (fileList == null) {
-                            onFail?.invoke(root, AccessDeniedException(file = root, reason = "Cannot list files in a directory"))
-                        }
+                        listed = true
+                        setListing(list(root))
                         if (fileList == null || fileList!!.size == 0) {
                             onLeave?.invoke(root)
                             return null
@@ -255,7 +307,8 @@ public class FileTreeWalk private constructor(
      * If the [function] returns `false` the directory is not entered, and neither it nor its files are not visited.
      */
     public fun onEnter(function: (File) -> Boolean): FileTreeWalk {
-        return FileTreeWalk(start, direction, onEnter = function, onLeave = onLeave, onFail = onFail, filter = filter, maxDepth = maxDepth)
+        return FileTreeWalk(start, direction, onEnter = function, onLeave = onLeave, onFail = onFail, filter = filter, maxDepth = maxDepth,
+                            useNio = useNio, parallelism = parallelism)
     }
 
     @Deprecated("Use onEnter instead.")
@@ -266,7 +319,7 @@ public class FileTreeWalk private constructor(
      * Leave [function] is called AFTER the corresponding directory and its files are visited.
      */
     public fun onLeave(function: (File) -> Unit): FileTreeWalk {
-        return FileTreeWalk(start, direction, onEnter, function, onFail, filter, maxDepth, false)
+        return FileTreeWalk(start, direction, onEnter, function, onFail, filter, maxDepth, useNio, parallelism)
     }
 
     @Deprecated("Use onLeave instead.", ReplaceWith("onLeave(function)"))
@@ -278,7 +331,7 @@ public class FileTreeWalk private constructor(
      * Enter and leave functions are called even in this case.
      */
     public fun onFail(function: (File, IOException) -> Unit): FileTreeWalk {
-        return FileTreeWalk(start, direction, onEnter, onLeave, function, filter, maxDepth)
+        return FileTreeWalk(start, direction, onEnter, onLeave, function, filter, maxDepth, useNio, parallelism)
     }
 
     @Deprecated("Use onFail instead.", ReplaceWith("onFail(function)"))
@@ -293,7 +346,7 @@ public class FileTreeWalk private constructor(
      */
     @Deprecated("Filter out directories entirely with onEnter, and all items with filter().")
     public fun treeFilter(predicate: (File) -> Boolean): FileTreeWalk {
-        return FileTreeWalk(start, direction, onEnter, onLeave, onFail, predicate, maxDepth)
+        return FileTreeWalk(start, direction, onEnter, onLeave, onFail, predicate, maxDepth, useNio, parallelism)
     }
 
     /**
@@ -303,7 +356,67 @@ public class FileTreeWalk private constructor(
     public fun maxDepth(depth: Int): FileTreeWalk {
         if (depth <= 0)
             throw IllegalArgumentException("Use positive depth value")
-        return FileTreeWalk(start, direction, onEnter, onLeave, onFail, filter, depth)
+        return FileTreeWalk(start, direction, onEnter, onLeave, onFail, filter, depth, useNio, parallelism)
+    }
+
+    /**
+     * Makes the walker list directories with [java.nio.file.DirectoryStream] and take the kind of each visited file
+     * from the attributes read together with the listing, so no file is queried twice.
+     * Failures to list a directory are reported to the fail function with the exception thrown by `java.nio.file`.
+     *
+     * Requires Java 7 or later.
+     */
+    public fun useNio(): FileTreeWalk {
+        return FileTreeWalk(start, direction, onEnter, onLeave, onFail, filter, maxDepth, true, parallelism)
+    }
+
+    /**
+     * Makes the walker list subdirectories of each entered directory ahead of time on a fork-join pool,
+     * at most [parallelism] of them at a time, which pays off when listing is slow, e.g. on network file systems.
+     *
+     * Files are visited in the same order, and enter, leave, fail and filter functions are called on the iterating thread
+     * as in the sequential walk. Subdirectories which are filtered out or not entered are not listed.
+     * The pool is shared by all walks, its threads are daemons and exit when idle,
+     * so the walk doesn't have to be iterated to the end.
+     *
+     * Requires Java 7 or later.
+     */
+    public fun parallel(parallelism: Int = Runtime.getRuntime().availableProcessors()): FileTreeWalk {
+        if (parallelism <= 0)
+            throw IllegalArgumentException("Use positive parallelism value")
+        return FileTreeWalk(start, direction, onEnter, onLeave, onFail, filter, maxDepth, useNio, parallelism)
+    }
+}
+
+/**
+ * Entries of a directory.
+ *
+ * @param files entries of the directory, empty if the directory could not be listed.
+ * @param directories tells which of [files] are directories, or `null` if it's not known yet.
+ * @param error the reason why the directory could not be listed.
+ */
+internal class DirectoryListing(val files: Array<File>, val directories: BooleanArray?, val error: IOException?)
+
+/** Lists directories for [FileTreeWalk]. */
+internal interface DirectoryLister {
+    fun list(directory: File): DirectoryListing
+
+    /** Hints that the given [directories] are going to be listed soon. */
+    fun prefetch(directories: List<File>) {}
+
+    /** Tells that the given [directory] or file is not going to be listed, e.g. it's filtered out or not entered. */
+    fun skip(directory: File) {}
+
+    /** Drops work which is not needed anymore, called when the walk is finished, but not when the iteration is abandoned. */
+    fun close() {}
+}
+
+/** Lists directories with [File.listFiles], the kind of each entry is queried later, when it's visited. */
+internal object FileDirectoryLister : DirectoryLister {
+    override fun list(directory: File): DirectoryListing {
+        val files = directory.listFiles() ?:
+                    return DirectoryListing(arrayOf(), null, AccessDeniedException(file = directory, reason = "Cannot list files in a directory"))
+        return DirectoryListing(files, null, null)
     }
 }
 
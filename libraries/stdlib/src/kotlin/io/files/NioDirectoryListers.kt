@@ -0,0 +1,147 @@
+@file:JvmVersion
+package kotlin.io
+
+import java.io.File
+import java.io.IOException
+import java.nio.file.DirectoryIteratorException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+
+// Classes of this file use Java 7 API, they are loaded only when the walk is configured to use them.
+
+/**
+ * Lists directories with [java.nio.file.DirectoryStream] and reads the kind of each entry right away,
+ * so that it isn't queried once more when the entry is visited.
+ */
+internal object NioDirectoryLister : DirectoryLister {
+    override fun list(directory: File): DirectoryListing {
+        val files = ArrayList<File>()
+        var directories = BooleanArray(16)
+        var error: IOException? = null
+
+        try {
+            Files.newDirectoryStream(directory.toPath()).use { stream ->
+                for (path in stream) {
+                    if (files.size == directories.size)
+                        directories = directories.copyOf(directories.size * 2)
+                    directories[files.size] = isDirectory(path)
+                    files.add(path.toFile())
+                }
+            }
+        }
+        catch (e: IOException) {
+            error = e
+        }
+        catch (e: DirectoryIteratorException) {
+            error = e.cause as IOException
+        }
+
+        if (error != null)
+            return DirectoryListing(arrayOf(), null, error)
+        return DirectoryListing(files.toTypedArray(), directories.copyOf(files.size), null)
+    }
+
+    private fun isDirectory(path: Path): Boolean {
+        try {
+            // symbolic links are followed as File.isDirectory does
+            return Files.readAttributes(path, BasicFileAttributes::class.java).isDirectory
+        }
+        catch (e: IOException) {
+            return false
+        }
+    }
+}
+
+/**
+ * Lists directories with the given [lister] on a fork-join pool ahead of the walk.
+ *
+ * Prefetched listings are taken by [list], directories which were not prefetched are listed in the calling thread.
+ * The kind of entries is always determined by the listing task, so the walk itself doesn't query them.
+ *
+ * At most [parallelism] listings of a walk are pending at a time, other directories wait in the order
+ * they are going to be visited. Directories skipped by the walk are dropped from the queue and their listings are cancelled.
+ * A walk which is not iterated to the end (e.g. `first()` or `take(n)`) leaves at most [parallelism] listings to complete.
+ */
+internal class ParallelDirectoryLister(private val lister: DirectoryLister, private val parallelism: Int) : DirectoryLister {
+    private val pending = HashMap<File, ForkJoinTask<DirectoryListing>>()
+
+    // directories to be prefetched, the ones removed from queuedSet were listed or skipped in the meantime
+    private val queued = ArrayDeque<File>()
+    private val queuedSet = HashSet<File>()
+
+    /** Listings submitted by this lister which were not taken by the walk yet. */
+    val pendingTasks: Collection<ForkJoinTask<DirectoryListing>>
+        get() = pending.values
+
+    override fun list(directory: File): DirectoryListing {
+        val task = pending.remove(directory)
+        queuedSet.remove(directory)
+        submitQueued()
+        return task?.join() ?: listWithDirectories(directory)
+    }
+
+    override fun prefetch(directories: List<File>) {
+        // subdirectories of the directory just listed are visited before the ones queued earlier
+        for (index in directories.indices.reversed()) {
+            val directory = directories[index]
+            if (directory !in pending && queuedSet.add(directory))
+                queued.addFirst(directory)
+        }
+        submitQueued()
+    }
+
+    override fun skip(directory: File) {
+        pending.remove(directory)?.cancel(false)
+        if (queuedSet.remove(directory))
+            submitQueued()
+    }
+
+    override fun close() {
+        // listings of directories skipped by the walk are not needed anymore
+        for (task in pending.values) {
+            task.cancel(false)
+        }
+        pending.clear()
+        queued.clear()
+        queuedSet.clear()
+    }
+
+    private fun submitQueued() {
+        while (pending.size < parallelism) {
+            val directory = queued.pollFirst() ?: return
+            if (queuedSet.remove(directory))
+                pending[directory] = pool.submit(Callable { listWithDirectories(directory) })
+        }
+    }
+
+    private fun listWithDirectories(directory: File): DirectoryListing {
+        val listing = lister.list(directory)
+        if (listing.directories != null || listing.error != null) return listing
+
+        val files = listing.files
+        val directories = BooleanArray(files.size)
+        for (index in files.indices) {
+            directories[index] = files[index].isDirectory
+        }
+        return DirectoryListing(files, directories, null)
+    }
+
+    companion object {
+        /**
+         * Shared by all parallel walks and created by the first one. The pool is never shut down:
+         * its worker threads are daemons and exit when idle, so they don't keep the application running.
+         */
+        private val pool: ForkJoinPool by lazy {
+            ForkJoinPool(Runtime.getRuntime().availableProcessors(), { pool ->
+                val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool)
+                thread.isDaemon = true
+                thread
+            }, null, false)
+        }
+    }
+}
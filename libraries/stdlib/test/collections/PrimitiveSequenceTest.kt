@@ -0,0 +1,38 @@
+package test.collections
+
+import org.junit.Test as test
+import kotlin.test.*
+
+class PrimitiveSequenceTest {
+
+    @test fun sumOfPrimitiveSources() {
+        assertEquals(55, (1..10).asSequence().sum())
+        assertEquals(10, intArrayOf(1, 2, 3, 4).asSequence().sum())
+        assertEquals(10L, longArrayOf(1L, 2L, 3L, 4L).asSequence().sum())
+        assertEquals(10L, (1L..4L).asSequence().sum())
+        assertEquals(4.5, doubleArrayOf(0.5, 1.5, 2.5).asSequence().sum())
+    }
+
+    @test fun averageOfPrimitiveSources() {
+        assertEquals(5.5, (1..10).asSequence().average())
+        assertEquals(2.5, longArrayOf(1L, 2L, 3L, 4L).asSequence().average())
+        assertEquals(1.5, doubleArrayOf(0.5, 1.5, 2.5).asSequence().average())
+    }
+
+    @test fun boxedSources() {
+        // iterators of these sequences return boxed values, they are adapted
+        val sequence = (1..10).asSequence().filter { it % 2 == 0 }.map { it * it }
+        assertEquals(220, sequence.sum())
+        assertEquals(44.0, sequence.average())
+
+        assertEquals(6L, sequenceOf(1L, 2L, 3L).sum())
+        assertEquals(2.0, sequenceOf(1.0, 2.0, 3.0).average())
+    }
+
+    @test fun emptySequences() {
+        assertEquals(0, intArrayOf().asSequence().sum())
+        assertEquals(0.0, intArrayOf().asSequence().average())
+        assertEquals(0L, emptySequence<Long>().sum())
+        assertEquals(0.0, emptySequence<Double>().average())
+    }
+}
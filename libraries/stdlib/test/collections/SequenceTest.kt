@@ -119,6 +119,40 @@ public class SequenceTest {
         assertEquals("2, 3, 5, 8", fibonacci().drop(3).take(4).joinToString())
     }
 
+    @test fun fusedOperations() {
+        assertEquals(listOf("2:3", "3:5", "4:13"),
+                     fibonacci().drop(1).filter { it % 2 == 1 }.mapIndexed { i, v -> "$i:$v" }.drop(2).take(3).toList())
+        assertEquals(listOf(4, 16), sequenceOf(1, 2, 3, 4, 5).filterNot { it % 2 == 1 }.map { it * it }.toList())
+        assertEquals(listOf(5, 7), sequenceOf(1, 2, 3, 4, 5, 6, 7).filter { it % 2 == 1 }.filterNot { it == 3 }.filter { it > 1 }.toList())
+        assertEquals(listOf(1), sequenceOf(1, 2, 3, 4).take(3).filter { it != 3 }.take(1).toList())
+        assertEquals(listOf<Int>(), fibonacci().map { it * 2 }.take(0).toList())
+    }
+
+    @test fun fusedFiltersCanBeIteratedTwice() {
+        val sequence = sequenceOf(1, 2, 3, 4).filter { it > 1 }.filterNot { it == 3 }
+        assertEquals(listOf(2, 4), sequence.toList())
+        assertEquals(listOf(2, 4), sequence.toList())
+    }
+
+    @test fun mapTransformsInNext() {
+        val transformed = arrayListOf<Int>()
+        val iterator = sequenceOf(1, 2, 3).filter { it > 1 }.map { transformed.add(it); it * 10 }.iterator()
+
+        assertTrue(iterator.hasNext())
+        assertTrue(iterator.hasNext())
+        assertEquals(listOf<Int>(), transformed)
+        assertEquals(20, iterator.next())
+        assertEquals(listOf(2), transformed)
+    }
+
+    @test fun takeDoesNotRequestMoreElements() {
+        val visited = arrayListOf<Int>()
+        val sequence = sequenceOf(1, 2, 3, 4, 5).map { visited.add(it); it }.filter { it > 1 }.take(2)
+
+        assertEquals(listOf(2, 3), sequence.toList())
+        assertEquals(listOf(1, 2, 3), visited)
+    }
+
     @test fun dropWhile() {
         assertEquals("233, 377, 610", fibonacci().dropWhile { it < 200 }.take(3).joinToString(limit = 10))
         assertEquals("", sequenceOf(1).dropWhile { it < 200 }.joinToString(limit = 10))
@@ -455,4 +455,101 @@ class FileTreeWalkTest {
         }
     }
 
+    @Test fun nioAndParallelWalksVisitSameFiles() {
+        val basedir = createTestFiles()
+        try {
+            for (direction in FileWalkDirection.values()) {
+                fun FileTreeWalk.names(): List<String> {
+                    val entered = ArrayList<String>()
+                    val left = ArrayList<String>()
+                    val visited = onEnter { entered.add(it.name); it.name != "3" }
+                            .onLeave { left.add(it.name) }
+                            .maxDepth(2)
+                            .map { it.relativeToOrSelf(basedir).invariantSeparatorsPath }
+                            .toList()
+                    assertEquals(entered.filter { it != "3" }.toSet(), left.toSet(), "$direction - every entered directory should be left")
+                    return visited
+                }
+
+                val reference = basedir.walk(direction).names()
+                assertEquals(setOf("", "1", "1/2", "6", "7.txt", "8", "8/9.txt"), reference.toSet(), "$direction")
+                assertEquals(reference, basedir.walk(direction).parallel(2).names(), "$direction - parallel")
+                // java.nio.file may list directory entries in another order
+                assertEquals(reference.sorted(), basedir.walk(direction).useNio().names().sorted(), "$direction - nio")
+                assertEquals(reference.sorted(), basedir.walk(direction).useNio().parallel(2).names().sorted(), "$direction - nio, parallel")
+            }
+        } finally {
+            basedir.deleteRecursively()
+        }
+    }
+
+    @Test fun parallelWalkStoppedEarly() {
+        val basedir = createTestFiles()
+        try {
+            for (i in 1..20) {
+                assertEquals(basedir, basedir.walk().parallel(2).first())
+                assertEquals(3, basedir.walkTopDown().parallel(2).take(3).toList().size)
+            }
+
+            // the walk lists the root and prefetches its subdirectories, then it's abandoned as by take(3)
+            val listingThreads = Collections.synchronizedSet(HashSet<Thread>())
+            val lister = ParallelDirectoryLister(object : DirectoryLister {
+                override fun list(directory: File): DirectoryListing {
+                    listingThreads.add(Thread.currentThread())
+                    return FileDirectoryLister.list(directory)
+                }
+            }, 2)
+            val listing = lister.list(basedir)
+            lister.prefetch(listing.files.indices.filter { listing.directories!![it] }.map { listing.files[it] }.sorted())
+
+            // only its own tasks are left to complete, in the daemon threads of the shared pool
+            val tasks = lister.pendingTasks.toList()
+            assertEquals(2, tasks.size)
+            for (task in tasks) {
+                task.join()
+            }
+            assertTrue(listingThreads.filter { it != Thread.currentThread() }.all { it.isDaemon }, "$listingThreads")
+        } finally {
+            basedir.deleteRecursively()
+        }
+    }
+
+    @Test fun parallelWalkSkipsPrunedSubtrees() {
+        val basedir = createTestFiles()
+        try {
+            val listed = Collections.synchronizedSet(HashSet<String>())
+            fun lister() = ParallelDirectoryLister(object : DirectoryLister {
+                override fun list(directory: File): DirectoryListing {
+                    listed.add(directory.name)
+                    return FileDirectoryLister.list(directory)
+                }
+            }, 1)
+
+            // "1" is pending, "6" and "8" wait in the queue
+            val lister = lister()
+            lister.prefetch(listOf("1", "6", "8").map { basedir.resolve(it) })
+            assertEquals(1, lister.pendingTasks.size)
+            val first = lister.pendingTasks.single()
+
+            lister.skip(basedir.resolve("6"))
+            lister.skip(basedir.resolve("1"))
+            assertTrue(first.isDone, "listing of a skipped directory is cancelled or completed")
+            assertEquals(1, lister.pendingTasks.size)
+            lister.pendingTasks.single().join()
+            assertTrue("6" !in listed, "$listed")
+            assertTrue("8" in listed, "$listed")
+            lister.close()
+
+            // walks with filter and onEnter don't list the directories they prune
+            listed.clear()
+            val names = basedir.walkTopDown().parallel(1)
+                    .onEnter { it.name != "1" }
+                    .filter { it.name != "8" }
+                    .map { File(it.relativeTo(basedir)).invariantSeparatorsPath }.toList()
+            assertEquals(listOf("", "6", "7.txt"), names.sorted())
+        } finally {
+            basedir.deleteRecursively()
+        }
+    }
+
 }
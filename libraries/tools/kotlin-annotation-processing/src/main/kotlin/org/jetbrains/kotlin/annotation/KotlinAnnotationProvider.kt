@@ -16,10 +16,8 @@
 
 package org.jetbrains.kotlin.annotation
 
-import java.io.File
-import java.io.Reader
-import java.io.StringReader
-import javax.tools.FileObject
+import org.jetbrains.kotlin.annotation.AnnotationIndex.ClassName
+import java.io.*
 
 public abstract class KotlinAnnotationProvider {
 
@@ -48,7 +46,48 @@ public abstract class KotlinAnnotationProvider {
 
     protected abstract val serializedAnnotations: Reader
 
+    /**
+     * The binary annotation index, or null if the annotations are serialized as text in [serializedAnnotations].
+     */
+    protected open val serializedIndex: InputStream?
+        get() = null
+
     private fun readAnnotations(): MutableMap<String, MutableSet<AnnotatedElementDescriptor>> {
+        val annotatedKotlinElements: MutableMap<String, MutableSet<AnnotatedElementDescriptor>> = hashMapOf()
+
+        val index = serializedIndex
+        if (index != null) {
+            readIndex(DataInputStream(index), annotatedKotlinElements)
+        }
+        else {
+            readText(annotatedKotlinElements)
+        }
+
+        return annotatedKotlinElements
+    }
+
+    private fun readIndex(input: DataInputStream, annotatedKotlinElements: MutableMap<String, MutableSet<AnnotatedElementDescriptor>>) {
+        // an index of another version is the same as no index: the Gradle plugin recompiles all sources when it finds one,
+        // so the collector replaces it with an index of the current version
+        val index = input.use { AnnotationIndex.read(input) } ?: return
+
+        fun ClassName.fqName(): String {
+            val name = className.replace('$', '.')
+            return if (packageName.isEmpty()) name else "$packageName.$name"
+        }
+
+        for ((sourcePath, source) in index.sources) {
+            // declarations of deleted sources are kept in the index until the next compilation
+            if (sourcePath.isNotEmpty() && !File(sourcePath).exists()) continue
+
+            source.classes.mapTo(kotlinClassesInternal) { it.fqName() }
+            for (record in source.annotations) {
+                addAnnotatedElement(annotatedKotlinElements, record.type, record.annotationFqName, record.owner.fqName(), record.elementName)
+            }
+        }
+    }
+
+    private fun readText(annotatedKotlinElements: MutableMap<String, MutableSet<AnnotatedElementDescriptor>>) {
         val shortenedAnnotationCache = hashMapOf<String, String>()
         val shortenedPackageNameCache = hashMapOf<String, String>()
 
@@ -63,8 +102,6 @@ public abstract class KotlinAnnotationProvider {
             return shortenedValue + '.' + s.substring(id.length + 1)
         }
 
-        val annotatedKotlinElements: MutableMap<String, MutableSet<AnnotatedElementDescriptor>> = hashMapOf()
-
         serializedAnnotations.useLines { lines ->
             for (line in lines) {
                 if (line.isEmpty()) continue
@@ -84,31 +121,38 @@ public abstract class KotlinAnnotationProvider {
                         val classFqName = expandClassName(lineParts[2]).replace('$', '.')
                         val elementName = if (lineParts.size == 4) lineParts[3] else null
 
-                        val set = annotatedKotlinElements.getOrPut(annotationName) { hashSetOf() }
-                        set.add(when (type) {
-                            ANNOTATED_CLASS -> AnnotatedClassDescriptor(classFqName)
-                            ANNOTATED_FIELD -> {
-                                val name = elementName ?: throw AssertionError("Name for field must be provided")
-                                AnnotatedFieldDescriptor(classFqName, name)
-                            }
-                            ANNOTATED_METHOD -> {
-                                val name = elementName ?: throw AssertionError("Name for method must be provided")
-
-                                if ("<init>" == name)
-                                    AnnotatedConstructorDescriptor(classFqName)
-                                else
-                                    AnnotatedMethodDescriptor(classFqName, name)
-                            }
-                            else -> throw AssertionError("Unknown type: $type")
-                        })
-
+                        addAnnotatedElement(annotatedKotlinElements, type, annotationName, classFqName, elementName)
                     }
                     else -> throw AssertionError("Unknown type: $type")
                 }
             }
         }
+    }
 
-        return annotatedKotlinElements
+    private fun addAnnotatedElement(
+            annotatedKotlinElements: MutableMap<String, MutableSet<AnnotatedElementDescriptor>>,
+            type: String,
+            annotationName: String,
+            classFqName: String,
+            elementName: String?
+    ) {
+        val set = annotatedKotlinElements.getOrPut(annotationName) { hashSetOf() }
+        set.add(when (type) {
+            ANNOTATED_CLASS -> AnnotatedClassDescriptor(classFqName)
+            ANNOTATED_FIELD -> {
+                val name = elementName ?: throw AssertionError("Name for field must be provided")
+                AnnotatedFieldDescriptor(classFqName, name)
+            }
+            ANNOTATED_METHOD -> {
+                val name = elementName ?: throw AssertionError("Name for method must be provided")
+
+                if ("<init>" == name)
+                    AnnotatedConstructorDescriptor(classFqName)
+                else
+                    AnnotatedMethodDescriptor(classFqName, name)
+            }
+            else -> throw AssertionError("Unknown type: $type")
+        })
     }
 
     private fun handleShortenedName(cache: MutableMap<String, String>, lineParts: List<String>) {
@@ -122,8 +166,16 @@ public abstract class KotlinAnnotationProvider {
 public class FileKotlinAnnotationProvider(val annotationsFile: File): KotlinAnnotationProvider() {
     override val serializedAnnotations: Reader
         get() = annotationsFile.reader().buffered()
+
+    override val serializedIndex: InputStream?
+        get() {
+            val input = annotationsFile.inputStream().buffered()
+            if (AnnotationIndex.isIndex(input)) return input
+            input.close()
+            return null
+        }
 }
 
 public class EmptyKotlinAnnotationsProvider : KotlinAnnotationProvider() {
     override val serializedAnnotations = StringReader("")
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package org.jetbrains.kotlin.annotation
 
 import org.junit.Assert
 import org.junit.Test
+import java.io.DataOutputStream
 import java.io.File
 import org.junit.Assert.*
 import java.io.IOException
@@ -57,6 +58,66 @@ public class AnnotationListParseTest {
         assertTrue(annotationsFile.getAbsolutePath() + " does not exist.", annotationsFile.exists())
 
         val annotationProvider = FileKotlinAnnotationProvider(annotationsFile)
+        assertEqualsToFile(expectedFile, render(annotationProvider))
+    }
+
+    @Test
+    fun testIndex() {
+        val tmpDir = createTempDir()
+        try {
+            val existingSource = File(tmpDir, "a.kt")
+            existingSource.writeText("")
+            val deletedSource = File(tmpDir, "b.kt")
+
+            val index = AnnotationIndex()
+            with (index.getOrCreate(existingSource.path)) {
+                classes.add(AnnotationIndex.ClassName("p", "A\$Nested"))
+                annotations.add(AnnotationIndex.AnnotationRecord("m", "p.Ann", AnnotationIndex.ClassName("p", "A\$Nested"), "<init>"))
+                annotations.add(AnnotationIndex.AnnotationRecord("f", "p.Ann", AnnotationIndex.ClassName("p", "A\$Nested"), "x"))
+            }
+            with (index.getOrCreate(deletedSource.path)) {
+                classes.add(AnnotationIndex.ClassName("p", "B"))
+                annotations.add(AnnotationIndex.AnnotationRecord("c", "p.Ann", AnnotationIndex.ClassName("p", "B"), null))
+            }
+            with (index.getOrCreate(null)) {
+                classes.add(AnnotationIndex.ClassName("", "C"))
+                annotations.add(AnnotationIndex.AnnotationRecord("c", "Ann", AnnotationIndex.ClassName("", "C"), null))
+            }
+
+            val indexFile = File(tmpDir, "annotations.idx")
+            index.write(indexFile)
+
+            // declarations of the deleted source are skipped
+            assertEquals(
+                    listOf("Ann C", "p.Ann p.A.Nested <init>", "p.Ann p.A.Nested x", "C", "p.A.Nested").joinToString("\n"),
+                    render(FileKotlinAnnotationProvider(indexFile)))
+        }
+        finally {
+            tmpDir.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun testIndexOfOtherVersion() {
+        val indexFile = createTempFile(suffix = ".idx")
+        try {
+            DataOutputStream(indexFile.outputStream()).use {
+                it.writeInt(AnnotationIndex.MAGIC)
+                it.writeInt(AnnotationIndex.VERSION + 1)
+                it.writeInt(0)
+            }
+
+            // an index of another version is treated as no index, not as a text file
+            val annotationProvider = FileKotlinAnnotationProvider(indexFile)
+            assertEquals("", render(annotationProvider))
+            assertFalse(annotationProvider.supportInheritedAnnotations)
+        }
+        finally {
+            indexFile.delete()
+        }
+    }
+
+    private fun render(annotationProvider: KotlinAnnotationProvider): String {
         val parsedAnnotations = annotationProvider.annotatedKotlinElements
 
         val actualAnnotations = StringBuilder()
@@ -77,8 +138,7 @@ public class AnnotationListParseTest {
         val actualAnnotationsSorted = actualAnnotations.toString().lines().filter { it.isNotEmpty() }.sorted()
         val classDeclarationsSorted = annotationProvider.kotlinClasses.sorted()
 
-        val fileContents = (actualAnnotationsSorted + classDeclarationsSorted).joinToString("\n")
-        assertEqualsToFile(expectedFile, fileContents)
+        return (actualAnnotationsSorted + classDeclarationsSorted).joinToString("\n")
     }
 
     // KotlinTestUtils.assertEqualsToFile() is not reachable from here
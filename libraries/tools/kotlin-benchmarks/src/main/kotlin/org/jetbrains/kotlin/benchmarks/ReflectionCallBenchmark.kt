@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+import kotlin.reflect.KFunction2
+import kotlin.reflect.KMutableProperty1
+import kotlin.reflect.KProperty1
+
+class Point(var x: Int, val name: String) {
+    fun shift(dx: Int): Int = x + dx
+}
+
+/**
+ * Compares calls through kotlin-reflect with direct calls.
+ * Reflective calls are measured twice: with the default callers based on java.lang.reflect,
+ * and with the callers based on method handles, see [ReflectionCallMethodHandleBenchmark].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+open class ReflectionCallBenchmark {
+    private val point = Point(42, "point")
+
+    private val x: KMutableProperty1<Point, Int> = Point::x
+    private val name: KProperty1<Point, String> = Point::name
+    private val shift: KFunction2<Point, Int, Int> = Point::shift
+
+    @Benchmark
+    fun directGet(): String = point.name
+
+    @Benchmark
+    fun reflectGet(): String = name.get(point)
+
+    @Benchmark
+    fun directSet() {
+        point.x = 42
+    }
+
+    @Benchmark
+    fun reflectSet() {
+        x.set(point, 42)
+    }
+
+    @Benchmark
+    fun directCall(): Int = point.shift(1)
+
+    @Benchmark
+    fun reflectCall(): Int = shift.call(point, 1)
+}
+
+@Fork(value = 2, jvmArgsAppend = arrayOf("-Dkotlin.reflect.jvm.useMethodHandles=true"))
+open class ReflectionCallMethodHandleBenchmark : ReflectionCallBenchmark()
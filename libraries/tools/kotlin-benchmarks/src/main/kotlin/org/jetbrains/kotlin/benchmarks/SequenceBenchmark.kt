@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares chains of sequence operations with hand-written loops doing the same work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+open class SequenceBenchmark {
+    @Param("10", "1000", "100000")
+    var size: Int = 0
+
+    private var data: List<String> = emptyList()
+
+    @Setup
+    fun setup() {
+        data = (0..size - 1).map { "value$it" }
+    }
+
+    @Benchmark
+    fun filterMapTakeSequence(bh: Blackhole) {
+        for (item in data.asSequence().filter { it.length % 2 == 0 }.map { it.length }.take(size / 2)) {
+            bh.consume(item)
+        }
+    }
+
+    @Benchmark
+    fun filterMapTakeLoop(bh: Blackhole) {
+        var taken = 0
+        for (item in data) {
+            if (taken == size / 2) break
+            if (item.length % 2 == 0) {
+                bh.consume(item.length)
+                taken++
+            }
+        }
+    }
+
+    @Benchmark
+    fun dropMapIndexedFilterSequence(bh: Blackhole) {
+        for (item in data.asSequence().drop(1).mapIndexed { i, s -> i + s.length }.filter { it % 3 != 0 }) {
+            bh.consume(item)
+        }
+    }
+
+    @Benchmark
+    fun dropMapIndexedFilterLoop(bh: Blackhole) {
+        for (i in 1..data.size - 1) {
+            val value = (i - 1) + data[i].length
+            if (value % 3 != 0) {
+                bh.consume(value)
+            }
+        }
+    }
+
+    @Benchmark
+    fun mapMapSumSequence(): Int = data.asSequence().map { it.length }.map { it * 2 }.fold(0) { acc, it -> acc + it }
+
+    @Benchmark
+    fun mapMapSumLoop(): Int {
+        var sum = 0
+        for (item in data) {
+            sum += item.length * 2
+        }
+        return sum
+    }
+}
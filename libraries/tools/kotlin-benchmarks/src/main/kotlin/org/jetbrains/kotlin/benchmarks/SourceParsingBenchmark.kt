@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.util.Disposer
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.psi.PsiManager
+import com.intellij.psi.SingleRootFileViewProvider
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.CommonConfigurationKeys
+import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.lexer.KotlinTokensCache
+import org.jetbrains.kotlin.psi.KtFile
+import org.openjdk.jmh.annotations.*
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Parses an unchanged source file the way each compilation of the compile daemon does: a new [KtFile] is created for the file on disk.
+ * With the tokens cache, the file is lexed once and its tokens are replayed by the following parses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+open class SourceParsingBenchmark {
+    @Param("false", "true")
+    var tokensCache: Boolean = false
+
+    @Param("100", "1000")
+    var classes: Int = 0
+
+    private lateinit var disposable: Disposable
+    private lateinit var source: File
+    private lateinit var psiManager: PsiManager
+    private lateinit var virtualFile: VirtualFile
+
+    @Setup
+    fun setup() {
+        source = createTempFile(suffix = ".kt")
+        source.writeText((1..classes).joinToString("\n\n", "package test\n\n") { i ->
+            """
+            /** Class number $i */
+            class C$i(val x: Int, private val name: String = "c$i") : Comparable<C$i> {
+                override fun compareTo(other: C$i): Int = x - other.x
+
+                fun describe(values: List<Int>): String {
+                    val sum = values.filter { it > $i }.map { it * 2 }.sum()
+                    return "${'$'}name: ${'$'}{x + sum}" // comment
+                }
+            }
+            """.trimIndent()
+        })
+
+        val configuration = CompilerConfiguration()
+        if (tokensCache) {
+            configuration.put(CommonConfigurationKeys.TOKENS_CACHE, KotlinTokensCache(Long.MAX_VALUE))
+        }
+
+        disposable = Disposer.newDisposable()
+        val environment = KotlinCoreEnvironment.createForProduction(disposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+        psiManager = PsiManager.getInstance(environment.project)
+        virtualFile = VirtualFileManager.getInstance().getFileSystem(StandardFileSystems.FILE_PROTOCOL).findFileByPath(source.path)!!
+    }
+
+    @TearDown
+    fun tearDown() {
+        Disposer.dispose(disposable)
+        source.delete()
+    }
+
+    @Benchmark
+    fun parse(): Int {
+        val file = KtFile(SingleRootFileViewProvider(psiManager, virtualFile), false)
+        return file.declarations.size
+    }
+}
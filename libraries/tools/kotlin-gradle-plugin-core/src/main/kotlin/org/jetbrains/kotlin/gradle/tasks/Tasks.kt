@@ -14,17 +14,34 @@ import org.gradle.api.plugins.ExtraPropertiesExtension
 import org.gradle.api.tasks.SourceTask
 import org.gradle.api.tasks.TaskAction
 import org.gradle.api.tasks.compile.AbstractCompile
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.jetbrains.kotlin.annotation.AnnotationIndex
 import org.jetbrains.kotlin.cli.common.CLICompiler
 import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.common.arguments.ArgumentUtils
 import org.jetbrains.kotlin.cli.common.arguments.CommonCompilerArguments
 import org.jetbrains.kotlin.cli.common.arguments.K2JSCompilerArguments
 import org.jetbrains.kotlin.cli.common.arguments.K2JVMCompilerArguments
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.cli.common.messages.OutputMessageUtil
 import org.jetbrains.kotlin.cli.js.K2JSCompiler
 import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
 import org.jetbrains.kotlin.config.Services
+import org.jetbrains.kotlin.daemon.client.BuildToolsDaemonClient
+import org.jetbrains.kotlin.daemon.common.CompileService
+import org.jetbrains.kotlin.daemon.common.isDaemonEnabled
+import org.jetbrains.kotlin.gradle.tasks.incremental.ClassChange
+import org.jetbrains.kotlin.gradle.tasks.incremental.ClassInfo
+import org.jetbrains.kotlin.gradle.tasks.incremental.GradleIncrementalCache
+import org.jetbrains.kotlin.gradle.tasks.incremental.classChanges
+import org.jetbrains.kotlin.gradle.tasks.incremental.javaClassChanges
+import org.jetbrains.kotlin.gradle.tasks.incremental.mergeModuleMappings
+import org.jetbrains.kotlin.gradle.tasks.incremental.pruneModuleMappings
+import org.jetbrains.kotlin.gradle.tasks.incremental.readModuleMappings
+import org.jetbrains.kotlin.load.kotlin.ModuleMapping
+import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
 import org.jetbrains.kotlin.utils.LibraryUtils
 import java.io.File
 import java.util.*
@@ -33,6 +50,8 @@ val DEFAULT_ANNOTATIONS = "org.jebrains.kotlin.gradle.defaultAnnotations"
 
 val ANNOTATIONS_PLUGIN_NAME = "org.jetbrains.kotlin.kapt"
 
+val INCREMENTAL_PROPERTY = "kotlin.incremental"
+
 abstract class AbstractKotlinCompile<T : CommonCompilerArguments>() : AbstractCompile() {
     abstract protected val compiler: CLICompiler<T>
     abstract protected fun createBlankArgs(): T
@@ -46,8 +65,17 @@ abstract class AbstractKotlinCompile<T : CommonCompilerArguments>() : AbstractCo
     private val logger = Logging.getLogger(this.javaClass)
     override fun getLogger() = logger
 
-    @TaskAction
+    // Not a task action itself: the incremental action below replaces the one of AbstractCompile, the same way JavaCompile does
     override fun compile() {
+        doCompile(null)
+    }
+
+    @TaskAction
+    fun compile(inputs: IncrementalTaskInputs) {
+        doCompile(inputs)
+    }
+
+    private fun doCompile(inputs: IncrementalTaskInputs?) {
         getLogger().debug("Starting ${javaClass} task")
         val args = createBlankArgs()
         val sources = getKotlinSources()
@@ -58,13 +86,17 @@ abstract class AbstractKotlinCompile<T : CommonCompilerArguments>() : AbstractCo
 
         populateCommonArgs(args, sources)
         populateTargetSpecificArgs(args)
-        callCompiler(args)
+        compileSources(args, sources, inputs)
         afterCompileHook(args)
     }
 
+    open protected fun compileSources(args: T, sources: List<File>, inputs: IncrementalTaskInputs?) {
+        callCompiler(args)
+    }
+
     private fun getKotlinSources(): List<File> = (getSource() as Iterable<File>).filter { it.isKotlinFile() }
 
-    private fun File.isKotlinFile(): Boolean {
+    protected fun File.isKotlinFile(): Boolean {
         return when (FilenameUtils.getExtension(getName()).toLowerCase()) {
             "kt", "kts" -> true
             else -> false
@@ -79,10 +111,13 @@ abstract class AbstractKotlinCompile<T : CommonCompilerArguments>() : AbstractCo
         args.noInline = kotlinOptions.noInline
     }
 
-    private fun callCompiler(args: T) {
-        val messageCollector = GradleMessageCollector(getLogger())
+    protected fun callCompiler(
+            args: T,
+            services: Services = Services.EMPTY,
+            messageCollector: MessageCollector = GradleMessageCollector(getLogger())
+    ) {
         getLogger().debug("Calling compiler")
-        val exitCode = compiler.exec(messageCollector, Services.EMPTY, args)
+        val exitCode = compileWithDaemon(args, services, messageCollector) ?: compiler.exec(messageCollector, services, args)
 
         when (exitCode) {
             ExitCode.COMPILATION_ERROR -> throw GradleException("Compilation error. See log for more details")
@@ -90,6 +125,16 @@ abstract class AbstractKotlinCompile<T : CommonCompilerArguments>() : AbstractCo
         }
     }
 
+    // The daemon reports messages without locations, so compilations which need the output of the compiler stay in-process
+    private fun compileWithDaemon(args: T, services: Services, messageCollector: MessageCollector): ExitCode? {
+        if (!isDaemonEnabled() || services != Services.EMPTY) return null
+
+        getLogger().debug("Trying to compile with the compile daemon")
+        val platform = if (compiler is K2JSCompiler) CompileService.TargetPlatform.JS else CompileService.TargetPlatform.JVM
+        val argsArray = ArgumentUtils.convertArgumentsToStringList(args).toTypedArray()
+        return BuildToolsDaemonClient.compile(platform, argsArray, messageCollector)
+    }
+
 }
 
 
@@ -100,6 +145,18 @@ public open class KotlinCompile() : AbstractKotlinCompile<K2JVMCompilerArguments
     // Should be SourceDirectorySet or File
     val srcDirsSources = HashSet<Any>()
 
+    /**
+     * When set, only changed sources and sources affected by ABI changes of the recompiled classes are compiled.
+     * Can also be turned on for all Kotlin tasks of a project with the `kotlin.incremental` project property.
+     */
+    public var incremental: Boolean = false
+
+    private val isIncrementalEnabled: Boolean
+        get() = incremental || (project.hasProperty(INCREMENTAL_PROPERTY) && project.property(INCREMENTAL_PROPERTY).toString().toBoolean())
+
+    private val incrementalCacheDir: File
+        get() = File(project.buildDir, "kotlin/$name")
+
     private val testsMap = mapOf(
             "compileTestKotlin" to  "compileKotlin",
             "compileDebugUnitTestKotlin" to  "compileDebugKotlin",
@@ -166,7 +223,7 @@ public open class KotlinCompile() : AbstractKotlinCompile<K2JVMCompilerArguments
     private fun handleKaptProperties(extraProperties: ExtraPropertiesExtension, pluginOptions: MutableList<String>) {
         val kaptAnnotationsFile = extraProperties.getOrNull<File>("kaptAnnotationsFile")
         if (kaptAnnotationsFile != null) {
-            if (kaptAnnotationsFile.exists()) kaptAnnotationsFile.delete()
+            // the collector updates declarations of the compiled sources only, the index is removed before non-incremental builds
             pluginOptions.add("plugin:$ANNOTATIONS_PLUGIN_NAME:output=" + kaptAnnotationsFile)
         }
 
@@ -181,6 +238,189 @@ public open class KotlinCompile() : AbstractKotlinCompile<K2JVMCompilerArguments
         }
     }
 
+    override fun compileSources(args: K2JVMCompilerArguments, sources: List<File>, inputs: IncrementalTaskInputs?) {
+        if (inputs == null || !isIncrementalEnabled) {
+            removeKaptAnnotationsFile()
+            callCompiler(args)
+            return
+        }
+
+        val outputDir = File(args.destination!!)
+        val cache = GradleIncrementalCache(incrementalCacheDir)
+        // kapt stubs of all sources are generated at once, so every source has to be compiled
+        val isKaptStubsEnabled = extensions.extraProperties.getOrNull<File>("kaptStubsDir") != null
+        // the collector only updates an index of the current version, a missing or outdated one is rebuilt from all sources
+        val kaptAnnotationsFile = extensions.extraProperties.getOrNull<File>("kaptAnnotationsFile")
+        val isKaptIndexOutdated = kaptAnnotationsFile != null && !AnnotationIndex.isCurrentIndex(kaptAnnotationsFile)
+        val changes = if (inputs.isIncremental && !isKaptStubsEnabled && !isKaptIndexOutdated && cache.load()) findChanges(inputs, cache) else null
+
+        try {
+            if (changes == null || !compileIncrementally(args, sources, changes, cache, outputDir)) {
+                getLogger().kotlinDebug("non-incremental compilation of ${sources.size} files")
+                rebuild(args, sources, cache, outputDir)
+            }
+            cache.save()
+        }
+        catch (e: Throwable) {
+            // outputs may be partially updated, next build has to start from scratch
+            cache.clean()
+            throw e
+        }
+        finally {
+            cache.close()
+        }
+    }
+
+    private class SourceChanges(val modifiedKotlin: Set<File>, val removedKotlin: Set<File>, val javaChanges: List<ClassChange>)
+
+    /**
+     * Returns null if changes can't be handled incrementally, e.g. when the classpath is changed.
+     */
+    private fun findChanges(inputs: IncrementalTaskInputs, cache: GradleIncrementalCache): SourceChanges? {
+        val modified = arrayListOf<File>()
+        val removed = arrayListOf<File>()
+        inputs.outOfDate { modified.add(it.file.canonicalFile) }
+        inputs.removed { removed.add(it.file.canonicalFile) }
+
+        val changedJavaFiles = arrayListOf<File>()
+        for (file in modified + removed) {
+            when {
+                file.isKotlinFile() -> {
+                    // parts of multifile classes are compiled to a single facade which can't be updated partially,
+                    // new parts are found by the headers of the generated classes after compilation
+                    if (cache.isMultifileSource(file)) {
+                        getLogger().kotlinDebug("multifile class part changed: $file")
+                        return null
+                    }
+                }
+                file.isJavaFile() -> changedJavaFiles.add(file)
+                else -> {
+                    getLogger().kotlinDebug("classpath changed: $file")
+                    return null
+                }
+            }
+        }
+
+        // Java sources are compiled after Kotlin ones, so class files of the previous versions of changed Java files are still there
+        val javaChanges = javaClassChanges(getDestinationDir(), changedJavaFiles.map { it.name }.toSet())
+        for (file in changedJavaFiles) {
+            if (file.name !in javaChanges) {
+                getLogger().kotlinDebug("no classes compiled from java file: $file")
+                return null
+            }
+        }
+
+        return SourceChanges(modified.filter { it.isKotlinFile() }.toSet(), removed.filter { it.isKotlinFile() }.toSet(), javaChanges.values.flatten())
+    }
+
+    private fun rebuild(args: K2JVMCompilerArguments, sources: List<File>, cache: GradleIncrementalCache, outputDir: File) {
+        cache.clean()
+        removeKaptAnnotationsFile()
+        if (outputDir != getDestinationDir()) {
+            outputDir.deleteRecursively()
+        }
+
+        compileAndRegisterOutputs(args, sources, cache, outputDir)
+    }
+
+    /**
+     * Returns false if the sources can't be compiled incrementally, then they have to be rebuilt.
+     */
+    private fun compileIncrementally(
+            args: K2JVMCompilerArguments,
+            sources: List<File>,
+            changes: SourceChanges,
+            cache: GradleIncrementalCache,
+            outputDir: File
+    ): Boolean {
+        // the lookup storage returns canonical paths of files, so all sources are compared by them
+        val allSources = sources.map { it.canonicalFile }.toSet()
+        val compiled = HashSet<File>()
+
+        val removedClasses = changes.removedKotlin.flatMap { removeOutputs(it, cache, outputDir) }
+        var dirty: Set<File> = changes.modifiedKotlin + cache.sourcesAffectedBy(classChanges(removedClasses, emptyList()) + changes.javaChanges)
+
+        while (true) {
+            dirty = dirty.filter { it in allSources && it !in compiled }.toSet()
+            if (dirty.isEmpty()) break
+
+            getLogger().kotlinDebug("incremental compilation of ${dirty.size} files: $dirty")
+            compiled.addAll(dirty)
+
+            val oldClasses = dirty.flatMap { removeOutputs(it, cache, outputDir) }
+            val newClasses = compileAndRegisterOutputs(args, dirty.toList(), cache, outputDir)
+
+            // parts of multifile classes are compiled to a single facade which can't be updated partially
+            if (newClasses.any { it.isMultifile }) {
+                getLogger().kotlinDebug("multifile class part compiled")
+                return false
+            }
+
+            dirty = cache.sourcesAffectedBy(classChanges(oldClasses, newClasses))
+        }
+
+        pruneModuleMappings(outputDir)
+
+        getLogger().kotlinDebug("compiled ${compiled.size} of ${allSources.size} files incrementally")
+        return true
+    }
+
+    private fun removeKaptAnnotationsFile() {
+        extensions.extraProperties.getOrNull<File>("kaptAnnotationsFile")?.delete()
+    }
+
+    private fun removeOutputs(source: File, cache: GradleIncrementalCache, outputDir: File): List<ClassInfo> {
+        val outputs = cache.outputsOf(source)
+        val classes = cache.removeSource(source)
+
+        for (output in outputs) {
+            // module mapping is shared by all sources, it is merged after compilation
+            if (output.name.endsWith("." + ModuleMapping.MAPPING_FILE_EXT)) continue
+
+            output.delete()
+            File(getDestinationDir(), output.toRelativeString(outputDir)).delete()
+        }
+
+        return classes
+    }
+
+    /**
+     * Compiles [sources] against the previous outputs and returns class infos of the generated classes.
+     */
+    private fun compileAndRegisterOutputs(
+            args: K2JVMCompilerArguments,
+            sources: List<File>,
+            cache: GradleIncrementalCache,
+            outputDir: File
+    ): List<ClassInfo> {
+        val classpath = args.classpath
+        val previousMappings = readModuleMappings(outputDir)
+        val outputs = arrayListOf<File>()
+
+        args.freeArgs = sources.map { it.absolutePath } + getJavaSourceRoots().map { it.absolutePath }
+        args.classpath = if (StringUtils.isEmpty(classpath)) outputDir.path else outputDir.path + File.pathSeparator + classpath
+
+        val lookupTracker = cache.createLookupTracker()
+        val services = Services.Builder()
+                .register(IncrementalCompilationComponents::class.java, cache.createCompilationComponents(lookupTracker, outputDir))
+                .build()
+        val messageCollector = OutputCollectingMessageCollector(GradleMessageCollector(getLogger())) { outputSources, output ->
+            cache.registerOutput(outputSources.map { it.canonicalFile }, output)
+            outputs.add(output)
+        }
+
+        try {
+            callCompiler(args, services, messageCollector)
+        }
+        finally {
+            args.classpath = classpath
+        }
+
+        cache.registerLookups(lookupTracker)
+        mergeModuleMappings(outputDir, previousMappings)
+        return outputs.mapNotNull { cache.classInfo(it) }
+    }
+
     private fun getJavaSourceRoots(): Set<File> =
             getSource()
             .filter { it.isJavaFile() }
@@ -356,6 +596,22 @@ class GradleMessageCollector(val logger: Logger) : MessageCollector {
     }
 }
 
+private class OutputCollectingMessageCollector(
+        private val delegate: MessageCollector,
+        private val onOutput: (sources: Collection<File>, output: File) -> Unit
+) : MessageCollector {
+    override fun report(severity: CompilerMessageSeverity, message: String, location: CompilerMessageLocation) {
+        if (severity == CompilerMessageSeverity.OUTPUT) {
+            val output = OutputMessageUtil.parseOutputMessage(message)
+            val outputFile = output?.outputFile
+            if (output != null && outputFile != null) {
+                onOutput(output.sourceFiles, outputFile)
+            }
+        }
+        delegate.report(severity, message, location)
+    }
+}
+
 fun Logger.kotlinDebug(message: String) {
     this.debug("[KOTLIN] $message")
 }
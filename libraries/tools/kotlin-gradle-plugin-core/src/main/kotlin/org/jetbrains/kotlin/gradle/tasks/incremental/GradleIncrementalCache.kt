@@ -0,0 +1,310 @@
+package org.jetbrains.kotlin.gradle.tasks.incremental
+
+import org.jetbrains.kotlin.incremental.components.LookupTracker
+import org.jetbrains.kotlin.jps.incremental.LookupStorage
+import org.jetbrains.kotlin.jps.incremental.LookupSymbol
+import org.jetbrains.kotlin.jps.incremental.LookupTrackerImpl
+import org.jetbrains.kotlin.jps.incremental.storage.*
+import org.jetbrains.kotlin.load.java.JvmAbi
+import org.jetbrains.kotlin.load.kotlin.ModuleMapping
+import org.jetbrains.kotlin.load.kotlin.PackageParts
+import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCache
+import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
+import org.jetbrains.kotlin.load.kotlin.incremental.components.JvmPackagePartProto
+import org.jetbrains.kotlin.modules.TargetId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.serialization.jvm.JvmPackageTable
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.util.*
+
+/**
+ * State of a Kotlin compile task kept between builds in [cacheDir], in the same persistent maps as the incremental caches of JPS:
+ *  - outputs produced from each source file;
+ *  - [ClassInfo] of each generated class file;
+ *  - direct subtypes and supertypes of each class;
+ *  - names looked up by each source file during resolve, in [LookupStorage].
+ *
+ * The version file is removed while the maps are being updated, so that a build interrupted in the middle starts from scratch.
+ */
+class GradleIncrementalCache(private val cacheDir: File) : BasicMapsOwner() {
+    private val String.storageFile: File
+        get() = File(cacheDir, this + "." + CACHE_EXTENSION)
+
+    private val sourceToOutputs = registerMap(SourceToOutputsMap(SOURCE_TO_OUTPUTS.storageFile))
+    private val classInfos = registerMap(ClassInfoMap(CLASS_INFOS.storageFile))
+    private val subtypesMap = registerMap(SubtypesMap(SUBTYPES.storageFile))
+    private val supertypesMap = registerMap(SupertypesMap(SUPERTYPES.storageFile))
+    private val lookupStorage = LookupStorage(File(cacheDir, LOOKUPS))
+
+    private val versionFile: File
+        get() = File(cacheDir, VERSION_FILE_NAME)
+
+    /**
+     * Returns false if there is no usable state from the previous build, in which case everything has to be rebuilt.
+     */
+    fun load(): Boolean {
+        if (!versionFile.exists() || versionFile.readText() != CACHE_VERSION.toString()) return false
+
+        versionFile.delete()
+        return true
+    }
+
+    fun save() {
+        flush(false)
+        cacheDir.mkdirs()
+        versionFile.writeText(CACHE_VERSION.toString())
+    }
+
+    override fun clean() {
+        versionFile.delete()
+        lookupStorage.clean()
+        super.clean()
+    }
+
+    override fun flush(memoryCachesOnly: Boolean) {
+        lookupStorage.flush(memoryCachesOnly)
+        super.flush(memoryCachesOnly)
+    }
+
+    override fun close() {
+        lookupStorage.close()
+        super.close()
+    }
+
+    fun outputsOf(source: File): Collection<File> = sourceToOutputs[source]
+
+    fun classInfo(output: File): ClassInfo? = classInfos[output]
+
+    fun isMultifileSource(source: File): Boolean =
+            outputsOf(source).any { classInfo(it)?.isMultifile ?: false }
+
+    /**
+     * Forgets everything known about [source]: its outputs, their class infos and its lookups.
+     * Returns the class infos of the forgotten outputs.
+     */
+    fun removeSource(source: File): List<ClassInfo> {
+        val classes = outputsOf(source).mapNotNull { classInfos.remove(it) }
+        sourceToOutputs.remove(source)
+        lookupStorage.removeLookupsFrom(source)
+        removeFromClassHierarchy(classes.map { it.fqName }.toSet())
+        return classes
+    }
+
+    fun registerOutput(sources: Collection<File>, output: File) {
+        for (source in sources) {
+            sourceToOutputs.add(source, output)
+        }
+
+        if (!output.name.endsWith(".class")) return
+
+        val info = readClassInfo(output) ?: return
+        classInfos[output] = info
+
+        val child = info.fqName
+        val parents = info.supertypes()
+        parents.forEach { subtypesMap.add(it, child) }
+        supertypesMap[child] = parents
+    }
+
+    private fun removeFromClassHierarchy(removedFqNames: Set<FqName>) {
+        if (removedFqNames.isEmpty()) return
+
+        val parents = HashSet<FqName>()
+        val children = HashSet<FqName>()
+
+        for (removedFqName in removedFqNames) {
+            parents.addAll(supertypesMap[removedFqName])
+            children.addAll(subtypesMap[removedFqName])
+
+            supertypesMap.remove(removedFqName)
+            subtypesMap.remove(removedFqName)
+        }
+
+        children.forEach { supertypesMap.removeValues(it, removedFqNames) }
+        parents.forEach { subtypesMap.removeValues(it, removedFqNames) }
+    }
+
+    /**
+     * Source files which may have to be recompiled because of the given changes.
+     * Names are looked up in the scopes of subclasses as well, since their member scopes include the inherited members.
+     */
+    fun sourcesAffectedBy(changes: Collection<ClassChange>): Set<File> {
+        val dirtyLookups = HashSet<LookupSymbol>()
+
+        for (change in changes) {
+            when (change) {
+                is ClassChange.SignatureChanged -> {
+                    for (classFqName in withSubtypes(change.fqName)) {
+                        dirtyLookups.add(LookupSymbol(classFqName.shortName().asString(), classFqName.parent().asString()))
+                    }
+                }
+                is ClassChange.MembersChanged -> {
+                    for (scope in withSubtypes(change.fqName)) {
+                        change.names.forEach { dirtyLookups.add(LookupSymbol(it, scope.asString())) }
+                    }
+                }
+            }
+        }
+
+        return lookupStorage.getAll(dirtyLookups).values.flatMapTo(HashSet<File>()) { paths -> paths.map { File(it) } }
+    }
+
+    private fun withSubtypes(fqName: FqName): Set<FqName> {
+        val result = linkedSetOf(fqName)
+        val queue = ArrayDeque<FqName>(result)
+
+        while (queue.isNotEmpty()) {
+            for (subtype in subtypesMap[queue.poll()]) {
+                if (result.add(subtype)) queue.add(subtype)
+            }
+        }
+
+        return result
+    }
+
+    /**
+     * Lookups of the compiled files are collected by the returned tracker and stored by [registerLookups] after the compilation.
+     */
+    fun createLookupTracker(): LookupTrackerImpl = LookupTrackerImpl(LookupTracker.DO_NOTHING)
+
+    fun registerLookups(lookupTracker: LookupTrackerImpl) {
+        for ((lookupSymbol, paths) in lookupTracker.lookups.entrySet()) {
+            lookupStorage.add(lookupSymbol, paths)
+        }
+    }
+
+    fun createCompilationComponents(lookupTracker: LookupTracker, outputDir: File): IncrementalCompilationComponents =
+            object : IncrementalCompilationComponents {
+                override fun getLookupTracker(): LookupTracker = lookupTracker
+
+                // Sources are passed to the compiler without a module description, so normally no target is requested
+                override fun getIncrementalCache(target: TargetId): IncrementalCache = CompilerCache(outputDir)
+            }
+
+    /**
+     * The compiler side of the cache. Sources are recompiled against the previous outputs, which are on the classpath
+     * together with their module mapping, so there is nothing the compiler has to read from here.
+     * Multifile classes are never compiled incrementally, and changes of inline functions are found by [ClassInfo.bytecodeHashes].
+     */
+    private class CompilerCache(private val outputDir: File) : IncrementalCache {
+        override fun getObsoletePackageParts(): Collection<String> = emptyList()
+
+        override fun getObsoleteMultifileClasses(): Collection<String> = emptyList()
+
+        override fun getStableMultifileFacadeParts(facadeInternalName: String): Collection<String>? = null
+
+        override fun getMultifileFacade(partInternalName: String): String? = null
+
+        override fun getPackagePartData(partInternalName: String): JvmPackagePartProto? = null
+
+        override fun getModuleMappingData(): ByteArray? = null
+
+        override fun registerInline(fromPath: String, jvmSignature: String, toPath: String) {
+        }
+
+        override fun getClassFilePath(internalClassName: String): String = File(outputDir, "$internalClassName.class").path
+
+        override fun close() {
+        }
+    }
+
+    private class SourceToOutputsMap(storageFile: File) : BasicStringMap<Collection<String>>(storageFile, PathStringDescriptor, PathCollectionExternalizer) {
+        fun add(source: File, output: File) {
+            storage.append(source.absolutePath, output.absolutePath)
+        }
+
+        operator fun get(source: File): Collection<File> =
+                storage[source.absolutePath]?.map { File(it) } ?: emptyList()
+
+        fun remove(source: File) {
+            storage.remove(source.absolutePath)
+        }
+
+        override fun dumpValue(value: Collection<String>): String = value.sorted().joinToString(prefix = "[", postfix = "]")
+    }
+
+    private class ClassInfoMap(storageFile: File) : BasicStringMap<ClassInfo>(storageFile, PathStringDescriptor, ClassInfoExternalizer) {
+        operator fun get(output: File): ClassInfo? = storage[output.absolutePath]
+
+        operator fun set(output: File, info: ClassInfo) {
+            storage[output.absolutePath] = info
+        }
+
+        fun remove(output: File): ClassInfo? {
+            val info = storage[output.absolutePath]
+            storage.remove(output.absolutePath)
+            return info
+        }
+
+        override fun dumpValue(value: ClassInfo): String = "${value.kind} ${value.fqName}"
+    }
+
+    companion object {
+        private val SOURCE_TO_OUTPUTS = "source-to-outputs"
+        private val CLASS_INFOS = "class-infos"
+        private val SUBTYPES = "subtypes"
+        private val SUPERTYPES = "supertypes"
+        private val LOOKUPS = "lookups"
+        private val VERSION_FILE_NAME = "version.txt"
+        private val CACHE_VERSION = 3
+    }
+}
+
+/**
+ * Reads all module mapping files under [outputDir], so that they could be merged with the ones written by a partial compilation.
+ */
+fun readModuleMappings(outputDir: File): Map<File, ByteArray> =
+        File(outputDir, "META-INF").listFiles { file -> file.name.endsWith("." + ModuleMapping.MAPPING_FILE_EXT) }
+                ?.associate { it to it.readBytes() } ?: emptyMap()
+
+/**
+ * A compiler invoked on a part of the sources writes only the package parts of these sources to the module mapping.
+ * Adds the parts from [previousMappings] whose class files still exist in [outputDir].
+ */
+fun mergeModuleMappings(outputDir: File, previousMappings: Map<File, ByteArray>) {
+    for ((mappingFile, previousBytes) in previousMappings) {
+        val parts = HashMap<String, PackageParts>()
+
+        fun addParts(mapping: ModuleMapping, checkExists: Boolean) {
+            for ((packageFqName, packageParts) in mapping.packageFqName2Parts) {
+                val packageDir = File(outputDir, packageFqName.replace('.', '/'))
+                for (part in packageParts.parts) {
+                    if (checkExists && !File(packageDir, "$part.class").exists()) continue
+                    parts.getOrPut(packageFqName) { PackageParts(packageFqName) }.parts.add(part)
+                }
+            }
+        }
+
+        addParts(ModuleMapping.create(previousBytes), checkExists = true)
+        if (mappingFile.exists()) {
+            addParts(ModuleMapping.create(mappingFile.readBytes()), checkExists = false)
+        }
+
+        val builder = JvmPackageTable.PackageTable.newBuilder()
+        parts.values.sortedBy { it.packageFqName }.forEach { with(PackageParts) { it.serialize(builder) } }
+
+        if (builder.packagePartsCount == 0) {
+            mappingFile.delete()
+            continue
+        }
+
+        DataOutputStream(BufferedOutputStream(FileOutputStream(mappingFile))).use { output ->
+            val version = JvmAbi.VERSION.toArray()
+            output.writeInt(version.size)
+            version.forEach { output.writeInt(it) }
+            builder.build().writeTo(output)
+        }
+    }
+}
+
+/**
+ * Removes package parts whose class files were deleted from the module mappings under [outputDir].
+ */
+fun pruneModuleMappings(outputDir: File) {
+    val mappings = readModuleMappings(outputDir)
+    mappings.keys.forEach { it.delete() }
+    mergeModuleMappings(outputDir, mappings)
+}
@@ -0,0 +1,295 @@
+package org.jetbrains.kotlin.gradle.tasks.incremental
+
+import com.intellij.util.io.DataExternalizer
+import org.jetbrains.kotlin.inline.inlineFunctionsJvmNames
+import org.jetbrains.kotlin.jps.incremental.difference
+import org.jetbrains.kotlin.jps.incremental.fingerprints
+import org.jetbrains.kotlin.jps.incremental.isPrivate
+import org.jetbrains.kotlin.jps.incremental.names
+import org.jetbrains.kotlin.jps.incremental.storage.ProtoMapValue
+import org.jetbrains.kotlin.jps.incremental.storage.ProtoMapValueExternalizer
+import org.jetbrains.kotlin.jps.incremental.storage.StringToLongMapExternalizer
+import org.jetbrains.kotlin.load.java.JvmAbi
+import org.jetbrains.kotlin.load.kotlin.FileBasedKotlinClass
+import org.jetbrains.kotlin.load.kotlin.header.KotlinClassHeader
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.serialization.deserialization.TypeTable
+import org.jetbrains.kotlin.serialization.deserialization.supertypes
+import org.jetbrains.kotlin.serialization.jvm.BitEncoding
+import org.jetbrains.kotlin.serialization.jvm.JvmProtoBufUtil
+import org.jetbrains.org.objectweb.asm.*
+import org.jetbrains.org.objectweb.asm.util.Textifier
+import org.jetbrains.org.objectweb.asm.util.TraceMethodVisitor
+import java.io.DataInput
+import java.io.DataOutput
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.util.*
+
+/**
+ * What other source files can observe of a class generated by the Kotlin compiler.
+ *
+ * [proto] is the serialized Kotlin metadata, stored and compared the same way as in the incremental caches of JPS.
+ * [bytecodeHashes] cover what is copied into the code compiled against this class but is not a part of the metadata:
+ * bodies of inline functions and values of constants, by the name of the function or the property.
+ * Classes without metadata (lambdas and other synthetic classes, multifile class facades) have a null [proto].
+ */
+class ClassInfo(
+        val classId: ClassId,
+        val kind: KotlinClassHeader.Kind,
+        val proto: ProtoMapValue?,
+        val bytecodeHashes: Map<String, Long>
+) {
+    val fqName: FqName
+        get() = classId.asSingleFqName()
+
+    val isSynthetic: Boolean
+        get() = kind == KotlinClassHeader.Kind.SYNTHETIC_CLASS
+
+    val isMultifile: Boolean
+        get() = kind == KotlinClassHeader.Kind.MULTIFILE_CLASS || kind == KotlinClassHeader.Kind.MULTIFILE_CLASS_PART
+
+    /**
+     * Names of declarations in this class are looked up in the class scope, the ones of package facades in the package scope.
+     */
+    val scopeFqName: FqName
+        get() = if (proto?.isPackageFacade ?: false) classId.packageFqName else fqName
+
+    /**
+     * Direct supertypes of a class other than `kotlin.Any`, empty for package facades.
+     */
+    fun supertypes(): Set<FqName> {
+        if (proto == null || proto.isPackageFacade) return emptySet()
+
+        val classData = JvmProtoBufUtil.readClassDataFrom(proto.bytes, proto.strings)
+        return classData.classProto.supertypes(TypeTable(classData.classProto.typeTable))
+                .map { classData.nameResolver.getClassId(it.className).asSingleFqName() }
+                .filter { it.asString() != "kotlin.Any" }
+                .toSet()
+    }
+
+    /**
+     * Names of all non-private members, which is what changes for other files when the class appears or disappears.
+     */
+    fun memberNames(): Set<String> {
+        val result = HashSet(bytecodeHashes.keys)
+        if (proto == null) return result
+
+        if (proto.isPackageFacade) {
+            val packageData = JvmProtoBufUtil.readPackageDataFrom(proto.bytes, proto.strings)
+            val members = packageData.packageProto.functionList + packageData.packageProto.propertyList
+            result.addAll(members.filterNot { it.isPrivate }.names(packageData.nameResolver))
+        }
+        else {
+            val classData = JvmProtoBufUtil.readClassDataFrom(proto.bytes, proto.strings)
+            val members = classData.classProto.constructorList + classData.classProto.functionList + classData.classProto.propertyList
+            result.addAll(members.filterNot { it.isPrivate }.names(classData.nameResolver))
+        }
+        return result
+    }
+
+    /**
+     * Constants of a companion object are stored in the fields of its containing class, but looked up in the companion scope.
+     */
+    fun companionObjectFqName(): FqName? {
+        if (proto == null || proto.isPackageFacade) return null
+
+        val classData = JvmProtoBufUtil.readClassDataFrom(proto.bytes, proto.strings)
+        if (!classData.classProto.hasCompanionObjectName()) return null
+        return fqName.child(classData.nameResolver.getName(classData.classProto.companionObjectName))
+    }
+}
+
+/**
+ * What has changed in a class between two compilations, in terms of the names other source files look up.
+ * Mirrors the changes the JPS builder computes from its incremental caches.
+ */
+sealed class ClassChange(val fqName: FqName) {
+    class MembersChanged(fqName: FqName, val names: Collection<String>) : ClassChange(fqName)
+    class SignatureChanged(fqName: FqName) : ClassChange(fqName)
+}
+
+/**
+ * Compares the classes generated from the same source files before and after their recompilation.
+ */
+fun classChanges(oldClasses: Collection<ClassInfo>, newClasses: Collection<ClassInfo>): List<ClassChange> {
+    val oldById = oldClasses.filterNot { it.isSynthetic }.associateBy { it.classId }
+    val newById = newClasses.filterNot { it.isSynthetic }.associateBy { it.classId }
+    val result = arrayListOf<ClassChange>()
+
+    for (classId in oldById.keys + newById.keys) {
+        val oldClass = oldById[classId]
+        val newClass = newById[classId]
+
+        if (oldClass == null || newClass == null || oldClass.proto == null || newClass.proto == null) {
+            listOf(oldClass, newClass).filterNotNull().forEach { result.addAll(it.allChanged()) }
+            continue
+        }
+
+        val difference = difference(oldClass.proto, newClass.proto)
+        if (difference.isClassSignatureChanged) {
+            result.add(ClassChange.SignatureChanged(newClass.fqName))
+            continue
+        }
+
+        val oldHashes = oldClass.bytecodeHashes
+        val newHashes = newClass.bytecodeHashes
+        val changedInBytecode = (oldHashes.keys + newHashes.keys).filter { oldHashes[it] != newHashes[it] }
+
+        if (difference.changedMembersNames.isNotEmpty() || changedInBytecode.isNotEmpty()) {
+            result.add(ClassChange.MembersChanged(newClass.scopeFqName, difference.changedMembersNames + changedInBytecode))
+        }
+        if (changedInBytecode.isNotEmpty()) {
+            newClass.companionObjectFqName()?.let { result.add(ClassChange.MembersChanged(it, changedInBytecode)) }
+        }
+    }
+
+    return result
+}
+
+private fun ClassInfo.allChanged(): List<ClassChange> {
+    if (proto?.isPackageFacade ?: false) return listOf(ClassChange.MembersChanged(scopeFqName, memberNames()))
+
+    val companion = companionObjectFqName()
+    return listOf(ClassChange.SignatureChanged(fqName)) +
+           (if (companion != null) listOf(ClassChange.SignatureChanged(companion)) else emptyList())
+}
+
+/**
+ * Returns null for class files not produced by the Kotlin compiler.
+ */
+fun readClassInfo(classFile: File): ClassInfo? {
+    val bytes = classFile.readBytes()
+
+    var classId: ClassId? = null
+    var header: KotlinClassHeader? = null
+    FileBasedKotlinClass.create(bytes) { id, classHeader, innerClasses ->
+        classId = id
+        header = classHeader
+        null
+    }
+
+    val id = classId ?: return null
+    val classHeader = header ?: return null
+    val annotationData = classHeader.annotationData
+    val strings = classHeader.strings
+
+    if (classHeader.kind == KotlinClassHeader.Kind.SYNTHETIC_CLASS || annotationData == null || strings == null) {
+        return ClassInfo(id, classHeader.kind, null, emptyMap())
+    }
+
+    val isPackageFacade = classHeader.kind != KotlinClassHeader.Kind.CLASS
+    val protoBytes = BitEncoding.decodeBytes(annotationData)
+    val proto = ProtoMapValue(isPackageFacade, protoBytes, strings, fingerprints(isPackageFacade, protoBytes, strings))
+
+    val inlineFunctions = inlineFunctionsJvmNames(bytes)
+    val texts = TreeMap<String, StringBuilder>()
+    fun append(name: String, text: String) {
+        texts.getOrPut(name) { StringBuilder() }.append(text).append('\n')
+    }
+
+    ClassReader(bytes).accept(object : ClassVisitor(Opcodes.ASM5) {
+        override fun visitField(access: Int, name: String, desc: String, signature: String?, value: Any?): FieldVisitor? {
+            if (value != null && access and Opcodes.ACC_PRIVATE == 0) {
+                append(name, "$desc=$value")
+            }
+            return null
+        }
+
+        override fun visitMethod(access: Int, name: String, desc: String, signature: String?, exceptions: Array<out String>?): MethodVisitor? {
+            if (name + desc !in inlineFunctions) return null
+
+            val textifier = object : Textifier(Opcodes.ASM5) {
+                override fun visitMethodEnd() {
+                    val text = StringWriter()
+                    PrintWriter(text).use { print(it) }
+                    append(name.removeSuffix(JvmAbi.DEFAULT_PARAMS_IMPL_SUFFIX), desc + "\n" + text)
+                }
+            }
+            return TraceMethodVisitor(textifier)
+        }
+    }, ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+
+    val bytecodeHashes = LinkedHashMap<String, Long>()
+    for ((name, text) in texts) {
+        val digest = MessageDigest.getInstance("MD5").digest(text.toString().toByteArray(Charsets.UTF_8))
+        bytecodeHashes[name] = ByteBuffer.wrap(digest).long
+    }
+
+    return ClassInfo(id, classHeader.kind, proto, bytecodeHashes)
+}
+
+object ClassInfoExternalizer : DataExternalizer<ClassInfo> {
+    override fun save(output: DataOutput, value: ClassInfo) {
+        output.writeUTF(value.classId.packageFqName.asString())
+        output.writeUTF(value.classId.relativeClassName.asString())
+        output.writeBoolean(value.classId.isLocal)
+        output.writeUTF(value.kind.name)
+        StringToLongMapExternalizer.save(output, value.bytecodeHashes)
+
+        output.writeBoolean(value.proto != null)
+        value.proto?.let { ProtoMapValueExternalizer.save(output, it) }
+    }
+
+    override fun read(input: DataInput): ClassInfo {
+        val classId = ClassId(FqName(input.readUTF()), FqName(input.readUTF()), input.readBoolean())
+        val kind = KotlinClassHeader.Kind.valueOf(input.readUTF())
+        val bytecodeHashes = StringToLongMapExternalizer.read(input)!!
+
+        val proto = if (input.readBoolean()) ProtoMapValueExternalizer.read(input) else null
+        return ClassInfo(classId, kind, proto, bytecodeHashes)
+    }
+}
+
+/**
+ * Changes of the classes compiled from Java source files with the given names, by the name of the source file.
+ * Java classes are found in [classesDir] by the SourceFile attribute of their class files. The attribute doesn't contain the directory
+ * of the source, so classes of files with the same name in other packages are considered changed as well.
+ * Any member of a Java class may have changed, its previous members are taken from the class file.
+ */
+fun javaClassChanges(classesDir: File, sourceFileNames: Set<String>): Map<String, List<ClassChange>> {
+    val result = HashMap<String, MutableList<ClassChange>>()
+    if (sourceFileNames.isEmpty()) return result
+
+    for (classFile in classesDir.walk().filter { it.isFile && it.name.endsWith(".class") }) {
+        ClassReader(classFile.readBytes()).accept(object : ClassVisitor(Opcodes.ASM5) {
+            private var fqName: FqName? = null
+            private var sourceFileName: String? = null
+            private val memberNames = HashSet<String>()
+
+            override fun visit(version: Int, access: Int, name: String, signature: String?, superName: String?, interfaces: Array<out String>?) {
+                fqName = FqName(name.replace('/', '.').replace('$', '.'))
+            }
+
+            override fun visitSource(source: String?, debug: String?) {
+                sourceFileName = source
+            }
+
+            override fun visitField(access: Int, name: String, desc: String, signature: String?, value: Any?): FieldVisitor? {
+                if (access and Opcodes.ACC_PRIVATE == 0) memberNames.add(name)
+                return null
+            }
+
+            override fun visitMethod(access: Int, name: String, desc: String, signature: String?, exceptions: Array<out String>?): MethodVisitor? {
+                if (access and Opcodes.ACC_PRIVATE == 0 && !name.startsWith("<")) memberNames.add(name)
+                return null
+            }
+
+            override fun visitEnd() {
+                val source = sourceFileName ?: return
+                val classFqName = fqName ?: return
+                if (source !in sourceFileNames) return
+
+                val changes = result.getOrPut(source) { arrayListOf() }
+                changes.add(ClassChange.SignatureChanged(classFqName))
+                changes.add(ClassChange.MembersChanged(classFqName, memberNames))
+            }
+        }, ClassReader.SKIP_CODE or ClassReader.SKIP_FRAMES)
+    }
+
+    return result
+}
@@ -96,7 +96,9 @@ abstract class BaseGradleIT {
         return this
     }
 
-    fun CompiledProject.fileInWorkingDir(path: String) = File(File(workingDir, project.projectName), path)
+    fun CompiledProject.fileInWorkingDir(path: String) = project.fileInWorkingDir(path)
+
+    fun Project.fileInWorkingDir(path: String) = File(File(workingDir, projectName), path)
 
     fun CompiledProject.assertReportExists(pathToReport: String = ""): CompiledProject {
         assertTrue(fileInWorkingDir(pathToReport).exists(), "The report [$pathToReport] does not exist.")
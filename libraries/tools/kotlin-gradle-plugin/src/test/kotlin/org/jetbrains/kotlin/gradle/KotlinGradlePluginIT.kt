@@ -117,6 +117,48 @@ class KotlinGradleIT: BaseGradleIT() {
         }
     }
 
+    @Test
+    fun testIncrementalCompilation() {
+        val project = Project("kotlinIncremental", "1.6")
+
+        project.build("build") {
+            assertSuccessful()
+            assertContains("non-incremental compilation of 3 files")
+        }
+
+        // changed body is not visible to other files
+        project.fileInWorkingDir("src/main/kotlin/foo/A.kt").let { it.writeText(it.readText().replace("\"a\"", "\"aa\"")) }
+        project.build("build") {
+            assertSuccessful()
+            assertContains("compiled 1 of 3 files incrementally")
+        }
+
+        // new member is not looked up by other files
+        project.fileInWorkingDir("src/main/kotlin/foo/A.kt").let { it.writeText(it.readText().replace("fun a()", "fun a2() = 2\n    fun a()")) }
+        project.build("build") {
+            assertSuccessful()
+            assertContains("compiled 1 of 3 files incrementally")
+            assertFileExists("build/classes/main/foo/B.class")
+            assertFileExists("build/classes/main/foo/OtherKt.class")
+        }
+
+        // changed return type of a member is seen by the subclass which calls it, but not by the unrelated file
+        project.fileInWorkingDir("src/main/kotlin/foo/A.kt").let { it.writeText(it.readText().replace("fun a() = \"aa\"", "fun a() = 1")) }
+        project.build("build") {
+            assertSuccessful()
+            assertContains("compiled 2 of 3 files incrementally")
+        }
+
+        // multifile class parts are found by the headers of the generated classes and can't be compiled incrementally
+        project.fileInWorkingDir("src/main/kotlin/foo/other.kt").let { it.writeText("@file:JvmMultifileClass\n@file:JvmName(\"Other\")\n" + it.readText()) }
+        project.build("build") {
+            assertSuccessful()
+            assertContains("multifile class part compiled")
+            assertContains("non-incremental compilation of 3 files")
+            assertFileExists("build/classes/main/foo/Other.class")
+        }
+    }
+
     @Test
     fun testKaptSimple() {
         val project = Project("kaptSimple", "1.12")
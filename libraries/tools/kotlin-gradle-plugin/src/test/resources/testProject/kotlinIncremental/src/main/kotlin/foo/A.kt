@@ -0,0 +1,5 @@
+package foo
+
+open class A {
+    fun a() = "a"
+}
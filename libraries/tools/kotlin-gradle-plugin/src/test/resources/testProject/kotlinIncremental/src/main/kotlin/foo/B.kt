@@ -0,0 +1,5 @@
+package foo
+
+class B : A() {
+    fun b() = a()
+}
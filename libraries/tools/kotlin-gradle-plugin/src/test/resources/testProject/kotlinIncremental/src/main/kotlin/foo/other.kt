@@ -0,0 +1,3 @@
+package foo
+
+fun other() = 42
@@ -30,11 +30,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.cli.common.CLICompiler;
 import org.jetbrains.kotlin.cli.common.ExitCode;
 import org.jetbrains.kotlin.cli.common.KotlinVersion;
+import org.jetbrains.kotlin.cli.common.arguments.ArgumentUtils;
 import org.jetbrains.kotlin.cli.common.arguments.CommonCompilerArguments;
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation;
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity;
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.js.K2JSCompiler;
 import org.jetbrains.kotlin.config.Services;
+import org.jetbrains.kotlin.daemon.client.BuildToolsDaemonClient;
+import org.jetbrains.kotlin.daemon.common.CompileService;
+import org.jetbrains.kotlin.daemon.common.DaemonParamsKt;
 
 import java.io.File;
 import java.lang.reflect.Field;
@@ -216,6 +221,23 @@ public abstract class KotlinCompileMojoBase<A extends CommonCompilerArguments> e
             @NotNull A arguments,
             @NotNull MessageCollector messageCollector
     ) {
+        if (DaemonParamsKt.isDaemonEnabled()) {
+            getLog().debug("Trying to compile with the compile daemon");
+
+            CompileService.TargetPlatform platform =
+                    compiler instanceof K2JSCompiler ? CompileService.TargetPlatform.JS : CompileService.TargetPlatform.JVM;
+            List<String> argumentsList;
+            try {
+                argumentsList = ArgumentUtils.convertArgumentsToStringList(arguments);
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("Could not convert compiler arguments: " + arguments, e);
+            }
+
+            ExitCode exitCode = BuildToolsDaemonClient.compile(platform, ArrayUtil.toStringArray(argumentsList), messageCollector);
+            if (exitCode != null) return exitCode;
+        }
+
         return compiler.exec(messageCollector, Services.EMPTY, arguments);
     }
 
@@ -0,0 +1,97 @@
+package generators
+
+import java.io.*
+import templates.*
+import templates.PrimitiveType.*
+
+fun filteringPrimitiveSequence(primitive: PrimitiveType): String {
+    val t = primitive.name
+    val zero = when (primitive) {
+        Double -> "0.0"
+        Long -> "0L"
+        else -> "0"
+    }
+
+    return """/**
+ * A sequence that returns the values from the underlying [sequence] that either match or do not match
+ * the specified [predicate].
+ *
+ * @param sendWhen If `true`, values for which the predicate returns `true` are returned. Otherwise,
+ * values for which the predicate returns `false` are returned
+ */
+internal class Filtering${t}Sequence(private val sequence: ${t}Sequence, private val sendWhen: Boolean, private val predicate: ${t}Predicate) : ${t}Sequence {
+    override fun iterator(): ${t}Iterator = object : ${t}Iterator() {
+        val iterator = sequence.iterator()
+        var nextState: Int = -1 // -1 for unknown, 0 for done, 1 for continue
+        var nextItem: $t = $zero
+
+        private fun calcNext() {
+            while (iterator.hasNext()) {
+                val item = iterator.next$t()
+                if (predicate.test(item) == sendWhen) {
+                    nextItem = item
+                    nextState = 1
+                    return
+                }
+            }
+            nextState = 0
+        }
+
+        override fun next$t(): $t {
+            if (nextState == -1)
+                calcNext()
+            if (nextState == 0)
+                throw NoSuchElementException()
+            nextState = -1
+            return nextItem
+        }
+
+        override fun hasNext(): Boolean {
+            if (nextState == -1)
+                calcNext()
+            return nextState == 1
+        }
+    }
+}"""
+}
+
+fun transformingPrimitiveSequence(primitive: PrimitiveType): String {
+    val t = primitive.name
+
+    return """/**
+ * A sequence which returns the results of applying the given [transformer] to the values
+ * in the underlying [sequence].
+ */
+internal class Transforming${t}Sequence(private val sequence: ${t}Sequence, private val transformer: ${t}Transform) : ${t}Sequence {
+    override fun iterator(): ${t}Iterator = object : ${t}Iterator() {
+        val iterator = sequence.iterator()
+
+        override fun next$t(): $t = transformer.apply(iterator.next$t())
+
+        override fun hasNext(): Boolean = iterator.hasNext()
+    }
+}"""
+}
+
+/**
+ * Generates the lazy [Int], [Long] and [Double] sequence implementations behind the
+ * `filter`, `filterNot` and `map` operations of the SequencesOfPrimitives family.
+ */
+fun generatePrimitiveSequences(outDir: File) {
+    val file = File(outDir, "_PrimitiveSequences.kt")
+    println("Generating file: $file")
+    val its = FileWriter(file)
+
+    its.use {
+        its.append("@file:kotlin.jvm.JvmMultifileClass\n")
+        its.append("@file:kotlin.jvm.JvmName(\"${SourceFile.Sequences.jvmClassName}\")\n\n")
+        its.append("package ${SourceFile.Sequences.packageName}\n\n")
+        its.append("$COMMON_AUTOGENERATED_WARNING\n\n")
+        its.append("import java.util.*\n\n")
+
+        for (primitive in PrimitiveType.sequencePrimitives.sortedBy { it.name }) {
+            its.append(filteringPrimitiveSequence(primitive)).append("\n\n")
+            its.append(transformingPrimitiveSequence(primitive)).append("\n\n")
+        }
+    }
+}
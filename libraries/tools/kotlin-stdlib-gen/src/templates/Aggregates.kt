@@ -88,10 +88,11 @@ fun aggregates(): List<GenericFunction> {
             """
         }
         deprecate(Strings) { forBinaryCompatibility }
-        include(Maps, CharSequences, Strings)
+        include(Maps, CharSequences, Strings, SequencesOfPrimitives)
     }
 
     templates add f("count()") {
+        include(SequencesOfPrimitives)
         doc { f -> "Returns the number of ${f.element.pluralize()} in this ${f.collection}." }
         returns("Int")
         body {
@@ -366,7 +367,7 @@ fun aggregates(): List<GenericFunction> {
         inline(true)
 
         deprecate(Strings) { forBinaryCompatibility }
-        include(CharSequences, Strings)
+        include(CharSequences, Strings, SequencesOfPrimitives)
         doc { f -> "Accumulates value starting with [initial] value and applying [operation] from left to right to current accumulator value and each ${f.element}." }
         typeParam("R")
         returns("R")
@@ -500,7 +501,7 @@ fun aggregates(): List<GenericFunction> {
             """
         }
         deprecate(Strings) { forBinaryCompatibility }
-        include(Maps, CharSequences, Strings)
+        include(Maps, CharSequences, Strings, SequencesOfPrimitives)
     }
 
     templates add f("forEachIndexed(action: (Int, T) -> Unit)") {
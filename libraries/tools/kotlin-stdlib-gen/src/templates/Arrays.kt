@@ -46,9 +46,11 @@ fun arrays(): List<GenericFunction> {
         val arrayType = primitive.name + "Array"
         f("to$arrayType()") {
             only(ArraysOfObjects, Collections)
+            if (primitive in PrimitiveType.sequencePrimitives) include(SequencesOfPrimitives)
             buildFamilies.forEach { family -> onlyPrimitives(family, primitive) }
             doc(ArraysOfObjects) { "Returns an array of ${primitive.name} containing all of the elements of this generic array." }
             doc(Collections) { "Returns an array of ${primitive.name} containing all of the elements of this collection." }
+            doc(SequencesOfPrimitives) { "Returns an array of ${primitive.name} containing all of the elements of this sequence." }
             returns(arrayType)
             // TODO: Use different implementations for JS
             body {
@@ -68,6 +70,20 @@ fun arrays(): List<GenericFunction> {
                 return result
                 """
             }
+            if (primitive in PrimitiveType.sequencePrimitives) {
+                body(SequencesOfPrimitives) {
+                    """
+                    var result = $arrayType(10)
+                    var size = 0
+                    for (element in this) {
+                        if (size == result.size)
+                            result = result.copyOf(size * 2)
+                        result[size++] = element
+                    }
+                    return if (size == result.size) result else result.copyOf(size)
+                    """
+                }
+            }
         }
     }
 
@@ -368,6 +368,27 @@ fun filtering(): List<GenericFunction> {
             return FilteringSequence(this, true, predicate)
             """
         }
+
+        customSignature(SequencesOfPrimitives) { "filter(crossinline predicate: (T) -> Boolean)" }
+        returns(SequencesOfPrimitives) { "SELF" }
+        body(SequencesOfPrimitives) {
+            """
+            return filter(object : TPredicate {
+                override fun test(value: T): Boolean = predicate(value)
+            })
+            """
+        }
+    }
+
+    templates add f("filter(predicate: TPredicate)") {
+        only(SequencesOfPrimitives)
+        doc { "Returns a sequence containing only elements matching the given [predicate]." }
+        returns("SELF")
+        for (primitive in PrimitiveType.sequencePrimitives) {
+            bodyForTypes(SequencesOfPrimitives, primitive) {
+                "return Filtering${primitive.name}Sequence(this, true, predicate)"
+            }
+        }
     }
 
     templates add f("filterTo(destination: C, predicate: (T) -> Boolean)") {
@@ -464,6 +485,28 @@ fun filtering(): List<GenericFunction> {
             return FilteringSequence(this, false, predicate)
             """
         }
+
+        customSignature(SequencesOfPrimitives) { "filterNot(crossinline predicate: (T) -> Boolean)" }
+        doc(SequencesOfPrimitives) { "Returns a sequence containing all elements not matching the given [predicate]." }
+        returns(SequencesOfPrimitives) { "SELF" }
+        body(SequencesOfPrimitives) {
+            """
+            return filterNot(object : TPredicate {
+                override fun test(value: T): Boolean = predicate(value)
+            })
+            """
+        }
+    }
+
+    templates add f("filterNot(predicate: TPredicate)") {
+        only(SequencesOfPrimitives)
+        doc { "Returns a sequence containing all elements not matching the given [predicate]." }
+        returns("SELF")
+        for (primitive in PrimitiveType.sequencePrimitives) {
+            bodyForTypes(SequencesOfPrimitives, primitive) {
+                "return Filtering${primitive.name}Sequence(this, false, predicate)"
+            }
+        }
     }
 
     templates add f("filterNotTo(destination: C, predicate: (T) -> Boolean)") {
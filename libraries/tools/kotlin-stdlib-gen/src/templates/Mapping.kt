@@ -82,6 +82,41 @@ fun mapping(): List<GenericFunction> {
         include(Maps)
     }
 
+    templates add f("map(crossinline transform: (T) -> T)") {
+        inline(true)
+        only(SequencesOfPrimitives)
+        doc { f ->
+            """
+            Returns a ${f.mapResult} containing the results of applying the given [transform] function
+            to each ${f.element} in the original ${f.collection}.
+            """
+        }
+        returns("SELF")
+        body {
+            """
+            return map(object : TTransform {
+                override fun apply(value: T): T = transform(value)
+            })
+            """
+        }
+    }
+
+    templates add f("map(transform: TTransform)") {
+        only(SequencesOfPrimitives)
+        doc { f ->
+            """
+            Returns a ${f.mapResult} containing the results of applying the given [transform]
+            to each ${f.element} in the original ${f.collection}.
+            """
+        }
+        returns("SELF")
+        for (primitive in PrimitiveType.sequencePrimitives) {
+            bodyForTypes(SequencesOfPrimitives, primitive) {
+                "return Transforming${primitive.name}Sequence(this, transform)"
+            }
+        }
+    }
+
     templates add f("mapNotNull(transform: (T) -> R?)") {
         inline(true)
         include(Maps, CharSequences)
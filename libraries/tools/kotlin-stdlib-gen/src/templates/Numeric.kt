@@ -6,6 +6,7 @@ fun numeric(): List<GenericFunction> {
     val templates = arrayListOf<GenericFunction>()
 
     templates add f("sum()") {
+        include(SequencesOfPrimitives)
         exclude(Strings)
         buildFamilies.forEach { family -> onlyPrimitives(family, numericPrimitives) }
         doc { f -> "Returns the sum of all elements in the ${f.collection}." }
@@ -21,9 +22,24 @@ fun numeric(): List<GenericFunction> {
             return sum
             """
         }
+        for (primitive in PrimitiveType.sequencePrimitives) {
+            val t = primitive.name
+            bodyForTypes(Sequences, primitive) { "return as${t}Sequence().sum()" }
+            bodyForTypes(SequencesOfPrimitives, primitive) {
+                """
+                val iterator = iterator()
+                var sum: SUM = ZERO
+                while (iterator.hasNext()) {
+                    sum += iterator.next$t()
+                }
+                return sum
+                """
+            }
+        }
     }
 
     templates add f("average()") {
+        include(SequencesOfPrimitives)
         exclude(Strings)
         buildFamilies.forEach { family -> onlyPrimitives(family, numericPrimitives) }
         doc { f -> "Returns an average value of elements in the ${f.collection}."}
@@ -41,6 +57,22 @@ fun numeric(): List<GenericFunction> {
             return if (count == 0) 0.0 else sum / count
             """
         }
+        for (primitive in PrimitiveType.sequencePrimitives) {
+            val t = primitive.name
+            bodyForTypes(Sequences, primitive) { "return as${t}Sequence().average()" }
+            bodyForTypes(SequencesOfPrimitives, primitive) {
+                """
+                val iterator = iterator()
+                var sum: Double = 0.0
+                var count: Int = 0
+                while (iterator.hasNext()) {
+                    sum += iterator.next$t()
+                    count += 1
+                }
+                return if (count == 0) 0.0 else sum / count
+                """
+            }
+        }
     }
 
     return templates
@@ -63,6 +63,41 @@ fun sequences(): List<GenericFunction> {
         body(Sequences) { "return this" }
     }
 
+    templates addAll PrimitiveType.sequencePrimitives.map { primitive ->
+        val sequenceType = "${primitive.name}Sequence"
+        val iteratorType = "${primitive.name}Iterator"
+        f("as$sequenceType()") {
+            only(ArraysOfPrimitives, Sequences)
+            if (primitive != PrimitiveType.Double) include(ProgressionsOfPrimitives)
+            buildFamilies.forEach { family -> onlyPrimitives(family, primitive) }
+            visibility("internal")
+            doc { f -> "Creates an [$sequenceType] instance that wraps the original ${f.collection} returning its ${f.element.pluralize()} without boxing when being iterated." }
+            returns(sequenceType)
+            body {
+                """
+                return object : $sequenceType {
+                    override fun iterator(): $iteratorType = this@as$sequenceType.iterator()
+                }
+                """
+            }
+            doc(Sequences) { "Creates an [$sequenceType] instance that wraps the original sequence, its elements are not boxed once more if its iterator is an [$iteratorType]." }
+            body(Sequences) {
+                """
+                return object : $sequenceType {
+                    override fun iterator(): $iteratorType {
+                        val iterator = this@as$sequenceType.iterator()
+                        return iterator as? $iteratorType ?: object : $iteratorType() {
+                            override fun next${primitive.name}(): ${primitive.name} = iterator.next()
+
+                            override fun hasNext(): Boolean = iterator.hasNext()
+                        }
+                    }
+                }
+                """
+            }
+        }
+    }
+
     return templates
 }
 
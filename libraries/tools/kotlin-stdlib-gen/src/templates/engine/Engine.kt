@@ -7,6 +7,7 @@ import java.util.*
 
 enum class Family {
     Sequences,
+    SequencesOfPrimitives,
     Iterables,
     Collections,
     Lists,
@@ -26,7 +27,7 @@ enum class Family {
     val isPrimitiveSpecialization: Boolean by lazy { this in primitiveSpecializations }
 
     companion object {
-        val primitiveSpecializations = setOf(ArraysOfPrimitives, RangesOfPrimitives, ProgressionsOfPrimitives, Primitives)
+        val primitiveSpecializations = setOf(ArraysOfPrimitives, RangesOfPrimitives, ProgressionsOfPrimitives, SequencesOfPrimitives, Primitives)
         val defaultFamilies = setOf(Iterables, Sequences, ArraysOfObjects, ArraysOfPrimitives)
     }
 }
@@ -45,6 +46,7 @@ enum class PrimitiveType {
         val defaultPrimitives = PrimitiveType.values().toSet()
         val numericPrimitives = setOf(Int, Long, Byte, Short, Double, Float)
         val integralPrimitives = setOf(Int, Long, Byte, Short, Char)
+        val sequencePrimitives = setOf(Int, Long, Double)
 
         val descendingByDomainCapacity = listOf(Double, Float, Long, Int, Short, Char, Byte)
 
@@ -112,6 +114,7 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
     val doc = DocProperty()
     val platformName = PrimitiveProperty<String>()
     val inline = FamilyProperty<Boolean>()
+    val visibility = FamilyProperty<String>()
     val jvmOnly = FamilyProperty<Boolean>()
     val typeParams = ArrayList<String>()
     val returns = FamilyProperty<String>()
@@ -180,11 +183,19 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
                 .flatMap { family -> instantiate(family) }
     }
 
-    fun instantiate(f: Family): List<ConcreteFunction> {
+    private fun primitivesFor(f: Family): Set<PrimitiveType>? {
         val onlyPrimitives = buildFamilyPrimitives[f]
+        if (!f.isPrimitiveSpecialization && onlyPrimitives == null) return null
+
+        val primitives = onlyPrimitives ?: buildPrimitives
+        return if (f == SequencesOfPrimitives) primitives.intersect(PrimitiveType.sequencePrimitives) else primitives
+    }
 
-        if (f.isPrimitiveSpecialization || onlyPrimitives != null) {
-            return (onlyPrimitives ?: buildPrimitives).sortedBy { it.name }
+    fun instantiate(f: Family): List<ConcreteFunction> {
+        val primitives = primitivesFor(f)
+
+        if (primitives != null) {
+            return primitives.sortedBy { it.name }
                     .map { primitive -> ConcreteFunction( { build(it, f, primitive) }, sourceFileFor(f) ) }
         } else {
             return listOf(ConcreteFunction( { build(it, f, null) }, sourceFileFor(f) ))
@@ -195,7 +206,7 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
 
     private fun getDefaultSourceFile(f: Family): SourceFile = when (f) {
         Iterables, Collections, Lists -> SourceFile.Collections
-        Sequences -> SourceFile.Sequences
+        Sequences, SequencesOfPrimitives -> SourceFile.Sequences
         Sets -> SourceFile.Sets
         Ranges, RangesOfPrimitives, ProgressionsOfPrimitives -> SourceFile.Ranges
         ArraysOfObjects, InvariantArraysOfObjects, ArraysOfPrimitives -> SourceFile.Arrays
@@ -215,9 +226,9 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
     }
 
     fun build(builder: StringBuilder, f: Family) {
-        val onlyPrimitives = buildFamilyPrimitives[f]
-        if (f.isPrimitiveSpecialization || onlyPrimitives != null) {
-            for (primitive in (onlyPrimitives ?: buildPrimitives).sortedBy { it.name })
+        val primitives = primitivesFor(f)
+        if (primitives != null) {
+            for (primitive in primitives.sortedBy { it.name })
                 build(builder, f, primitive)
         } else {
             build(builder, f, null)
@@ -286,6 +297,8 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
                                           else -> primitive!!.name + "Progression"
                                       }
                                   }
+                                  "TPredicate" -> primitive!!.name + "Predicate"
+                                  "TTransform" -> primitive!!.name + "Transform"
                                   else -> token
                               })
             }
@@ -309,6 +322,7 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
             ArraysOfPrimitives -> primitive?.let { it.name + "Array" } ?: throw IllegalArgumentException("Primitive array should specify primitive type")
             RangesOfPrimitives -> primitive?.let { it.name + "Range" } ?: throw IllegalArgumentException("Primitive range should specify primitive type")
             ProgressionsOfPrimitives -> primitive?.let { it.name + "Progression" } ?: throw IllegalArgumentException("Primitive progression should specify primitive type")
+            SequencesOfPrimitives -> primitive?.let { it.name + "Sequence" } ?: throw IllegalArgumentException("Primitive sequence should specify primitive type")
             Primitives -> primitive?.let { it.name } ?: throw IllegalArgumentException("Primitive should specify primitive type")
             Generic -> "T"
         }).let { renderType(it, it) }
@@ -384,7 +398,8 @@ class GenericFunction(val signature: String, val keyword: String = "fun") {
 
         annotations[f]?.let { builder.append(it).append('\n') }
 
-        builder.append("public ")
+        // primitive sequences are not a part of the public API, they are used behind the operations on Sequence<Int>, Sequence<Long> and Sequence<Double>
+        builder.append(visibility[f] ?: if (f == SequencesOfPrimitives) "internal" else "public").append(" ")
         if (inline[f] == true)
             builder.append("inline ")
         if (infix[f] == true)
@@ -41,6 +41,15 @@ abstract class AndroidLayoutXmlFileManager(val project: Project) {
 
     abstract val androidModule: AndroidModule?
 
+    // Resources of the layouts of each variant, a layout is parsed again only when one of its files has changed
+    private val layoutIndex = HashMap<LayoutKey, IndexedLayout>()
+
+    private data class LayoutKey(val variantName: String, val layoutName: String)
+
+    private data class LayoutFileStamp(val path: String, val modificationStamp: Long, val length: Long)
+
+    private class IndexedLayout(val stamps: List<LayoutFileStamp>, val resources: List<AndroidResource>)
+
     open fun propertyToXmlAttributes(propertyDescriptor: PropertyDescriptor): List<PsiElement> = listOf()
 
     open fun getModuleData(): AndroidModuleData {
@@ -52,24 +61,16 @@ abstract class AndroidLayoutXmlFileManager(val project: Project) {
         val psiManager = PsiManager.getInstance(project)
         val fileManager = VirtualFileManager.getInstance()
 
-        fun VirtualFile.getAllChildren(): List<VirtualFile> {
-            val allChildren = arrayListOf<VirtualFile>()
-            val currentChildren = children ?: emptyArray()
-            for (child in currentChildren) {
-                if (child.isDirectory) {
-                    allChildren.addAll(child.getAllChildren())
-                }
-                else {
-                    allChildren.add(child)
-                }
-            }
-            return allChildren
-        }
+        fun VirtualFile.childrenList(): List<VirtualFile> = children?.asList() ?: emptyList()
 
-        val resDirectories = variant.resDirectories.map { fileManager.findFileByUrl("file://$it") }
-        val allChildren = resDirectories.flatMap { it?.getAllChildren() ?: listOf() }
+        // Layouts are always placed directly in the layout directories (possibly with qualifiers, e.g. "layout-land"),
+        // so other resource directories are not traversed
+        val resDirectories = variant.resDirectories.mapNotNull { fileManager.findFileByUrl("file://$it") }
+        val layoutDirectories = resDirectories.flatMap { it.childrenList().filter { it.isDirectory && it.name.startsWith("layout") } }
+        val allLayoutFiles = layoutDirectories.flatMap {
+            it.childrenList().filter { !it.isDirectory && it.name.toLowerCase().endsWith(".xml") }
+        }
 
-        val allLayoutFiles = allChildren.filter { it.parent.name.startsWith("layout") && it.name.toLowerCase().endsWith(".xml") }
         val allLayoutPsiFiles = allLayoutFiles.fold(ArrayList<PsiFile>(allLayoutFiles.size)) { list, file ->
             val psiFile = psiManager.findFile(file)
             if (psiFile != null && psiFile.parent != null) {
@@ -82,9 +83,39 @@ abstract class AndroidLayoutXmlFileManager(val project: Project) {
                 .groupBy { it.name.substringBeforeLast('.') }
                 .mapValues { it.value.sortedBy { it.parent!!.name.length } }
 
+        synchronized(layoutIndex) {
+            layoutIndex.keys.removeAll { it.variantName == variant.name && it.layoutName !in layoutNameToXmlFiles }
+        }
+
         return AndroidVariantData(variant, layoutNameToXmlFiles)
     }
 
+    /**
+     * Resources of the layout [layoutName] of [variant] which consists of [files].
+     * The same resources are returned until one of the files changes, so only synthetic packages of the changed layouts
+     * get new resources, the other layouts are not parsed again.
+     */
+    fun getLayoutResources(variant: AndroidVariant, layoutName: String, files: List<PsiFile>, module: ModuleDescriptor): List<AndroidResource> {
+        val key = LayoutKey(variant.name, layoutName)
+        val stamps = files.map { LayoutFileStamp(it.virtualFile.path, getModificationStamp(it), it.virtualFile.length) }
+
+        synchronized(layoutIndex) {
+            val indexed = layoutIndex[key]
+            if (indexed != null && indexed.stamps == stamps && indexed.resources.all { it.sourceElement?.isValid ?: true }) {
+                return indexed.resources
+            }
+        }
+
+        val resources = extractResources(files, module)
+
+        synchronized(layoutIndex) {
+            layoutIndex[key] = IndexedLayout(stamps, resources)
+        }
+        return resources
+    }
+
+    protected open fun getModificationStamp(file: PsiFile): Long = file.modificationStamp
+
     fun extractResources(files: List<PsiFile>, module: ModuleDescriptor): List<AndroidResource> {
         return filterDuplicates(doExtractResources(files, module))
     }
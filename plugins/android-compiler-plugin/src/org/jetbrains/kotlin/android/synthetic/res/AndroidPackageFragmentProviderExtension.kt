@@ -50,8 +50,11 @@ abstract class AndroidPackageFragmentProviderExtension : PackageFragmentProvider
         // Packages with synthetic properties
         for (variantData in moduleData) {
             for ((layoutName, layouts) in variantData) {
+                // the same resources are used in all packages of a layout, so its files are parsed once,
+                // and only if they have changed since the previous request
+                val resources = layoutXmlFileManager.getLayoutResources(variantData.variant, layoutName, layouts, module)
+
                 fun createPackageFragment(fqName: String, forView: Boolean, isDeprecated: Boolean = false) {
-                    val resources = layoutXmlFileManager.extractResources(layouts, module)
                     val packageData = AndroidSyntheticPackageData(moduleData, forView, isDeprecated, resources)
                     val packageDescriptor = AndroidSyntheticPackageFragmentDescriptor(
                             module, FqName(fqName), packageData, lazyContext, storageManager)
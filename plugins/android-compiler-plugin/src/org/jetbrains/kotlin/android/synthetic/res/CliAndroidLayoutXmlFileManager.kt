@@ -38,6 +38,9 @@ class CliAndroidLayoutXmlFileManager(
 
     private val saxParser: SAXParser = initSAX()
 
+    // PSI of layouts isn't changed by the compiler, a file is considered changed when it is modified on disk
+    override fun getModificationStamp(file: PsiFile): Long = file.virtualFile.timeStamp
+
     override fun doExtractResources(files: List<PsiFile>, module: ModuleDescriptor): List<AndroidResource> {
         val resources = arrayListOf<AndroidResource>()
 
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.lang.resolve.android.test
+
+import org.jetbrains.kotlin.android.synthetic.descriptors.AndroidSyntheticPackageFragmentDescriptor
+import org.jetbrains.kotlin.android.synthetic.res.AndroidPackageFragmentProviderExtension
+import org.jetbrains.kotlin.android.synthetic.res.AndroidResource
+import org.jetbrains.kotlin.android.synthetic.res.AndroidSyntheticPackageFragmentProvider
+import org.jetbrains.kotlin.cli.jvm.compiler.JvmPackagePartProvider
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.resolve.jvm.extensions.PackageFragmentProviderExtension
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.storage.LockBasedStorageManager
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.File
+
+// Layouts are parsed again only when their files change, synthetic packages of the other layouts keep their resources
+class AndroidLayoutIndexTest : TestCaseWithTmpdir() {
+    fun testChangedLayoutIsParsedAgain() {
+        val changed = writeLayout("changed", "a", "b")
+        writeLayout("unchanged", "c")
+        val environment = createEnvironment()
+
+        val before = packageResources(environment)
+        assertEquals(listOf("a", "b"), before["kotlinx.android.synthetic.main.changed"]!!.map { it.id })
+
+        modify(changed, "a", "d")
+        val after = packageResources(environment)
+
+        assertEquals(listOf("a", "d"), after["kotlinx.android.synthetic.main.changed"]!!.map { it.id })
+        assertNotSame(before["kotlinx.android.synthetic.main.changed"], after["kotlinx.android.synthetic.main.changed"])
+        assertNotSame(before["kotlinx.android.synthetic.main.changed.view"], after["kotlinx.android.synthetic.main.changed.view"])
+
+        for (fqName in listOf("kotlinx.android.synthetic.main.unchanged", "kotlinx.android.synthetic.main.unchanged.view",
+                              "kotlinx.android.synthetic.unchanged")) {
+            assertSame(fqName, before[fqName], after[fqName])
+        }
+    }
+
+    fun testUnchangedLayoutsAreNotParsedAgain() {
+        writeLayout("first", "a")
+        writeLayout("second", "b")
+        val environment = createEnvironment()
+
+        val before = packageResources(environment)
+        val after = packageResources(environment)
+
+        assertEquals(before.keys, after.keys)
+        for (fqName in before.keys) {
+            assertSame(fqName, before[fqName], after[fqName])
+        }
+    }
+
+    fun testAddedAndRemovedLayouts() {
+        val removed = writeLayout("removed", "a")
+        writeLayout("kept", "b")
+        val environment = createEnvironment()
+
+        val before = packageResources(environment)
+        assertTrue("kotlinx.android.synthetic.main.removed" in before)
+
+        assertTrue(removed.delete())
+        writeLayout("added", "c")
+        val after = packageResources(environment)
+
+        assertFalse("kotlinx.android.synthetic.main.removed" in after)
+        assertEquals(listOf("c"), after["kotlinx.android.synthetic.main.added"]!!.map { it.id })
+        assertSame(before["kotlinx.android.synthetic.main.kept"], after["kotlinx.android.synthetic.main.kept"])
+
+        // a layout which appears again is parsed again, its previous resources were forgotten with its removal
+        writeLayout("removed", "a")
+        val again = packageResources(environment)
+        assertEquals(listOf("a"), again["kotlinx.android.synthetic.main.removed"]!!.map { it.id })
+        assertNotSame(before["kotlinx.android.synthetic.main.removed"], again["kotlinx.android.synthetic.main.removed"])
+    }
+
+    fun testLayoutVariantsOfQualifiedDirectories() {
+        val portrait = writeLayout("screen", "a")
+        writeLayout("screen", "b", directory = "layout-land")
+        val environment = createEnvironment()
+
+        val before = packageResources(environment)
+        assertEquals(listOf("a", "b"), before["kotlinx.android.synthetic.main.screen"]!!.map { it.id })
+
+        // a change of any file of a layout invalidates the whole layout
+        modify(portrait, "c")
+        val after = packageResources(environment)
+        assertEquals(listOf("c", "b"), after["kotlinx.android.synthetic.main.screen"]!!.map { it.id })
+    }
+
+    private val resDir: File
+        get() = File(tmpdir, "res")
+
+    private fun writeLayout(name: String, vararg ids: String, directory: String = "layout"): File {
+        val file = File(resDir, "$directory/$name.xml")
+        file.parentFile.mkdirs()
+        file.writeText(layoutText(*ids))
+        return file
+    }
+
+    // the time stamp is changed explicitly, it may have a precision of seconds
+    private fun modify(file: File, vararg ids: String) {
+        val timeStamp = file.lastModified()
+        file.writeText(layoutText(*ids))
+        file.setLastModified(timeStamp + 2000)
+    }
+
+    private fun layoutText(vararg ids: String): String =
+            ids.joinToString("\n",
+                             prefix = "<FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n",
+                             postfix = "\n</FrameLayout>") { "    <TextView android:id=\"@+id/$it\" />" }
+
+    private fun createEnvironment(): KotlinCoreEnvironment {
+        val configuration = KotlinTestUtils.compilerConfigurationForTests(ConfigurationKind.ALL, TestJdkKind.ANDROID_API)
+        return createAndroidTestEnvironment(configuration, listOf(resDir.path + "/"))
+    }
+
+    // Each request creates new package fragments, like a new module descriptor does after a change in the IDE
+    private fun packageResources(environment: KotlinCoreEnvironment): Map<String, List<AndroidResource>> {
+        val project = environment.project
+        val extension = PackageFragmentProviderExtension.getInstances(project).first { it is AndroidPackageFragmentProviderExtension }
+        val analysisResult = JvmResolveUtil.analyzeFilesWithJavaIntegrationAndCheckForErrors(project, listOf(), JvmPackagePartProvider(environment))
+
+        val provider = extension.getPackageFragmentProvider(project, analysisResult.moduleDescriptor, LockBasedStorageManager.NO_LOCKS,
+                                                            KotlinTestUtils.DUMMY_EXCEPTION_ON_ERROR_TRACE, null) as AndroidSyntheticPackageFragmentProvider
+
+        return provider.packageFragments
+                .filterIsInstance<AndroidSyntheticPackageFragmentDescriptor>()
+                .associateBy({ it.fqName.asString() }, { it.packageData.resources })
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.annotation
+
+import java.io.*
+import java.util.*
+
+/**
+ * Annotated declarations grouped by the source files they are compiled from, so that the declarations of recompiled sources
+ * can be replaced without compiling the others.
+ *
+ * This module is the only definition of the binary format, it is used by the annotation collector plugin
+ * (which writes the index), by kotlin-annotation-processing (which reads it) and by the Gradle plugin:
+ *  - magic and version (ints);
+ *  - string table: count, then UTF strings; all strings below are indices in this table;
+ *  - source count, then for each source: path, class declaration count, (package, class name) of each declaration,
+ *    annotation count, (type byte, annotation, package, class name, element name or -1) of each annotation.
+ *
+ * Declarations with an unknown source are stored with an empty path and replaced on each compilation.
+ */
+class AnnotationIndex {
+    class ClassName(val packageName: String, val className: String)
+
+    class AnnotationRecord(val type: String, val annotationFqName: String, val owner: ClassName, val elementName: String?)
+
+    class SourceAnnotations {
+        val classes = ArrayList<ClassName>()
+        val annotations = ArrayList<AnnotationRecord>()
+    }
+
+    private val sourcesInternal = LinkedHashMap<String, SourceAnnotations>()
+
+    /**
+     * Declarations by source path, in the order the sources were added.
+     */
+    val sources: Map<String, SourceAnnotations>
+        get() = sourcesInternal
+
+    fun getOrCreate(sourcePath: String?): SourceAnnotations = sourcesInternal.getOrPut(sourcePath ?: "") { SourceAnnotations() }
+
+    fun retainSources(predicate: (String) -> Boolean) {
+        sourcesInternal.keys.retainAll(predicate)
+    }
+
+    fun addAll(other: AnnotationIndex) {
+        sourcesInternal.putAll(other.sourcesInternal)
+    }
+
+    fun write(file: File) {
+        DataOutputStream(BufferedOutputStream(FileOutputStream(file))).use { write(it) }
+    }
+
+    fun write(output: DataOutputStream) {
+        val strings = LinkedHashMap<String, Int>()
+        fun id(s: String): Int = strings.getOrPut(s) { strings.size }
+
+        val body = ByteArrayOutputStream()
+        with (DataOutputStream(body)) {
+            writeInt(sourcesInternal.size)
+            for ((path, source) in sourcesInternal) {
+                writeInt(id(path))
+
+                writeInt(source.classes.size)
+                for (name in source.classes) {
+                    writeInt(id(name.packageName))
+                    writeInt(id(name.className))
+                }
+
+                writeInt(source.annotations.size)
+                for (record in source.annotations) {
+                    writeByte(record.type[0].toInt())
+                    writeInt(id(record.annotationFqName))
+                    writeInt(id(record.owner.packageName))
+                    writeInt(id(record.owner.className))
+                    writeInt(record.elementName?.let { id(it) } ?: -1)
+                }
+            }
+            flush()
+        }
+
+        output.writeInt(MAGIC)
+        output.writeInt(VERSION)
+        output.writeInt(strings.size)
+        strings.keys.forEach { output.writeUTF(it) }
+        body.writeTo(output)
+        output.flush()
+    }
+
+    companion object {
+        val MAGIC = 0x4b415049 // "KAPI"
+        val VERSION = 1
+
+        /**
+         * Returns null if [file] does not exist or is not an index of the current version, e.g. a text file written by an older collector.
+         */
+        fun read(file: File): AnnotationIndex? {
+            if (!file.exists()) return null
+
+            try {
+                return DataInputStream(BufferedInputStream(FileInputStream(file))).use { read(it) }
+            }
+            catch (e: IOException) {
+                return null
+            }
+        }
+
+        /**
+         * Returns null if [input] does not start with the magic and version of the current format.
+         */
+        fun read(input: DataInputStream): AnnotationIndex? {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) return null
+
+            val strings = Array(input.readInt()) { input.readUTF() }
+            fun className() = ClassName(strings[input.readInt()], strings[input.readInt()])
+
+            val index = AnnotationIndex()
+            repeat(input.readInt()) {
+                val source = index.getOrCreate(strings[input.readInt()])
+                repeat(input.readInt()) {
+                    source.classes.add(className())
+                }
+                repeat(input.readInt()) {
+                    val type = input.readByte().toChar().toString()
+                    val annotationFqName = strings[input.readInt()]
+                    val owner = className()
+                    val elementId = input.readInt()
+                    source.annotations.add(AnnotationRecord(type, annotationFqName, owner, if (elementId < 0) null else strings[elementId]))
+                }
+            }
+            return index
+        }
+
+        /**
+         * Checks whether [file] is an index of the current version, an index of another version has to be rebuilt.
+         */
+        fun isCurrentIndex(file: File): Boolean {
+            if (!file.exists()) return false
+
+            try {
+                return DataInputStream(BufferedInputStream(FileInputStream(file))).use { it.readInt() == MAGIC && it.readInt() == VERSION }
+            }
+            catch (e: IOException) {
+                return false
+            }
+        }
+
+        /**
+         * Checks whether [input] starts with the index magic without consuming it, [input] must support [InputStream.mark].
+         * The version is not checked, see [read].
+         */
+        fun isIndex(input: InputStream): Boolean {
+            input.mark(4)
+            try {
+                // text files start with a record type letter followed by a space, which is never the index magic
+                return DataInputStream(input).readInt() == MAGIC
+            }
+            catch (e: EOFException) {
+                return false
+            }
+            finally {
+                input.reset()
+            }
+        }
+    }
+}
@@ -16,72 +16,61 @@
 
 package org.jetbrains.kotlin.annotation
 
+import com.intellij.openapi.project.Project
 import com.intellij.psi.PsiElement
+import org.jetbrains.kotlin.analyzer.AnalysisResult
 import org.jetbrains.kotlin.codegen.ClassBuilder
 import org.jetbrains.kotlin.codegen.ClassBuilderFactory
 import org.jetbrains.kotlin.codegen.DelegatingClassBuilder
 import org.jetbrains.kotlin.codegen.DelegatingClassBuilderFactory
 import org.jetbrains.kotlin.codegen.extensions.ClassBuilderInterceptorExtension
+import org.jetbrains.kotlin.descriptors.ModuleDescriptor
 import org.jetbrains.kotlin.diagnostics.DiagnosticSink
+import org.jetbrains.kotlin.psi.KtFile
 import org.jetbrains.kotlin.resolve.BindingContext
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin
+import org.jetbrains.kotlin.resolve.jvm.extensions.AnalysisCompletedHandlerExtension
 import org.jetbrains.org.objectweb.asm.*
 import java.io.File
-import java.io.IOException
-import java.io.StringWriter
-import java.io.Writer
+import java.util.*
 import java.util.regex.Pattern
 import java.util.regex.PatternSyntaxException
-import kotlin.properties.Delegates
 
 abstract class AnnotationCollectorExtensionBase(val supportInheritedAnnotations: Boolean) : ClassBuilderInterceptorExtension {
 
-    private object RecordTypes {
-        val ANNOTATED_CLASS = "c"
-        val ANNOTATED_METHOD = "m"
-        val ANNOTATED_FIELD = "f"
-
-        val SHORTENED_ANNOTATION = "a"
-        val SHORTENED_PACKAGE_NAME = "p"
-
-        val CLASS_DECLARATION = "d"
-    }
-
     protected abstract val annotationFilterList: List<String>?
 
-    private val shortenedAnnotationCache = ShortenedNameCache(RecordTypes.SHORTENED_ANNOTATION)
-    private val shortenedPackageNameCache = ShortenedNameCache(RecordTypes.SHORTENED_PACKAGE_NAME)
-
     override fun interceptClassBuilderFactory(
             interceptedFactory: ClassBuilderFactory,
             bindingContext: BindingContext,
             diagnostics: DiagnosticSink
     ): ClassBuilderFactory {
-        return AnnotationCollectorClassBuilderFactory(interceptedFactory, getWriter(diagnostics), diagnostics)
+        return AnnotationCollectorClassBuilderFactory(interceptedFactory, createRecorder(diagnostics), diagnostics)
     }
 
-    protected abstract fun getWriter(diagnostic: DiagnosticSink): Writer
-    protected abstract fun closeWriter()
+    protected abstract fun createRecorder(diagnostics: DiagnosticSink): AnnotationRecorder
 
     private inner class AnnotationCollectorClassBuilderFactory(
             delegateFactory: ClassBuilderFactory,
-            val writer: Writer,
+            val recorder: AnnotationRecorder,
             val diagnostics: DiagnosticSink
     ) : DelegatingClassBuilderFactory(delegateFactory) {
 
         override fun newClassBuilder(origin: JvmDeclarationOrigin): DelegatingClassBuilder {
-            return AnnotationCollectorClassBuilder(delegate.newClassBuilder(origin), writer, diagnostics)
+            val sourcePath = origin.element?.containingFile?.virtualFile?.path
+            return AnnotationCollectorClassBuilder(delegate.newClassBuilder(origin), recorder, sourcePath, diagnostics)
         }
 
         override fun close() {
-            closeWriter()
+            recorder.close()
             delegate.close()
         }
     }
 
     private inner class AnnotationCollectorClassBuilder(
             internal val delegateClassBuilder: ClassBuilder,
-            val writer: Writer,
+            val recorder: AnnotationRecorder,
+            val sourcePath: String?,
             val diagnostics: DiagnosticSink
     ) : DelegatingClassBuilder() {
         private val annotationFilterEnabled: Boolean
@@ -126,7 +115,7 @@ abstract class AnnotationCollectorExtensionBase(val supportInheritedAnnotations:
             this.currentPackageName = currentPackageName
 
             if (supportInheritedAnnotations) {
-                recordClass(currentPackageName, currentClassSimpleName)
+                recorder.recordClass(sourcePath, currentPackageName, currentClassSimpleName)
             }
 
             super.defineClass(origin, version, access, name, signature, superName, interfaces)
@@ -170,40 +159,11 @@ abstract class AnnotationCollectorExtensionBase(val supportInheritedAnnotations:
             else !annotationFqName.startsWith("kotlin.jvm.internal.") //apply to all
         }
 
-        private fun recordClass(packageName: String, className: String) {
-            val packageNameId = if (!packageName.isEmpty())
-                shortenedPackageNameCache.save(packageName, writer)
-            else null
-
-            val outputClassName = getOutputClassName(packageNameId, className)
-            writer.write("${RecordTypes.CLASS_DECLARATION} $outputClassName\n")
-        }
-
         private fun recordAnnotation(name: String?, type: String, annotationDesc: String) {
             val annotationFqName = Type.getType(annotationDesc).className
             if (!isAnnotationHandled(annotationFqName)) return
 
-            try {
-                val annotationId = shortenedAnnotationCache.save(annotationFqName, writer)
-                val packageName = this.currentPackageName!!
-
-                val packageNameId = if (!packageName.isEmpty())
-                    shortenedPackageNameCache.save(packageName, writer)
-                else null
-
-                val className = this.currentClassSimpleName!!
-                val outputClassName = getOutputClassName(packageNameId, className)
-                val elementName = if (name != null) " $name" else ""
-
-                writer.write("$type $annotationId $outputClassName$elementName\n")
-            }
-            catch (e: IOException) {
-                throw e
-            }
-        }
-
-        private fun getOutputClassName(packageNameId: String?, className: String): String {
-            return if (packageNameId == null) className else "$packageNameId/$className"
+            recorder.recordAnnotation(sourcePath, type, annotationFqName, currentPackageName!!, currentClassSimpleName!!, name)
         }
 
         private fun String.compilePatternOpt(): Pattern? {
@@ -215,45 +175,29 @@ abstract class AnnotationCollectorExtensionBase(val supportInheritedAnnotations:
             }
         }
     }
-
-    private class ShortenedNameCache(val type: String) {
-        private val internalCache = hashMapOf<String, String>()
-        private var counter: Int = 0
-
-        fun save(name: String, writer: Writer): String {
-            return internalCache.getOrPut(name) {
-                val resultId = counter.toString()
-                writer.write("$type $name $resultId\n")
-                counter += 1
-                resultId
-            }
-        }
-    }
 }
 
 class AnnotationCollectorExtension(
         override val annotationFilterList: List<String>? = null,
         val outputFilename: String? = null,
         supportInheritedAnnotations: Boolean
-) : AnnotationCollectorExtensionBase(supportInheritedAnnotations) {
+) : AnnotationCollectorExtensionBase(supportInheritedAnnotations), AnalysisCompletedHandlerExtension {
 
-    private var writerInternal: Writer? = null
+    // paths of the sources passed to the compiler, including the ones which produce no classes
+    private val compiledSources = HashSet<String>()
 
-    override fun closeWriter() {
-        writerInternal?.close()
-    }
+    // class builder factories of all modules and generation passes of the compilation update the index together
+    private val recorder by lazy { AnnotationIndexRecorder(File(outputFilename), compiledSources) }
 
-    override fun getWriter(diagnostic: DiagnosticSink): Writer {
-        return writerInternal ?: try {
-            with (File(outputFilename)) {
-                val parent = parentFile
-                if (!parent.exists()) parent.mkdirs()
-                writerInternal = bufferedWriter()
-                writerInternal!!
-            }
-        }
-        catch (e: IOException) {
-            throw e
-        }
+    override fun createRecorder(diagnostics: DiagnosticSink): AnnotationRecorder = recorder
+
+    override fun analysisCompleted(
+            project: Project,
+            module: ModuleDescriptor,
+            bindingContext: BindingContext,
+            files: Collection<KtFile>
+    ): AnalysisResult? {
+        files.mapNotNullTo(compiledSources) { it.virtualFile?.path }
+        return null
     }
-}
\ No newline at end of file
+}
@@ -101,6 +101,8 @@ class AnnotationCollectorComponentRegistrar : ComponentRegistrar {
         if (outputFilename != null) {
             val collectorExtension = AnnotationCollectorExtension(annotationFilterList, outputFilename, supportInheritedAnnotations)
             ClassBuilderInterceptorExtension.registerExtension(project, collectorExtension)
+            // collects compiled sources only, so it is registered before the handlers which may stop the analysis
+            AnalysisCompletedHandlerExtension.registerExtension(project, collectorExtension)
         }
 
         val stubs = configuration.get(AnnotationCollectorConfigurationKeys.STUBS_PATH)
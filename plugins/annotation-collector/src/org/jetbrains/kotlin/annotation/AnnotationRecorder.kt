@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.annotation
+
+import java.io.*
+
+object RecordTypes {
+    val ANNOTATED_CLASS = "c"
+    val ANNOTATED_METHOD = "m"
+    val ANNOTATED_FIELD = "f"
+
+    val SHORTENED_ANNOTATION = "a"
+    val SHORTENED_PACKAGE_NAME = "p"
+
+    val CLASS_DECLARATION = "d"
+}
+
+/**
+ * Receives declarations collected by [AnnotationCollectorExtensionBase].
+ * [sourcePath] is the path of the source file the declaration is compiled from, or null if it is unknown.
+ */
+interface AnnotationRecorder {
+    fun recordClass(sourcePath: String?, packageName: String, className: String)
+
+    fun recordAnnotation(
+            sourcePath: String?,
+            type: String,
+            annotationFqName: String,
+            packageName: String,
+            className: String,
+            elementName: String?)
+
+    fun close()
+}
+
+/**
+ * Writes declarations as text lines, e.g. "m 0 1/Foo bar" (annotation and package names are replaced with ids).
+ */
+class TextAnnotationRecorder(private val writer: Writer) : AnnotationRecorder {
+    private val shortenedAnnotationCache = ShortenedNameCache(RecordTypes.SHORTENED_ANNOTATION)
+    private val shortenedPackageNameCache = ShortenedNameCache(RecordTypes.SHORTENED_PACKAGE_NAME)
+
+    override fun recordClass(sourcePath: String?, packageName: String, className: String) {
+        val outputClassName = getOutputClassName(packageName, className)
+        writer.write("${RecordTypes.CLASS_DECLARATION} $outputClassName\n")
+    }
+
+    override fun recordAnnotation(
+            sourcePath: String?,
+            type: String,
+            annotationFqName: String,
+            packageName: String,
+            className: String,
+            elementName: String?
+    ) {
+        val annotationId = shortenedAnnotationCache.save(annotationFqName, writer)
+        val outputClassName = getOutputClassName(packageName, className)
+        val outputElementName = if (elementName != null) " $elementName" else ""
+
+        writer.write("$type $annotationId $outputClassName$outputElementName\n")
+    }
+
+    override fun close() {
+        writer.close()
+    }
+
+    private fun getOutputClassName(packageName: String, className: String): String {
+        if (packageName.isEmpty()) return className
+        return shortenedPackageNameCache.save(packageName, writer) + "/" + className
+    }
+
+    private class ShortenedNameCache(val type: String) {
+        private val internalCache = hashMapOf<String, String>()
+        private var counter: Int = 0
+
+        fun save(name: String, writer: Writer): String {
+            return internalCache.getOrPut(name) {
+                val resultId = counter.toString()
+                writer.write("$type $name $resultId\n")
+                counter += 1
+                resultId
+            }
+        }
+    }
+}
+
+/**
+ * Updates the [AnnotationIndex] in [indexFile]: declarations of [compiledSources] and of the sources which were deleted
+ * are replaced with the ones recorded by this compilation, declarations of other sources are kept.
+ *
+ * One recorder is shared by all class builder factories of a compilation, the previous index is read and merged once.
+ * [close] is called by each factory and writes all declarations recorded so far.
+ * [compiledSources] is filled after the recorder is created, it is only read on the first [close].
+ */
+class AnnotationIndexRecorder(private val indexFile: File, private val compiledSources: Set<String>) : AnnotationRecorder {
+    private val recorded = AnnotationIndex()
+
+    private val retained: AnnotationIndex by lazy {
+        val index = AnnotationIndex.read(indexFile) ?: AnnotationIndex()
+        index.retainSources { it !in compiledSources && File(it).exists() }
+        index
+    }
+
+    override fun recordClass(sourcePath: String?, packageName: String, className: String) {
+        recorded.getOrCreate(sourcePath).classes.add(AnnotationIndex.ClassName(packageName, className))
+    }
+
+    override fun recordAnnotation(
+            sourcePath: String?,
+            type: String,
+            annotationFqName: String,
+            packageName: String,
+            className: String,
+            elementName: String?
+    ) {
+        val record = AnnotationIndex.AnnotationRecord(type, annotationFqName, AnnotationIndex.ClassName(packageName, className), elementName)
+        recorded.getOrCreate(sourcePath).annotations.add(record)
+    }
+
+    override fun close() {
+        val index = AnnotationIndex()
+        index.addAll(retained)
+        // recorded declarations replace the retained ones of the same source
+        index.addAll(recorded)
+
+        val parent = indexFile.parentFile
+        if (parent != null && !parent.exists()) parent.mkdirs()
+        index.write(indexFile)
+    }
+}
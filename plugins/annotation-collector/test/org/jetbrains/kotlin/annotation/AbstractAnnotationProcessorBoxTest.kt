@@ -29,7 +29,6 @@ import org.jetbrains.kotlin.test.KotlinTestUtils
 import org.jetbrains.kotlin.test.TestJdkKind
 import java.io.File
 import java.io.StringWriter
-import java.io.Writer
 import org.junit.Assert.*
 
 abstract class AbstractAnnotationProcessorBoxTest : CodegenTestCase() {
@@ -71,8 +70,7 @@ abstract class AbstractAnnotationProcessorBoxTest : CodegenTestCase() {
     ) : AnnotationCollectorExtensionBase(supportInheritedAnnotations) {
         val stringWriter = StringWriter()
 
-        override fun getWriter(diagnostic: DiagnosticSink) = stringWriter
-        override fun closeWriter() {}
+        override fun createRecorder(diagnostics: DiagnosticSink) = TextAnnotationRecorder(stringWriter)
 
         override val annotationFilterList = listOf<String>()
     }
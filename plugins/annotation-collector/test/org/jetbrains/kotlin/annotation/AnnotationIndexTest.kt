@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.annotation
+
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import java.io.DataOutputStream
+import java.io.File
+
+class AnnotationIndexTest : TestCaseWithTmpdir() {
+    private val indexFile: File
+        get() = File(tmpdir, "annotations.idx")
+
+    fun testRoundTrip() {
+        val index = AnnotationIndex()
+        with (index.getOrCreate("/src/a.kt")) {
+            classes.add(AnnotationIndex.ClassName("a", "A"))
+            classes.add(AnnotationIndex.ClassName("a", "A\$Nested"))
+            annotations.add(AnnotationIndex.AnnotationRecord(RecordTypes.ANNOTATED_CLASS, "a.Ann", AnnotationIndex.ClassName("a", "A"), null))
+            annotations.add(AnnotationIndex.AnnotationRecord(RecordTypes.ANNOTATED_METHOD, "a.Ann", AnnotationIndex.ClassName("a", "A"), "<init>"))
+        }
+        with (index.getOrCreate(null)) {
+            classes.add(AnnotationIndex.ClassName("", "B"))
+            annotations.add(AnnotationIndex.AnnotationRecord(RecordTypes.ANNOTATED_FIELD, "Ann", AnnotationIndex.ClassName("", "B"), "x"))
+        }
+        index.write(indexFile)
+
+        assertEquals(render(index), render(AnnotationIndex.read(indexFile)!!))
+    }
+
+    fun testTextFileIsNotIndex() {
+        indexFile.writeText("d A\n")
+        assertNull(AnnotationIndex.read(indexFile))
+        assertNull(AnnotationIndex.read(File(tmpdir, "missing.idx")))
+    }
+
+    fun testRecompiledSourceIsReplaced() {
+        val a = sourceFile("a.kt")
+        val b = sourceFile("b.kt")
+
+        with (AnnotationIndexRecorder(indexFile, setOf(a, b))) {
+            recordClass(a, "p", "A")
+            recordAnnotation(a, RecordTypes.ANNOTATED_METHOD, "p.Ann", "p", "A", "foo")
+            recordClass(b, "p", "B")
+            close()
+        }
+
+        // only a.kt is recompiled, foo is renamed to bar
+        with (AnnotationIndexRecorder(indexFile, setOf(a))) {
+            recordClass(a, "p", "A")
+            recordAnnotation(a, RecordTypes.ANNOTATED_METHOD, "p.Ann", "p", "A", "bar")
+            close()
+        }
+
+        assertEquals(
+                listOf("$b: d p.B", "$a: d p.A", "$a: m p.Ann p.A bar"),
+                render(AnnotationIndex.read(indexFile)!!))
+    }
+
+    fun testRecompiledSourceWithoutDeclarationsIsRemoved() {
+        val a = sourceFile("a.kt")
+        val b = sourceFile("b.kt")
+
+        with (AnnotationIndexRecorder(indexFile, setOf(a, b))) {
+            recordClass(a, "p", "A")
+            recordClass(b, "p", "B")
+            close()
+        }
+
+        with (AnnotationIndexRecorder(indexFile, setOf(a))) {
+            close()
+        }
+
+        assertEquals(listOf("$b: d p.B"), render(AnnotationIndex.read(indexFile)!!))
+    }
+
+    fun testDeletedSourceIsRemoved() {
+        val a = sourceFile("a.kt")
+        val b = sourceFile("b.kt")
+
+        with (AnnotationIndexRecorder(indexFile, setOf(a, b))) {
+            recordClass(a, "p", "A")
+            recordClass(b, "p", "B")
+            close()
+        }
+
+        File(b).delete()
+        with (AnnotationIndexRecorder(indexFile, setOf())) {
+            close()
+        }
+
+        assertEquals(listOf("$a: d p.A"), render(AnnotationIndex.read(indexFile)!!))
+    }
+
+    fun testRecorderIsClosedByEachFactory() {
+        val a = sourceFile("a.kt")
+        val b = sourceFile("b.kt")
+        val c = sourceFile("c.kt")
+
+        with (AnnotationIndexRecorder(indexFile, setOf(a, b, c))) {
+            recordClass(a, "p", "A")
+            recordClass(b, "p", "B")
+            recordClass(c, "p", "C")
+            close()
+        }
+
+        // a.kt and b.kt are recompiled, their classes are generated by two class builder factories of one compilation
+        val compiledSources = hashSetOf<String>()
+        val recorder = AnnotationIndexRecorder(indexFile, compiledSources)
+        compiledSources.addAll(listOf(a, b))
+
+        recorder.recordClass(a, "p", "A2")
+        recorder.close()
+        assertEquals(listOf("$c: d p.C", "$a: d p.A2"), render(AnnotationIndex.read(indexFile)!!))
+
+        // the previous index is not read again, so the declarations of a.kt written by the first factory are kept
+        recorder.recordClass(b, "p", "B2")
+        recorder.close()
+        assertEquals(listOf("$c: d p.C", "$a: d p.A2", "$b: d p.B2"), render(AnnotationIndex.read(indexFile)!!))
+    }
+
+    fun testIndexOfOtherVersionIsNotCurrent() {
+        val a = sourceFile("a.kt")
+        with (AnnotationIndexRecorder(indexFile, setOf(a))) {
+            recordClass(a, "p", "A")
+            close()
+        }
+        assertTrue(AnnotationIndex.isCurrentIndex(indexFile))
+
+        DataOutputStream(indexFile.outputStream()).use {
+            it.writeInt(AnnotationIndex.MAGIC)
+            it.writeInt(AnnotationIndex.VERSION + 1)
+        }
+        assertFalse(AnnotationIndex.isCurrentIndex(indexFile))
+        assertNull(AnnotationIndex.read(indexFile))
+
+        // the declarations of an outdated index are not kept
+        with (AnnotationIndexRecorder(indexFile, setOf())) {
+            close()
+        }
+        assertEquals(listOf<String>(), render(AnnotationIndex.read(indexFile)!!))
+    }
+
+    private fun sourceFile(name: String): String {
+        val file = File(tmpdir, name)
+        file.writeText("")
+        return file.path
+    }
+
+    private fun render(index: AnnotationIndex): List<String> {
+        fun AnnotationIndex.ClassName.render() = if (packageName.isEmpty()) className else "$packageName.$className"
+
+        return index.sources.flatMap { entry ->
+            val (path, source) = entry
+            source.classes.map { "$path: ${RecordTypes.CLASS_DECLARATION} ${it.render()}" } +
+            source.annotations.map { "$path: ${it.type} ${it.annotationFqName} ${it.owner.render()}" + (it.elementName?.let { name -> " $name" } ?: "") }
+        }
+    }
+}